@@ -0,0 +1,164 @@
+package org.anarres.filechooser.benchmarks;
+
+import com.googlecode.vfsjfilechooser2.filechooser.VFSFileSystemView;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import javax.annotation.Nonnull;
+import org.anarres.filechooser.impl.nio.NioVfsFileSystemView;
+import org.anarres.filechooser.impl.vfs2.CommonsVfs2FileSystemView;
+import org.anarres.filechooser.test.SyntheticFileSystemView;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.vfs2.FileObject;
+
+/**
+ * Builds pairs of populated directories on the file systems the
+ * benchmarks run against.
+ *
+ * @author shevek
+ */
+public class BenchmarkDirectories<F> {
+
+    /** The backends accepted by {@link #create}. */
+    public static final String SYNTHETIC = "synthetic";
+    public static final String RAM = "ram";
+    public static final String LOCAL = "local";
+    public static final String NIO = "nio";
+    private static final String[] EXTENSIONS = {"txt", "csv", "json", "parquet", "dat"};
+
+    /** The name of the i'th entry; every tenth entry is a directory. */
+    @Nonnull
+    public static String getName(int i) {
+        if (i % 10 == 0)
+            return String.format("dir-%07d", i);
+        return String.format("file-%07d.%s", i, EXTENSIONS[i % EXTENSIONS.length]);
+    }
+
+    public static boolean isDirectory(int i) {
+        return i % 10 == 0;
+    }
+
+    /** A size for the i'th entry, not in the order of the names. */
+    public static long getSize(int i) {
+        return (i * 7919L) % 1000003L;
+    }
+
+    private final VFSFileSystemView<F> view;
+    private final F first;
+    private final F second;
+    private final File tempDir;
+
+    private BenchmarkDirectories(VFSFileSystemView<F> view, F first, F second, File tempDir) {
+        this.view = view;
+        this.first = first;
+        this.second = second;
+        this.tempDir = tempDir;
+    }
+
+    @Nonnull
+    public VFSFileSystemView<F> getView() {
+        return view;
+    }
+
+    /** A directory with the requested number of entries. */
+    @Nonnull
+    public F getFirst() {
+        return first;
+    }
+
+    /** Another directory with the same entry names. */
+    @Nonnull
+    public F getSecond() {
+        return second;
+    }
+
+    public void close() throws IOException {
+        if (tempDir != null)
+            FileUtils.deleteDirectory(tempDir);
+    }
+
+    /**
+     * Creates two directories of the given size.
+     * @param backend one of {@link #SYNTHETIC}, {@link #RAM}, {@link #LOCAL} or {@link #NIO}.
+     * @param size the number of entries in each directory.
+     */
+    @Nonnull
+    public static BenchmarkDirectories<?> create(@Nonnull String backend, int size) throws Exception {
+        if (SYNTHETIC.equals(backend))
+            return newSynthetic(size);
+        if (RAM.equals(backend))
+            return newVfs2("ram:///benchmark-" + System.nanoTime(), size, null);
+        if (LOCAL.equals(backend)) {
+            File tempDir = newTempDir();
+            return newVfs2(tempDir.toURI().toString(), size, tempDir);
+        }
+        if (NIO.equals(backend))
+            return newNio(size);
+        throw new IllegalArgumentException("Unknown backend " + backend);
+    }
+
+    @Nonnull
+    public static BenchmarkDirectories<String> newSynthetic(int size) {
+        SyntheticFileSystemView view = new SyntheticFileSystemView();
+        String first = populate(view, view.addDirectory("/", "first"), size);
+        String second = populate(view, view.addDirectory("/", "second"), size);
+        return new BenchmarkDirectories<String>(view, first, second, null);
+    }
+
+    private static String populate(SyntheticFileSystemView view, String dir, int size) {
+        for (int i = 0; i < size; i++) {
+            if (isDirectory(i))
+                view.addDirectory(dir, getName(i));
+            else
+                view.addFile(dir, getName(i), getSize(i), 1000000000000L + getSize(i));
+        }
+        return dir;
+    }
+
+    private static BenchmarkDirectories<FileObject> newVfs2(String url, int size, File tempDir) throws Exception {
+        CommonsVfs2FileSystemView view = new CommonsVfs2FileSystemView();
+        FileObject root = view.createFileObject(url);
+        return new BenchmarkDirectories<FileObject>(view,
+                populate(root.resolveFile("first"), size),
+                populate(root.resolveFile("second"), size),
+                tempDir);
+    }
+
+    private static FileObject populate(FileObject dir, int size) throws IOException {
+        dir.createFolder();
+        for (int i = 0; i < size; i++) {
+            FileObject child = dir.resolveFile(getName(i));
+            if (isDirectory(i))
+                child.createFolder();
+            else
+                child.createFile();
+        }
+        return dir;
+    }
+
+    private static BenchmarkDirectories<Path> newNio(int size) throws IOException {
+        File tempDir = newTempDir();
+        NioVfsFileSystemView view = new NioVfsFileSystemView();
+        return new BenchmarkDirectories<Path>(view,
+                populate(tempDir.toPath().resolve("first"), size),
+                populate(tempDir.toPath().resolve("second"), size),
+                tempDir);
+    }
+
+    private static Path populate(Path dir, int size) throws IOException {
+        Files.createDirectory(dir);
+        for (int i = 0; i < size; i++) {
+            Path child = dir.resolve(getName(i));
+            if (isDirectory(i))
+                Files.createDirectory(child);
+            else
+                Files.createFile(child);
+        }
+        return dir;
+    }
+
+    private static File newTempDir() throws IOException {
+        return Files.createTempDirectory("vfsjfilechooser-benchmark").toFile();
+    }
+}
@@ -0,0 +1,90 @@
+package org.anarres.filechooser.benchmarks;
+
+import com.googlecode.vfsjfilechooser2.filechooser.VFSFileAttributes;
+import com.googlecode.vfsjfilechooser2.utils.FileObjectComparatorFactory;
+import com.googlecode.vfsjfilechooser2.utils.FileObjectComparatorFactory.SortKey;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.anarres.filechooser.test.SyntheticFileSystemView;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares sorting a listing with the file comparators of
+ * {@link FileObjectComparatorFactory} against sorting precomputed keys.
+ *
+ * @author shevek
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ComparatorBenchmark {
+
+    @Param({"100", "10000", "100000", "1000000"})
+    public int size;
+    @Param({"name", "size", "date"})
+    public String column;
+    private SyntheticFileSystemView view;
+    private List<String> files;
+    private Map<String, VFSFileAttributes<String>> attributes;
+
+    @Setup
+    public void setUp() {
+        BenchmarkDirectories<String> directories = BenchmarkDirectories.newSynthetic(size);
+        view = (SyntheticFileSystemView) directories.getView();
+        attributes = new HashMap<String, VFSFileAttributes<String>>();
+        files = new ArrayList<String>(size);
+        for (VFSFileAttributes<String> a : view.getChildAttributes(directories.getFirst(), false)) {
+            attributes.put(a.getFile(), a);
+            files.add(a.getFile());
+        }
+        // Listing order is by name; shuffle deterministically.
+        Collections.shuffle(files, new Random(size));
+    }
+
+    @Benchmark
+    public List<String> fileComparator() {
+        Comparator<String> comparator;
+        if ("size".equals(column))
+            comparator = FileObjectComparatorFactory.newSizeComparator(view, true);
+        else if ("date".equals(column))
+            comparator = FileObjectComparatorFactory.newDateComparator(view, true);
+        else
+            comparator = FileObjectComparatorFactory.newFileNameComparator(view, true);
+        List<String> copy = new ArrayList<String>(files);
+        Collections.sort(copy, comparator);
+        return copy;
+    }
+
+    @Benchmark
+    public List<String> keyComparator() {
+        Comparator<SortKey<String>> comparator;
+        if ("size".equals(column))
+            comparator = FileObjectComparatorFactory.newSizeKeyComparator(true);
+        else if ("date".equals(column))
+            comparator = FileObjectComparatorFactory.newDateKeyComparator(true);
+        else
+            comparator = FileObjectComparatorFactory.newFileNameKeyComparator(true);
+        List<String> copy = new ArrayList<String>(files);
+        FileObjectComparatorFactory.sort(view, copy, comparator, attributes);
+        return copy;
+    }
+}
@@ -0,0 +1,92 @@
+package org.anarres.filechooser.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the directory model end to end: listing in the background,
+ * filtering, sorting, diffing and applying the result on the EDT.
+ *
+ * Sizes up to 1M entries may be selected with <code>-p size=1000000</code>;
+ * they are not run by default because populating the local and ram
+ * backends takes minutes.
+ *
+ * @author shevek
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DirectoryModelBenchmark {
+
+    @Param({BenchmarkDirectories.SYNTHETIC, BenchmarkDirectories.RAM,
+        BenchmarkDirectories.LOCAL, BenchmarkDirectories.NIO})
+    public String backend;
+    @Param({"100", "10000", "100000"})
+    public int size;
+    private BenchmarkDirectories<?> directories;
+    private Runner<?> runner;
+    private boolean second;
+
+    /** Binds the harness to the type of the backend. */
+    private static class Runner<F> {
+
+        private final BenchmarkDirectories<F> directories;
+        private final ModelHarness<F> harness;
+
+        public Runner(BenchmarkDirectories<F> directories) throws Exception {
+            this.directories = directories;
+            this.harness = new ModelHarness<F>(directories.getView(), directories.getFirst());
+        }
+
+        public void enter(boolean second) throws Exception {
+            harness.enter(second ? directories.getSecond() : directories.getFirst());
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        System.setProperty("java.awt.headless", "true");
+        directories = BenchmarkDirectories.create(backend, size);
+        runner = newRunner(directories);
+    }
+
+    private static <F> Runner<F> newRunner(BenchmarkDirectories<F> directories) throws Exception {
+        return new Runner<F>(directories);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        runner.harness.close();
+        directories.close();
+    }
+
+    /** Enters a directory which shares no entries with the one shown. */
+    @Benchmark
+    public int enterDirectory() throws Exception {
+        second = !second;
+        runner.enter(second);
+        return runner.harness.getModel().getSize();
+    }
+
+    /** Lists the directory shown again; the diff is empty. */
+    @Benchmark
+    public int rescan() throws Exception {
+        runner.harness.rescan();
+        return runner.harness.getModel().getSize();
+    }
+}
@@ -0,0 +1,54 @@
+package org.anarres.filechooser.benchmarks;
+
+import com.googlecode.vfsjfilechooser2.filechooser.GlobFileFilter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures filtering a listing with {@link GlobFileFilter}.
+ *
+ * @author shevek
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GlobFileFilterBenchmark {
+
+    @Param({"100", "10000", "100000", "1000000"})
+    public int size;
+    @Param({"*.csv", "file-00*.json", "*.csv;*.parquet;*.json"})
+    public String pattern;
+    private List<String> files;
+    private GlobFileFilter<String> filter;
+
+    @Setup
+    public void setUp() {
+        BenchmarkDirectories<String> directories = BenchmarkDirectories.newSynthetic(size);
+        files = Arrays.asList(directories.getView().getChildren(directories.getFirst(), false));
+        filter = new GlobFileFilter<String>(directories.getView(), pattern);
+    }
+
+    @Benchmark
+    public int accept() {
+        int count = 0;
+        for (String f : files)
+            if (filter.accept(f))
+                count++;
+        return count;
+    }
+}
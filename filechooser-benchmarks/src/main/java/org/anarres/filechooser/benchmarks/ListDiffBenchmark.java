@@ -0,0 +1,59 @@
+package org.anarres.filechooser.benchmarks;
+
+import com.googlecode.vfsjfilechooser2.utils.ListDiff;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the difference computed by the directory model when a
+ * directory is rescanned and a fraction of its entries has changed.
+ *
+ * @author shevek
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ListDiffBenchmark {
+
+    @Param({"100", "10000", "100000", "1000000"})
+    public int size;
+    /** One in this many entries is replaced; 0 for none. */
+    @Param({"0", "100"})
+    public int changeEvery;
+    private List<String> oldList;
+    private List<String> newList;
+
+    @Setup
+    public void setUp() {
+        oldList = new ArrayList<String>(size);
+        newList = new ArrayList<String>(size);
+        for (int i = 0; i < size; i++) {
+            String name = BenchmarkDirectories.getName(i);
+            oldList.add(name);
+            if (changeEvery > 0 && i % changeEvery == 0)
+                newList.add(name + ".new");
+            else
+                newList.add(new String(name));
+        }
+    }
+
+    @Benchmark
+    public ListDiff<String> compute() {
+        return ListDiff.compute(oldList, newList);
+    }
+}
@@ -0,0 +1,112 @@
+package org.anarres.filechooser.benchmarks;
+
+import com.googlecode.vfsjfilechooser2.VFSJFileChooser;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSFileSystemView;
+import com.googlecode.vfsjfilechooser2.plaf.basic.BasicVFSDirectoryModel;
+import com.googlecode.vfsjfilechooser2.plaf.basic.BasicVFSFileChooserUI;
+import com.googlecode.vfsjfilechooser2.plaf.basic.DirectoryListingCache;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import javax.annotation.Nonnull;
+import javax.swing.SwingUtilities;
+
+/**
+ * Drives the directory model of a file chooser synchronously: each
+ * call returns once the model has loaded the directory and applied the
+ * result on the EDT.
+ *
+ * @author shevek
+ */
+public class ModelHarness<F> {
+
+    private final VFSJFileChooser<F> chooser;
+    private final BasicVFSDirectoryModel<F> model;
+
+    @SuppressWarnings("unchecked")
+    public ModelHarness(@Nonnull final VFSFileSystemView<F> view, @Nonnull final F directory) throws Exception {
+        final Object[] out = new Object[1];
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                out[0] = new VFSJFileChooser<F>(directory, view);
+            }
+        });
+        this.chooser = (VFSJFileChooser<F>) out[0];
+        this.model = ((BasicVFSFileChooserUI<F>) chooser.getUI()).getModel();
+        // Measure listing, not the cache or background polling.
+        model.getListingCache().setDefaultPolicy(DirectoryListingCache.Policy.DISABLED);
+        model.setWatchingEnabled(false);
+        await(new Runnable() {
+            @Override
+            public void run() {
+                model.validateFileCache();
+            }
+        });
+    }
+
+    @Nonnull
+    public BasicVFSDirectoryModel<F> getModel() {
+        return model;
+    }
+
+    /** Changes to the given directory and waits for it to be shown. */
+    public void enter(@Nonnull final F directory) throws Exception {
+        await(new Runnable() {
+            @Override
+            public void run() {
+                chooser.setCurrentDirectory(directory);
+            }
+        });
+    }
+
+    /** Lists the current directory again and waits for the result. */
+    public void rescan() throws Exception {
+        await(new Runnable() {
+            @Override
+            public void run() {
+                model.validateFileCache();
+            }
+        });
+    }
+
+    /**
+     * Runs the action on the EDT, then waits until the model is no
+     * longer busy and all its updates have been applied.
+     */
+    private void await(final Runnable action) throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        PropertyChangeListener listener = new PropertyChangeListener() {
+            @Override
+            public void propertyChange(PropertyChangeEvent e) {
+                if ("busy".equals(e.getPropertyName()) && Boolean.FALSE.equals(e.getNewValue()))
+                    latch.countDown();
+            }
+        };
+        model.addPropertyChangeListener(listener);
+        try {
+            SwingUtilities.invokeAndWait(action);
+            if (!latch.await(10, TimeUnit.MINUTES))
+                throw new TimeoutException("Model did not finish loading.");
+            // Flush anything queued behind the end of the load.
+            SwingUtilities.invokeAndWait(new Runnable() {
+                @Override
+                public void run() {
+                }
+            });
+        } finally {
+            model.removePropertyChangeListener(listener);
+        }
+    }
+
+    public void close() throws Exception {
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                model.dispose();
+            }
+        });
+    }
+}
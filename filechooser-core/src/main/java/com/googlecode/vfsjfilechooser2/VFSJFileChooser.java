@@ -18,11 +18,17 @@
  */
 package com.googlecode.vfsjfilechooser2;
 
+import com.googlecode.vfsjfilechooser2.filechooser.DefaultVFSTaskExecutor;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSAttributeFileFilter;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSFileAttributes;
 import com.googlecode.vfsjfilechooser2.filechooser.VFSFileFilter;
 import com.googlecode.vfsjfilechooser2.filechooser.VFSFileSystemView;
 import com.googlecode.vfsjfilechooser2.filechooser.VFSFileView;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSNameFilter;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSTaskExecutor;
 import com.googlecode.vfsjfilechooser2.plaf.VFSFileChooserUI;
 import com.googlecode.vfsjfilechooser2.plaf.metal.MetalVFSFileChooserUI;
+import com.googlecode.vfsjfilechooser2.utils.VFSUtils;
 import java.awt.AWTEvent;
 import java.awt.BorderLayout;
 import java.awt.Component;
@@ -48,6 +54,10 @@ import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import javax.accessibility.Accessible;
 import javax.accessibility.AccessibleContext;
 import javax.accessibility.AccessibleRole;
@@ -60,6 +70,7 @@ import javax.swing.JDialog;
 import javax.swing.JPanel;
 import javax.swing.JRootPane;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.TransferHandler;
 import javax.swing.UIDefaults;
 import javax.swing.UIManager;
@@ -71,6 +82,7 @@ import static com.googlecode.vfsjfilechooser2.constants.VFSJFileChooserConstants
 import static com.googlecode.vfsjfilechooser2.constants.VFSJFileChooserConstants.APPROVE_BUTTON_MNEMONIC_CHANGED_PROPERTY;
 import static com.googlecode.vfsjfilechooser2.constants.VFSJFileChooserConstants.APPROVE_BUTTON_TEXT_CHANGED_PROPERTY;
 import static com.googlecode.vfsjfilechooser2.constants.VFSJFileChooserConstants.APPROVE_BUTTON_TOOL_TIP_TEXT_CHANGED_PROPERTY;
+import static com.googlecode.vfsjfilechooser2.constants.VFSJFileChooserConstants.ASYNC_NAVIGATION_CHANGED_PROPERTY;
 import static com.googlecode.vfsjfilechooser2.constants.VFSJFileChooserConstants.APPROVE_SELECTION;
 import static com.googlecode.vfsjfilechooser2.constants.VFSJFileChooserConstants.CANCEL_SELECTION;
 import static com.googlecode.vfsjfilechooser2.constants.VFSJFileChooserConstants.CHOOSABLE_FILE_FILTER_CHANGED_PROPERTY;
@@ -84,6 +96,7 @@ import static com.googlecode.vfsjfilechooser2.constants.VFSJFileChooserConstants
 import static com.googlecode.vfsjfilechooser2.constants.VFSJFileChooserConstants.FILE_SYSTEM_VIEW_CHANGED_PROPERTY;
 import static com.googlecode.vfsjfilechooser2.constants.VFSJFileChooserConstants.FILE_VIEW_CHANGED_PROPERTY;
 import static com.googlecode.vfsjfilechooser2.constants.VFSJFileChooserConstants.MULTI_SELECTION_ENABLED_CHANGED_PROPERTY;
+import static com.googlecode.vfsjfilechooser2.constants.VFSJFileChooserConstants.NAVIGATION_PENDING_CHANGED_PROPERTY;
 import static com.googlecode.vfsjfilechooser2.constants.VFSJFileChooserConstants.SELECTED_FILES_CHANGED_PROPERTY;
 import static com.googlecode.vfsjfilechooser2.constants.VFSJFileChooserConstants.SELECTED_FILE_CHANGED_PROPERTY;
 import static com.googlecode.vfsjfilechooser2.constants.VFSJFileChooserConstants.SHOW_HIDDEN_PROP;
@@ -97,7 +110,15 @@ import static com.googlecode.vfsjfilechooser2.constants.VFSJFileChooserConstants
 @SuppressWarnings("serial")
 public class VFSJFileChooser<FileObject> extends JComponent implements Accessible {
 
-    private static final Frame SHARED_FRAME = new Frame();
+    private static final Logger LOG = Logger.getLogger(VFSJFileChooser.class.getName());
+    /** The default time allowed for an asynchronous change of directory. */
+    public static final long DEFAULT_NAVIGATION_TIMEOUT_MILLIS = 15000;
+
+    // Created on first use, so that a chooser can be built headless.
+    private static class SharedFrameHolder {
+
+        private static final Frame SHARED_FRAME = new Frame();
+    }
     // private static final FileObject[] EMPTY_FILEOBJECT_ARRAY = new FileObject[]{};
 
     // ******************************
@@ -127,7 +148,15 @@ public class VFSJFileChooser<FileObject> extends JComponent implements Accessibl
     private boolean dragEnabled = false;
     private VFSFileFilter<? super FileObject> fileFilter = null;
     private VFSFileSystemView<FileObject> fileSystemView = null;
+    private VFSTaskExecutor taskExecutor = null;
     private FileObject currentDirectory = null;
+    private boolean asyncNavigation = false;
+    private long navigationTimeoutMillis = DEFAULT_NAVIGATION_TIMEOUT_MILLIS;
+    // Incremented by each navigation, so that results of superseded
+    // navigations can be discarded.
+    private final AtomicInteger navigationID = new AtomicInteger(0);
+    private Future<?> navigationTask = null;
+    private Timer navigationTimer = null;
     private FileObject selectedFile = null;
     private FileObject[] selectedFiles;
 
@@ -386,6 +415,10 @@ public class VFSJFileChooser<FileObject> extends JComponent implements Accessibl
      * until it finds a traversable directory, or hits the root of the
      * file system.
      *
+     * If {@link #setAsyncNavigation asynchronous navigation} is enabled,
+     * this returns at once, and the directory changes later on the EDT.
+     * It must then be called on the EDT.
+     *
      * @beaninfo
      *   preferred: true
      *       bound: true
@@ -395,22 +428,35 @@ public class VFSJFileChooser<FileObject> extends JComponent implements Accessibl
      * @see #getCurrentDirectory
      */
     public void setCurrentDirectory(FileObject dir) {
-        FileObject oldValue = currentDirectory;
+        if (isAsyncNavigation()) {
+            navigate(dir, false);
+            return;
+        }
+
+        cancelNavigation();
+        applyCurrentDirectory(resolveCurrentDirectory(dir, currentDirectory));
+    }
 
+    /**
+     * Resolves the directory to change to, as documented by
+     * {@link #setCurrentDirectory}.
+     * This accesses the file system.
+     */
+    private FileObject resolveCurrentDirectory(FileObject dir, FileObject current) {
         // getFileSystemView().isTraversable(dir)
         VFSFileSystemView<FileObject> fsv = getFileSystemView();
         if ((dir != null) && !fsv.exists(dir)) {
-            dir = currentDirectory;
+            dir = current;
         }
 
         if (dir == null) {
-            dir = getFileSystemView().getDefaultDirectory();
+            dir = fsv.getDefaultDirectory();
         }
 
-        if (currentDirectory != null) {
+        if (current != null) {
             /* Verify the toString of object */
-            if (this.currentDirectory.equals(dir)) {
-                return;
+            if (current.equals(dir)) {
+                return current;
             }
         }
 
@@ -419,7 +465,17 @@ public class VFSJFileChooser<FileObject> extends JComponent implements Accessibl
 
         while (!isTraversable(dir) && (prev != dir)) {
             prev = dir;
-            dir = getFileSystemView().getParentDirectory(dir);
+            dir = fsv.getParentDirectory(dir);
+        }
+
+        return dir;
+    }
+
+    private void applyCurrentDirectory(FileObject dir) {
+        FileObject oldValue = currentDirectory;
+
+        if ((oldValue != null) && oldValue.equals(dir)) {
+            return;
         }
 
         currentDirectory = dir;
@@ -427,15 +483,192 @@ public class VFSJFileChooser<FileObject> extends JComponent implements Accessibl
         firePropertyChange(DIRECTORY_CHANGED_PROPERTY, oldValue, currentDirectory);
     }
 
+    /**
+     * Resolves and validates the directory in the background, then
+     * changes to it on the EDT. A later navigation supersedes this one.
+     * Must be called on the EDT, which owns the navigation state.
+     * @param dir the directory to change to, ignored if toParent is set.
+     * @param toParent true to change to the parent of the current
+     *  directory, which is also looked up in the background.
+     */
+    private void navigate(final FileObject dir, final boolean toParent) {
+        assert EventQueue.isDispatchThread() : "Not on the EDT";
+
+        cancelNavigation();
+
+        final int id = navigationID.get();
+        final FileObject current = currentDirectory;
+        FileObject key = (dir != null) ? dir : current;
+        String group = (key == null) ? ""
+                : VFSUtils.getFileSystemKey(getFileSystemView().getUrl(key));
+
+        navigationTimer = new Timer((int) Math.min(navigationTimeoutMillis, Integer.MAX_VALUE),
+                new ActionListener() {
+                    @Override
+                    public void actionPerformed(ActionEvent e) {
+                        if (navigationID.get() != id) {
+                            return;
+                        }
+
+                        LOG.log(Level.WARNING, "Timed out changing directory to {0}", dir);
+                        cancelNavigation();
+                    }
+                });
+        navigationTimer.setRepeats(false);
+        navigationTimer.start();
+
+        navigationTask = getTaskExecutor().submit(group, VFSTaskExecutor.TaskType.LISTING, new Runnable() {
+            @Override
+            public void run() {
+                if (navigationID.get() != id) {
+                    return;
+                }
+
+                FileObject target;
+
+                try {
+                    FileObject next = dir;
+
+                    if (toParent) {
+                        next = getFileSystemView().getParentDirectory(current);
+
+                        if (next == null) {
+                            // Already at a root.
+                            next = current;
+                        }
+                    }
+
+                    target = resolveCurrentDirectory(next, current);
+                } catch (RuntimeException e) {
+                    LOG.log(Level.WARNING, "Failed to change directory to " + dir, e);
+                    target = null;
+                }
+
+                final FileObject result = target;
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (navigationID.get() != id) {
+                            return;
+                        }
+
+                        cancelNavigation();
+
+                        if (result != null) {
+                            applyCurrentDirectory(result);
+                        }
+                    }
+                });
+            }
+        });
+
+        firePropertyChange(NAVIGATION_PENDING_CHANGED_PROPERTY, false, true);
+    }
+
+    /**
+     * Abandons any pending asynchronous navigation.
+     */
+    private void cancelNavigation() {
+        navigationID.incrementAndGet();
+
+        if (navigationTimer != null) {
+            navigationTimer.stop();
+            navigationTimer = null;
+        }
+
+        if (navigationTask != null) {
+            navigationTask.cancel(true);
+            navigationTask = null;
+            firePropertyChange(NAVIGATION_PENDING_CHANGED_PROPERTY, true, false);
+        }
+    }
+
+    /**
+     * Returns true if an asynchronous change of directory is in progress.
+     * @see #setAsyncNavigation
+     */
+    public boolean isNavigationPending() {
+        return navigationTask != null;
+    }
+
+    /**
+     * Returns true if {@link #setCurrentDirectory} changes directory
+     * asynchronously.
+     * @see #setAsyncNavigation
+     */
+    public boolean isAsyncNavigation() {
+        return asyncNavigation;
+    }
+
+    /**
+     * Sets whether {@link #setCurrentDirectory} changes directory
+     * asynchronously.
+     *
+     * If set, the new directory is resolved and validated on the
+     * {@link #getTaskExecutor() task executor}, so that a slow or dead
+     * file system does not block the caller. The current directory
+     * changes, and the property change fires on the EDT, only once
+     * the new directory is confirmed. A later navigation supersedes
+     * any pending one. A navigation which does not complete within
+     * the {@link #setNavigationTimeout timeout} is abandoned, leaving
+     * the current directory unchanged.
+     *
+     * In this mode, {@link #getCurrentDirectory} returns the old
+     * directory until the change completes;
+     * {@link #isNavigationPending} is true in the meantime.
+     *
+     * @beaninfo
+     *       bound: true
+     * description: Whether the current directory is changed in the background.
+     *
+     * @param b true to change directory asynchronously
+     */
+    public void setAsyncNavigation(boolean b) {
+        boolean oldValue = asyncNavigation;
+        asyncNavigation = b;
+
+        if (!b) {
+            cancelNavigation();
+        }
+
+        firePropertyChange(ASYNC_NAVIGATION_CHANGED_PROPERTY, oldValue, asyncNavigation);
+    }
+
+    /**
+     * Returns the time allowed for an asynchronous change of directory.
+     * @return the timeout in milliseconds
+     */
+    public long getNavigationTimeout() {
+        return navigationTimeoutMillis;
+    }
+
+    /**
+     * Sets the time allowed for an asynchronous change of directory,
+     * after which it is abandoned.
+     * @param timeoutMillis the timeout in milliseconds
+     */
+    public void setNavigationTimeout(long timeoutMillis) {
+        this.navigationTimeoutMillis = timeoutMillis;
+    }
+
     /**
      * Changes the directory to be set to the parent of the
      * current directory.
      *
+     * If {@link #setAsyncNavigation asynchronous navigation} is enabled,
+     * the parent is looked up in the background, as for
+     * {@link #setCurrentDirectory}.
+     *
      * @see #getCurrentDirectory
      */
     public void changeToParentDirectory() {
         selectedFile = null;
 
+        if (isAsyncNavigation()) {
+            navigate(null, true);
+            return;
+        }
+
         FileObject oldValue = getCurrentDirectory();
         FileObject newValue = getFileSystemView().getParentDirectory(oldValue);
         if (newValue != null)
@@ -631,7 +864,7 @@ public class VFSJFileChooser<FileObject> extends JComponent implements Accessibl
             if (parent instanceof Window) {
                 window = (Window) parent;
             } else {
-                window = SHARED_FRAME;
+                window = SharedFrameHolder.SHARED_FRAME;
             }
 
             dialog = new JDialog((Frame) window, title, true);
@@ -1474,6 +1707,17 @@ public class VFSJFileChooser<FileObject> extends JComponent implements Accessibl
      * @see FileView#isTraversable
      */
     public boolean isTraversable(FileObject fileObject) {
+        return isTraversable(fileObject, null);
+    }
+
+    /**
+     * Returns true if the file (directory) can be visited, using
+     * attributes already read from the file system if possible.
+     * @param fileObject the <code>File</code>
+     * @param attributes the attributes of the file, or null
+     * @return true if the file/directory can be traversed, otherwise false
+     */
+    public boolean isTraversable(FileObject fileObject, @CheckForNull VFSFileAttributes<FileObject> attributes) {
         Boolean traversable = null;
 
         if (fileObject != null) {
@@ -1487,7 +1731,11 @@ public class VFSJFileChooser<FileObject> extends JComponent implements Accessibl
             }
 
             if (traversable == null) {
-                traversable = getFileSystemView().isTraversable(fileObject);
+                if (attributes != null) {
+                    traversable = attributes.isDirectory();
+                } else {
+                    traversable = getFileSystemView().isTraversable(fileObject);
+                }
             }
         }
 
@@ -1510,6 +1758,98 @@ public class VFSJFileChooser<FileObject> extends JComponent implements Accessibl
         return shown;
     }
 
+    /**
+     * Returns true if the file should be displayed, using attributes
+     * already read from the file system. If the file filter is a
+     * {@link VFSAttributeFileFilter}, it is given the attributes, so
+     * that it need not read them again.
+     * @param attributes the attributes of the file
+     * @return true if the file should be displayed, otherwise false
+     * @see #getFileFilterRequirement()
+     */
+    public boolean accept(@Nonnull VFSFileAttributes<FileObject> attributes) {
+        VFSFileFilter<? super FileObject> filter = fileFilter;
+
+        if (filter instanceof VFSAttributeFileFilter) {
+            return ((VFSAttributeFileFilter<? super FileObject>) filter).accept(attributes);
+        }
+
+        return accept(attributes.getFile());
+    }
+
+    /**
+     * Returns which of the given files should be displayed, using
+     * attributes already read from the file system. If the file filter
+     * is a {@link VFSAttributeFileFilter}, it is given all the files at
+     * once, so that it may check them in bulk.
+     * @param attributes the attributes of the files
+     * @return an array with an element for each file, in order, which is
+     *  true if the file should be displayed
+     * @see VFSAttributeFileFilter#accept(List)
+     */
+    @Nonnull
+    public boolean[] accept(@Nonnull List<VFSFileAttributes<FileObject>> attributes) {
+        VFSFileFilter<? super FileObject> filter = fileFilter;
+        boolean[] out;
+
+        if (filter instanceof VFSAttributeFileFilter) {
+            out = ((VFSAttributeFileFilter<? super FileObject>) filter).accept(attributes);
+
+            if (out.length != attributes.size()) {
+                throw new IllegalStateException(filter + " returned " + out.length
+                        + " results for " + attributes.size() + " files.");
+            }
+        } else {
+            out = new boolean[attributes.size()];
+
+            for (int i = 0; i < out.length; i++) {
+                out[i] = accept(attributes.get(i).getFile());
+            }
+        }
+
+        return out;
+    }
+
+    /**
+     * Returns what the current file filter reads of a file. If this is
+     * {@link VFSAttributeFileFilter.Requirement#NAME},
+     * {@link #accept(Object)} may be called before the attributes of a
+     * file are read.
+     * @return
+     */
+    @Nonnull
+    public VFSAttributeFileFilter.Requirement getFileFilterRequirement() {
+        VFSFileFilter<? super FileObject> filter = fileFilter;
+
+        if (filter == null) {
+            return VFSAttributeFileFilter.Requirement.NAME;
+        }
+
+        if (filter instanceof VFSAttributeFileFilter) {
+            return ((VFSAttributeFileFilter<?>) filter).getRequirement();
+        }
+
+        return VFSAttributeFileFilter.Requirement.ATTRIBUTES;
+    }
+
+    /**
+     * Returns the current file filter as a name filter which the file
+     * system view may apply while listing, or null if the filter does
+     * not offer one.
+     * @return
+     * @see VFSAttributeFileFilter#getNameFilter()
+     */
+    @CheckForNull
+    public VFSNameFilter getFileFilterNameFilter() {
+        VFSFileFilter<? super FileObject> filter = fileFilter;
+
+        if (filter instanceof VFSAttributeFileFilter) {
+            return ((VFSAttributeFileFilter<?>) filter).getNameFilter();
+        }
+
+        return null;
+    }
+
     /**
      * Sets the file system view that the <code>VFSJFileChooser</code> uses for
      * accessing and creating file system resources, such as finding
@@ -1542,6 +1882,33 @@ public class VFSJFileChooser<FileObject> extends JComponent implements Accessibl
         return fileSystemView;
     }
 
+    /**
+     * Sets the executor used for background file system work, such as
+     * listing directories. Passing <code>null</code> selects the shared
+     * {@link DefaultVFSTaskExecutor}. The caller remains responsible for
+     * shutting down an executor it supplies.
+     * @param taskExecutor the new executor, or <code>null</code>
+     */
+    public void setTaskExecutor(@CheckForNull VFSTaskExecutor taskExecutor) {
+        this.taskExecutor = taskExecutor;
+    }
+
+    /**
+     * Returns the executor used for background file system work.
+     * @return the executor set by {@link #setTaskExecutor}, or the
+     *   shared {@link DefaultVFSTaskExecutor}.
+     */
+    @Nonnull
+    public VFSTaskExecutor getTaskExecutor() {
+        VFSTaskExecutor executor = taskExecutor;
+
+        if (executor == null) {
+            return DefaultVFSTaskExecutor.getSharedInstance();
+        }
+
+        return executor;
+    }
+
     /**
      * Called by the UI when the user hits the Approve button
      * (labeled "Open" or "Save", by default). This can also be
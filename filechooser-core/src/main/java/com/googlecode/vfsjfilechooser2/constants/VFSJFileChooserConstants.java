@@ -77,6 +77,15 @@ public final class VFSJFileChooserConstants {
     /** Identifies user's directory change. */
     public static final String DIRECTORY_CHANGED_PROPERTY = "directoryChanged";
 
+    /** Identifies a change in the asynchronous navigation mode. */
+    public static final String ASYNC_NAVIGATION_CHANGED_PROPERTY = "AsyncNavigationChangedProperty";
+
+    /**
+     * Identifies the start or end of an asynchronous change of
+     * directory.
+     */
+    public static final String NAVIGATION_PENDING_CHANGED_PROPERTY = "navigationPendingChanged";
+
     /** Identifies change in user's single-file selection. */
     public static final String SELECTED_FILE_CHANGED_PROPERTY = "SelectedFileChangedProperty";
 
@@ -17,10 +17,61 @@
  */
 package com.googlecode.vfsjfilechooser2.filechooser;
 
+import java.util.List;
+
 /**
  * A file filter for file objects based on java.io.FileFilter
  * @author Yves Zoundi <yveszoundi at users dot sf dot net>
  * @version 0.0.1
  */
-public abstract class AbstractVFSFileFilter<FileObject> implements VFSFileFilter<FileObject> {
+public abstract class AbstractVFSFileFilter<FileObject> implements VFSAttributeFileFilter<FileObject> {
+
+    /**
+     * Returns what this filter reads of a file. The default is
+     * {@link Requirement#ATTRIBUTES}, as {@link #accept(Object)} may
+     * read anything; override this if it reads less.
+     * @return
+     */
+    @Override
+    public Requirement getRequirement() {
+        return Requirement.ATTRIBUTES;
+    }
+
+    /**
+     * Whether the given file is accepted by this filter. The default
+     * calls {@link #accept(Object)}.
+     * @param attributes
+     * @return
+     */
+    @Override
+    public boolean accept(VFSFileAttributes<? extends FileObject> attributes) {
+        return accept(attributes.getFile());
+    }
+
+    /**
+     * Which of the given files are accepted by this filter. The default
+     * calls {@link #accept(VFSFileAttributes)} for each file in turn.
+     * @param attributes
+     * @return
+     */
+    @Override
+    public boolean[] accept(List<? extends VFSFileAttributes<? extends FileObject>> attributes) {
+        boolean[] out = new boolean[attributes.size()];
+
+        for (int i = 0; i < out.length; i++) {
+            out[i] = accept(attributes.get(i));
+        }
+
+        return out;
+    }
+
+    /**
+     * Returns this filter as a name filter for a file system view. The
+     * default is null, so the directory is listed in full.
+     * @return
+     */
+    @Override
+    public VFSNameFilter getNameFilter() {
+        return null;
+    }
 }
@@ -20,6 +20,9 @@ package com.googlecode.vfsjfilechooser2.filechooser;
 
 import com.googlecode.vfsjfilechooser2.utils.VFSResources;
 import com.googlecode.vfsjfilechooser2.utils.VFSUtils;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
 import javax.swing.Icon;
 import javax.swing.JFileChooser;
 import javax.swing.UIManager;
@@ -181,6 +184,148 @@ public abstract class AbstractVFSFileSystemView<FileObject> implements VFSFileSy
         return createFileObject(parent, fileName);
     }
 
+    /**
+     * Passes the list of shown (i.e. not hidden) files to the given
+     * handler as they are read.
+     *
+     * The default implementation lists the whole directory using
+     * {@link #getChildren}. Override for file systems which can
+     * return the entries incrementally.
+     *
+     * @param dir
+     * @param useFileHiding
+     * @param handler
+     */
+    @Override
+    public void listChildren(FileObject dir, boolean useFileHiding, VFSListingHandler<FileObject> handler) {
+        for (FileObject child : getChildren(dir, useFileHiding)) {
+            if (!handler.handle(child)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Passes the attributes of the shown (i.e. not hidden) files to the
+     * given handler as they are read.
+     *
+     * The default implementation passes lazy attributes of each entry
+     * passed by {@link #listChildren}, which read each attribute when it
+     * is first asked for.
+     *
+     * @param dir
+     * @param useFileHiding
+     * @param handler
+     */
+    @Override
+    public void listChildAttributes(FileObject dir, boolean useFileHiding,
+            final VFSListingHandler<VFSFileAttributes<FileObject>> handler) {
+        listChildren(dir, useFileHiding, new VFSListingHandler<FileObject>() {
+            @Override
+            public boolean handle(FileObject child) {
+                return handler.handle(newLazyAttributes(child));
+            }
+        });
+    }
+
+    /**
+     * Gets the list of shown (i.e. not hidden) files, together with
+     * their attributes.
+     *
+     * The default implementation returns lazy attributes of each entry
+     * returned by {@link #getChildren}, which read each attribute when it
+     * is first asked for, so that it costs no more calls than
+     * {@link #getChildren} and the getters the caller uses.
+     *
+     * @param dir
+     * @param useFileHiding
+     * @return
+     */
+    @Override
+    public List<VFSFileAttributes<FileObject>> getChildAttributes(FileObject dir, boolean useFileHiding) {
+        FileObject[] children = getChildren(dir, useFileHiding);
+        List<VFSFileAttributes<FileObject>> out = new ArrayList<VFSFileAttributes<FileObject>>(children.length);
+        for (FileObject child : children) {
+            out.add(newLazyAttributes(child));
+        }
+        return out;
+    }
+
+    /**
+     * Gets the list of shown files which pass a name filter, together
+     * with their attributes.
+     *
+     * The default implementation returns lazy attributes of an entry
+     * returned by {@link #getChildren} if its name passes, or if
+     * directories are included and it is a directory.
+     *
+     * @param dir
+     * @param useFileHiding
+     * @param filter
+     * @return
+     */
+    @Override
+    public List<VFSFileAttributes<FileObject>> getChildAttributes(FileObject dir, boolean useFileHiding, VFSNameFilter filter) {
+        FileObject[] children = getChildren(dir, useFileHiding);
+        List<VFSFileAttributes<FileObject>> out = new ArrayList<VFSFileAttributes<FileObject>>();
+        for (FileObject child : children) {
+            String name = getName(child);
+            if (filter.acceptName(name)
+                    || (filter.isDirectoriesIncluded() && isDirectory(child))) {
+                out.add(new VFSFileAttributes<FileObject>(this, child, name));
+            }
+        }
+        return out;
+    }
+
+    private VFSFileAttributes<FileObject> newLazyAttributes(FileObject f) {
+        return new VFSFileAttributes<FileObject>(this, f, getName(f));
+    }
+
+    /**
+     * Reads all the attributes of a file at once.
+     *
+     * The default implementation calls the individual getters. Override
+     * for file systems which can read the attributes more cheaply
+     * together.
+     *
+     * @param f
+     * @return
+     */
+    @Override
+    public VFSFileAttributes<FileObject> getAttributes(FileObject f) {
+        boolean file = isFile(f);
+        return new VFSFileAttributes<FileObject>(f, getName(f), getUrl(f),
+                isDirectory(f), file, file ? getSize(f) : 0,
+                getLastModifiedTime(f), isHiddenFile(f), isWritable(f));
+    }
+
+    /**
+     * Watches a directory for changes to its entries.
+     *
+     * The default implementation cannot, and returns null. Callers may
+     * fall back to a {@link PollingDirectoryWatcher}.
+     *
+     * @param dir
+     * @param listener
+     * @return
+     */
+    @Override
+    public Closeable watchDirectory(FileObject dir, VFSFileChangeListener<FileObject> listener) {
+        return null;
+    }
+
+    /**
+     * Discards what is cached about a directory and its entries.
+     *
+     * The default implementation caches nothing, and does nothing.
+     *
+     * @param dir
+     */
+    @Override
+    public void refresh(FileObject dir) {
+    }
+
     /**
      * Checks if <code>f</code> represents a real directory or file as opposed to a
      * special folder such as <code>"Desktop"</code>. Used by UI classes to decide if
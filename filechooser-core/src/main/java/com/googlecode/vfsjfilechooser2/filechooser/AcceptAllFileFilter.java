@@ -13,6 +13,16 @@ public class AcceptAllFileFilter extends AbstractVFSFileFilter<Object> {
         return true;
     }
 
+    @Override
+    public Requirement getRequirement() {
+        return Requirement.NAME;
+    }
+
+    @Override
+    public boolean accept(VFSFileAttributes<? extends Object> attributes) {
+        return true;
+    }
+
     @Override
     public String getDescription() {
         return VFSResources.getMessage("VFSJFileChooser.acceptAllFileFilterText");
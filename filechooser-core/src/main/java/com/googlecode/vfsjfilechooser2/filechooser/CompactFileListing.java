@@ -0,0 +1,451 @@
+package com.googlecode.vfsjfilechooser2.filechooser;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+/**
+ * A compact, immutable listing of a directory.
+ *
+ * Rather than a file object and an attributes object per entry, the
+ * names of all entries are stored in one shared character buffer,
+ * sizes and times in primitive arrays, and flags in bitsets, which
+ * costs a few tens of bytes per entry. The attributes of an entry are
+ * materialized only when the entry is read through {@link #get(int)},
+ * and its file object only when that is read, by resolving its name
+ * against the directory. The most recently resolved file objects are
+ * remembered, so that the rows on screen are resolved once.
+ *
+ * The primitive accessors, e.g. {@link #getName(int)} and
+ * {@link #isDirectory(int)}, read an entry without materializing it,
+ * and {@link #indexOfName(String)} finds an entry by name.
+ *
+ * @author shevek
+ */
+public class CompactFileListing<FileObject> extends AbstractList<VFSFileAttributes<FileObject>>
+        implements RandomAccess {
+
+    /** The number of resolved file objects which a listing remembers. */
+    private static final int RESOLVED_FILES_SIZE = 1024;
+
+    /**
+     * Returns a compact copy of a listing, or the listing itself if it
+     * is already compact, if its entries cannot be resolved by name
+     * against the directory, or if some are lazy, as compacting would
+     * read every attribute of every entry.
+     * @param fileSystemView the view which listed the directory.
+     * @param directory the directory.
+     * @param children the listing, as returned by the view.
+     * @return
+     */
+    @Nonnull
+    public static <FileObject> List<VFSFileAttributes<FileObject>> compact(
+            @Nonnull VFSFileSystemView<FileObject> fileSystemView,
+            @Nonnull FileObject directory,
+            @Nonnull List<VFSFileAttributes<FileObject>> children) {
+        if (children instanceof CompactFileListing || children.isEmpty()) {
+            return children;
+        }
+
+        for (VFSFileAttributes<FileObject> a : children) {
+            if (a.isLazy()) {
+                return children;
+            }
+        }
+
+        // Every entry must resolve by name, as a view may decode or
+        // normalize some names and not others.
+        for (VFSFileAttributes<FileObject> a : children) {
+            if (!a.getFile().equals(fileSystemView.createFileObject(directory, a.getName()))) {
+                return children;
+            }
+        }
+
+        Builder<FileObject> builder = new Builder<FileObject>(fileSystemView, directory, children.size());
+
+        for (VFSFileAttributes<FileObject> a : children) {
+            builder.add(a);
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Builds a compact listing entry by entry.
+     */
+    public static class Builder<FileObject> {
+
+        private final VFSFileSystemView<FileObject> fileSystemView;
+        private final FileObject directory;
+        private char[] names;
+        private int namesLength = 0;
+        private int[] nameOffsets;
+        private long[] sizes;
+        private long[] lastModifiedTimes;
+        private final BitSet directories = new BitSet();
+        private final BitSet files = new BitSet();
+        private final BitSet hidden = new BitSet();
+        private final BitSet writable = new BitSet();
+        private int size = 0;
+
+        public Builder(@Nonnull VFSFileSystemView<FileObject> fileSystemView,
+                @Nonnull FileObject directory, int expectedSize) {
+            this.fileSystemView = fileSystemView;
+            this.directory = directory;
+            int capacity = Math.max(expectedSize, 16);
+            this.names = new char[capacity * 16];
+            this.nameOffsets = new int[capacity + 1];
+            this.sizes = new long[capacity];
+            this.lastModifiedTimes = new long[capacity];
+        }
+
+        private void ensureCapacity(int nameLength) {
+            if (size == sizes.length) {
+                int capacity = size * 2;
+                nameOffsets = Arrays.copyOf(nameOffsets, capacity + 1);
+                sizes = Arrays.copyOf(sizes, capacity);
+                lastModifiedTimes = Arrays.copyOf(lastModifiedTimes, capacity);
+            }
+
+            if (namesLength + nameLength > names.length) {
+                names = Arrays.copyOf(names, Math.max(names.length * 2, namesLength + nameLength));
+            }
+        }
+
+        @Nonnull
+        public Builder<FileObject> add(@Nonnull VFSFileAttributes<FileObject> a) {
+            String name = a.getName();
+
+            ensureCapacity(name.length());
+            name.getChars(0, name.length(), names, namesLength);
+            namesLength += name.length();
+            nameOffsets[size + 1] = namesLength;
+            sizes[size] = a.getSize();
+            lastModifiedTimes[size] = a.getLastModifiedTime();
+            directories.set(size, a.isDirectory());
+            files.set(size, a.isFile());
+            hidden.set(size, a.isHidden());
+            writable.set(size, a.isWritable());
+            size++;
+
+            return this;
+        }
+
+        /**
+         * Adds an entry of another listing of the same directory,
+         * without materializing it.
+         * @param listing
+         * @param index
+         * @return
+         */
+        @Nonnull
+        public Builder<FileObject> add(@Nonnull CompactFileListing<FileObject> listing, int index) {
+            listing.checkIndex(index);
+
+            int offset = listing.nameOffsets[index];
+            int length = listing.nameOffsets[index + 1] - offset;
+
+            ensureCapacity(length);
+            System.arraycopy(listing.names, offset, names, namesLength, length);
+            namesLength += length;
+            nameOffsets[size + 1] = namesLength;
+            sizes[size] = listing.sizes[index];
+            lastModifiedTimes[size] = listing.lastModifiedTimes[index];
+            directories.set(size, listing.directories.get(index));
+            files.set(size, listing.files.get(index));
+            hidden.set(size, listing.hidden.get(index));
+            writable.set(size, listing.writable.get(index));
+            size++;
+
+            return this;
+        }
+
+        @Nonnull
+        public CompactFileListing<FileObject> build() {
+            return new CompactFileListing<FileObject>(this);
+        }
+    }
+    private final VFSFileSystemView<FileObject> fileSystemView;
+    private final FileObject directory;
+    private final char[] names;
+    private final int[] nameOffsets;
+    private final long[] sizes;
+    private final long[] lastModifiedTimes;
+    private final BitSet directories;
+    private final BitSet files;
+    private final BitSet hidden;
+    private final BitSet writable;
+    private final int size;
+    // An open addressing table of index + 1 by name, built on first use.
+    private volatile int[] nameTable;
+    // Both guarded by resolvedFiles.
+    private final Map<Integer, FileObject> resolvedFiles = newResolvedMap();
+    private final Map<FileObject, Integer> resolvedIndices = newResolvedMap();
+
+    private CompactFileListing(@Nonnull Builder<FileObject> builder) {
+        this.fileSystemView = builder.fileSystemView;
+        this.directory = builder.directory;
+        this.size = builder.size;
+        this.names = Arrays.copyOf(builder.names, builder.namesLength);
+        this.nameOffsets = Arrays.copyOf(builder.nameOffsets, size + 1);
+        this.sizes = Arrays.copyOf(builder.sizes, size);
+        this.lastModifiedTimes = Arrays.copyOf(builder.lastModifiedTimes, size);
+        this.directories = (BitSet) builder.directories.clone();
+        this.files = (BitSet) builder.files.clone();
+        this.hidden = (BitSet) builder.hidden.clone();
+        this.writable = (BitSet) builder.writable.clone();
+    }
+
+    @Nonnull
+    @SuppressWarnings("serial")
+    private static <K, V> Map<K, V> newResolvedMap() {
+        return new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > RESOLVED_FILES_SIZE;
+            }
+        };
+    }
+
+    @Nonnull
+    VFSFileSystemView<FileObject> getFileSystemView() {
+        return fileSystemView;
+    }
+
+    @Nonnull
+    public FileObject getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private void checkIndex(int index) {
+        if ((index < 0) || (index >= size)) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    /**
+     * Materializes the attributes of an entry. Its file object is
+     * resolved by name when it is first read.
+     * @param index
+     * @return
+     */
+    @Override
+    public VFSFileAttributes<FileObject> get(int index) {
+        checkIndex(index);
+
+        return new VFSFileAttributes<FileObject>(this, index, getName(index),
+                directories.get(index), files.get(index),
+                sizes[index], lastModifiedTimes[index],
+                hidden.get(index), writable.get(index));
+    }
+
+    /**
+     * Resolves the file object of an entry, or returns it if it was
+     * resolved recently.
+     * @param index
+     * @return the file object, or null if the view cannot resolve it.
+     */
+    @CheckForNull
+    public FileObject getFile(int index) {
+        checkIndex(index);
+
+        synchronized (resolvedFiles) {
+            FileObject file = resolvedFiles.get(index);
+
+            if (file != null) {
+                return file;
+            }
+        }
+
+        FileObject file = fileSystemView.createFileObject(directory, getName(index));
+
+        if (file != null) {
+            synchronized (resolvedFiles) {
+                resolvedFiles.put(index, file);
+                resolvedIndices.put(file, index);
+            }
+        }
+
+        return file;
+    }
+
+    /**
+     * Returns the index of the entry with the given name.
+     * @param name
+     * @return the index, or -1 if there is no such entry.
+     */
+    public int indexOfName(@CheckForNull String name) {
+        if (name == null) {
+            return -1;
+        }
+
+        int[] table = getNameTable();
+        int mask = table.length - 1;
+
+        for (int slot = hash(name.hashCode()) & mask;; slot = (slot + 1) & mask) {
+            int entry = table[slot];
+
+            if (entry == 0) {
+                return -1;
+            }
+
+            if (nameEquals(entry - 1, name)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the entry with the given file object. The
+     * file is looked up by name, and then compared with the file object
+     * of that entry, unless it was resolved recently.
+     * @param file
+     * @return the index, or -1 if the file is not an entry of this listing.
+     */
+    public int indexOfFile(@CheckForNull FileObject file) {
+        if (file == null) {
+            return -1;
+        }
+
+        synchronized (resolvedFiles) {
+            Integer index = resolvedIndices.get(file);
+
+            if (index != null) {
+                return index;
+            }
+        }
+
+        int index = indexOfName(fileSystemView.getName(file));
+
+        // A file of another directory may have the same name.
+        if ((index < 0) || !file.equals(getFile(index))) {
+            return -1;
+        }
+
+        return index;
+    }
+
+    private static int hash(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    private int nameHashCode(int index) {
+        int h = 0;
+
+        for (int i = nameOffsets[index]; i < nameOffsets[index + 1]; i++) {
+            h = (31 * h) + names[i];
+        }
+
+        return h;
+    }
+
+    private boolean nameEquals(int index, @Nonnull String name) {
+        int offset = nameOffsets[index];
+
+        if ((nameOffsets[index + 1] - offset) != name.length()) {
+            return false;
+        }
+
+        for (int i = 0; i < name.length(); i++) {
+            if (names[offset + i] != name.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Nonnull
+    private int[] getNameTable() {
+        int[] table = nameTable;
+
+        if (table != null) {
+            return table;
+        }
+
+        table = new int[Integer.highestOneBit(Math.max(size, 1)) << 2];
+        int mask = table.length - 1;
+
+        for (int index = 0; index < size; index++) {
+            int slot = hash(nameHashCode(index)) & mask;
+
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+
+            table[slot] = index + 1;
+        }
+
+        nameTable = table;
+
+        return table;
+    }
+
+    @Nonnull
+    public String getName(int index) {
+        checkIndex(index);
+
+        return new String(names, nameOffsets[index], nameOffsets[index + 1] - nameOffsets[index]);
+    }
+
+    public boolean isDirectory(int index) {
+        checkIndex(index);
+
+        return directories.get(index);
+    }
+
+    public boolean isFile(int index) {
+        checkIndex(index);
+
+        return files.get(index);
+    }
+
+    public boolean isHidden(int index) {
+        checkIndex(index);
+
+        return hidden.get(index);
+    }
+
+    public boolean isWritable(int index) {
+        checkIndex(index);
+
+        return writable.get(index);
+    }
+
+    public long getSize(int index) {
+        checkIndex(index);
+
+        return sizes[index];
+    }
+
+    public long getLastModifiedTime(int index) {
+        checkIndex(index);
+
+        return lastModifiedTimes[index];
+    }
+
+    /**
+     * Returns the approximate number of bytes retained by this listing,
+     * excluding the view, the directory and the resolved file objects.
+     * @return
+     */
+    public long getRetainedSize() {
+        int[] table = nameTable;
+
+        return (names.length * 2L) + (nameOffsets.length * 4L)
+                + (sizes.length * 8L) + (lastModifiedTimes.length * 8L)
+                + (4 * ((size + 7) / 8))
+                + ((table == null) ? 0 : (table.length * 4L));
+    }
+}
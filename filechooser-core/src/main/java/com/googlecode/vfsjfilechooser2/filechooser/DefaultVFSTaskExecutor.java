@@ -0,0 +1,299 @@
+package com.googlecode.vfsjfilechooser2.filechooser;
+
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Nonnull;
+
+/**
+ * A bounded {@link VFSTaskExecutor}.
+ *
+ * At most <code>maxListingsPerGroup</code> listings, and separately at
+ * most <code>maxTasksPerGroup</code> other file accesses, run
+ * concurrently against any one file system; further tasks for that file
+ * system are queued in submission order. Slow listings therefore do not
+ * hold up reading attributes or icons. Computations are not limited by
+ * file system. Tasks run either on a bounded pool of daemon threads,
+ * which time out when idle, or on virtual threads if the runtime
+ * supports them.
+ *
+ * @author shevek
+ */
+public class DefaultVFSTaskExecutor implements VFSTaskExecutor {
+
+    private static final Logger LOG = Logger.getLogger(DefaultVFSTaskExecutor.class.getName());
+    private static final AtomicInteger POOL_ID = new AtomicInteger(0);
+    private static DefaultVFSTaskExecutor sharedInstance = null;
+
+    /**
+     * Returns the executor shared by all file choosers which have not been
+     * given one of their own. Its threads are daemons and exit when idle,
+     * so it never needs to be shut down.
+     * @return
+     */
+    @Nonnull
+    public static synchronized DefaultVFSTaskExecutor getSharedInstance() {
+        if (sharedInstance == null) {
+            int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+            sharedInstance = new DefaultVFSTaskExecutor(threads, 2, 2, false);
+        }
+
+        return sharedInstance;
+    }
+
+    private static class Group {
+
+        private int running = 0;
+        private final Queue<GroupTask> pending = new ArrayDeque<GroupTask>();
+    }
+
+    private class GroupTask extends FutureTask<Object> {
+
+        private final String group;
+        private final TaskType type;
+
+        public GroupTask(String group, TaskType type, Runnable task) {
+            super(task, null);
+            this.group = group;
+            this.type = type;
+        }
+
+        @Override
+        public void run() {
+            try {
+                super.run();
+            } finally {
+                next(group, type);
+            }
+        }
+    }
+
+    private final ExecutorService executor;
+    private final int maxListingsPerGroup;
+    private final int maxTasksPerGroup;
+    // The groups of each limited type of task. Guarded by itself.
+    private final Map<TaskType, Map<String, Group>> groups = new EnumMap<TaskType, Map<String, Group>>(TaskType.class);
+
+    /**
+     * Constructs a new executor which limits listings and other file
+     * accesses to the same number of concurrent tasks per file system.
+     * @param maxThreads the maximum number of platform threads; ignored when
+     *  virtual threads are used.
+     * @param maxTasksPerGroup the maximum number of concurrent listings, and
+     *  of other file accesses, for any one file system.
+     * @param virtualThreads whether to run tasks on virtual threads, if the
+     *  runtime supports them.
+     */
+    public DefaultVFSTaskExecutor(int maxThreads, int maxTasksPerGroup, boolean virtualThreads) {
+        this(maxThreads, maxTasksPerGroup, maxTasksPerGroup, virtualThreads);
+    }
+
+    /**
+     * Constructs a new executor.
+     * @param maxThreads the maximum number of platform threads; ignored when
+     *  virtual threads are used.
+     * @param maxListingsPerGroup the maximum number of concurrent listings
+     *  for any one file system.
+     * @param maxTasksPerGroup the maximum number of concurrent other file
+     *  accesses for any one file system.
+     * @param virtualThreads whether to run tasks on virtual threads, if the
+     *  runtime supports them.
+     */
+    public DefaultVFSTaskExecutor(int maxThreads, int maxListingsPerGroup, int maxTasksPerGroup, boolean virtualThreads) {
+        if (maxThreads < 1) {
+            throw new IllegalArgumentException("Thread count must be positive: " + maxThreads);
+        }
+
+        if (maxListingsPerGroup < 1) {
+            throw new IllegalArgumentException("Listings per group must be positive: " + maxListingsPerGroup);
+        }
+
+        if (maxTasksPerGroup < 1) {
+            throw new IllegalArgumentException("Tasks per group must be positive: " + maxTasksPerGroup);
+        }
+
+        this.maxListingsPerGroup = maxListingsPerGroup;
+        this.maxTasksPerGroup = maxTasksPerGroup;
+        groups.put(TaskType.LISTING, new HashMap<String, Group>());
+        groups.put(TaskType.FILE_ACCESS, new HashMap<String, Group>());
+
+        ExecutorService virtualExecutor = virtualThreads ? newVirtualThreadExecutor() : null;
+
+        if (virtualExecutor != null) {
+            this.executor = virtualExecutor;
+        } else {
+            this.executor = newPlatformThreadExecutor(maxThreads);
+        }
+    }
+
+    @Nonnull
+    private static ExecutorService newPlatformThreadExecutor(int maxThreads) {
+        final String prefix = "vfsjfilechooser-" + POOL_ID.incrementAndGet() + "-";
+        ThreadFactory factory = new ThreadFactory() {
+            private final AtomicInteger threadId = new AtomicInteger(0);
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, prefix + threadId.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads,
+                60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), factory);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /** Returns null if this runtime has no virtual threads. */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (Exception e) {
+            LOG.log(Level.WARNING, "Failed to create virtual thread executor", e);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the maximum number of concurrent listings for any one file system.
+     * @return
+     */
+    public int getMaxListingsPerGroup() {
+        return maxListingsPerGroup;
+    }
+
+    /**
+     * Returns the maximum number of concurrent file accesses other than
+     * listings for any one file system.
+     * @return
+     */
+    public int getMaxTasksPerGroup() {
+        return maxTasksPerGroup;
+    }
+
+    @Override
+    public Future<?> submit(String group, TaskType type, Runnable task) {
+        if (type == TaskType.COMPUTATION) {
+            FutureTask<Object> futureTask = new FutureTask<Object>(task, null);
+
+            try {
+                executor.execute(futureTask);
+            } catch (RejectedExecutionException e) {
+                futureTask.cancel(false);
+            }
+
+            return futureTask;
+        }
+
+        GroupTask groupTask = new GroupTask(group, type, task);
+        int max = (type == TaskType.LISTING) ? maxListingsPerGroup : maxTasksPerGroup;
+
+        synchronized (groups) {
+            Map<String, Group> typeGroups = groups.get(type);
+            Group g = typeGroups.get(group);
+
+            if (g == null) {
+                g = new Group();
+                typeGroups.put(group, g);
+            }
+
+            if (g.running >= max) {
+                g.pending.add(groupTask);
+                return groupTask;
+            }
+
+            g.running++;
+        }
+
+        execute(groupTask);
+
+        return groupTask;
+    }
+
+    private void execute(GroupTask task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.cancel(false);
+            next(task.group, task.type);
+        }
+    }
+
+    /** Called when a task of the given group and type finishes. */
+    private void next(String group, TaskType type) {
+        GroupTask task;
+
+        synchronized (groups) {
+            Map<String, Group> typeGroups = groups.get(type);
+            Group g = typeGroups.get(group);
+
+            if (g == null) {
+                // Cleared by shutdown().
+                return;
+            }
+
+            task = g.pending.poll();
+
+            if (task == null) {
+                g.running--;
+
+                if (g.running == 0) {
+                    typeGroups.remove(group);
+                }
+
+                return;
+            }
+        }
+
+        // Cancelled tasks return immediately and dispatch the next one.
+        execute(task);
+    }
+
+    /**
+     * Stops accepting tasks and interrupts running ones.
+     * The shared instance must not be shut down.
+     */
+    public void shutdown() {
+        if (this == sharedInstance) {
+            throw new IllegalStateException("Cannot shut down the shared executor.");
+        }
+
+        for (Runnable task : executor.shutdownNow()) {
+            if (task instanceof Future) {
+                ((Future<?>) task).cancel(false);
+            }
+        }
+
+        synchronized (groups) {
+            for (Map<String, Group> typeGroups : groups.values()) {
+                for (Group g : typeGroups.values()) {
+                    for (GroupTask task : g.pending) {
+                        task.cancel(false);
+                    }
+                }
+
+                typeGroups.clear();
+            }
+        }
+    }
+}
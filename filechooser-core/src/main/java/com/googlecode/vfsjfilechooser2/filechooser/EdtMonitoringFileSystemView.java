@@ -0,0 +1,644 @@
+package com.googlecode.vfsjfilechooser2.filechooser;
+
+import com.googlecode.vfsjfilechooser2.VFSException;
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.swing.Icon;
+import javax.swing.SwingUtilities;
+
+/**
+ * A {@link VFSFileSystemView} which records the calls made to another
+ * view on the Event Dispatch Thread.
+ *
+ * Every call which may perform I/O is timed if it is made on the EDT,
+ * and recorded together with its stack. Calls which take longer than
+ * the stall threshold are stalls, and are logged as warnings. Calls
+ * which only inspect a file object, i.e. {@link #getName},
+ * {@link #getUrl}, {@link #getFileObjectType} and
+ * {@link #newFileObjectArray}, are not recorded. Calls on other
+ * threads are passed through untimed.
+ *
+ * To instrument a file chooser, pass it a wrapped view:
+ * <pre>
+ * new VFSJFileChooser(new EdtMonitoringFileSystemView(view));
+ * </pre>
+ *
+ * @author shevek
+ */
+public class EdtMonitoringFileSystemView<FileObject> implements VFSFileSystemView<FileObject> {
+
+    private static final Logger LOG = Logger.getLogger(EdtMonitoringFileSystemView.class.getName());
+    public static final long DEFAULT_STALL_THRESHOLD_MILLIS = 50;
+    public static final int DEFAULT_MAX_RECORDED_CALLS = 1000;
+
+    /** A call made on the EDT. */
+    public static class Call {
+
+        private final String method;
+        private final String argument;
+        private final long durationNanos;
+        private final boolean stall;
+        private final StackTraceElement[] stackTrace;
+
+        public Call(@Nonnull String method, @CheckForNull String argument,
+                long durationNanos, boolean stall,
+                @Nonnull StackTraceElement[] stackTrace) {
+            this.method = method;
+            this.argument = argument;
+            this.durationNanos = durationNanos;
+            this.stall = stall;
+            this.stackTrace = stackTrace;
+        }
+
+        /** The name of the {@link VFSFileSystemView} method called. */
+        @Nonnull
+        public String getMethod() {
+            return method;
+        }
+
+        /** The first file or path passed to the method, if any. */
+        @CheckForNull
+        public String getArgument() {
+            return argument;
+        }
+
+        public long getDurationNanos() {
+            return durationNanos;
+        }
+
+        /** Whether the call took longer than the stall threshold. */
+        public boolean isStall() {
+            return stall;
+        }
+
+        /** The stack of the EDT at the call, starting at the caller of the view. */
+        @Nonnull
+        public StackTraceElement[] getStackTrace() {
+            return stackTrace.clone();
+        }
+
+        /** Returns a throwable with the stack of the call, e.g. for logging. */
+        @Nonnull
+        public Throwable toThrowable() {
+            Throwable t = new Throwable(toString());
+            t.setStackTrace(stackTrace);
+            return t;
+        }
+
+        @Override
+        public String toString() {
+            return method + "(" + argument + ") took "
+                    + TimeUnit.NANOSECONDS.toMillis(durationNanos) + " ms on the EDT";
+        }
+    }
+
+    /** Notified of every recorded call, on the EDT. */
+    public static interface Listener {
+
+        void callOnEdt(@Nonnull Call call);
+    }
+    private final VFSFileSystemView<FileObject> delegate;
+    private final long stallThresholdNanos;
+    private final int maxRecordedCalls;
+    private final Deque<Call> calls = new ArrayDeque<Call>();
+    private final Deque<Call> stalls = new ArrayDeque<Call>();
+    private final AtomicLong callCount = new AtomicLong();
+    private final AtomicLong stallCount = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+
+    /**
+     * @param delegate the view to monitor.
+     * @param stallThresholdMillis calls on the EDT which take longer are stalls.
+     * @param maxRecordedCalls the number of most recent calls and stalls kept.
+     */
+    public EdtMonitoringFileSystemView(@Nonnull VFSFileSystemView<FileObject> delegate,
+            long stallThresholdMillis, int maxRecordedCalls) {
+        this.delegate = delegate;
+        this.stallThresholdNanos = TimeUnit.MILLISECONDS.toNanos(stallThresholdMillis);
+        this.maxRecordedCalls = maxRecordedCalls;
+    }
+
+    public EdtMonitoringFileSystemView(@Nonnull VFSFileSystemView<FileObject> delegate) {
+        this(delegate, DEFAULT_STALL_THRESHOLD_MILLIS, DEFAULT_MAX_RECORDED_CALLS);
+    }
+
+    @Nonnull
+    public VFSFileSystemView<FileObject> getDelegate() {
+        return delegate;
+    }
+
+    public void addListener(@Nonnull Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(@Nonnull Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /** Returns the number of calls made on the EDT since the last reset. */
+    public long getCallCount() {
+        return callCount.get();
+    }
+
+    /** Returns the number of stalls since the last reset. */
+    public long getStallCount() {
+        return stallCount.get();
+    }
+
+    /** Returns the total time spent in calls on the EDT since the last reset. */
+    public long getTotalNanos() {
+        return totalNanos.get();
+    }
+
+    /** Returns the most recent calls made on the EDT, oldest first. */
+    @Nonnull
+    public synchronized List<Call> getCalls() {
+        return new ArrayList<Call>(calls);
+    }
+
+    /** Returns the most recent stalls, oldest first. */
+    @Nonnull
+    public synchronized List<Call> getStalls() {
+        return new ArrayList<Call>(stalls);
+    }
+
+    public synchronized void reset() {
+        calls.clear();
+        stalls.clear();
+        callCount.set(0);
+        stallCount.set(0);
+        totalNanos.set(0);
+    }
+
+    /** Returns the start time of a call, or -1 if it is not on the EDT. */
+    private static long begin() {
+        if (!SwingUtilities.isEventDispatchThread())
+            return -1;
+        return System.nanoTime();
+    }
+
+    private void end(long start, @Nonnull String method, @CheckForNull Object argument) {
+        if (start == -1)
+            return;
+        long duration = System.nanoTime() - start;
+        boolean stall = duration > stallThresholdNanos;
+        Call call = new Call(method, toString(argument), duration, stall, getCallerStackTrace());
+
+        callCount.incrementAndGet();
+        totalNanos.addAndGet(duration);
+        synchronized (this) {
+            add(calls, call);
+            if (stall)
+                add(stalls, call);
+        }
+        if (stall) {
+            stallCount.incrementAndGet();
+            LOG.log(Level.WARNING, "EDT stall: " + call, call.toThrowable());
+        }
+        for (Listener listener : listeners)
+            listener.callOnEdt(call);
+    }
+
+    private void add(@Nonnull Deque<Call> deque, @Nonnull Call call) {
+        if (deque.size() >= maxRecordedCalls)
+            deque.removeFirst();
+        deque.addLast(call);
+    }
+
+    @CheckForNull
+    private String toString(@CheckForNull Object argument) {
+        if (argument == null)
+            return null;
+        Class<FileObject> type = delegate.getFileObjectType();
+        if (type.isInstance(argument)) {
+            try {
+                return delegate.getUrl(type.cast(argument));
+            } catch (RuntimeException e) {
+                // Fall through.
+            }
+        }
+        return String.valueOf(argument);
+    }
+
+    /** Returns the current stack, without the frames of this class. */
+    @Nonnull
+    private static StackTraceElement[] getCallerStackTrace() {
+        StackTraceElement[] stack = new Throwable().getStackTrace();
+        String name = EdtMonitoringFileSystemView.class.getName();
+        int i = 0;
+        while (i < stack.length && name.equals(stack[i].getClassName()))
+            i++;
+        return Arrays.copyOfRange(stack, i, stack.length);
+    }
+
+    @Override
+    public Class<FileObject> getFileObjectType() {
+        return delegate.getFileObjectType();
+    }
+
+    @Override
+    public FileObject[] newFileObjectArray(Object... files) {
+        return delegate.newFileObjectArray(files);
+    }
+
+    @Override
+    public FileObject createFileObject(FileObject dir, String filename) {
+        long start = begin();
+        try {
+            return delegate.createFileObject(dir, filename);
+        } finally {
+            end(start, "createFileObject", filename);
+        }
+    }
+
+    @Override
+    public FileObject createFileObject(String path) {
+        long start = begin();
+        try {
+            return delegate.createFileObject(path);
+        } finally {
+            end(start, "createFileObject", path);
+        }
+    }
+
+    @Override
+    public FileObject createNewFolder(FileObject containingDir) throws VFSException {
+        long start = begin();
+        try {
+            return delegate.createNewFolder(containingDir);
+        } finally {
+            end(start, "createNewFolder", containingDir);
+        }
+    }
+
+    @Override
+    public void rename(FileObject from, FileObject to) throws VFSException {
+        long start = begin();
+        try {
+            delegate.rename(from, to);
+        } finally {
+            end(start, "rename", from);
+        }
+    }
+
+    @Override
+    public FileObject getChild(FileObject parent, String fileName) {
+        long start = begin();
+        try {
+            return delegate.getChild(parent, fileName);
+        } finally {
+            end(start, "getChild", fileName);
+        }
+    }
+
+    @Override
+    public FileObject getDefaultDirectory() {
+        long start = begin();
+        try {
+            return delegate.getDefaultDirectory();
+        } finally {
+            end(start, "getDefaultDirectory", null);
+        }
+    }
+
+    @Override
+    public FileObject[] getChildren(FileObject dir, boolean useFileHiding) {
+        long start = begin();
+        try {
+            return delegate.getChildren(dir, useFileHiding);
+        } finally {
+            end(start, "getChildren", dir);
+        }
+    }
+
+    @Override
+    public void listChildren(FileObject dir, boolean useFileHiding, VFSListingHandler<FileObject> handler) {
+        long start = begin();
+        try {
+            delegate.listChildren(dir, useFileHiding, handler);
+        } finally {
+            end(start, "listChildren", dir);
+        }
+    }
+
+    @Override
+    public void listChildAttributes(FileObject dir, boolean useFileHiding,
+            final VFSListingHandler<VFSFileAttributes<FileObject>> handler) {
+        long start = begin();
+        try {
+            delegate.listChildAttributes(dir, useFileHiding, new VFSListingHandler<VFSFileAttributes<FileObject>>() {
+                @Override
+                public boolean handle(VFSFileAttributes<FileObject> a) {
+                    return handler.handle(a.withView(EdtMonitoringFileSystemView.this));
+                }
+            });
+        } finally {
+            end(start, "listChildAttributes", dir);
+        }
+    }
+
+    @Override
+    public List<VFSFileAttributes<FileObject>> getChildAttributes(FileObject dir, boolean useFileHiding) {
+        long start = begin();
+        try {
+            return withView(delegate.getChildAttributes(dir, useFileHiding));
+        } finally {
+            end(start, "getChildAttributes", dir);
+        }
+    }
+
+    @Override
+    public List<VFSFileAttributes<FileObject>> getChildAttributes(FileObject dir, boolean useFileHiding, VFSNameFilter filter) {
+        long start = begin();
+        try {
+            return withView(delegate.getChildAttributes(dir, useFileHiding, filter));
+        } finally {
+            end(start, "getChildAttributes", dir);
+        }
+    }
+
+    /**
+     * Lazy attributes read the view when they are asked for, which may
+     * be on the EDT; read them through this view, so that it sees it.
+     */
+    @Nonnull
+    private List<VFSFileAttributes<FileObject>> withView(@Nonnull List<VFSFileAttributes<FileObject>> list) {
+        List<VFSFileAttributes<FileObject>> out = null;
+        for (int i = 0; i < list.size(); i++) {
+            VFSFileAttributes<FileObject> a = list.get(i);
+            if (a.isLazy()) {
+                if (out == null)
+                    out = new ArrayList<VFSFileAttributes<FileObject>>(list);
+                out.set(i, a.withView(this));
+            }
+        }
+        return (out != null) ? out : list;
+    }
+
+    @Override
+    public VFSFileAttributes<FileObject> getAttributes(FileObject f) {
+        long start = begin();
+        try {
+            return delegate.getAttributes(f);
+        } finally {
+            end(start, "getAttributes", f);
+        }
+    }
+
+    @Override
+    public Closeable watchDirectory(FileObject dir, VFSFileChangeListener<FileObject> listener) {
+        long start = begin();
+        try {
+            return delegate.watchDirectory(dir, listener);
+        } finally {
+            end(start, "watchDirectory", dir);
+        }
+    }
+
+    @Override
+    public void refresh(FileObject dir) {
+        long start = begin();
+        try {
+            delegate.refresh(dir);
+        } finally {
+            end(start, "refresh", dir);
+        }
+    }
+
+    @Override
+    public FileObject getHomeDirectory() {
+        long start = begin();
+        try {
+            return delegate.getHomeDirectory();
+        } finally {
+            end(start, "getHomeDirectory", null);
+        }
+    }
+
+    @Override
+    public FileObject getParentDirectory(FileObject dir) {
+        long start = begin();
+        try {
+            return delegate.getParentDirectory(dir);
+        } finally {
+            end(start, "getParentDirectory", dir);
+        }
+    }
+
+    @Override
+    public FileObject[] getRoots(FileObject fo) {
+        long start = begin();
+        try {
+            return delegate.getRoots(fo);
+        } finally {
+            end(start, "getRoots", fo);
+        }
+    }
+
+    @Override
+    public String getUrl(FileObject f) {
+        return delegate.getUrl(f);
+    }
+
+    @Override
+    public String getName(FileObject f) {
+        return delegate.getName(f);
+    }
+
+    @Override
+    public boolean exists(FileObject file) {
+        long start = begin();
+        try {
+            return delegate.exists(file);
+        } finally {
+            end(start, "exists", file);
+        }
+    }
+
+    @Override
+    public boolean isFile(FileObject f) {
+        long start = begin();
+        try {
+            return delegate.isFile(f);
+        } finally {
+            end(start, "isFile", f);
+        }
+    }
+
+    @Override
+    public boolean isDirectory(FileObject f) {
+        long start = begin();
+        try {
+            return delegate.isDirectory(f);
+        } finally {
+            end(start, "isDirectory", f);
+        }
+    }
+
+    @Override
+    public boolean isWritable(FileObject f) {
+        long start = begin();
+        try {
+            return delegate.isWritable(f);
+        } finally {
+            end(start, "isWritable", f);
+        }
+    }
+
+    @Override
+    public long getSize(FileObject f) {
+        long start = begin();
+        try {
+            return delegate.getSize(f);
+        } finally {
+            end(start, "getSize", f);
+        }
+    }
+
+    @Override
+    public long getLastModifiedTime(FileObject f) {
+        long start = begin();
+        try {
+            return delegate.getLastModifiedTime(f);
+        } finally {
+            end(start, "getLastModifiedTime", f);
+        }
+    }
+
+    @Override
+    public String getSystemDisplayName(FileObject f) {
+        long start = begin();
+        try {
+            return delegate.getSystemDisplayName(f);
+        } finally {
+            end(start, "getSystemDisplayName", f);
+        }
+    }
+
+    @Override
+    public Icon getSystemIcon(FileObject f) {
+        long start = begin();
+        try {
+            return delegate.getSystemIcon(f);
+        } finally {
+            end(start, "getSystemIcon", f);
+        }
+    }
+
+    @Override
+    public String getSystemTypeDescription(FileObject f) {
+        long start = begin();
+        try {
+            return delegate.getSystemTypeDescription(f);
+        } finally {
+            end(start, "getSystemTypeDescription", f);
+        }
+    }
+
+    @Override
+    public boolean isComputerNode(FileObject dir) {
+        long start = begin();
+        try {
+            return delegate.isComputerNode(dir);
+        } finally {
+            end(start, "isComputerNode", dir);
+        }
+    }
+
+    @Override
+    public boolean isDrive(FileObject dir) {
+        long start = begin();
+        try {
+            return delegate.isDrive(dir);
+        } finally {
+            end(start, "isDrive", dir);
+        }
+    }
+
+    @Override
+    public boolean isFileSystem(FileObject f) {
+        long start = begin();
+        try {
+            return delegate.isFileSystem(f);
+        } finally {
+            end(start, "isFileSystem", f);
+        }
+    }
+
+    @Override
+    public boolean isFileSystemRoot(FileObject dir) {
+        long start = begin();
+        try {
+            return delegate.isFileSystemRoot(dir);
+        } finally {
+            end(start, "isFileSystemRoot", dir);
+        }
+    }
+
+    @Override
+    public boolean isFloppyDrive(FileObject dir) {
+        long start = begin();
+        try {
+            return delegate.isFloppyDrive(dir);
+        } finally {
+            end(start, "isFloppyDrive", dir);
+        }
+    }
+
+    @Override
+    public boolean isHiddenFile(FileObject f) {
+        long start = begin();
+        try {
+            return delegate.isHiddenFile(f);
+        } finally {
+            end(start, "isHiddenFile", f);
+        }
+    }
+
+    @Override
+    public boolean isParent(FileObject folder, FileObject file) {
+        long start = begin();
+        try {
+            return delegate.isParent(folder, file);
+        } finally {
+            end(start, "isParent", file);
+        }
+    }
+
+    @Override
+    public boolean isRoot(FileObject f) {
+        long start = begin();
+        try {
+            return delegate.isRoot(f);
+        } finally {
+            end(start, "isRoot", f);
+        }
+    }
+
+    @Override
+    public boolean isTraversable(FileObject f) {
+        long start = begin();
+        try {
+            return delegate.isTraversable(f);
+        } finally {
+            end(start, "isTraversable", f);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + delegate + ")";
+    }
+}
@@ -1,18 +1,35 @@
 package com.googlecode.vfsjfilechooser2.filechooser;
 
-import org.apache.commons.io.FilenameUtils;
+import com.googlecode.vfsjfilechooser2.utils.GlobPattern;
 
 /* A file filter which accepts file patterns containing
  * the special wildcards *? on Windows and *?[] on Unix.
+ * Several patterns may be given, separated by ';', e.g.
+ * "*.csv;*.parquet;*.json". The patterns are compiled once, and
+ * directories are only looked for among names which do not match.
  */
 public class GlobFileFilter<FileObject> extends AbstractVFSFileFilter<FileObject> {
 
     private final VFSFileSystemView<FileObject> fileSystemView;
     private final String globPattern;
+    private final GlobPattern compiledPattern;
+    private final VFSNameFilter nameFilter;
 
     public GlobFileFilter(VFSFileSystemView<FileObject> fileSystemView, String globPattern) {
         this.fileSystemView = fileSystemView;
         this.globPattern = globPattern;
+        this.compiledPattern = GlobPattern.compile(globPattern);
+        this.nameFilter = new VFSNameFilter(compiledPattern, true);
+    }
+
+    /**
+     * Returns this filter as a name filter which a file system view can
+     * apply while listing.
+     * @return
+     */
+    @Override
+    public VFSNameFilter getNameFilter() {
+        return nameFilter;
     }
 
     @Override
@@ -20,10 +37,21 @@ public class GlobFileFilter<FileObject> extends AbstractVFSFileFilter<FileObject
         if (f == null) {
             return false;
         }
-        if (fileSystemView.isTraversable(f)) {
+        // The name is cheap; whether f is a directory may not be.
+        if (compiledPattern.matches(fileSystemView.getName(f))) {
             return true;
         }
-        return FilenameUtils.wildcardMatch(fileSystemView.getName(f), globPattern);
+        return fileSystemView.isTraversable(f);
+    }
+
+    @Override
+    public Requirement getRequirement() {
+        return Requirement.TYPE;
+    }
+
+    @Override
+    public boolean accept(VFSFileAttributes<? extends FileObject> attributes) {
+        return compiledPattern.matches(attributes.getName()) || attributes.isDirectory();
     }
 
     @Override
@@ -0,0 +1,240 @@
+package com.googlecode.vfsjfilechooser2.filechooser;
+
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+/**
+ * Watches a directory by listing it periodically, for file systems
+ * which cannot notify changes.
+ *
+ * The interval adapts to the directory: it starts at the minimum,
+ * doubles after each poll which finds no change, up to the maximum,
+ * and returns to the minimum when a change is found. It is never less
+ * than ten times the time taken by the last listing, so that a slow
+ * file system is not kept busy listing.
+ *
+ * @author shevek
+ */
+public class PollingDirectoryWatcher<FileObject> implements Closeable {
+
+    private static final Logger LOG = Logger.getLogger(PollingDirectoryWatcher.class.getName());
+    public static final long DEFAULT_MIN_INTERVAL_MILLIS = 2000;
+    public static final long DEFAULT_MAX_INTERVAL_MILLIS = 60000;
+    private static ScheduledExecutorService scheduler = null;
+
+    @Nonnull
+    private static synchronized ScheduledExecutorService getScheduler() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "vfsjfilechooser-poll");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+
+        return scheduler;
+    }
+
+    /** The state of an entry which is compared between polls. */
+    private static class Stamp {
+
+        private final boolean directory;
+        private final long size;
+        private final long lastModifiedTime;
+
+        public Stamp(@Nonnull VFSFileAttributes<?> a) {
+            this.directory = a.isDirectory();
+            this.size = a.getSize();
+            this.lastModifiedTime = a.getLastModifiedTime();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Stamp)) {
+                return false;
+            }
+
+            Stamp o = (Stamp) obj;
+            return (directory == o.directory) && (size == o.size)
+                    && (lastModifiedTime == o.lastModifiedTime);
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (size ^ lastModifiedTime);
+        }
+    }
+    private final VFSFileSystemView<FileObject> fileSystemView;
+    private final FileObject directory;
+    private final VFSFileChangeListener<FileObject> listener;
+    private final long minIntervalMillis;
+    private final long maxIntervalMillis;
+    // Keyed by name, so that a watched listing holds no file objects.
+    private Map<String, Stamp> snapshot;
+    private long intervalMillis;
+    private ScheduledFuture<?> future = null;
+    private boolean closed = false;
+
+    /**
+     * @param fileSystemView
+     * @param directory the directory to watch.
+     * @param children the current entries of the directory, or null
+     *  to list it at the first poll without reporting changes.
+     * @param listener
+     * @param minIntervalMillis
+     * @param maxIntervalMillis
+     */
+    public PollingDirectoryWatcher(@Nonnull VFSFileSystemView<FileObject> fileSystemView,
+            @Nonnull FileObject directory,
+            @CheckForNull List<VFSFileAttributes<FileObject>> children,
+            @Nonnull VFSFileChangeListener<FileObject> listener,
+            long minIntervalMillis, long maxIntervalMillis) {
+        this.fileSystemView = fileSystemView;
+        this.directory = directory;
+        this.listener = listener;
+        this.minIntervalMillis = minIntervalMillis;
+        this.maxIntervalMillis = Math.max(minIntervalMillis, maxIntervalMillis);
+        this.snapshot = (children == null) ? null : newSnapshot(children);
+        this.intervalMillis = minIntervalMillis;
+    }
+
+    @Nonnull
+    private static <FileObject> Map<String, Stamp> newSnapshot(@Nonnull List<VFSFileAttributes<FileObject>> children) {
+        Map<String, Stamp> out = new HashMap<String, Stamp>(children.size() * 2);
+
+        for (VFSFileAttributes<FileObject> a : children) {
+            out.put(a.getName(), new Stamp(a));
+        }
+
+        return out;
+    }
+
+    /**
+     * Starts polling.
+     * @return this watcher
+     */
+    @Nonnull
+    public synchronized PollingDirectoryWatcher<FileObject> start() {
+        schedule(intervalMillis);
+        return this;
+    }
+
+    private synchronized void schedule(long delayMillis) {
+        if (closed) {
+            return;
+        }
+
+        future = getScheduler().schedule(new Runnable() {
+            @Override
+            public void run() {
+                poll();
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /** Returns the current polling interval. */
+    public synchronized long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    private void poll() {
+        long start = System.nanoTime();
+        boolean changed;
+
+        try {
+            // A view may cache listings, which would hide every change.
+            fileSystemView.refresh(directory);
+            List<VFSFileAttributes<FileObject>> children = fileSystemView.getChildAttributes(directory, false);
+            changed = compare(children);
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Failed to poll " + directory, e);
+            changed = false;
+        }
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        synchronized (this) {
+            if (changed) {
+                intervalMillis = minIntervalMillis;
+            } else {
+                intervalMillis = Math.min(intervalMillis * 2, maxIntervalMillis);
+            }
+
+            schedule(Math.max(intervalMillis, elapsedMillis * 10));
+        }
+    }
+
+    /**
+     * Reports the differences from the previous poll.
+     * @return true if anything changed.
+     */
+    private boolean compare(@Nonnull List<VFSFileAttributes<FileObject>> children) {
+        Map<String, Stamp> previous = snapshot;
+        Map<String, Stamp> current = newSnapshot(children);
+        snapshot = current;
+
+        if (previous == null) {
+            return false;
+        }
+
+        boolean changed = false;
+
+        for (VFSFileAttributes<FileObject> a : children) {
+            Stamp stamp = previous.remove(a.getName());
+
+            if (isClosed()) {
+                return false;
+            }
+
+            if (stamp == null) {
+                listener.fileCreated(a.getFile());
+                changed = true;
+            } else if (!stamp.equals(current.get(a.getName()))) {
+                listener.fileChanged(a.getFile());
+                changed = true;
+            }
+        }
+
+        for (String name : previous.keySet()) {
+            if (isClosed()) {
+                return false;
+            }
+
+            listener.fileDeleted(fileSystemView.createFileObject(directory, name));
+            changed = true;
+        }
+
+        return changed;
+    }
+
+    private synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Stops polling.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+
+        if (future != null) {
+            future.cancel(false);
+            future = null;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.googlecode.vfsjfilechooser2.filechooser;
+
+import java.util.List;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+/**
+ * A file filter which declares which attributes of a file it reads, so
+ * that the directory model can filter without calling the file system
+ * view, and can filter by name before reading any attributes at all.
+ *
+ * @see AbstractVFSFileFilter
+ * @author shevek
+ */
+public interface VFSAttributeFileFilter<FileObject> extends VFSFileFilter<FileObject> {
+
+    /** What a filter reads of a file to accept or reject it. */
+    public static enum Requirement {
+
+        /**
+         * Only the name. {@link VFSFileFilter#accept(Object)} may call nothing but
+         * {@link VFSFileSystemView#getName(Object)}, so it may be called
+         * before the attributes of the file are read.
+         */
+        NAME,
+        /** The name, and whether the file is a directory or a file. */
+        TYPE,
+        /**
+         * Any of the attributes, e.g. the size or the modification time,
+         * or possibly the file system itself.
+         */
+        ATTRIBUTES
+    }
+
+    /**
+     * Returns what this filter reads of a file.
+     * @return
+     */
+    @Nonnull
+    Requirement getRequirement();
+
+    /**
+     * Whether the given file is accepted by this filter. Unless the
+     * requirement is {@link Requirement#ATTRIBUTES}, this reads only the
+     * attributes it names, and never the file system.
+     * @param attributes the attributes of the file, as read when its
+     *  directory was listed.
+     * @return
+     */
+    boolean accept(@Nonnull VFSFileAttributes<? extends FileObject> attributes);
+
+    /**
+     * Which of the given files are accepted by this filter. The directory
+     * model calls this once with all the entries of a listing, or of a
+     * streamed chunk, so a filter which can check many files more cheaply
+     * than one at a time, e.g. in parallel or with one request to a
+     * server, may override it. A listing above the parallel threshold of
+     * the model is passed in chunks, which may be checked concurrently.
+     * @param attributes the attributes of the files, as read when their
+     *  directory was listed.
+     * @return an array with an element for each file, in order, which is
+     *  true if the file is accepted.
+     * @see AbstractVFSFileFilter#accept(List)
+     */
+    @Nonnull
+    boolean[] accept(@Nonnull List<? extends VFSFileAttributes<? extends FileObject>> attributes);
+
+    /**
+     * Returns this filter as a name filter which a file system view may
+     * apply while it lists a directory, or null if it cannot be expressed
+     * as one. The name filter must pass every file this filter accepts;
+     * the directory model still calls this filter on what passes.
+     * @return
+     * @see VFSFileSystemView#getChildAttributes(Object, boolean, VFSNameFilter)
+     */
+    @CheckForNull
+    VFSNameFilter getNameFilter();
+}
@@ -0,0 +1,247 @@
+package com.googlecode.vfsjfilechooser2.filechooser;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A snapshot of the attributes of a file, captured once when its
+ * directory is listed.
+ *
+ * Reading the attributes of a file on a remote file system may take a
+ * round trip per call; the chooser reads them from the snapshot instead
+ * when sorting and displaying a listing. The attributes of an entry of
+ * a {@link CompactFileListing} resolve its file and URL only when they
+ * are read.
+ *
+ * The attributes listed by the default implementations of
+ * {@link AbstractVFSFileSystemView} are lazy: each is read from the
+ * view when first asked for, and kept, so that a listing costs no more
+ * calls than the chooser makes of it. See {@link #isLazy}.
+ *
+ * @see VFSFileSystemView#getChildAttributes
+ * @author shevek
+ */
+public final class VFSFileAttributes<FileObject> {
+
+    // The listing which resolves the file and URL on first use, or null.
+    private final CompactFileListing<FileObject> listing;
+    private final int index;
+    // The view which reads the other attributes on first use, or null.
+    private final VFSFileSystemView<FileObject> view;
+    private volatile FileObject file;
+    private final String name;
+    private volatile String url;
+    private boolean directory;
+    private boolean regularFile;
+    private long size;
+    private long lastModifiedTime;
+    private boolean hidden;
+    private boolean writable;
+    // The attributes read so far, if lazy. A bit lost to a race only
+    // means that its attribute is read again.
+    private volatile int read;
+    private static final int DIRECTORY = 1;
+    private static final int FILE = 2;
+    private static final int SIZE = 4;
+    private static final int LAST_MODIFIED_TIME = 8;
+    private static final int HIDDEN = 16;
+    private static final int WRITABLE = 32;
+    private static final int ALL = 63;
+
+    public VFSFileAttributes(@Nonnull FileObject file,
+            @Nonnull String name, @Nonnull String url,
+            boolean directory, boolean regularFile,
+            long size, long lastModifiedTime,
+            boolean hidden, boolean writable) {
+        this.listing = null;
+        this.index = -1;
+        this.view = null;
+        this.file = file;
+        this.name = name;
+        this.url = url;
+        this.directory = directory;
+        this.regularFile = regularFile;
+        this.size = size;
+        this.lastModifiedTime = lastModifiedTime;
+        this.hidden = hidden;
+        this.writable = writable;
+        this.read = ALL;
+    }
+
+    /**
+     * Creates attributes whose URL is read from the view when it is
+     * first asked for, e.g. because computing it touches the file
+     * system again.
+     */
+    public VFSFileAttributes(@Nonnull VFSFileSystemView<FileObject> view,
+            @Nonnull FileObject file, @Nonnull String name,
+            boolean directory, boolean regularFile,
+            long size, long lastModifiedTime,
+            boolean hidden, boolean writable) {
+        this.listing = null;
+        this.index = -1;
+        this.view = view;
+        this.file = file;
+        this.name = name;
+        this.directory = directory;
+        this.regularFile = regularFile;
+        this.size = size;
+        this.lastModifiedTime = lastModifiedTime;
+        this.hidden = hidden;
+        this.writable = writable;
+        this.read = ALL;
+    }
+
+    /**
+     * Creates the attributes of an entry of a compact listing, whose
+     * file and URL are resolved when first read.
+     */
+    VFSFileAttributes(@Nonnull CompactFileListing<FileObject> listing, int index,
+            @Nonnull String name, boolean directory, boolean regularFile,
+            long size, long lastModifiedTime,
+            boolean hidden, boolean writable) {
+        this.listing = listing;
+        this.index = index;
+        this.view = null;
+        this.name = name;
+        this.directory = directory;
+        this.regularFile = regularFile;
+        this.size = size;
+        this.lastModifiedTime = lastModifiedTime;
+        this.hidden = hidden;
+        this.writable = writable;
+        this.read = ALL;
+    }
+
+    /**
+     * Creates lazy attributes, which read each attribute but the name
+     * from the view when it is first asked for.
+     */
+    VFSFileAttributes(@Nonnull VFSFileSystemView<FileObject> view,
+            @Nonnull FileObject file, @Nonnull String name) {
+        this.listing = null;
+        this.index = -1;
+        this.view = view;
+        this.file = file;
+        this.name = name;
+    }
+
+    /**
+     * Returns lazy attributes of the same file which read from another
+     * view, e.g. one which wraps the view these read from.
+     */
+    @Nonnull
+    VFSFileAttributes<FileObject> withView(@Nonnull VFSFileSystemView<FileObject> view) {
+        return isLazy() ? new VFSFileAttributes<FileObject>(view, file, name) : this;
+    }
+
+    /**
+     * Whether some attributes have not been read yet. Reading them
+     * calls the file system view, so callers which must not block, or
+     * which would read every attribute of every entry, should read the
+     * file instead, or skip it.
+     */
+    public boolean isLazy() {
+        return read != ALL;
+    }
+
+    private boolean isRead(int bit) {
+        return (read & bit) != 0;
+    }
+
+    // Called after the attribute is stored, so that a reader which
+    // sees the bit sees the attribute.
+    private void setRead(int bit) {
+        read |= bit;
+    }
+
+    @Nonnull
+    public FileObject getFile() {
+        FileObject file = this.file;
+
+        if (file == null) {
+            file = listing.getFile(index);
+            this.file = file;
+        }
+
+        return file;
+    }
+
+    /** Base-name only. */
+    @Nonnull
+    public String getName() {
+        return name;
+    }
+
+    /** Full path. */
+    @Nonnull
+    public String getUrl() {
+        String url = this.url;
+
+        if (url == null) {
+            url = ((view != null) ? view : listing.getFileSystemView()).getUrl(getFile());
+            this.url = url;
+        }
+
+        return url;
+    }
+
+    public boolean isDirectory() {
+        if (!isRead(DIRECTORY)) {
+            directory = view.isDirectory(file);
+            setRead(DIRECTORY);
+        }
+
+        return directory;
+    }
+
+    public boolean isFile() {
+        if (!isRead(FILE)) {
+            regularFile = view.isFile(file);
+            setRead(FILE);
+        }
+
+        return regularFile;
+    }
+
+    /** The size of the file, or 0 if it is not a file. */
+    public long getSize() {
+        if (!isRead(SIZE)) {
+            size = isFile() ? view.getSize(file) : 0;
+            setRead(SIZE);
+        }
+
+        return size;
+    }
+
+    public long getLastModifiedTime() {
+        if (!isRead(LAST_MODIFIED_TIME)) {
+            lastModifiedTime = view.getLastModifiedTime(file);
+            setRead(LAST_MODIFIED_TIME);
+        }
+
+        return lastModifiedTime;
+    }
+
+    public boolean isHidden() {
+        if (!isRead(HIDDEN)) {
+            hidden = view.isHiddenFile(file);
+            setRead(HIDDEN);
+        }
+
+        return hidden;
+    }
+
+    public boolean isWritable() {
+        if (!isRead(WRITABLE)) {
+            writable = view.isWritable(file);
+            setRead(WRITABLE);
+        }
+
+        return writable;
+    }
+
+    @Override
+    public String toString() {
+        return getUrl();
+    }
+}
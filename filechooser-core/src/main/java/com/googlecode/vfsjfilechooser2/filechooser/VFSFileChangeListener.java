@@ -0,0 +1,29 @@
+package com.googlecode.vfsjfilechooser2.filechooser;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Receives changes to the entries of a watched directory.
+ *
+ * Methods may be called on any thread, and should return quickly.
+ *
+ * @see VFSFileSystemView#watchDirectory
+ * @author shevek
+ */
+public interface VFSFileChangeListener<FileObject> {
+
+    /** An entry was created in the directory. */
+    void fileCreated(@Nonnull FileObject file);
+
+    /** An entry was deleted from the directory. */
+    void fileDeleted(@Nonnull FileObject file);
+
+    /** The attributes or contents of an entry changed. */
+    void fileChanged(@Nonnull FileObject file);
+
+    /**
+     * Changes were lost, e.g. because too many happened at once, or the
+     * directory itself went away. The directory must be listed again.
+     */
+    void changesLost(@Nonnull FileObject directory);
+}
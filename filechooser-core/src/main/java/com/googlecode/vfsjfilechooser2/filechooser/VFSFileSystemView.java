@@ -1,6 +1,8 @@
 package com.googlecode.vfsjfilechooser2.filechooser;
 
 import com.googlecode.vfsjfilechooser2.VFSException;
+import java.io.Closeable;
+import java.util.List;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import javax.swing.Icon;
@@ -78,6 +80,77 @@ public interface VFSFileSystemView<FileObject> {
     @Nonnull
     FileObject[] getChildren(FileObject dir, boolean useFileHiding);
 
+    /**
+     * Passes the list of shown (i.e. not hidden) files to the given
+     * handler as they are read, so that a caller can display them before
+     * the whole directory has been listed.
+     * @param dir
+     * @param useFileHiding
+     * @param handler
+     */
+    void listChildren(@Nonnull FileObject dir, boolean useFileHiding, @Nonnull VFSListingHandler<FileObject> handler);
+
+    /**
+     * Passes the attributes of the shown (i.e. not hidden) files to the
+     * given handler as they are read, so that a caller can display them
+     * before the whole directory has been listed.
+     * @param dir
+     * @param useFileHiding
+     * @param handler
+     */
+    void listChildAttributes(@Nonnull FileObject dir, boolean useFileHiding,
+            @Nonnull VFSListingHandler<VFSFileAttributes<FileObject>> handler);
+
+    /**
+     * Gets the list of shown (i.e. not hidden) files, together with
+     * their attributes, which are read once while listing.
+     * @param dir
+     * @param useFileHiding
+     * @return
+     */
+    @Nonnull
+    List<VFSFileAttributes<FileObject>> getChildAttributes(@Nonnull FileObject dir, boolean useFileHiding);
+
+    /**
+     * Gets the list of shown files which pass a name filter, together
+     * with their attributes. The view may apply the filter while
+     * listing, so that the entries it rejects are never read. It must
+     * return at least the entries which pass, and may return more.
+     * @param dir
+     * @param useFileHiding
+     * @param filter
+     * @return
+     */
+    @Nonnull
+    List<VFSFileAttributes<FileObject>> getChildAttributes(@Nonnull FileObject dir, boolean useFileHiding, @Nonnull VFSNameFilter filter);
+
+    /**
+     * Reads all the attributes of a file at once.
+     * @param f
+     * @return
+     */
+    @Nonnull
+    VFSFileAttributes<FileObject> getAttributes(@Nonnull FileObject f);
+
+    /**
+     * Watches a directory for changes to its entries, for file systems
+     * which can notify changes without listing the directory.
+     * @param dir
+     * @param listener
+     * @return a handle which stops watching when closed, or null if
+     *  the file system cannot notify changes to this directory.
+     */
+    @CheckForNull
+    Closeable watchDirectory(@Nonnull FileObject dir, @Nonnull VFSFileChangeListener<FileObject> listener);
+
+    /**
+     * Discards whatever this view has cached about a directory and its
+     * entries, so that the next listing reads them from the file system.
+     * A {@link PollingDirectoryWatcher} calls this before each poll.
+     * @param dir
+     */
+    void refresh(@Nonnull FileObject dir);
+
     /**
      *
      * @return
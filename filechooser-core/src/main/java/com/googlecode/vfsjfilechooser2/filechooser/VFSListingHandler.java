@@ -0,0 +1,21 @@
+package com.googlecode.vfsjfilechooser2.filechooser;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Receives the children of a directory one at a time, as they are read.
+ *
+ * @see VFSFileSystemView#listChildren
+ * @author shevek
+ */
+public interface VFSListingHandler<FileObject> {
+
+    /**
+     * Called once for each child of the directory being listed.
+     * @param child
+     * @return <code>false</code> to stop the listing early, e.g. because
+     *   the caller is no longer interested in the result.
+     */
+    boolean handle(@Nonnull FileObject child);
+
+}
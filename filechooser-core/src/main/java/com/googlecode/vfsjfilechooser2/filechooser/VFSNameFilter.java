@@ -0,0 +1,57 @@
+package com.googlecode.vfsjfilechooser2.filechooser;
+
+import com.googlecode.vfsjfilechooser2.utils.GlobPattern;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+/**
+ * A description of a file filter which a file system view can apply
+ * while it lists a directory, e.g. in the listing request to a server
+ * or as a {@link java.nio.file.DirectoryStream.Filter}, so that
+ * entries which are not shown are never read.
+ *
+ * An entry passes if its name matches the pattern or, if directories
+ * are included, if it is a directory.
+ *
+ * @see VFSFileSystemView#getChildAttributes(Object, boolean, VFSNameFilter)
+ * @author shevek
+ */
+public final class VFSNameFilter {
+
+    private final GlobPattern pattern;
+    private final boolean directoriesIncluded;
+
+    /**
+     * @param pattern the names to pass.
+     * @param directoriesIncluded whether all directories pass, whatever
+     *  their names.
+     */
+    public VFSNameFilter(@Nonnull GlobPattern pattern, boolean directoriesIncluded) {
+        this.pattern = pattern;
+        this.directoriesIncluded = directoriesIncluded;
+    }
+
+    @Nonnull
+    public GlobPattern getPattern() {
+        return pattern;
+    }
+
+    public boolean isDirectoriesIncluded() {
+        return directoriesIncluded;
+    }
+
+    /**
+     * Returns true if an entry passes by its name alone. If not, and
+     * directories are included, it passes if it is a directory.
+     * @param name
+     * @return
+     */
+    public boolean acceptName(@CheckForNull String name) {
+        return pattern.matches(name);
+    }
+
+    @Override
+    public String toString() {
+        return pattern + (directoriesIncluded ? " and directories" : "");
+    }
+}
@@ -0,0 +1,51 @@
+package com.googlecode.vfsjfilechooser2.filechooser;
+
+import java.util.concurrent.Future;
+import javax.annotation.Nonnull;
+
+/**
+ * Runs the background file system work of a file chooser, such as
+ * listing directories.
+ *
+ * Tasks are submitted with a group, which identifies the file system
+ * they access, so that an implementation can limit the number of
+ * concurrent operations against a single server.
+ *
+ * @see DefaultVFSTaskExecutor
+ * @author shevek
+ */
+public interface VFSTaskExecutor {
+
+    /**
+     * What a task does, so that an implementation can limit each type
+     * separately, and a slow listing does not hold up other work.
+     */
+    public static enum TaskType {
+
+        /**
+         * Lists a directory, or resolves one to navigate to it. Such a
+         * task may be slow against a remote server, and may not respond
+         * to interrupts.
+         */
+        LISTING,
+        /** Reads a few files, e.g. their attributes or icons. */
+        FILE_ACCESS,
+        /**
+         * Only computes, e.g. sorts or diffs a listing already read, and
+         * does not access the file system.
+         */
+        COMPUTATION
+    }
+
+    /**
+     * Submits a task for execution.
+     * @param group the file system accessed by the task, as returned by
+     *  {@link com.googlecode.vfsjfilechooser2.utils.VFSUtils#getFileSystemKey}.
+     * @param type what the task does.
+     * @param task the task to run.
+     * @return a Future which may be used to cancel the task.
+     */
+    @Nonnull
+    Future<?> submit(@Nonnull String group, @Nonnull TaskType type, @Nonnull Runnable task);
+
+}
@@ -0,0 +1,231 @@
+package com.googlecode.vfsjfilechooser2.filechooser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystem;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+/**
+ * Watches directories of a {@link java.nio.file} file system using its
+ * {@link WatchService}, e.g. inotify on Linux.
+ *
+ * One WatchService and one daemon thread are shared by all watches on
+ * each file system. Events are reported to the listener on that thread.
+ *
+ * @author shevek
+ */
+public class WatchServiceDirectoryWatcher {
+
+    private static final Logger LOG = Logger.getLogger(WatchServiceDirectoryWatcher.class.getName());
+    private static final Map<FileSystem, WatchServiceDirectoryWatcher> INSTANCES = new HashMap<FileSystem, WatchServiceDirectoryWatcher>();
+
+    /**
+     * Watches a directory, reporting its entries as file objects created
+     * by {@link VFSFileSystemView#createFileObject(Object, String)}.
+     * @param path the directory to watch.
+     * @param fileSystemView the view which created the directory.
+     * @param directory the directory to watch, as a file object of the view.
+     * @param listener
+     * @return a handle which stops watching when closed, or null if the
+     *  file system does not support watching this directory.
+     */
+    @CheckForNull
+    public static <FileObject> Closeable watch(@Nonnull Path path,
+            @Nonnull VFSFileSystemView<FileObject> fileSystemView,
+            @Nonnull FileObject directory,
+            @Nonnull VFSFileChangeListener<FileObject> listener) {
+        WatchServiceDirectoryWatcher watcher = getInstance(path.getFileSystem());
+
+        if (watcher == null) {
+            return null;
+        }
+
+        return watcher.register(path, new Registration<FileObject>(fileSystemView, directory, listener));
+    }
+
+    @CheckForNull
+    private static synchronized WatchServiceDirectoryWatcher getInstance(@Nonnull FileSystem fileSystem) {
+        WatchServiceDirectoryWatcher watcher = INSTANCES.get(fileSystem);
+
+        if (watcher == null) {
+            try {
+                watcher = new WatchServiceDirectoryWatcher(fileSystem.newWatchService());
+            } catch (IOException e) {
+                return null;
+            } catch (UnsupportedOperationException e) {
+                return null;
+            }
+
+            INSTANCES.put(fileSystem, watcher);
+        }
+
+        return watcher;
+    }
+
+    private static class Registration<FileObject> {
+
+        private final VFSFileSystemView<FileObject> fileSystemView;
+        private final FileObject directory;
+        private final VFSFileChangeListener<FileObject> listener;
+
+        public Registration(VFSFileSystemView<FileObject> fileSystemView,
+                FileObject directory, VFSFileChangeListener<FileObject> listener) {
+            this.fileSystemView = fileSystemView;
+            this.directory = directory;
+            this.listener = listener;
+        }
+
+        public void lost() {
+            listener.changesLost(directory);
+        }
+
+        public void dispatch(@Nonnull WatchEvent<?> event) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                lost();
+                return;
+            }
+
+            FileObject file = fileSystemView.createFileObject(directory, String.valueOf(event.context()));
+
+            if (file == null) {
+                return;
+            }
+
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                listener.fileCreated(file);
+            } else if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                listener.fileDeleted(file);
+            } else {
+                listener.fileChanged(file);
+            }
+        }
+    }
+    private final WatchService watchService;
+    private final Map<WatchKey, List<Registration<?>>> registrations = new HashMap<WatchKey, List<Registration<?>>>();
+
+    private WatchServiceDirectoryWatcher(@Nonnull WatchService watchService) {
+        this.watchService = watchService;
+
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                loop();
+            }
+        }, "vfsjfilechooser-watch");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @CheckForNull
+    private Closeable register(@Nonnull Path path, @Nonnull final Registration<?> registration) {
+        final WatchKey key;
+
+        try {
+            key = path.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            return null;
+        } catch (UnsupportedOperationException e) {
+            return null;
+        } catch (ClosedWatchServiceException e) {
+            return null;
+        }
+
+        synchronized (registrations) {
+            List<Registration<?>> list = registrations.get(key);
+
+            if (list == null) {
+                list = new ArrayList<Registration<?>>(1);
+                registrations.put(key, list);
+            }
+
+            list.add(registration);
+        }
+
+        return new Closeable() {
+            @Override
+            public void close() {
+                unregister(key, registration);
+            }
+        };
+    }
+
+    private void unregister(@Nonnull WatchKey key, @Nonnull Registration<?> registration) {
+        synchronized (registrations) {
+            List<Registration<?>> list = registrations.get(key);
+
+            if ((list == null) || !list.remove(registration)) {
+                return;
+            }
+
+            if (list.isEmpty()) {
+                registrations.remove(key);
+                key.cancel();
+            }
+        }
+    }
+
+    private void loop() {
+        for (;;) {
+            WatchKey key;
+
+            try {
+                key = watchService.take();
+            } catch (InterruptedException e) {
+                return;
+            } catch (ClosedWatchServiceException e) {
+                return;
+            }
+
+            List<Registration<?>> list;
+
+            synchronized (registrations) {
+                list = registrations.get(key);
+                list = (list == null) ? null : new ArrayList<Registration<?>>(list);
+            }
+
+            List<WatchEvent<?>> events = key.pollEvents();
+            boolean valid = key.reset();
+
+            if (list == null) {
+                continue;
+            }
+
+            for (Registration<?> registration : list) {
+                try {
+                    for (WatchEvent<?> event : events) {
+                        registration.dispatch(event);
+                    }
+
+                    if (!valid) {
+                        // The directory went away.
+                        registration.lost();
+                    }
+                } catch (RuntimeException e) {
+                    LOG.log(Level.WARNING, "Failed to dispatch file change", e);
+                }
+            }
+
+            if (!valid) {
+                synchronized (registrations) {
+                    registrations.remove(key);
+                }
+            }
+        }
+    }
+}
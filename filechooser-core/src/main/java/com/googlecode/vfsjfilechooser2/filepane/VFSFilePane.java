@@ -20,10 +20,13 @@ package com.googlecode.vfsjfilechooser2.filepane;
 
 import com.googlecode.vfsjfilechooser2.VFSJFileChooser;
 import com.googlecode.vfsjfilechooser2.constants.VFSJFileChooserConstants;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSFileAttributes;
 import com.googlecode.vfsjfilechooser2.filechooser.VFSFileSystemView;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSTaskExecutor;
 import com.googlecode.vfsjfilechooser2.plaf.VFSFileChooserUIAccessorIF;
 import com.googlecode.vfsjfilechooser2.plaf.basic.BasicVFSDirectoryModel;
 import com.googlecode.vfsjfilechooser2.utils.FileObjectComparatorFactory;
+import com.googlecode.vfsjfilechooser2.utils.FileObjectComparatorFactory.SortKey;
 import com.googlecode.vfsjfilechooser2.utils.SwingCommonsUtilities;
 import com.googlecode.vfsjfilechooser2.utils.VFSResources;
 import com.googlecode.vfsjfilechooser2.utils.VFSUtils;
@@ -58,10 +61,19 @@ import java.beans.PropertyChangeListener;
 import java.text.DateFormat;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.EventObject;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
 import javax.swing.AbstractAction;
 import javax.swing.Action;
 import javax.swing.ActionMap;
@@ -84,6 +96,7 @@ import javax.swing.JScrollPane;
 import javax.swing.JTable;
 import javax.swing.JTextField;
 import javax.swing.KeyStroke;
+import javax.swing.ListCellRenderer;
 import javax.swing.ListModel;
 import javax.swing.ListSelectionModel;
 import javax.swing.LookAndFeel;
@@ -125,6 +138,7 @@ public /* final */ class VFSFilePane<FileObject> extends JPanel implements Prope
     public static final int VIEWTYPE_LIST = 0;
     public static final int VIEWTYPE_DETAILS = 1;
     private static final int VIEWTYPE_COUNT = 2;
+    private static final Logger LOG = Logger.getLogger(VFSFilePane.class.getName());
     private static final Cursor waitCursor = Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR);
     private static FocusListener repaintListener = new FocusListener() {
         @Override
@@ -171,6 +185,8 @@ public /* final */ class VFSFilePane<FileObject> extends JPanel implements Prope
         }
     };
 
+    /** The number of entries measured to choose a fixed cell size. */
+    private static final int CELL_SIZE_SAMPLES = 64;
     private static final int COLUMN_FILENAME = 0;
     private static final int COLUMN_SIZE = 1;
     private static final int COLUMN_DATE = 2;
@@ -206,6 +222,9 @@ public /* final */ class VFSFilePane<FileObject> extends JPanel implements Prope
     };
 
     private boolean smallIconsView = false;
+    private int fixedCellSizeThreshold = 1000;
+    // The length of the longest name measured for the fixed cell size.
+    private int measuredNameLength = -1;
     private Border listViewBorder;
     private Color listViewBackground;
     private boolean listViewWindowsStyle;
@@ -424,6 +443,34 @@ public /* final */ class VFSFilePane<FileObject> extends JPanel implements Prope
         firePropertyChange("viewType", oldValue, viewType);
     }
 
+    /**
+     * Returns the number of entries from which the list view uses a
+     * fixed cell size.
+     * @return
+     * @see #setFixedCellSizeThreshold
+     */
+    public int getFixedCellSizeThreshold() {
+        return fixedCellSizeThreshold;
+    }
+
+    /**
+     * Sets the number of entries from which the list view uses a fixed
+     * cell size. Otherwise, the list measures every cell through the
+     * renderer, which reads the name and icon of every entry before the
+     * first paint. With a fixed size, only a sample of the entries is
+     * measured, and names longer than the longest sampled one are
+     * truncated.
+     * @param fixedCellSizeThreshold the number of entries, 0 to always
+     *  use a fixed cell size, or Integer.MAX_VALUE to never use one.
+     */
+    public void setFixedCellSizeThreshold(int fixedCellSizeThreshold) {
+        this.fixedCellSizeThreshold = fixedCellSizeThreshold;
+
+        if (list != null) {
+            updateListCellSize(list);
+        }
+    }
+
     /**
      * @param viewType
      * @param viewPanel
@@ -658,6 +705,91 @@ public /* final */ class VFSFilePane<FileObject> extends JPanel implements Prope
         }
     }
 
+    /**
+     * Fixes the cell size of a list of many entries to the largest
+     * preferred size of up to {@link #CELL_SIZE_SAMPLES} entries spread
+     * through the list, or lets the list measure every cell otherwise.
+     */
+    private void updateListCellSize(JList<?> list) {
+        int size = getModel().getSize();
+        int width = -1;
+        int height = -1;
+        measuredNameLength = -1;
+
+        if ((size > 0) && (size >= fixedCellSizeThreshold)) {
+            Dimension d = measureListCells(list, 0, size - 1, -1);
+            width = d.width;
+            height = d.height;
+        }
+
+        setListCellSize(list, width, height);
+    }
+
+    /**
+     * Grows the fixed cell size of a list for entries added to it, e.g.
+     * by a chunk of a streamed directory. Only sampled entries with names
+     * longer than any measured so far are measured.
+     */
+    private void growListCellSize(JList<?> list, int index0, int index1) {
+        if (getModel().getSize() < fixedCellSizeThreshold) {
+            return;
+        }
+
+        if ((list.getFixedCellWidth() < 0) || (list.getFixedCellHeight() < 0)) {
+            // The list just reached the threshold.
+            updateListCellSize(list);
+
+            return;
+        }
+
+        Dimension d = measureListCells(list, index0, index1, measuredNameLength);
+        setListCellSize(list, Math.max(d.width, list.getFixedCellWidth()),
+                Math.max(d.height, list.getFixedCellHeight()));
+    }
+
+    /**
+     * Returns the largest preferred size of up to
+     * {@link #CELL_SIZE_SAMPLES} entries spread through [first, last]
+     * whose names are longer than minNameLength.
+     */
+    @SuppressWarnings("unchecked")
+    private Dimension measureListCells(JList<?> list, int first, int last, int minNameLength) {
+        BasicVFSDirectoryModel<FileObject> model = getModel();
+        ListCellRenderer<Object> renderer = (ListCellRenderer<Object>) list.getCellRenderer();
+        VFSJFileChooser<FileObject> chooser = getFileChooser();
+        int step = Math.max(1, (last - first + 1) / CELL_SIZE_SAMPLES);
+        Dimension out = new Dimension(-1, -1);
+
+        for (int i = first; (i <= last) && (i < model.getSize()); i += step) {
+            FileObject f = model.getElementAt(i);
+            String name = chooser.getName(f);
+            int length = (name == null) ? 0 : name.length();
+
+            if (length <= minNameLength) {
+                continue;
+            }
+
+            Component c = renderer.getListCellRendererComponent(list, f, i, false, false);
+            Dimension d = c.getPreferredSize();
+            out.width = Math.max(out.width, d.width);
+            out.height = Math.max(out.height, d.height);
+            measuredNameLength = Math.max(measuredNameLength, length);
+        }
+
+        return out;
+    }
+
+    private static void setListCellSize(JList<?> list, int width, int height) {
+        // Setting either size revalidates the list.
+        if (list.getFixedCellWidth() != width) {
+            list.setFixedCellWidth(width);
+        }
+
+        if (list.getFixedCellHeight() != height) {
+            list.setFixedCellHeight(height);
+        }
+    }
+
     public JPanel createList() {
         JPanel p = new JPanel(new BorderLayout());
         final VFSJFileChooser<FileObject> fileChooser = getFileChooser();
@@ -702,16 +834,23 @@ public /* final */ class VFSFilePane<FileObject> extends JPanel implements Prope
         }
 
         updateListRowCount(aList);
+        updateListCellSize(aList);
 
         getModel().addListDataListener(new ListDataListener() {
             @Override
             public void intervalAdded(ListDataEvent e) {
                 updateListRowCount(aList);
+                growListCellSize(aList, e.getIndex0(), e.getIndex1());
             }
 
             @Override
             public void intervalRemoved(ListDataEvent e) {
                 updateListRowCount(aList);
+
+                // Keep the size of the remaining entries until the next listing.
+                if (getModel().getSize() < fixedCellSizeThreshold) {
+                    updateListCellSize(aList);
+                }
             }
 
             @Override
@@ -721,6 +860,7 @@ public /* final */ class VFSFilePane<FileObject> extends JPanel implements Prope
                 }
 
                 updateListRowCount(aList);
+                updateListCellSize(aList);
             }
         });
 
@@ -1117,6 +1257,10 @@ public /* final */ class VFSFilePane<FileObject> extends JPanel implements Prope
             applyEdit();
         } else if (s.equals("busy")) {
             setCursor((Boolean) e.getNewValue() ? waitCursor : null);
+        } else if (s.equals("icons")) {
+            @SuppressWarnings("unchecked")
+            List<FileObject> files = (List<FileObject>) e.getNewValue();
+            repaintFiles(files);
         } else if (s.equals("componentOrientation")) {
             ComponentOrientation o = (ComponentOrientation) e.getNewValue();
             @SuppressWarnings("unchecked")
@@ -1128,6 +1272,29 @@ public /* final */ class VFSFilePane<FileObject> extends JPanel implements Prope
         }
     }
 
+    /**
+     * Repaints the cells of some entries, e.g. once their icons are known.
+     */
+    private void repaintFiles(@Nonnull List<FileObject> files) {
+        if (list != null) {
+            for (FileObject f : files) {
+                int index = getModel().indexOf(f);
+
+                if (index >= 0) {
+                    Rectangle cellBounds = list.getCellBounds(index, index);
+
+                    if (cellBounds != null) {
+                        list.repaint(cellBounds);
+                    }
+                }
+            }
+        }
+
+        if (detailsTableModel != null) {
+            detailsTableModel.repaintRows(files);
+        }
+    }
+
     private void ensureIndexIsVisible(int i) {
         if (i >= 0) {
             if ((list != null) && (list.getModel().getSize() > i)) {
@@ -1845,9 +2012,21 @@ public /* final */ class VFSFilePane<FileObject> extends JPanel implements Prope
         }
     }
 
+    /**
+     * Shown in place of a value which is being read in the background.
+     */
+    static final Object PENDING_VALUE = new Object() {
+        @Override
+        public String toString() {
+            return "...";
+        }
+    };
+
     class DetailsTableModel extends AbstractTableModel
             implements ListDataListener {
 
+        /** The number of rows beyond the visible ones whose attributes are read ahead. */
+        public static final int PREFETCH_ROWS = 64;
         public static final long ONE_KB = 1024;
         public static final long ONE_MB = ONE_KB * ONE_KB;
         public static final long ONE_GB = ONE_KB * ONE_MB;
@@ -1862,6 +2041,21 @@ public /* final */ class VFSFilePane<FileObject> extends JPanel implements Prope
                 = {
                     fileNameHeaderText, fileSizeHeaderText, fileDateHeaderText
                 };
+        // Attributes read by this model for entries the directory model
+        // has none for, e.g. while it streams a directory.
+        private final Map<FileObject, VFSFileAttributes<FileObject>> fetchedAttributes
+                = new ConcurrentHashMap<FileObject, VFSFileAttributes<FileObject>>();
+        // Entries whose attributes could not be read; not retried until
+        // the current directory changes.
+        private final Set<FileObject> failedFiles
+                = Collections.newSetFromMap(new ConcurrentHashMap<FileObject, Boolean>());
+        // Only accessed on the EDT.
+        private FileObject fetchedDirectory = null;
+        private boolean fetchScheduled = false;
+        private boolean fetchRunning = false;
+        private int fetchFirst = -1;
+        private int fetchLast = -1;
+        private final AtomicInteger fetchID = new AtomicInteger();
 
         DetailsTableModel() {
             directoryModel = getModel();
@@ -1904,7 +2098,8 @@ public /* final */ class VFSFilePane<FileObject> extends JPanel implements Prope
             Object o = f;
 
             VFSJFileChooser<FileObject> chooser = getFileChooser();
-            VFSFileSystemView<FileObject> fsv = chooser.getFileSystemView();
+            VFSFileAttributes<FileObject> attributes = (col == COLUMN_FILENAME)
+                    ? null : getAttributes(f);
             try {
                 switch (col) {
                     case COLUMN_FILENAME:
@@ -1914,16 +2109,19 @@ public /* final */ class VFSFilePane<FileObject> extends JPanel implements Prope
 
                     case COLUMN_SIZE:
 
-                        if (chooser.isTraversable(f)) {
+                        if (attributes == null) {
+                            o = PENDING_VALUE;
+                        } else if (chooser.isTraversable(f, attributes)) {
                             o = null;
                         } else {
-                            o = Long.parseLong("" + fsv.getSize(f));
+                            o = attributes.getSize();
                         }
 
                         break;
 
                     case COLUMN_DATE:
-                        o = new Date(fsv.getLastModifiedTime(f));
+                        o = (attributes == null) ? PENDING_VALUE
+                                : new Date(attributes.getLastModifiedTime());
 
                         break;
                 }
@@ -1933,6 +2131,162 @@ public /* final */ class VFSFilePane<FileObject> extends JPanel implements Prope
             return o;
         }
 
+        /**
+         * Returns the attributes of an entry without blocking. The
+         * attributes read by the directory model are used if it has them;
+         * otherwise they are read in the background, and the row is
+         * repainted when they arrive.
+         * @return the attributes, or null if they are being read.
+         */
+        @CheckForNull
+        private VFSFileAttributes<FileObject> getAttributes(@Nonnull FileObject f) {
+            // Read by the directory model when it listed the directory.
+            VFSFileAttributes<FileObject> attributes = getListedAttributes(f);
+
+            if (attributes != null) {
+                return attributes;
+            }
+
+            FileObject currentDirectory = getFileChooser().getCurrentDirectory();
+
+            if ((currentDirectory != null) && !currentDirectory.equals(fetchedDirectory)) {
+                fetchedDirectory = currentDirectory;
+                fetchedAttributes.clear();
+                failedFiles.clear();
+                fetchID.incrementAndGet();
+                fetchRunning = false;
+            }
+
+            attributes = fetchedAttributes.get(f);
+
+            if ((attributes == null) && !fetchScheduled) {
+                // Painting requests the rows one at a time; collect them
+                // into a single batch once the paint completes.
+                fetchScheduled = true;
+                EventQueue.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        fetchScheduled = false;
+                        fetchVisibleAttributes();
+                    }
+                });
+            }
+
+            return attributes;
+        }
+
+        /**
+         * Returns the attributes the directory model read when it listed
+         * the directory, or null if it has none or they are lazy, as
+         * reading lazy attributes on the EDT would block.
+         */
+        @CheckForNull
+        private VFSFileAttributes<FileObject> getListedAttributes(@Nonnull FileObject f) {
+            VFSFileAttributes<FileObject> attributes = directoryModel.getAttributes(f);
+
+            return ((attributes == null) || attributes.isLazy()) ? null : attributes;
+        }
+
+        /**
+         * Reads, in one background task, the attributes of the visible
+         * rows and of up to {@link #PREFETCH_ROWS} rows on either side
+         * which have none. A batch which is superseded by a newer one,
+         * because the table scrolled, stops early.
+         */
+        private void fetchVisibleAttributes() {
+            if ((detailsTable == null) || (directoryModel.getSize() == 0)) {
+                return;
+            }
+
+            Rectangle visible = detailsTable.getVisibleRect();
+            int first = detailsTable.rowAtPoint(visible.getLocation());
+            int last = detailsTable.rowAtPoint(new Point(visible.x, (visible.y + visible.height) - 1));
+            int size = directoryModel.getSize();
+            first = Math.max(0, ((first < 0) ? 0 : first) - PREFETCH_ROWS);
+            last = Math.min(size - 1, ((last < 0) ? (size - 1) : last) + PREFETCH_ROWS);
+
+            if (fetchRunning && (first == fetchFirst) && (last == fetchLast)) {
+                // Already reading this window.
+                return;
+            }
+
+            final List<FileObject> batch = new ArrayList<FileObject>();
+
+            for (int i = first; i <= last; i++) {
+                FileObject f = directoryModel.getElementAt(i);
+
+                if ((getListedAttributes(f) == null) && !fetchedAttributes.containsKey(f)
+                        && !failedFiles.contains(f)) {
+                    batch.add(f);
+                }
+            }
+
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            final int fid = fetchID.incrementAndGet();
+            fetchRunning = true;
+            fetchFirst = first;
+            fetchLast = last;
+            final VFSJFileChooser<FileObject> chooser = getFileChooser();
+            final VFSFileSystemView<FileObject> fsv = chooser.getFileSystemView();
+            String group = VFSUtils.getFileSystemKey(fsv.getUrl(chooser.getCurrentDirectory()));
+            chooser.getTaskExecutor().submit(group, VFSTaskExecutor.TaskType.FILE_ACCESS, new Runnable() {
+                @Override
+                public void run() {
+                    final List<FileObject> fetched = new ArrayList<FileObject>(batch.size());
+
+                    try {
+                        for (FileObject f : batch) {
+                            if ((fetchID.intValue() != fid) || Thread.currentThread().isInterrupted()) {
+                                break;
+                            }
+
+                            try {
+                                fetchedAttributes.put(f, fsv.getAttributes(f));
+                            } catch (RuntimeException e) {
+                                failedFiles.add(f);
+                                LOG.log(Level.FINE, "Failed to read the attributes of " + f, e);
+                            }
+
+                            fetched.add(f);
+                        }
+                    } finally {
+                        // Whatever happened, let the next batch run.
+                        EventQueue.invokeLater(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (fetchID.intValue() == fid) {
+                                    fetchRunning = false;
+                                }
+
+                                repaintRows(fetched);
+                            }
+                        });
+                    }
+                }
+            });
+        }
+
+        private void repaintRows(@Nonnull List<FileObject> files) {
+            int min = Integer.MAX_VALUE;
+            int max = -1;
+
+            for (FileObject f : files) {
+                int index = directoryModel.indexOf(f);
+
+                if (index >= 0) {
+                    min = Math.min(min, index);
+                    max = Math.max(max, index);
+                }
+            }
+
+            if (max >= 0) {
+                fireTableRowsUpdated(min, max);
+            }
+        }
+
         @Override
         public void setValueAt(Object value, int row, int col) {
             VFSJFileChooser<FileObject> chooser = getFileChooser();
@@ -2060,22 +2414,22 @@ public /* final */ class VFSFilePane<FileObject> extends JPanel implements Prope
 
                 detailsTable.getTableHeader().repaint();
 
-                VFSJFileChooser<FileObject> chooser = getFileChooser();
-                VFSFileSystemView<FileObject> fsv = chooser.getFileSystemView();
-                Comparator<FileObject> cpt = FileObjectComparatorFactory.newFileNameComparator(fsv, isSortAsc);
+                Comparator<SortKey<FileObject>> cpt = FileObjectComparatorFactory.newFileNameKeyComparator(isSortAsc);
 
                 if (modelIndex == 1) {
-                    cpt = FileObjectComparatorFactory.newSizeComparator(fsv, isSortAsc);
+                    cpt = FileObjectComparatorFactory.newSizeKeyComparator(isSortAsc);
                 } else if (modelIndex == 2) {
-                    cpt = FileObjectComparatorFactory.newDateComparator(fsv, isSortAsc);
+                    cpt = FileObjectComparatorFactory.newDateKeyComparator(isSortAsc);
                 }
 
-                directoryModel.sort(cpt);
-
-                detailsTable.tableChanged(new TableModelEvent(
-                        DetailsTableModel.this));
-                detailsTable.revalidate();
-                detailsTable.repaint();
+                // Cancels any sort started by a previous click.
+                directoryModel.sortInBackground(cpt, new Runnable() {
+                    @Override
+                    public void run() {
+                        detailsTable.revalidate();
+                        detailsTable.repaint();
+                    }
+                });
             }
         }
     }
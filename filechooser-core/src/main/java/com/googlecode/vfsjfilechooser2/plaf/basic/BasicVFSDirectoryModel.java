@@ -20,27 +20,51 @@ package com.googlecode.vfsjfilechooser2.plaf.basic;
 import com.googlecode.vfsjfilechooser2.VFSException;
 import com.googlecode.vfsjfilechooser2.VFSJFileChooser;
 import com.googlecode.vfsjfilechooser2.constants.VFSJFileChooserConstants;
+import com.googlecode.vfsjfilechooser2.filechooser.CompactFileListing;
+import com.googlecode.vfsjfilechooser2.filechooser.PollingDirectoryWatcher;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSFileAttributes;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSFileChangeListener;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSFileFilter;
 import com.googlecode.vfsjfilechooser2.filechooser.VFSFileSystemView;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSNameFilter;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSTaskExecutor;
 import com.googlecode.vfsjfilechooser2.plaf.metal.MetalVFSFileChooserUI;
 import com.googlecode.vfsjfilechooser2.utils.FileObjectComparatorFactory;
+import com.googlecode.vfsjfilechooser2.utils.FileObjectComparatorFactory.SortKey;
+import com.googlecode.vfsjfilechooser2.utils.ListDiff;
+import com.googlecode.vfsjfilechooser2.utils.ParallelLoop;
+import com.googlecode.vfsjfilechooser2.utils.ParallelSort;
+import com.googlecode.vfsjfilechooser2.utils.VFSUtils;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
 import javax.swing.AbstractListModel;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 
 /**
  * The DirectoryModel implementation based on Swing BasicDirectoryModel
@@ -52,16 +76,44 @@ public class BasicVFSDirectoryModel<FileObject> extends AbstractListModel<FileOb
         implements PropertyChangeListener {
 
     // private static final Comparator<FileObject> fileNameComparator = FileObjectComparatorFactory.newFileNameComparator(true);
+    private static final Logger LOG = Logger.getLogger(BasicVFSDirectoryModel.class.getName());
+    /** The delay in milliseconds for which changes to the watched directory are coalesced. */
+    public static final int DEFAULT_WATCH_DELAY_MILLIS = 100;
     private final VFSJFileChooser<FileObject> chooser;
-    private final List<FileObject> fileCache = new ArrayList<FileObject>();
-    private final ReadWriteLock aLock = new ReentrantReadWriteLock(true);
+    // The contents of the model. Readers never lock; writers replace
+    // the snapshot as a whole.
+    private final AtomicReference<DirectorySnapshot<FileObject>> snapshot;
+    // Guards loading, sorting and busy.
+    private final Object stateLock = new Object();
     private volatile Future<?> loadThread = null;
-    private final ExecutorService executor = Executors.newCachedThreadPool();
-    private List<FileObject> files = null;
-    private List<FileObject> directories = null;
     private final AtomicInteger fetchID = new AtomicInteger(0);
     private PropertyChangeSupport changeSupport;
     private boolean busy = false;
+    private boolean loading = false;
+    private boolean sorting = false;
+    private final AtomicInteger sortID = new AtomicInteger(0);
+    private volatile Future<?> sortThread = null;
+    private volatile FileObject loadedDirectory = null;
+    private final DirectoryListingCache<VFSFileAttributes<FileObject>> listingCache = new DirectoryListingCache<VFSFileAttributes<FileObject>>(64, 256 * 1024);
+    // The unfiltered listing of the directory, as read by the last load.
+    private volatile Listing<FileObject> rawListing = null;
+    private volatile boolean streamingEnabled = false;
+    private volatile int streamingChunkSize = 256;
+    private volatile long streamingChunkMillis = 100;
+    private volatile int compactListingThreshold = 1024;
+    private volatile int parallelThreshold = ParallelSort.DEFAULT_THRESHOLD;
+    // Guards watch, watchedDirectory, pendingChanges and watchScheduled.
+    private final Object watchLock = new Object();
+    private Closeable watch = null;
+    private FileObject watchedDirectory = null;
+    // Changes to the watched directory not yet applied: true if the
+    // entry was created or changed, false if it was deleted.
+    private final Map<FileObject, Boolean> pendingChanges = new LinkedHashMap<FileObject, Boolean>();
+    private boolean watchScheduled = false;
+    private Timer watchTimer = null;
+    private volatile boolean watchingEnabled = true;
+    private volatile long minPollingMillis = PollingDirectoryWatcher.DEFAULT_MIN_INTERVAL_MILLIS;
+    private volatile long maxPollingMillis = PollingDirectoryWatcher.DEFAULT_MAX_INTERVAL_MILLIS;
 
     /**
      *
@@ -69,6 +121,9 @@ public class BasicVFSDirectoryModel<FileObject> extends AbstractListModel<FileOb
      */
     public BasicVFSDirectoryModel(VFSJFileChooser<FileObject> filechooser) {
         this.chooser = filechooser;
+        this.snapshot = new AtomicReference<DirectorySnapshot<FileObject>>(
+                new DirectorySnapshot<FileObject>(filechooser, null, Collections.<FileObject>emptyList(), 0, null,
+                        Collections.<FileObject, VFSFileAttributes<FileObject>>emptyMap(), 0));
         validateFileCache();
     }
 
@@ -89,7 +144,11 @@ public class BasicVFSDirectoryModel<FileObject> extends AbstractListModel<FileOb
                         VFSJFileChooserConstants.FILE_HIDING_CHANGED_PROPERTY))
                 || (prop.equals(
                         VFSJFileChooserConstants.FILE_SELECTION_MODE_CHANGED_PROPERTY))) {
-            validateFileCache();
+            if (prop.equals(VFSJFileChooserConstants.DIRECTORY_CHANGED_PROPERTY)) {
+                loadFileCache(true);
+            } else {
+                refilterFileCache();
+            }
         } else if ("UI".equals(prop)) {
             Object old = e.getOldValue();
 
@@ -117,44 +176,58 @@ public class BasicVFSDirectoryModel<FileObject> extends AbstractListModel<FileOb
     }
 
     /**
-     *
-     * @return
+     * Returns the entries of the model which are not traversable.
+     * @return an immutable list.
      */
     public List<FileObject> getFiles() {
-        aLock.readLock().lock();
+        return snapshot.get().getFiles();
+    }
 
-        try {
-            if (files != null) {
-                return files;
-            }
+    /**
+     * Returns the entries of the model which are traversable.
+     * @return an immutable list.
+     */
+    public List<FileObject> getDirectories() {
+        return snapshot.get().getDirectories();
+    }
 
-            files = new CopyOnWriteArrayList<FileObject>();
-            directories = new CopyOnWriteArrayList<FileObject>();
+    /**
+     * Lists the current directory again, bypassing the listing cache.
+     */
+    public void validateFileCache() {
+        loadFileCache(false);
+    }
 
-            FileObject currentDir = chooser.getCurrentDirectory();
-            VFSFileSystemView<FileObject> v = chooser.getFileSystemView();
-            directories.add(v.createFileObject(currentDir, ".."));
+    /**
+     * Applies the filter, file hiding and selection mode of the chooser
+     * again to the unfiltered listing of the current directory, without
+     * listing the directory. Falls back to {@link #loadFileCache} if the
+     * model does not hold a complete listing of the current directory.
+     */
+    protected void refilterFileCache() {
+        Listing<FileObject> listing = rawListing;
 
-            for (FileObject f : fileCache) {
-                if (chooser.isTraversable(f)) {
-                    directories.add(f);
-                } else {
-                    files.add(f);
-                }
-            }
+        if ((listing == null) || isLoading()
+                || !listing.directory.equals(chooser.getCurrentDirectory())) {
+            loadFileCache(true);
 
-            return files;
-        } finally {
-            aLock.readLock().unlock();
+            return;
         }
+
+        startLoad(listing.directory, true, listing);
     }
 
     /**
-     *
+     * Loads the current directory in the background.
+     * @param useListingCache whether a cached listing may be shown
+     *  instead of, or while, listing the directory.
      */
-    public void validateFileCache() {
-        FileObject currentDirectory = chooser.getCurrentDirectory();
+    protected void loadFileCache(boolean useListingCache) {
+        startLoad(chooser.getCurrentDirectory(), useListingCache, null);
+    }
 
+    private void startLoad(FileObject currentDirectory, boolean useListingCache,
+            Listing<FileObject> listing) {
         if (currentDirectory == null) {
             return;
         }
@@ -166,7 +239,576 @@ public class BasicVFSDirectoryModel<FileObject> extends AbstractListModel<FileOb
         int fid = fetchID.incrementAndGet();
         setBusy(true, fid);
 
-        loadThread = executor.submit(new LoadFilesThread(currentDirectory, fid));
+        String group = VFSUtils.getFileSystemKey(chooser.getFileSystemView().getUrl(currentDirectory));
+        loadThread = chooser.getTaskExecutor().submit(group, VFSTaskExecutor.TaskType.LISTING,
+                new LoadFilesThread(currentDirectory, fid, useListingCache, listing));
+    }
+
+    /**
+     * Cancels any load in progress and discards its pending updates.
+     * Called when the UI which owns this model is uninstalled.
+     */
+    public void dispose() {
+        fetchID.incrementAndGet();
+        sortID.incrementAndGet();
+        invalidateFileCache();
+        unwatch();
+
+        if (sortThread != null) {
+            sortThread.cancel(true);
+            sortThread = null;
+        }
+    }
+
+    /**
+     * Returns the entries which the chooser shows, in order. The
+     * file filter is called once, with all the entries which are not
+     * hidden.
+     */
+    @Nonnull
+    List<VFSFileAttributes<FileObject>> accept(@Nonnull List<VFSFileAttributes<FileObject>> list, boolean useFileHiding) {
+        List<VFSFileAttributes<FileObject>> visible = list;
+
+        if (useFileHiding) {
+            visible = new ArrayList<VFSFileAttributes<FileObject>>(list.size());
+
+            for (VFSFileAttributes<FileObject> a : list) {
+                if (!a.isHidden()) {
+                    visible.add(a);
+                }
+            }
+        }
+
+        boolean[] accepted = chooser.accept(visible);
+        List<VFSFileAttributes<FileObject>> out = new ArrayList<VFSFileAttributes<FileObject>>(visible.size());
+
+        for (int i = 0; i < accepted.length; i++) {
+            if (accepted[i]) {
+                out.add(visible.get(i));
+            }
+        }
+
+        return out;
+    }
+
+    /** Returns true if the given load has not been superseded by another. */
+    boolean isCurrentLoad(int fid) {
+        return fetchID.intValue() == fid;
+    }
+
+    void fireEntriesAdded(int index0, int index1) {
+        fireIntervalAdded(this, index0, index1);
+    }
+
+    void fireEntriesRemoved(int index0, int index1) {
+        fireIntervalRemoved(this, index0, index1);
+    }
+
+    /**
+     * Returns the cache of directory listings. Its policies may be
+     * changed to control how long listings of each URI scheme are kept.
+     * @return
+     */
+    @Nonnull
+    public DirectoryListingCache<VFSFileAttributes<FileObject>> getListingCache() {
+        return listingCache;
+    }
+
+    /**
+     * Returns the attributes of an entry, as read when the directory
+     * was listed.
+     * @param f
+     * @return the attributes, or null if f is not in the model.
+     */
+    @CheckForNull
+    public VFSFileAttributes<FileObject> getAttributes(@Nonnull FileObject f) {
+        return snapshot.get().getAttributes().get(f);
+    }
+
+    /** Returns the current contents of the model. */
+    @Nonnull
+    DirectorySnapshot<FileObject> getSnapshot() {
+        return snapshot.get();
+    }
+
+    /** Replaces the contents of the model. Called on the EDT. */
+    void setSnapshot(@Nonnull DirectorySnapshot<FileObject> snapshot) {
+        this.snapshot.set(snapshot);
+    }
+
+    /**
+     * Returns whether a newly entered directory is shown incrementally,
+     * as it is being listed.
+     * @return
+     * @see #setStreamingEnabled
+     */
+    public boolean isStreamingEnabled() {
+        return streamingEnabled;
+    }
+
+    /**
+     * Sets whether a newly entered directory is shown incrementally.
+     * When enabled, the entries are published to the model in sorted
+     * chunks as they arrive from the file system, so the first rows
+     * appear before a large directory has been completely listed.
+     * Rescanning the directory which is already shown still applies
+     * the changes in a single step.
+     * @param streamingEnabled
+     */
+    public void setStreamingEnabled(boolean streamingEnabled) {
+        this.streamingEnabled = streamingEnabled;
+    }
+
+    /**
+     * Returns the maximum number of entries published in one chunk
+     * while streaming.
+     * @return
+     */
+    public int getStreamingChunkSize() {
+        return streamingChunkSize;
+    }
+
+    /**
+     * Sets the maximum number of entries published in one chunk
+     * while streaming.
+     * @param streamingChunkSize
+     */
+    public void setStreamingChunkSize(int streamingChunkSize) {
+        if (streamingChunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + streamingChunkSize);
+        }
+
+        this.streamingChunkSize = streamingChunkSize;
+    }
+
+    /**
+     * Returns the longest time, in milliseconds, for which entries are
+     * held back before being published while streaming.
+     * @return
+     */
+    public long getStreamingChunkMillis() {
+        return streamingChunkMillis;
+    }
+
+    /**
+     * Sets the longest time, in milliseconds, for which entries are
+     * held back before being published while streaming.
+     * @param streamingChunkMillis
+     */
+    public void setStreamingChunkMillis(long streamingChunkMillis) {
+        this.streamingChunkMillis = streamingChunkMillis;
+    }
+
+    /**
+     * Returns the number of entries from which listings are kept in
+     * compact form.
+     * @return
+     * @see #setCompactListingThreshold
+     */
+    public int getCompactListingThreshold() {
+        return compactListingThreshold;
+    }
+
+    /**
+     * Sets the number of entries from which the listings kept by the
+     * model, for refiltering and in the listing cache, are stored as a
+     * {@link CompactFileListing}, which holds no file objects. The rows
+     * of such a listing are then shown as indices into it, and a file
+     * object is resolved only for a row which is read. Smaller
+     * listings are kept as returned by the file system view, so their
+     * file objects are not resolved again when they are reused.
+     * @param compactListingThreshold the number of entries, or
+     *  Integer.MAX_VALUE to never compact listings.
+     */
+    public void setCompactListingThreshold(int compactListingThreshold) {
+        this.compactListingThreshold = compactListingThreshold;
+    }
+
+    /**
+     * Returns the number of entries above which a listing is filtered,
+     * sorted and split into directories and files in parallel.
+     * @return
+     * @see #setParallelThreshold
+     */
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    /**
+     * Sets the number of entries above which a listing is filtered,
+     * sorted and split into directories and files in parallel, on the
+     * pool of {@link ParallelSort#getPool()}. The order of the model is
+     * the same either way. Above the threshold, the file filter and the
+     * file view may be called concurrently from several threads.
+     * @param parallelThreshold the number of entries, or
+     *  Integer.MAX_VALUE to never process listings in parallel.
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    @Nonnull
+    List<VFSFileAttributes<FileObject>> compact(@Nonnull FileObject directory,
+            @Nonnull List<VFSFileAttributes<FileObject>> list) {
+        if (list.size() < compactListingThreshold) {
+            return list;
+        }
+
+        return CompactFileListing.compact(chooser.getFileSystemView(), directory, list);
+    }
+
+    /**
+     * Returns the difference between the contents of the model and new
+     * contents. Rows of compact listings are compared by index or by
+     * name, so that they are not resolved.
+     */
+    @Nonnull
+    private ListDiff<?> diff(@CheckForNull FileObject oldDirectory, @Nonnull List<FileObject> oldEntries,
+            @CheckForNull FileObject newDirectory, @Nonnull List<FileObject> newEntries) {
+        if (!(oldEntries instanceof ListingRows) && !(newEntries instanceof ListingRows)) {
+            return ListDiff.compute(oldEntries, newEntries);
+        }
+
+        if ((oldEntries instanceof ListingRows) && (newEntries instanceof ListingRows)
+                && (((ListingRows<FileObject>) oldEntries).getListing() == ((ListingRows<FileObject>) newEntries).getListing())) {
+            return ListDiff.compute(((ListingRows<FileObject>) oldEntries).getRowList(),
+                    ((ListingRows<FileObject>) newEntries).getRowList());
+        }
+
+        if ((newDirectory != null) && newDirectory.equals(oldDirectory)) {
+            // Entries of a directory are equal if their names are.
+            return ListDiff.compute(getNames(oldEntries), getNames(newEntries));
+        }
+
+        // Entries of different directories are never equal.
+        return ListDiff.replacing(oldEntries.size(), newEntries.size());
+    }
+
+    private static boolean isSameListing(@Nonnull List<?> oldEntries, @Nonnull List<?> newEntries) {
+        return (oldEntries instanceof ListingRows) && (newEntries instanceof ListingRows)
+                && ((ListingRows<?>) oldEntries).isSameListing((ListingRows<?>) newEntries);
+    }
+
+    @Nonnull
+    private List<String> getNames(@Nonnull final List<FileObject> entries) {
+        if (entries instanceof ListingRows) {
+            return ((ListingRows<FileObject>) entries).getNameList();
+        }
+
+        final VFSFileSystemView<FileObject> fsv = chooser.getFileSystemView();
+
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                return fsv.getName(entries.get(index));
+            }
+
+            @Override
+            public int size() {
+                return entries.size();
+            }
+        };
+    }
+
+    /**
+     * Returns the attributes of some entries, in order, without
+     * resolving rows of a compact listing.
+     */
+    @Nonnull
+    static <FileObject> List<VFSFileAttributes<FileObject>> getAttributes(
+            @Nonnull final List<FileObject> entries,
+            @Nonnull final Map<FileObject, VFSFileAttributes<FileObject>> attributes) {
+        if (entries instanceof ListingRows) {
+            return ((ListingRows<FileObject>) entries).getAttributeList();
+        }
+
+        return new AbstractList<VFSFileAttributes<FileObject>>() {
+            @Override
+            public VFSFileAttributes<FileObject> get(int index) {
+                return attributes.get(entries.get(index));
+            }
+
+            @Override
+            public int size() {
+                return entries.size();
+            }
+        };
+    }
+
+    /**
+     * Returns whether the current directory is watched for changes.
+     * @return
+     * @see #setWatchingEnabled
+     */
+    public boolean isWatchingEnabled() {
+        return watchingEnabled;
+    }
+
+    /**
+     * Sets whether the current directory is watched for changes once it
+     * has been listed. Entries which are created, changed or deleted are
+     * read individually and applied to the model as insertions and
+     * removals, without listing the directory again.
+     *
+     * Directories which the file system view can watch, e.g. local
+     * directories, are notified of changes. Other directories are
+     * polled at an adaptive interval, unless polling is disabled.
+     * @param watchingEnabled
+     * @see VFSFileSystemView#watchDirectory
+     * @see #setPollingInterval
+     */
+    public void setWatchingEnabled(boolean watchingEnabled) {
+        this.watchingEnabled = watchingEnabled;
+
+        if (!watchingEnabled) {
+            unwatch();
+        }
+    }
+
+    /**
+     * Returns the shortest interval at which a directory which cannot be
+     * watched is polled, or 0 if such directories are not polled.
+     * @return
+     */
+    public long getMinPollingMillis() {
+        return minPollingMillis;
+    }
+
+    /**
+     * Returns the longest interval at which a directory which cannot be
+     * watched is polled.
+     * @return
+     */
+    public long getMaxPollingMillis() {
+        return maxPollingMillis;
+    }
+
+    /**
+     * Sets the interval at which a directory which cannot be watched is
+     * polled. The interval starts at the minimum, and grows towards the
+     * maximum while the directory does not change. Takes effect when the
+     * next directory is watched.
+     * @param minPollingMillis the shortest interval, or 0 to disable polling.
+     * @param maxPollingMillis the longest interval.
+     * @see PollingDirectoryWatcher
+     */
+    public void setPollingInterval(long minPollingMillis, long maxPollingMillis) {
+        if ((minPollingMillis < 0) || (maxPollingMillis < minPollingMillis)) {
+            throw new IllegalArgumentException("Illegal polling interval: "
+                    + minPollingMillis + ".." + maxPollingMillis);
+        }
+
+        this.minPollingMillis = minPollingMillis;
+        this.maxPollingMillis = maxPollingMillis;
+    }
+
+    /**
+     * Records a complete listing of a directory, and watches the
+     * directory for changes if it is still the current directory.
+     */
+    private void setListing(@Nonnull Listing<FileObject> listing) {
+        rawListing = listing;
+        loadedDirectory = listing.directory;
+
+        if (watchingEnabled && listing.directory.equals(chooser.getCurrentDirectory())) {
+            watch(listing);
+        }
+    }
+
+    private void watch(@Nonnull Listing<FileObject> listing) {
+        synchronized (watchLock) {
+            if (listing.directory.equals(watchedDirectory)) {
+                return;
+            }
+
+            closeWatch();
+
+            VFSFileSystemView<FileObject> fsv = chooser.getFileSystemView();
+            WatchListener listener = new WatchListener(listing.directory);
+
+            try {
+                watch = fsv.watchDirectory(listing.directory, listener);
+            } catch (RuntimeException e) {
+                LOG.log(Level.WARNING, "Failed to watch " + listing.directory, e);
+                watch = null;
+            }
+
+            if ((watch == null) && (minPollingMillis > 0)) {
+                watch = new PollingDirectoryWatcher<FileObject>(fsv, listing.directory,
+                        listing.children, listener, minPollingMillis, maxPollingMillis).start();
+            }
+
+            watchedDirectory = listing.directory;
+        }
+    }
+
+    /**
+     * Stops watching the current directory, and discards any changes
+     * not yet applied.
+     */
+    private void unwatch() {
+        synchronized (watchLock) {
+            closeWatch();
+        }
+    }
+
+    /** The caller must hold watchLock. */
+    private void closeWatch() {
+        if (watch != null) {
+            try {
+                watch.close();
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Failed to stop watching " + watchedDirectory, e);
+            }
+
+            watch = null;
+        }
+
+        watchedDirectory = null;
+        pendingChanges.clear();
+    }
+
+    /**
+     * Queues changes to the watched directory, to be applied together
+     * after a short delay. The caller must hold watchLock.
+     */
+    private void queueChanges(@Nonnull Map<FileObject, Boolean> changes) {
+        for (Map.Entry<FileObject, Boolean> e : changes.entrySet()) {
+            // Keep the latest change to each entry, e.g. a file created
+            // then deleted before the changes were applied.
+            pendingChanges.remove(e.getKey());
+            pendingChanges.put(e.getKey(), e.getValue());
+        }
+
+        if (watchScheduled || pendingChanges.isEmpty()) {
+            return;
+        }
+
+        watchScheduled = true;
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                if (watchTimer == null) {
+                    watchTimer = new Timer(DEFAULT_WATCH_DELAY_MILLIS, new ActionListener() {
+                        @Override
+                        public void actionPerformed(ActionEvent e) {
+                            applyChanges();
+                        }
+                    });
+                    watchTimer.setRepeats(false);
+                }
+
+                watchTimer.restart();
+            }
+        });
+    }
+
+    /**
+     * Receives the changes to one watched directory.
+     */
+    private class WatchListener implements VFSFileChangeListener<FileObject> {
+
+        private final FileObject directory;
+
+        public WatchListener(@Nonnull FileObject directory) {
+            this.directory = directory;
+        }
+
+        private void change(@Nonnull FileObject file, boolean exists) {
+            synchronized (watchLock) {
+                if (directory.equals(watchedDirectory)) {
+                    queueChanges(Collections.singletonMap(file, exists));
+                }
+            }
+        }
+
+        @Override
+        public void fileCreated(FileObject file) {
+            change(file, true);
+        }
+
+        @Override
+        public void fileDeleted(FileObject file) {
+            change(file, false);
+        }
+
+        @Override
+        public void fileChanged(FileObject file) {
+            change(file, true);
+        }
+
+        @Override
+        public void changesLost(FileObject directory) {
+            SwingUtilities.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    if (WatchListener.this.directory.equals(chooser.getCurrentDirectory())) {
+                        validateFileCache();
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Applies the queued changes to the listing of the watched directory.
+     * The attributes of created and changed entries are read, and the
+     * changes are applied to the contents of the model, in the
+     * background.
+     * @see ListingChanges
+     */
+    private void applyChanges() {
+        final Map<FileObject, Boolean> changes;
+        final FileObject directory;
+
+        synchronized (watchLock) {
+            watchScheduled = false;
+
+            if (pendingChanges.isEmpty()) {
+                return;
+            }
+
+            changes = new LinkedHashMap<FileObject, Boolean>(pendingChanges);
+            pendingChanges.clear();
+            directory = watchedDirectory;
+        }
+
+        Listing<FileObject> listing = rawListing;
+
+        if ((directory == null) || (listing == null) || !directory.equals(listing.directory)
+                || !directory.equals(chooser.getCurrentDirectory())) {
+            // The directory is being left; a load will list the next one.
+            return;
+        }
+
+        if (isLoading()) {
+            requeueChanges(directory, changes);
+
+            return;
+        }
+
+        String group = VFSUtils.getFileSystemKey(chooser.getFileSystemView().getUrl(directory));
+        chooser.getTaskExecutor().submit(group, VFSTaskExecutor.TaskType.FILE_ACCESS,
+                new ApplyChangesThread(listing, changes, snapshot.get(), fetchID.intValue()));
+    }
+
+    private void requeueChanges(@Nonnull FileObject directory, @Nonnull Map<FileObject, Boolean> changes) {
+        synchronized (watchLock) {
+            if (!directory.equals(watchedDirectory)) {
+                return;
+            }
+
+            // Changes received meanwhile are newer.
+            Map<FileObject, Boolean> requeued = new LinkedHashMap<FileObject, Boolean>(changes);
+            requeued.keySet().removeAll(pendingChanges.keySet());
+            queueChanges(requeued);
+        }
+    }
+
+    private boolean isLoading() {
+        synchronized (stateLock) {
+            return loading;
+        }
     }
 
     /**
@@ -181,8 +823,6 @@ public class BasicVFSDirectoryModel<FileObject> extends AbstractListModel<FileOb
      * @since 1.4
      */
     public boolean renameFile(FileObject oldFile, FileObject newFile) {
-        aLock.writeLock().lock();
-
         try {
             VFSFileSystemView<FileObject> fsv = chooser.getFileSystemView();
             fsv.rename(oldFile, newFile);
@@ -191,63 +831,211 @@ public class BasicVFSDirectoryModel<FileObject> extends AbstractListModel<FileOb
             return true;
         } catch (VFSException e) {
             return false;
-        } finally {
-            aLock.writeLock().unlock();
         }
     }
 
-    /**
-     *
-     */
-    public void fireContentsChanged() {
-        fireContentsChanged(this, 0, getSize() - 1);
-    }
+    /**
+     *
+     */
+    public void fireContentsChanged() {
+        fireContentsChanged(this, 0, getSize() - 1);
+    }
+
+    /**
+     * Notifies property change listeners that the icons of some entries
+     * have been resolved, so that views repaint them. Unlike
+     * {@link #fireContentsChanged()}, this does not disturb the selection.
+     * @param files the entries whose icons changed.
+     */
+    public void fireIconsChanged(@Nonnull List<FileObject> files) {
+        firePropertyChange("icons", null, files);
+    }
+
+    @Override
+    public int getSize() {
+        return snapshot.get().getEntries().size();
+    }
+
+    /**
+     *
+     * @param o
+     * @return
+     */
+    public boolean contains(FileObject o) {
+        return indexOf(o) >= 0;
+    }
+
+    /**
+     * @param o
+     * @return
+     */
+    public int indexOf(FileObject o) {
+        return snapshot.get().indexOf(o);
+    }
+
+    /* (non-Javadoc)
+     * @see javax.swing.ListModel#getElementAt(int)
+     */
+    @Override
+    public FileObject getElementAt(int index) {
+        return snapshot.get().getEntries().get(index);
+    }
+
+    /**
+     * @param comparator
+     */
+    public void sort(Comparator<FileObject> comparator) {
+        for (;;) {
+            DirectorySnapshot<FileObject> current = snapshot.get();
+            List<FileObject> sorted = new ArrayList<FileObject>(current.getEntries());
+            Collections.sort(sorted, comparator);
+
+            if (snapshot.compareAndSet(current, current.withEntries(sorted, -1, null))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sorts the model using precomputed sort keys, reading the
+     * attributes of each entry only once.
+     * @param comparator
+     */
+    public void sortByKey(@Nonnull Comparator<SortKey<FileObject>> comparator) {
+        for (;;) {
+            DirectorySnapshot<FileObject> current = snapshot.get();
+            List<FileObject> sorted = sort(current, comparator);
+
+            if (snapshot.compareAndSet(current, current.withEntries(sorted, -1, comparator))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the entries of a snapshot in another order. Rows of a
+     * compact listing are sorted by their attributes, without resolving
+     * their file objects.
+     */
+    @Nonnull
+    private List<FileObject> sort(@Nonnull DirectorySnapshot<FileObject> s, @Nonnull Comparator<SortKey<FileObject>> comparator) {
+        ListingRows<FileObject> rows = s.getRows();
+
+        if (rows != null) {
+            return rows.reorder(FileObjectComparatorFactory.sortIndices(
+                    rows.getAttributeList(), comparator, parallelThreshold));
+        }
+
+        List<FileObject> sorted = new ArrayList<FileObject>(s.getEntries());
+        FileObjectComparatorFactory.sort(chooser.getFileSystemView(), sorted, comparator, s.getAttributes());
+
+        return sorted;
+    }
+
+    /**
+     * Sorts the model in the background, making the model busy until
+     * the sort completes. The sorted order is swapped in on the EDT in a
+     * single step, followed by a contents change event. A sort which has
+     * not completed is cancelled by the next call to this method, and is
+     * discarded if the contents of the model change in the meantime.
+     * Must be called on the EDT.
+     * @param comparator
+     * @param onSorted called on the EDT after the sorted order is swapped in,
+     *  or null.
+     */
+    public void sortInBackground(@Nonnull final Comparator<SortKey<FileObject>> comparator,
+            @CheckForNull final Runnable onSorted) {
+        final int sid = sortID.incrementAndGet();
+
+        if (sortThread != null) {
+            sortThread.cancel(true);
+            sortThread = null;
+        }
+
+        final VFSFileSystemView<FileObject> fsv = chooser.getFileSystemView();
+        final DirectorySnapshot<FileObject> oldSnapshot = snapshot.get();
+
+        setSorting(true, sid);
+
+        FileObject currentDirectory = chooser.getCurrentDirectory();
+        String group = (currentDirectory == null) ? ""
+                : VFSUtils.getFileSystemKey(fsv.getUrl(currentDirectory));
+        sortThread = chooser.getTaskExecutor().submit(group, VFSTaskExecutor.TaskType.COMPUTATION, new Runnable() {
+            @Override
+            public void run() {
+                final List<FileObject> sorted = ((sortID.intValue() == sid) && !Thread.currentThread().isInterrupted())
+                        ? sort(oldSnapshot, comparator) : null;
+
+                if ((sortID.intValue() != sid) || Thread.currentThread().isInterrupted()) {
+                    setSorting(false, sid);
+
+                    return;
+                }
+
+                final DirectorySnapshot<FileObject> newSnapshot = oldSnapshot.withEntries(sorted, -1, comparator);
+                // Partition while still in the background.
+                newSnapshot.getFiles();
+
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (sortID.intValue() != sid) {
+                            return;
+                        }
+
+                        // Discarded if the contents changed meanwhile.
+                        boolean changed = false;
+
+                        for (;;) {
+                            DirectorySnapshot<FileObject> current = snapshot.get();
+
+                            if (current.getModCount() != oldSnapshot.getModCount()) {
+                                break;
+                            }
+
+                            // Keep any attributes updated meanwhile.
+                            DirectorySnapshot<FileObject> next = (current == oldSnapshot) ? newSnapshot
+                                    : current.withEntries(sorted, -1, comparator);
 
-    @Override
-    public int getSize() {
-        return fileCache.size();
-    }
+                            if (snapshot.compareAndSet(current, next)) {
+                                changed = true;
 
-    /**
-     *
-     * @param o
-     * @return
-     */
-    public boolean contains(FileObject o) {
-        return fileCache.contains(o);
-    }
+                                break;
+                            }
+                        }
 
-    /**
-     * @param o
-     * @return
-     */
-    public int indexOf(FileObject o) {
-        return fileCache.indexOf(o);
-    }
+                        setSorting(false, sid);
 
-    /* (non-Javadoc)
-     * @see javax.swing.ListModel#getElementAt(int)
-     */
-    @Override
-    public FileObject getElementAt(int index) {
-        return fileCache.get(index);
+                        if (changed) {
+                            fireContentsChanged();
+
+                            if (onSorted != null) {
+                                onSorted.run();
+                            }
+                        }
+                    }
+                });
+            }
+        });
     }
 
     /**
-     * @param comparator
+     *
+     * @param v
+     * @param attributes the attributes of the entries of v, or null
      */
-    public void sort(Comparator<FileObject> comparator) {
-        Collections.sort(fileCache, comparator);
+    protected void sort(List<FileObject> v, @CheckForNull Map<FileObject, VFSFileAttributes<FileObject>> attributes) {
+        FileObjectComparatorFactory.sort(chooser.getFileSystemView(), v, getKeyComparator(), attributes, parallelThreshold);
     }
 
     /**
-     *
-     * @param v
+     * Returns the comparator which defines the order in which
+     * a directory is loaded.
+     * @return
      */
-    protected void sort(List<FileObject> v) {
-        VFSFileSystemView<FileObject> fsv = chooser.getFileSystemView();
-        Comparator<FileObject> comparator = FileObjectComparatorFactory.newFileNameComparator(fsv, true);
-        Collections.sort(v, comparator);
+    @Nonnull
+    protected Comparator<SortKey<FileObject>> getKeyComparator() {
+        return FileObjectComparatorFactory.newFileNameKeyComparator(true);
     }
 
     /**
@@ -336,41 +1124,96 @@ public class BasicVFSDirectoryModel<FileObject> extends AbstractListModel<FileOb
      * busy when it is running a separate (interruptable)
      * thread in order to load the contents of a directory.
      */
-    private void setBusy(final boolean busy, int fid) {
-        aLock.writeLock().lock();
-
-        try {
+    private void setBusy(boolean loading, int fid) {
+        synchronized (stateLock) {
             if (fetchID.intValue() == fid) {
-                boolean oldValue = this.busy;
-                this.busy = busy;
+                this.loading = loading;
+                updateBusy();
+            }
+        }
+    }
 
-                if ((changeSupport != null) && (busy != oldValue)) {
-                    Runnable r = (new Runnable() {
-                        @Override
-                        public void run() {
-                            firePropertyChange("busy", !busy, busy);
-                        }
-                    });
+    /**
+     * Set whether the model is sorting in the background, which also
+     * makes it busy.
+     */
+    private void setSorting(boolean sorting, int sid) {
+        synchronized (stateLock) {
+            if (sortID.intValue() == sid) {
+                this.sorting = sorting;
+                updateBusy();
+            }
+        }
+    }
 
-                    if (SwingUtilities.isEventDispatchThread()) {
-                        r.run();
-                    } else {
-                        SwingUtilities.invokeLater(r);
-                    }
+    /**
+     * Fires a change of the busy state. The caller must hold stateLock.
+     */
+    private void updateBusy() {
+        final boolean busy = loading || sorting;
+        boolean oldValue = this.busy;
+        this.busy = busy;
+
+        if ((changeSupport != null) && (busy != oldValue)) {
+            Runnable r = (new Runnable() {
+                @Override
+                public void run() {
+                    firePropertyChange("busy", !busy, busy);
                 }
+            });
+
+            if (SwingUtilities.isEventDispatchThread()) {
+                r.run();
+            } else {
+                SwingUtilities.invokeLater(r);
             }
-        } finally {
-            aLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * A complete, unfiltered listing of a directory.
+     */
+    private static class Listing<FileObject> {
+
+        private final FileObject directory;
+        private final List<VFSFileAttributes<FileObject>> children;
+        /** The name filter which the children passed, or null if all were listed. */
+        private final VFSFileFilter<? super FileObject> filter;
+
+        public Listing(FileObject directory, List<VFSFileAttributes<FileObject>> children) {
+            this(directory, children, null);
+        }
+
+        public Listing(FileObject directory, List<VFSFileAttributes<FileObject>> children,
+                VFSFileFilter<? super FileObject> filter) {
+            this.directory = directory;
+            this.children = children;
+            this.filter = filter;
+        }
+
+        /** Returns true if this listing contains every entry shown with the given filter. */
+        public boolean isComplete(VFSFileFilter<? super FileObject> fileFilter) {
+            return (filter == null) || (filter == fileFilter);
         }
     }
 
     class LoadFilesThread implements Runnable {
 
         private final int fid;
+        private final boolean useListingCache;
+        private final Listing<FileObject> listing;
         private final Queue<DoChangeContents> runnables = new ConcurrentLinkedQueue<DoChangeContents>();
-
-        public LoadFilesThread(FileObject currentDirectory, int fid) {
+        private DoChangeContents lastChange = null;
+
+        /**
+         * @param listing a listing of the current directory to filter
+         *  instead of listing it, or null.
+         */
+        public LoadFilesThread(FileObject currentDirectory, int fid,
+                boolean useListingCache, Listing<FileObject> listing) {
             this.fid = fid;
+            this.useListingCache = useListingCache;
+            this.listing = listing;
         }
 
         private void invokeLater(DoChangeContents runnable) {
@@ -401,134 +1244,466 @@ public class BasicVFSDirectoryModel<FileObject> extends AbstractListModel<FileOb
                 ui.getCombo().setSelectedItem(cwd);
             }
 
-            FileObject[] list = fileSystem.getChildren(cwd, chooser.isFileHidingEnabled());
+            if ((listing != null) && listing.directory.equals(cwd)
+                    && listing.isComplete(chooser.getFileFilter())) {
+                // Only the filtering changed; the listing is still valid.
+                publish(cwd, listing.children);
+
+                return;
+            }
+
+            // Listings are kept unfiltered, including hidden files, so
+            // that a change of filter or file hiding needs no I/O.
+            String url = fileSystem.getUrl(cwd);
+            DirectoryListingCache.Entry<VFSFileAttributes<FileObject>> cached = useListingCache
+                    ? listingCache.get(url) : null;
 
-            List<FileObject> acceptsList = new ArrayList<FileObject>(list.length);
+            if (cached != null) {
+                // Show the cached listing at once, then revalidate it if stale.
+                if (!publish(cwd, cached.getChildren())) {
+                    return;
+                }
+
+                setListing(new Listing<FileObject>(cwd, cached.getChildren()));
+
+                if (cached.isFresh()) {
+                    return;
+                }
+            } else if (isStreamingEnabled() && !cwd.equals(loadedDirectory)) {
+                runStreaming(cwd);
 
-            if ((loadThread != null) && loadThread.isCancelled()) {
                 return;
             }
 
-            // run through the file list, add directories and selectable files to fileCache
-            for (FileObject aFileObject : list) {
-                if (chooser.accept(aFileObject)) {
-                    acceptsList.add(aFileObject);
+            VFSFileFilter<? super FileObject> filter = chooser.getFileFilter();
+            VFSNameFilter nameFilter = chooser.getFileFilterNameFilter();
+
+            if ((cached == null) && (nameFilter != null)) {
+                // Let the view filter while listing, so that entries which
+                // are not shown are not read. The listing is incomplete,
+                // so it is not cached, and another filter lists again.
+                List<VFSFileAttributes<FileObject>> list = fileSystem.getChildAttributes(cwd, false, nameFilter);
+
+                if (isCancelled()) {
+                    return;
+                }
+
+                list = compact(cwd, list);
+
+                if (!publish(cwd, list)) {
+                    return;
                 }
+
+                setListing(new Listing<FileObject>(cwd, list, filter));
+
+                return;
             }
 
-            if ((loadThread != null) && loadThread.isCancelled()) {
-                cancelRunnables();
+            List<VFSFileAttributes<FileObject>> list = fileSystem.getChildAttributes(cwd, false);
+
+            if (isCancelled()) {
+                return;
+            }
 
+            // Compacted first, so that the model holds rows of the
+            // compact listing rather than a file object per entry.
+            list = compact(cwd, list);
+
+            if (!publish(cwd, list)) {
                 return;
             }
 
+            listingCache.put(url, list);
+            setListing(new Listing<FileObject>(cwd, list));
+        }
+
+        /**
+         * Returns the entries which the chooser shows, in order, filtering
+         * chunks of the listing in parallel.
+         * @return null if the load was cancelled.
+         */
+        @CheckForNull
+        private List<VFSFileAttributes<FileObject>> acceptInParallel(final List<VFSFileAttributes<FileObject>> list, final boolean useFileHiding) {
+            final int chunkSize = ParallelLoop.getChunkSize(list.size());
+            final List<List<VFSFileAttributes<FileObject>>> chunks = new ArrayList<List<VFSFileAttributes<FileObject>>>(
+                    Collections.<List<VFSFileAttributes<FileObject>>>nCopies(ParallelLoop.getChunkCount(list.size(), chunkSize), null));
+
+            boolean complete = ParallelLoop.run(list.size(), chunkSize, new ParallelLoop.Body() {
+                @Override
+                public void run(int lo, int hi) {
+                    chunks.set(lo / chunkSize, accept(list.subList(lo, hi), useFileHiding));
+                }
+            }, newCancellation());
+
+            if (!complete) {
+                return null;
+            }
+
+            List<VFSFileAttributes<FileObject>> out = new ArrayList<VFSFileAttributes<FileObject>>(list.size());
+
+            for (List<VFSFileAttributes<FileObject>> chunk : chunks) {
+                out.addAll(chunk);
+            }
+
+            return out;
+        }
+
+        /**
+         * Returns whether the chooser shows each entry, filtering chunks
+         * of the listing in parallel.
+         * @return null if the load was cancelled.
+         */
+        @CheckForNull
+        private boolean[] isAcceptedInParallel(final List<VFSFileAttributes<FileObject>> list) {
+            final boolean[] out = new boolean[list.size()];
+
+            boolean complete = ParallelLoop.run(list.size(), ParallelLoop.getChunkSize(list.size()), new ParallelLoop.Body() {
+                @Override
+                public void run(int lo, int hi) {
+                    boolean[] accepted = chooser.accept(list.subList(lo, hi));
+                    System.arraycopy(accepted, 0, out, lo, accepted.length);
+                }
+            }, newCancellation());
+
+            return complete ? out : null;
+        }
+
+        /**
+         * Returns whether each of the given files is a directory.
+         * @return null if the load was cancelled.
+         */
+        @CheckForNull
+        private boolean[] isTraversable(List<VFSFileAttributes<FileObject>> attributes) {
+            boolean[] out = new boolean[attributes.size()];
+
+            for (int i = 0; i < out.length; i++) {
+                VFSFileAttributes<FileObject> a = attributes.get(i);
+                out[i] = chooser.isTraversable(a.getFile(), a);
+
+                if (isCancelled()) {
+                    return null;
+                }
+            }
+
+            return out;
+        }
+
+        /**
+         * Returns whether each of the given files is a directory, checking
+         * chunks of the list in parallel.
+         * @return null if the load was cancelled.
+         */
+        @CheckForNull
+        private boolean[] isTraversableInParallel(final List<VFSFileAttributes<FileObject>> attributes) {
+            final boolean[] out = new boolean[attributes.size()];
+
+            boolean complete = ParallelLoop.run(attributes.size(), ParallelLoop.getChunkSize(attributes.size()), new ParallelLoop.Body() {
+                @Override
+                public void run(int lo, int hi) {
+                    for (int i = lo; i < hi; i++) {
+                        VFSFileAttributes<FileObject> a = attributes.get(i);
+                        out[i] = chooser.isTraversable(a.getFile(), a);
+                    }
+                }
+            }, newCancellation());
+
+            return complete ? out : null;
+        }
+
+        /**
+         * Returns a cancellation which the tasks of a parallel loop, which
+         * run on other threads, check on behalf of this load.
+         */
+        @Nonnull
+        private ParallelLoop.Cancellation newCancellation() {
+            final Thread loader = Thread.currentThread();
+
+            return new ParallelLoop.Cancellation() {
+                @Override
+                public boolean isCancelled() {
+                    return (fetchID.intValue() != fid) || loader.isInterrupted();
+                }
+            };
+        }
+
+        /**
+         * Filters and sorts a listing, and queues the difference between
+         * it and the current contents of the model.
+         * @return false if the load was cancelled.
+         */
+        private boolean publish(FileObject directory, List<VFSFileAttributes<FileObject>> list) {
+            if (list instanceof CompactFileListing) {
+                return publishRows(directory, (CompactFileListing<FileObject>) list);
+            }
+
+            List<FileObject> acceptsList = new ArrayList<FileObject>(list.size());
+            Map<FileObject, VFSFileAttributes<FileObject>> newAttributes
+                    = new HashMap<FileObject, VFSFileAttributes<FileObject>>(list.size() * 2);
+            boolean useFileHiding = chooser.isFileHidingEnabled();
+            boolean parallel = list.size() > parallelThreshold;
+
+            List<VFSFileAttributes<FileObject>> accepted = parallel
+                    ? acceptInParallel(list, useFileHiding)
+                    : accept(list, useFileHiding);
+
+            if ((accepted == null) || isCancelled()) {
+                cancelRunnables();
+
+                return false;
+            }
+
+            // run through the file list, add directories and selectable files to the model
+            for (VFSFileAttributes<FileObject> a : accepted) {
+                FileObject aFileObject = a.getFile();
+                acceptsList.add(aFileObject);
+                newAttributes.put(aFileObject, a);
+            }
+
             // First sort alphabetically by filename
-            sort(acceptsList);
+            sort(acceptsList, newAttributes);
 
             final int mid = acceptsList.size() >> 1;
 
             List<FileObject> newDirectories = new ArrayList<FileObject>(mid);
             List<FileObject> newFiles = new ArrayList<FileObject>(mid);
 
-            // run through list grabbing directories in chunks of ten
-            for (FileObject f : acceptsList) {
-                boolean isTraversable = chooser.isTraversable(f);
+            if (parallel) {
+                boolean[] traversable = isTraversableInParallel(getAttributes(acceptsList, newAttributes));
+
+                if ((traversable == null) || isCancelled()) {
+                    cancelRunnables();
 
-                if (isTraversable) {
-                    newDirectories.add(f);
-                } else {
-                    newFiles.add(f);
+                    return false;
                 }
 
-                if ((loadThread != null) && loadThread.isCancelled()) {
-                    cancelRunnables();
+                for (int i = 0; i < traversable.length; i++) {
+                    if (traversable[i]) {
+                        newDirectories.add(acceptsList.get(i));
+                    } else {
+                        newFiles.add(acceptsList.get(i));
+                    }
+                }
+            } else {
+                // run through list grabbing directories in chunks of ten
+                for (FileObject f : acceptsList) {
+                    boolean isTraversable = chooser.isTraversable(f, newAttributes.get(f));
 
-                    return;
+                    if (isTraversable) {
+                        newDirectories.add(f);
+                    } else {
+                        newFiles.add(f);
+                    }
+
+                    if (isCancelled()) {
+                        cancelRunnables();
+
+                        return false;
+                    }
                 }
             }
 
             List<FileObject> newFileCache = new ArrayList<FileObject>(newDirectories);
             newFileCache.addAll(newFiles);
 
-            int newSize = newFileCache.size();
-            int oldSize = fileCache.size();
+            return publish(directory, newFileCache, newDirectories.size(), newAttributes);
+        }
 
-            if (newSize > oldSize) {
-                //see if interval is added
-                int start = oldSize;
-                int end = newSize;
+        /**
+         * Filters and sorts a compact listing into rows of the listing,
+         * resolving file objects only for the entries which are shown.
+         * @return false if the load was cancelled.
+         */
+        private boolean publishRows(FileObject directory, CompactFileListing<FileObject> listing) {
+            boolean useFileHiding = chooser.isFileHidingEnabled();
+            int[] visible = new int[listing.size()];
+            int visibleCount = 0;
+
+            // Hidden entries are dropped by their flags, without reading them.
+            for (int i = 0; i < visible.length; i++) {
+                if (!useFileHiding || !listing.isHidden(i)) {
+                    visible[visibleCount++] = i;
+                }
+            }
 
-                for (int i = 0; i < oldSize; i++) {
-                    if (!newFileCache.get(i).equals(fileCache.get(i))) {
-                        start = i;
+            ListingRows<FileObject> shown = new ListingRows<FileObject>(listing,
+                    Arrays.copyOf(visible, visibleCount), new BitSet());
+            boolean parallel = shown.size() > parallelThreshold;
+            boolean[] accepted = parallel
+                    ? isAcceptedInParallel(shown.getAttributeList())
+                    : chooser.accept(shown.getAttributeList());
 
-                        for (int j = i; j < newSize; j++) {
-                            if (newFileCache.get(j).equals(fileCache.get(i))) {
-                                end = j;
+            if ((accepted == null) || isCancelled()) {
+                cancelRunnables();
 
-                                break;
-                            }
-                        }
+                return false;
+            }
 
-                        break;
-                    }
-                }
+            shown = shown.retain(accepted);
 
-                if ((start >= 0) && (end > start)
-                        && newFileCache.subList(end, newSize)
-                        .equals(fileCache.subList(start, oldSize))) {
-                    if ((loadThread != null) && loadThread.isCancelled()) {
-                        cancelRunnables();
+            // First sort alphabetically by filename
+            ListingRows<FileObject> sorted = shown.reorder(FileObjectComparatorFactory.sortIndices(
+                    shown.getAttributeList(), getKeyComparator(), parallelThreshold));
+            boolean[] traversable = parallel
+                    ? isTraversableInParallel(sorted.getAttributeList())
+                    : isTraversable(sorted.getAttributeList());
 
-                        return;
-                    }
+            if ((traversable == null) || isCancelled()) {
+                cancelRunnables();
 
-                    invokeLater(new DoChangeContents(newFileCache.subList(
-                            start, end), start, null, 0, fid));
-                    newFileCache = null;
-                }
-            } else if (newSize < oldSize) {
-                //see if interval is removed
-                int start = -1;
-                int end = -1;
+                return false;
+            }
 
-                for (int i = 0; i < newSize; i++) {
-                    if (!newFileCache.get(i).equals(fileCache.get(i))) {
-                        start = i;
-                        end = (i + oldSize) - newSize;
+            BitSet traversableRows = new BitSet(listing.size());
+            int[] rows = new int[sorted.size()];
+            int directoryCount = 0;
 
-                        break;
-                    }
+            for (int i = 0; i < traversable.length; i++) {
+                if (traversable[i]) {
+                    traversableRows.set(sorted.getRow(i));
+                    rows[directoryCount++] = sorted.getRow(i);
+                }
+            }
+
+            for (int i = 0, j = directoryCount; i < traversable.length; i++) {
+                if (!traversable[i]) {
+                    rows[j++] = sorted.getRow(i);
                 }
+            }
 
-                if ((start >= 0) && (end > start)
-                        && fileCache.subList(end, oldSize)
-                        .equals(newFileCache.subList(start, newSize))) {
-                    if ((loadThread != null) && loadThread.isCancelled()) {
-                        cancelRunnables(runnables);
+            ListingRows<FileObject> newRows = new ListingRows<FileObject>(listing, rows, traversableRows);
 
-                        return;
-                    }
+            return publish(directory, newRows, directoryCount, newRows.getAttributeMap());
+        }
+
+        /**
+         * Queues the difference between the given contents and the
+         * current contents of the model.
+         * @return false if the load was cancelled.
+         */
+        private boolean publish(FileObject directory, List<FileObject> newFileCache, int directoryCount,
+                Map<FileObject, VFSFileAttributes<FileObject>> newAttributes) {
+            FileObject oldDirectory;
+            List<FileObject> oldFileCache;
+            Map<FileObject, VFSFileAttributes<FileObject>> oldAttributes;
+            int oldModCount;
+
+            if (lastChange != null) {
+                // Diff against the contents the previous change will leave.
+                oldDirectory = lastChange.directory;
+                oldFileCache = lastChange.newFiles;
+                oldAttributes = lastChange.newAttributes;
+                oldModCount = -1;
+            } else {
+                DirectorySnapshot<FileObject> current = snapshot.get();
+                oldDirectory = current.getDirectory();
+                oldFileCache = current.getEntries();
+                oldAttributes = current.getAttributes();
+                oldModCount = current.getModCount();
+            }
+
+            ListDiff<?> diff = diff(oldDirectory, oldFileCache, directory, newFileCache);
+            // Entries which stay, but whose rows show different attributes.
+            List<Integer> modified = new ArrayList<Integer>();
+
+            if (diff.isOrdered() && !isSameListing(oldFileCache, newFileCache)) {
+                List<VFSFileAttributes<FileObject>> oldList = getAttributes(oldFileCache, oldAttributes);
+                List<VFSFileAttributes<FileObject>> newList = getAttributes(newFileCache, newAttributes);
+                Iterator<int[]> removed = diff.getRemovedRuns().iterator();
+                Iterator<int[]> added = diff.getAddedRuns().iterator();
+                int[] removedRun = removed.hasNext() ? removed.next() : null;
+                int[] addedRun = added.hasNext() ? added.next() : null;
+
+                // Walk the entries common to both, which are in the same order.
+                for (int i = 0, j = 0; (i < oldList.size()) && (j < newList.size());) {
+                    if ((removedRun != null) && (removedRun[0] == i)) {
+                        i = removedRun[1] + 1;
+                        removedRun = removed.hasNext() ? removed.next() : null;
+                    } else if ((addedRun != null) && (addedRun[0] == j)) {
+                        j = addedRun[1] + 1;
+                        addedRun = added.hasNext() ? added.next() : null;
+                    } else {
+                        VFSFileAttributes<FileObject> a = oldList.get(i++);
+                        VFSFileAttributes<FileObject> b = newList.get(j);
+
+                        if ((a != null) && (b != null) && isModified(a, b)) {
+                            modified.add(j);
+                        }
 
-                    invokeLater(new DoChangeContents(null, 0,
-                            new ArrayList<FileObject>(fileCache.subList(start,
-                                            end)), start, fid));
-                    newFileCache = null;
+                        j++;
+                    }
                 }
             }
 
-            if ((newFileCache != null) && !fileCache.equals(newFileCache)) {
-                if ((loadThread != null) && loadThread.isCancelled()) {
-                    cancelRunnables(runnables);
+            // A change of storage is applied even if the rows are the same,
+            // e.g. so that a streamed directory is then held compactly.
+            if (!diff.isEmpty() || !modified.isEmpty()
+                    || ((oldFileCache instanceof ListingRows || newFileCache instanceof ListingRows)
+                    && !isSameListing(oldFileCache, newFileCache))) {
+                if (isCancelled()) {
+                    cancelRunnables();
 
-                    return;
+                    return false;
                 }
 
-                invokeLater(new DoChangeContents(newFileCache, 0, fileCache, 0,
-                        fid));
+                DoChangeContents change = new DoChangeContents(directory, newFileCache,
+                        directoryCount, getKeyComparator(), newAttributes,
+                        diff, modified, oldModCount, lastChange, fid);
+                lastChange = change;
+                invokeLater(change);
+            }
+
+            return true;
+        }
+
+        private boolean isModified(@Nonnull VFSFileAttributes<FileObject> a,
+                @Nonnull VFSFileAttributes<FileObject> b) {
+            if (a.isLazy() || b.isLazy()) {
+                // Comparing would read every attribute of every entry.
+                return false;
+            }
+
+            return (a.isDirectory() != b.isDirectory()) || (a.getSize() != b.getSize())
+                    || (a.getLastModifiedTime() != b.getLastModifiedTime())
+                    || (a.isHidden() != b.isHidden()) || (a.isWritable() != b.isWritable());
+        }
+
+        /**
+         * Publishes the directory in chunks as it is listed, then swaps
+         * the streamed entries for rows of a compact listing, if it is
+         * large enough.
+         */
+        private void runStreaming(FileObject cwd) {
+            StreamingLoad<FileObject> streaming = new StreamingLoad<FileObject>(BasicVFSDirectoryModel.this,
+                    chooser, cwd, fid, newCancellation());
+            List<VFSFileAttributes<FileObject>> all = streaming.run();
+
+            if (all == null) {
+                cancelRunnables();
+
+                return;
+            }
+
+            List<VFSFileAttributes<FileObject>> list = compact(cwd, all);
+
+            if ((list instanceof CompactFileListing) && !publish(cwd, list)) {
+                return;
+            }
+
+            if (streaming.getNameFilter() != null) {
+                // Incomplete, so it is not cached, and a change of
+                // filter lists the directory again.
+                setListing(new Listing<FileObject>(cwd, list, streaming.getNameFilter()));
+            } else {
+                listingCache.put(chooser.getFileSystemView().getUrl(cwd), list);
+                setListing(new Listing<FileObject>(cwd, list));
             }
         }
 
+        private boolean isCancelled() {
+            return (fetchID.intValue() != fid)
+                    || Thread.currentThread().isInterrupted();
+        }
+
         public void cancelRunnables(Queue<DoChangeContents> runnables) {
             DoChangeContents runnable;
 
@@ -542,62 +1717,207 @@ public class BasicVFSDirectoryModel<FileObject> extends AbstractListModel<FileOb
         }
     }
 
+    /**
+     * Applies changes to the watched directory in the background, to its
+     * listing and to the contents of the model. If the order of the
+     * contents is not known, the changed listing is filtered and sorted
+     * as a whole instead.
+     * @see ListingChanges
+     */
+    class ApplyChangesThread implements Runnable {
+
+        private final Listing<FileObject> listing;
+        private final Map<FileObject, Boolean> changes;
+        private final DirectorySnapshot<FileObject> base;
+        private final int fid;
+
+        /**
+         * @param base the contents of the model to apply the changes to,
+         *  which show the given listing.
+         */
+        public ApplyChangesThread(@Nonnull Listing<FileObject> listing,
+                @Nonnull Map<FileObject, Boolean> changes, @Nonnull DirectorySnapshot<FileObject> base, int fid) {
+            this.listing = listing;
+            this.changes = changes;
+            this.base = base;
+            this.fid = fid;
+        }
+
+        @Override
+        public void run() {
+            final FileObject directory = listing.directory;
+            ListingChanges<FileObject> update = new ListingChanges<FileObject>(
+                    BasicVFSDirectoryModel.this, chooser, directory);
+            update.read(changes, listing.filter);
+
+            final Listing<FileObject> newListing = new Listing<FileObject>(directory,
+                    update.applyTo(listing.children), listing.filter);
+            DirectorySnapshot<FileObject> contents = newListing.isComplete(chooser.getFileFilter())
+                    ? update.applyTo(base, newListing.children) : null;
+            final DoChangeContents change = (contents == null) ? null
+                    : new DoChangeContents(directory, contents.getEntries(), contents.getDirectoryCount(),
+                    contents.getComparator(), contents.getAttributes(), update.getDiff(),
+                    update.getModified(), base.getModCount(), null, fid);
+
+            SwingUtilities.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    if (rawListing != listing || isLoading()) {
+                        // Listed or changed again meanwhile; the
+                        // attributes read may be stale, so read them again.
+                        requeueChanges(directory, changes);
+
+                        return;
+                    }
+
+                    rawListing = newListing;
+
+                    if (newListing.filter == null) {
+                        listingCache.put(chooser.getFileSystemView().getUrl(directory), newListing.children);
+                    }
+
+                    if ((change != null) && (snapshot.get().getModCount() == base.getModCount())) {
+                        change.run();
+                    } else {
+                        // Sorted meanwhile, or in an order not known.
+                        startLoad(directory, true, newListing);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Applies a {@link ListDiff} to the model on the EDT. Removals are
+     * applied and fired first, in descending order, then additions in
+     * ascending order, so every event is consistent with the ones before
+     * it. If the model changed since the difference was computed, or the
+     * two lists have nothing in common, the contents are replaced as a
+     * whole instead.
+     */
     class DoChangeContents implements Runnable {
 
-        private final List<FileObject> addFiles;
-        private final List<FileObject> remFiles;
+        private final FileObject directory;
+        private final List<FileObject> newFiles;
+        private final int directoryCount;
+        private final Comparator<SortKey<FileObject>> comparator;
+        private final Map<FileObject, VFSFileAttributes<FileObject>> newAttributes;
+        private final ListDiff<?> diff;
+        private final List<Integer> modified;
+        private final int oldModCount;
+        private final DoChangeContents previous;
+        // The modCount left by this change, or -1 if it was not applied.
+        private int newModCount = -1;
         private volatile boolean doFire = true;
         private final int fid;
-        private int addStart = 0;
-        private int remStart = 0;
-
-        public DoChangeContents(List<FileObject> addFiles, int addStart,
-                List<FileObject> remFiles, int remStart, int fid) {
-            this.addFiles = addFiles;
-            this.addStart = addStart;
-            this.remFiles = remFiles;
-            this.remStart = remStart;
+
+        /**
+         * @param directory the directory the new files were listed from.
+         * @param directoryCount the number of directories at the start
+         *  of newFiles, or -1 if it is not partitioned.
+         * @param comparator the order of newFiles within the directories
+         *  and within the files, or null if it is not known.
+         * @param modified the indices in newFiles of the entries which
+         *  are in both lists, but whose attributes changed.
+         * @param oldModCount the modCount of the contents the difference
+         *  was computed against, if previous is null.
+         * @param previous the change whose result the difference was
+         *  computed against, or null.
+         */
+        public DoChangeContents(FileObject directory, List<FileObject> newFiles, int directoryCount,
+                Comparator<SortKey<FileObject>> comparator,
+                Map<FileObject, VFSFileAttributes<FileObject>> newAttributes,
+                ListDiff<?> diff, List<Integer> modified, int oldModCount,
+                DoChangeContents previous, int fid) {
+            this.directory = directory;
+            this.newFiles = newFiles;
+            this.directoryCount = directoryCount;
+            this.comparator = comparator;
+            this.newAttributes = newAttributes;
+            this.diff = diff;
+            this.modified = modified;
+            this.oldModCount = (previous == null) ? oldModCount : -1;
+            this.previous = previous;
             this.fid = fid;
         }
 
+        private int getExpectedModCount() {
+            return (previous == null) ? oldModCount : previous.newModCount;
+        }
         void cancel() {
             doFire = false;
         }
 
         @Override
         public void run() {
-            if ((fetchID.intValue() == fid) && doFire) {
-                int remSize = (remFiles == null) ? 0 : remFiles.size();
-                int addSize = (addFiles == null) ? 0 : addFiles.size();
+            if ((fetchID.intValue() != fid) || !doFire) {
+                return;
+            }
 
-                aLock.writeLock().lock();
+            DirectorySnapshot<FileObject> current = snapshot.get();
+            boolean replace = (current.getModCount() != getExpectedModCount()) || !diff.isOrdered()
+                    || (diff.getCommonCount() == 0);
 
-                try {
-                    if (remSize > 0) {
-                        fileCache.removeAll(remFiles);
-                    }
+            if (replace) {
+                DirectorySnapshot<FileObject> next = current.with(directory, newFiles, directoryCount,
+                        comparator, newAttributes, current.getModCount() + 1);
+                snapshot.set(next);
+                newModCount = next.getModCount();
+                fireContentsChanged();
 
-                    if (addSize > 0) {
-                        fileCache.addAll(addStart, addFiles);
-                    }
+                return;
+            }
 
-                    files = null;
-                    directories = null;
-                } finally {
-                    aLock.writeLock().unlock();
+            List<int[]> removedRuns = diff.getRemovedRuns();
+            List<int[]> addedRuns = diff.getAddedRuns();
+
+            if (!removedRuns.isEmpty()) {
+                // Without additions, the removal leaves the new contents.
+                DirectorySnapshot<FileObject> next = addedRuns.isEmpty()
+                        ? current.with(directory, newFiles, directoryCount, comparator, newAttributes, current.getModCount() + 1)
+                        : current.with(directory, removeFrom(current), -1, comparator,
+                        newAttributes, current.getModCount() + 1);
+                snapshot.set(next);
+
+                for (int i = removedRuns.size() - 1; i >= 0; i--) {
+                    int[] run = removedRuns.get(i);
+                    fireIntervalRemoved(BasicVFSDirectoryModel.this, run[0], run[1]);
                 }
 
-                if ((remSize > 0) && (addSize == 0)) {
-                    fireIntervalRemoved(BasicVFSDirectoryModel.this, remStart,
-                            (remStart + remSize) - 1);
-                } else if ((addSize > 0) && (remSize == 0)
-                        && (fileCache.size() > addSize)) {
-                    fireIntervalAdded(BasicVFSDirectoryModel.this, addStart,
-                            (addStart + addSize) - 1);
-                } else {
-                    fireContentsChanged();
+                current = snapshot.get();
+            }
+
+            if (!addedRuns.isEmpty()) {
+                snapshot.set(current.with(directory, newFiles, directoryCount, comparator, newAttributes,
+                        current.getModCount() + 1));
+
+                for (int[] run : addedRuns) {
+                    fireIntervalAdded(BasicVFSDirectoryModel.this, run[0], run[1]);
                 }
+            } else if (removedRuns.isEmpty()) {
+                // Only attributes changed; the entries are the same.
+                snapshot.set(current.with(directory, newFiles, directoryCount, comparator, newAttributes,
+                        current.getModCount()));
+            }
+
+            newModCount = snapshot.get().getModCount();
+
+            for (int index : modified) {
+                fireContentsChanged(BasicVFSDirectoryModel.this, index, index);
             }
         }
+
+        /**
+         * Returns the current entries without the removed runs, without
+         * resolving rows of a compact listing.
+         */
+        @Nonnull
+        private List<FileObject> removeFrom(@Nonnull DirectorySnapshot<FileObject> current) {
+            if (current.getRows() != null) {
+                return current.getRows().without(diff.getRemovedRuns());
+            }
+
+            return diff.removeFrom(current.getEntries());
+        }
     }
 }
@@ -24,15 +24,20 @@ import com.googlecode.vfsjfilechooser2.VFSJFileChooser;
 import com.googlecode.vfsjfilechooser2.VFSJFileChooser.DIALOG_TYPE;
 import com.googlecode.vfsjfilechooser2.VFSJFileChooser.SELECTION_MODE;
 import com.googlecode.vfsjfilechooser2.filechooser.AbstractVFSFileView;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSFileAttributes;
 import com.googlecode.vfsjfilechooser2.filechooser.VFSFileFilter;
 import com.googlecode.vfsjfilechooser2.filechooser.VFSFileSystemView;
 import com.googlecode.vfsjfilechooser2.filechooser.VFSFileView;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSTaskExecutor;
 import com.googlecode.vfsjfilechooser2.filepane.VFSFilePane;
 import com.googlecode.vfsjfilechooser2.plaf.AbstractVFSFileChooserUI;
+import com.googlecode.vfsjfilechooser2.utils.IconCache;
 import com.googlecode.vfsjfilechooser2.utils.SwingCommonsUtilities;
 import com.googlecode.vfsjfilechooser2.utils.VFSResources;
+import com.googlecode.vfsjfilechooser2.utils.VFSUtils;
 import java.awt.BorderLayout;
 import java.awt.Component;
+import java.awt.EventQueue;
 import java.awt.KeyboardFocusManager;
 import java.awt.event.ActionEvent;
 import java.awt.event.MouseAdapter;
@@ -42,11 +47,17 @@ import java.beans.PropertyChangeListener;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Set;
 import java.util.regex.PatternSyntaxException;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
 import javax.swing.AbstractAction;
 import javax.swing.Action;
 import javax.swing.ActionMap;
@@ -196,6 +207,10 @@ public class BasicVFSFileChooserUI<FileObject> extends AbstractVFSFileChooserUI<
         accessoryPanel = null;
         getFileChooser().removeAll();
 
+        if (model != null) {
+            model.dispose();
+        }
+
         handler = null;
     }
 
@@ -1140,17 +1155,49 @@ public class BasicVFSFileChooserUI<FileObject> extends AbstractVFSFileChooserUI<
     // * FileView operations *
     // ***********************
     public class BasicVFSFileView extends AbstractVFSFileView<FileObject> {
+
+        /** The maximum number of files whose classification is remembered. */
+        private static final int RESOLVED_KEYS_SIZE = 4096;
         /* FileView type descriptions */
 
-        // PENDING(jeff) - pass in the icon cache size
-        protected Map<FileObject, Icon> iconCache = new ConcurrentHashMap<FileObject, Icon>();
+        /**
+         * Icons keyed by {@link #getIconKey(Object)}, so that the cache
+         * is bounded by the number of kinds of file, not of files.
+         */
+        protected final IconCache iconCache;
+        /** The keys of files which were classified in the background. */
+        private final Map<FileObject, String> resolvedKeys;
+        /** Files being classified in the background; EDT only. */
+        private final Set<FileObject> resolvingFiles = new HashSet<FileObject>();
+        /** Files waiting to be submitted for classification; EDT only. */
+        private List<FileObject> resolveQueue = null;
 
         public BasicVFSFileView() {
+            this(IconCache.DEFAULT_MAX_SIZE);
+        }
+
+        /**
+         * @param iconCacheSize the maximum number of cached icons.
+         */
+        @SuppressWarnings("serial")
+        public BasicVFSFileView(int iconCacheSize) {
+            this.iconCache = new IconCache(iconCacheSize);
+            this.resolvedKeys = Collections.synchronizedMap(new LinkedHashMap<FileObject, String>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<FileObject, String> eldest) {
+                    return size() > RESOLVED_KEYS_SIZE;
+                }
+            });
         }
 
         public void clearIconCache() {
-            iconCache = null;
-            iconCache = new ConcurrentHashMap<FileObject, Icon>();
+            iconCache.clear();
+            resolvedKeys.clear();
+        }
+
+        @Nonnull
+        public IconCache getIconCache() {
+            return iconCache;
         }
 
         @Override
@@ -1198,7 +1245,7 @@ public class BasicVFSFileChooserUI<FileObject> extends AbstractVFSFileChooserUI<
         }
 
         public Icon getCachedIcon(FileObject f) {
-            return iconCache.get(f);
+            return iconCache.get(getIconKey(f));
         }
 
         public void cacheIcon(FileObject f, Icon i) {
@@ -1206,39 +1253,216 @@ public class BasicVFSFileChooserUI<FileObject> extends AbstractVFSFileChooserUI<
                 return;
             }
 
-            iconCache.put(f, i);
+            iconCache.put(getIconKey(f), i);
+        }
+
+        /**
+         * Returns the kind of icon which represents a file: one of
+         * "floppy", "drive", "computer" or "directory", or "file:"
+         * followed by the lower case extension of a file.
+         *
+         * Entries of the current directory are classified from the
+         * attributes read when it was listed, so that a plain file
+         * costs no call to the file system view.
+         * @param f
+         * @return
+         */
+        @Nonnull
+        protected String getIconKey(FileObject f) {
+            if (f == null) {
+                return "file:";
+            }
+
+            VFSFileAttributes<FileObject> a = getAttributes(f);
+
+            if ((a != null) && !a.isDirectory()) {
+                return getFileIconKey(a.getName());
+            }
+
+            VFSFileSystemView<FileObject> fsv = getFileChooser().getFileSystemView();
+
+            if (fsv.isFloppyDrive(f)) {
+                return "floppy";
+            } else if (fsv.isDrive(f)) {
+                return "drive";
+            } else if (fsv.isComputerNode(f)) {
+                return "computer";
+            } else if ((a != null) || fsv.isTraversable(f)) {
+                return "directory";
+            }
+
+            return getFileIconKey(fsv.getName(f));
+        }
+
+        @Nonnull
+        private String getFileIconKey(String name) {
+            if (name == null) {
+                return "file:";
+            }
+
+            int dot = name.lastIndexOf('.');
+
+            if (dot <= 0) {
+                return "file:";
+            }
+
+            return "file:" + name.substring(dot + 1).toLowerCase(Locale.ENGLISH);
+        }
+
+        /**
+         * Creates the icon for a key returned by {@link #getIconKey(Object)}.
+         * Subclasses may override this to show an icon per extension.
+         * @param key
+         * @return
+         */
+        protected Icon createIcon(@Nonnull String key) {
+            if ("floppy".equals(key)) {
+                return floppyDriveIcon;
+            } else if ("drive".equals(key)) {
+                return hardDriveIcon;
+            } else if ("computer".equals(key)) {
+                return computerIcon;
+            } else if ("directory".equals(key)) {
+                return directoryIcon;
+            }
+
+            return fileIcon;
         }
 
+        /**
+         * Returns the icon for a file.
+         *
+         * If classifying the file would require the file system view,
+         * e.g. to ask whether a directory is a drive, and this is the
+         * event dispatch thread, a placeholder is returned and the file
+         * is classified on the task executor of the chooser. The model
+         * then fires an "icons" property change, so that the views
+         * repaint the cells of the file.
+         * @param f
+         * @return
+         */
         @Override
         public Icon getIcon(FileObject f) {
-            Icon icon = getCachedIcon(f);
+            String key = getKnownIconKey(f);
+
+            if (key == null) {
+                if (EventQueue.isDispatchThread()) {
+                    resolveLater(f);
+                    return getIconForKey(getPlaceholderIconKey(f));
+                }
+
+                key = getIconKey(f);
+                resolvedKeys.put(f, key);
+            }
+
+            return getIconForKey(key);
+        }
+
+        private Icon getIconForKey(@Nonnull String key) {
+            Icon icon = iconCache.get(key);
 
             if (icon != null) {
                 return icon;
             }
 
-            icon = fileIcon;
+            icon = createIcon(key);
 
-            if (f != null) {
-                VFSFileSystemView<FileObject> fsv = getFileChooser()
-                        .getFileSystemView();
-
-                if (fsv.isFloppyDrive(f)) {
-                    icon = floppyDriveIcon;
-                } else if (fsv.isDrive(f)) {
-                    icon = hardDriveIcon;
-                } else if (fsv.isComputerNode(f)) {
-                    icon = computerIcon;
-                } else if (fsv.isTraversable(f)) {
-                    icon = directoryIcon;
-                }
+            if (icon != null) {
+                iconCache.put(key, icon);
             }
 
-            cacheIcon(f, icon);
-
             return icon;
         }
 
+        /**
+         * Returns the key of a file if it is known without calling the
+         * file system view.
+         */
+        @CheckForNull
+        private String getKnownIconKey(FileObject f) {
+            if (f == null) {
+                return "file:";
+            }
+
+            VFSFileAttributes<FileObject> a = getAttributes(f);
+
+            if ((a != null) && !a.isDirectory()) {
+                return getFileIconKey(a.getName());
+            }
+
+            return resolvedKeys.get(f);
+        }
+
+        @Nonnull
+        private String getPlaceholderIconKey(@Nonnull FileObject f) {
+            return (getAttributes(f) != null) ? "directory" : "file:";
+        }
+
+        @CheckForNull
+        private VFSFileAttributes<FileObject> getAttributes(@Nonnull FileObject f) {
+            BasicVFSDirectoryModel<FileObject> m = getModel();
+
+            return (m == null) ? null : m.getAttributes(f);
+        }
+
+        private void resolveLater(@Nonnull FileObject f) {
+            if (!resolvingFiles.add(f)) {
+                return;
+            }
+
+            if (resolveQueue == null) {
+                resolveQueue = new ArrayList<FileObject>();
+                // Collect the files of one paint into one task.
+                EventQueue.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        resolveQueued();
+                    }
+                });
+            }
+
+            resolveQueue.add(f);
+        }
+
+        private void resolveQueued() {
+            final List<FileObject> batch = resolveQueue;
+            resolveQueue = null;
+
+            VFSFileSystemView<FileObject> fsv = getFileChooser().getFileSystemView();
+            String group = VFSUtils.getFileSystemKey(fsv.getUrl(batch.get(0)));
+
+            getFileChooser().getTaskExecutor().submit(group, VFSTaskExecutor.TaskType.FILE_ACCESS, new Runnable() {
+                @Override
+                public void run() {
+                    final Map<FileObject, String> keys = new HashMap<FileObject, String>();
+
+                    try {
+                        for (FileObject f : batch) {
+                            if (Thread.currentThread().isInterrupted()) {
+                                break;
+                            }
+
+                            keys.put(f, getIconKey(f));
+                        }
+                    } finally {
+                        EventQueue.invokeLater(new Runnable() {
+                            @Override
+                            public void run() {
+                                resolvedKeys.putAll(keys);
+                                resolvingFiles.removeAll(batch);
+
+                                BasicVFSDirectoryModel<FileObject> m = getModel();
+
+                                if ((m != null) && !keys.isEmpty()) {
+                                    m.fireIconsChanged(new ArrayList<FileObject>(keys.keySet()));
+                                }
+                            }
+                        });
+                    }
+                }
+            });
+        }
+
         public Boolean isHidden(FileObject f) {
             VFSJFileChooser<FileObject> chooser = getFileChooser();
             VFSFileSystemView<FileObject> fsv = chooser.getFileSystemView();
@@ -0,0 +1,229 @@
+package com.googlecode.vfsjfilechooser2.plaf.basic;
+
+import com.googlecode.vfsjfilechooser2.filechooser.CompactFileListing;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+/**
+ * A least-recently-used cache of directory listings, keyed by the URL
+ * of the directory. Each listing is a list of entries of type T.
+ *
+ * The cache is bounded both by the number of directories and by its
+ * weight, which is the total number of entries in all cached listings.
+ * How long a listing is trusted is set by a {@link Policy} for each
+ * URI scheme: a fresh listing is used as it is, and an expired one is
+ * shown while the directory is listed again in the background.
+ *
+ * @author shevek
+ */
+public class DirectoryListingCache<T> {
+
+    /**
+     * How long listings of one URI scheme are kept.
+     */
+    public static class Policy {
+
+        /** Never caches anything. */
+        public static final Policy DISABLED = new Policy(0, 0);
+        private final long freshMillis;
+        private final long maxAgeMillis;
+
+        /**
+         * @param freshMillis the age up to which a listing is used without
+         *   listing the directory again.
+         * @param maxAgeMillis the age at which a listing is evicted; up to
+         *   this age, it is shown while the directory is listed again.
+         */
+        public Policy(long freshMillis, long maxAgeMillis) {
+            this.freshMillis = freshMillis;
+            this.maxAgeMillis = maxAgeMillis;
+        }
+
+        public long getFreshMillis() {
+            return freshMillis;
+        }
+
+        public long getMaxAgeMillis() {
+            return maxAgeMillis;
+        }
+    }
+
+    /**
+     * A cached listing.
+     */
+    public static class Entry<T> {
+
+        private final List<T> children;
+        private final long timestamp;
+        private final long freshUntil;
+
+        Entry(List<T> children, long timestamp, long freshUntil) {
+            this.children = children;
+            this.timestamp = timestamp;
+            this.freshUntil = freshUntil;
+        }
+
+        /** The unmodifiable listing, as returned by the file system view. */
+        @Nonnull
+        public List<T> getChildren() {
+            return children;
+        }
+
+        /** The time at which the directory was listed. */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        /** Whether the listing may be used without listing the directory again. */
+        public boolean isFresh() {
+            return System.currentTimeMillis() < freshUntil;
+        }
+    }
+
+    private final Map<String, Entry<T>> entries = new LinkedHashMap<String, Entry<T>>(16, 0.75f, true);
+    private final Map<String, Policy> policies = new HashMap<String, Policy>();
+    private Policy defaultPolicy = new Policy(0, 5 * 60 * 1000L);
+    private final int maxDirectories;
+    private final long maxWeight;
+    private long weight = 0;
+
+    /**
+     * @param maxDirectories the maximum number of cached listings.
+     * @param maxWeight the maximum total number of entries in all cached listings.
+     */
+    public DirectoryListingCache(int maxDirectories, long maxWeight) {
+        this.maxDirectories = maxDirectories;
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Sets the policy for directories with the given URI scheme, e.g. "sftp".
+     * @param scheme
+     * @param policy the policy, or null to use the default policy.
+     */
+    public synchronized void setPolicy(@Nonnull String scheme, @CheckForNull Policy policy) {
+        if (policy == null) {
+            policies.remove(scheme);
+        } else {
+            policies.put(scheme, policy);
+        }
+    }
+
+    /**
+     * Sets the policy for schemes which have no policy of their own.
+     * The initial default shows listings up to five minutes old while
+     * listing the directory again.
+     * @param policy
+     */
+    public synchronized void setDefaultPolicy(@Nonnull Policy policy) {
+        this.defaultPolicy = policy;
+    }
+
+    @Nonnull
+    public synchronized Policy getPolicy(@Nonnull String url) {
+        int pos = url.indexOf(':');
+
+        if (pos != -1) {
+            Policy policy = policies.get(url.substring(0, pos));
+
+            if (policy != null) {
+                return policy;
+            }
+        }
+
+        return defaultPolicy;
+    }
+
+    /**
+     * Returns the cached listing of a directory.
+     * @param url the URL of the directory
+     * @return the listing, or null if none is cached or it has expired.
+     */
+    @CheckForNull
+    public synchronized Entry<T> get(@Nonnull String url) {
+        Entry<T> entry = entries.get(url);
+
+        if (entry == null) {
+            return null;
+        }
+
+        long age = System.currentTimeMillis() - entry.timestamp;
+
+        if (age >= getPolicy(url).getMaxAgeMillis()) {
+            remove(url);
+            return null;
+        }
+
+        return entry;
+    }
+
+    /**
+     * Caches the listing of a directory.
+     * @param url the URL of the directory
+     * @param children the listing
+     */
+    public synchronized void put(@Nonnull String url, @Nonnull T[] children) {
+        put(url, Arrays.asList(children));
+    }
+
+    /**
+     * Caches the listing of a directory.
+     * @param url the URL of the directory
+     * @param children the listing
+     */
+    public synchronized void put(@Nonnull String url, @Nonnull List<T> children) {
+        Policy policy = getPolicy(url);
+
+        remove(url);
+
+        if ((policy.getMaxAgeMillis() <= 0) || (children.size() >= maxWeight)) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        // A compact listing is immutable, and copying would expand it.
+        List<T> copy = (children instanceof CompactFileListing) ? children
+                : Collections.unmodifiableList(new ArrayList<T>(children));
+        entries.put(url, new Entry<T>(copy, now, now + policy.getFreshMillis()));
+        weight += weigh(copy);
+
+        Iterator<Entry<T>> it = entries.values().iterator();
+
+        while (((entries.size() > maxDirectories) || (weight > maxWeight)) && it.hasNext()) {
+            weight -= weigh(it.next().children);
+            it.remove();
+        }
+    }
+
+    /**
+     * Discards the cached listing of a directory.
+     * @param url the URL of the directory
+     */
+    public synchronized void remove(@Nonnull String url) {
+        Entry<T> entry = entries.remove(url);
+
+        if (entry != null) {
+            weight -= weigh(entry.children);
+        }
+    }
+
+    /**
+     * Discards all cached listings.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    private static long weigh(List<?> children) {
+        return children.size() + 1;
+    }
+}
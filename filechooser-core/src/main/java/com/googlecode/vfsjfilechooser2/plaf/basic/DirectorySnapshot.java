@@ -0,0 +1,196 @@
+package com.googlecode.vfsjfilechooser2.plaf.basic;
+
+import com.googlecode.vfsjfilechooser2.VFSJFileChooser;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSFileAttributes;
+import com.googlecode.vfsjfilechooser2.utils.FileObjectComparatorFactory.SortKey;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+/**
+ * The contents of a {@link BasicVFSDirectoryModel} at one time.
+ *
+ * A snapshot is never modified once published, so readers need no lock;
+ * writers replace the snapshot of the model as a whole. The directory and
+ * file partitions and the index of each entry are computed on first use.
+ * The entries of a large directory are {@link ListingRows}, which resolve
+ * a file object only when it is read.
+ *
+ * @author shevek
+ */
+final class DirectorySnapshot<FileObject> {
+
+    private final VFSJFileChooser<FileObject> chooser;
+    // The directory the entries were listed from, or null.
+    private final FileObject directory;
+    private final List<FileObject> entries;
+    // The entries, if they are rows of a compact listing, or null.
+    private final ListingRows<FileObject> rows;
+    // entries[0, directoryCount) are the directories, or -1 if the
+    // entries are not partitioned.
+    private final int directoryCount;
+    // The order of the entries within each partition, or null if
+    // it is not known.
+    private final Comparator<SortKey<FileObject>> comparator;
+    private final Map<FileObject, VFSFileAttributes<FileObject>> attributes;
+    // Incremented by every structural change.
+    private final int modCount;
+    private volatile List<FileObject> directories;
+    private volatile List<FileObject> files;
+    private volatile Map<FileObject, Integer> indices;
+
+    /**
+     * @param chooser the chooser which decides whether an entry is
+     *  traversable, if the entries are not partitioned.
+     * @param entries a list which is not modified after this call.
+     */
+    public DirectorySnapshot(@Nonnull VFSJFileChooser<FileObject> chooser,
+            @CheckForNull FileObject directory, @Nonnull List<FileObject> entries, int directoryCount,
+            @CheckForNull Comparator<SortKey<FileObject>> comparator,
+            @Nonnull Map<FileObject, VFSFileAttributes<FileObject>> attributes, int modCount) {
+        this.chooser = chooser;
+        this.directory = directory;
+        // Rows are read-only already, and are kept as such so that
+        // they can be looked up without resolving them.
+        this.rows = (entries instanceof ListingRows) ? (ListingRows<FileObject>) entries : null;
+        this.entries = (rows != null) ? entries : Collections.unmodifiableList(entries);
+        this.directoryCount = directoryCount;
+        this.comparator = comparator;
+        this.attributes = attributes;
+        this.modCount = modCount;
+    }
+
+    /**
+     * Returns a snapshot of other contents, for the same chooser.
+     * @param modCount the modCount of the new snapshot.
+     */
+    @Nonnull
+    public DirectorySnapshot<FileObject> with(@CheckForNull FileObject directory,
+            @Nonnull List<FileObject> entries, int directoryCount,
+            @CheckForNull Comparator<SortKey<FileObject>> comparator,
+            @Nonnull Map<FileObject, VFSFileAttributes<FileObject>> attributes, int modCount) {
+        return new DirectorySnapshot<FileObject>(chooser, directory, entries, directoryCount,
+                comparator, attributes, modCount);
+    }
+
+    /**
+     * Returns a snapshot of the same entries in another order.
+     */
+    @Nonnull
+    public DirectorySnapshot<FileObject> withEntries(@Nonnull List<FileObject> entries, int directoryCount,
+            @CheckForNull Comparator<SortKey<FileObject>> comparator) {
+        return with(directory, entries, directoryCount, comparator, attributes, modCount + 1);
+    }
+
+    @CheckForNull
+    public FileObject getDirectory() {
+        return directory;
+    }
+
+    /** Returns the entries, in order. */
+    @Nonnull
+    public List<FileObject> getEntries() {
+        return entries;
+    }
+
+    /** Returns the entries if they are rows of a compact listing, or null. */
+    @CheckForNull
+    public ListingRows<FileObject> getRows() {
+        return rows;
+    }
+
+    /** Returns the number of directories at the start of the entries, or -1 if they are not partitioned. */
+    public int getDirectoryCount() {
+        return directoryCount;
+    }
+
+    /** Returns the order of the entries within each partition, or null if it is not known. */
+    @CheckForNull
+    public Comparator<SortKey<FileObject>> getComparator() {
+        return comparator;
+    }
+
+    @Nonnull
+    public Map<FileObject, VFSFileAttributes<FileObject>> getAttributes() {
+        return attributes;
+    }
+
+    public int getModCount() {
+        return modCount;
+    }
+
+    @Nonnull
+    public List<FileObject> getDirectories() {
+        partition();
+
+        return directories;
+    }
+
+    @Nonnull
+    public List<FileObject> getFiles() {
+        partition();
+
+        return files;
+    }
+
+    private void partition() {
+        if (files != null) {
+            return;
+        }
+
+        if (directoryCount >= 0) {
+            directories = entries.subList(0, directoryCount);
+            files = entries.subList(directoryCount, entries.size());
+
+            return;
+        }
+
+        if (rows != null) {
+            directories = rows.select(true);
+            files = rows.select(false);
+
+            return;
+        }
+
+        List<FileObject> newDirectories = new ArrayList<FileObject>();
+        List<FileObject> newFiles = new ArrayList<FileObject>();
+
+        for (FileObject f : entries) {
+            if (chooser.isTraversable(f, attributes.get(f))) {
+                newDirectories.add(f);
+            } else {
+                newFiles.add(f);
+            }
+        }
+
+        directories = Collections.unmodifiableList(newDirectories);
+        files = Collections.unmodifiableList(newFiles);
+    }
+
+    public int indexOf(FileObject f) {
+        if (rows != null) {
+            return rows.indexOf(f);
+        }
+
+        Map<FileObject, Integer> indices = this.indices;
+
+        if (indices == null) {
+            indices = new HashMap<FileObject, Integer>(entries.size() * 2);
+
+            for (int i = entries.size() - 1; i >= 0; i--) {
+                indices.put(entries.get(i), i);
+            }
+
+            this.indices = indices;
+        }
+
+        Integer index = indices.get(f);
+
+        return (index == null) ? -1 : index;
+    }
+}
@@ -0,0 +1,517 @@
+package com.googlecode.vfsjfilechooser2.plaf.basic;
+
+import com.googlecode.vfsjfilechooser2.VFSJFileChooser;
+import com.googlecode.vfsjfilechooser2.filechooser.CompactFileListing;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSFileAttributes;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSFileFilter;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSFileSystemView;
+import com.googlecode.vfsjfilechooser2.utils.FileObjectComparatorFactory;
+import com.googlecode.vfsjfilechooser2.utils.FileObjectComparatorFactory.SortKey;
+import com.googlecode.vfsjfilechooser2.utils.ListDiff;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+/**
+ * Changes to a watched directory, applied to its listing and to the
+ * contents of a {@link BasicVFSDirectoryModel} which show it.
+ *
+ * The listing is copied with the changed entries replaced, without
+ * resolving the other entries. Each changed entry which is shown is then
+ * inserted into its partition of the contents by binary search, and each
+ * entry which is no longer shown is removed; a changed entry which still
+ * sorts between its neighbours stays where it is. Nothing else in the
+ * directory is read, filtered or sorted again.
+ *
+ * @author shevek
+ */
+final class ListingChanges<FileObject> {
+
+    private final BasicVFSDirectoryModel<FileObject> model;
+    private final VFSJFileChooser<FileObject> chooser;
+    private final VFSFileSystemView<FileObject> fsv;
+    private final FileObject directory;
+    // The attributes of each changed entry, or null if it was deleted.
+    private final Map<FileObject, VFSFileAttributes<FileObject>> changed
+            = new LinkedHashMap<FileObject, VFSFileAttributes<FileObject>>();
+    // The listing the changes were applied to.
+    private List<VFSFileAttributes<FileObject>> children;
+    // Set by applyTo if the listing is compact: the index in the new
+    // listing of each old entry, or -1 if it changed.
+    private int[] remap;
+    private int survivorCount;
+    private ListDiff<?> diff;
+    private List<Integer> modified;
+
+    public ListingChanges(@Nonnull BasicVFSDirectoryModel<FileObject> model,
+            @Nonnull VFSJFileChooser<FileObject> chooser, @Nonnull FileObject directory) {
+        this.model = model;
+        this.chooser = chooser;
+        this.fsv = chooser.getFileSystemView();
+        this.directory = directory;
+    }
+
+    /**
+     * Reads the attributes of the created and changed entries.
+     * @param changes true for each entry which was created or changed,
+     *  false for each entry which was deleted.
+     * @param filter the name filter which the entries of the listing
+     *  passed, or null.
+     */
+    public void read(@Nonnull Map<FileObject, Boolean> changes,
+            @CheckForNull VFSFileFilter<? super FileObject> filter) {
+        for (Map.Entry<FileObject, Boolean> e : changes.entrySet()) {
+            VFSFileAttributes<FileObject> a = null;
+
+            if (e.getValue()) {
+                if ((filter != null) && !filter.accept(e.getKey())) {
+                    // Not part of a listing filtered by name.
+                    continue;
+                }
+
+                a = fsv.getAttributes(e.getKey());
+
+                // A file may be deleted again before it is read.
+                if (!a.isDirectory() && !a.isFile() && !fsv.exists(e.getKey())) {
+                    a = null;
+                }
+            }
+
+            changed.put(e.getKey(), a);
+        }
+    }
+
+    /**
+     * Returns the listing with the changes applied: the unchanged
+     * entries in order, then the created and changed entries.
+     */
+    @Nonnull
+    public List<VFSFileAttributes<FileObject>> applyTo(@Nonnull List<VFSFileAttributes<FileObject>> children) {
+        this.children = children;
+
+        if (children instanceof CompactFileListing) {
+            CompactFileListing<FileObject> compact = (CompactFileListing<FileObject>) children;
+            CompactFileListing.Builder<FileObject> builder = new CompactFileListing.Builder<FileObject>(
+                    fsv, directory, compact.size() + changed.size());
+            remap = new int[compact.size()];
+            Arrays.fill(remap, -1);
+
+            for (FileObject f : changed.keySet()) {
+                int index = compact.indexOfFile(f);
+
+                if (index >= 0) {
+                    remap[index] = -2;
+                }
+            }
+
+            for (int i = 0; i < remap.length; i++) {
+                if (remap[i] == -2) {
+                    remap[i] = -1;
+                } else {
+                    remap[i] = survivorCount++;
+                    builder.add(compact, i);
+                }
+            }
+
+            for (VFSFileAttributes<FileObject> a : changed.values()) {
+                if (a != null) {
+                    builder.add(a);
+                }
+            }
+
+            return builder.build();
+        }
+
+        List<VFSFileAttributes<FileObject>> out = new ArrayList<VFSFileAttributes<FileObject>>(
+                children.size() + changed.size());
+
+        for (VFSFileAttributes<FileObject> a : children) {
+            if (!changed.containsKey(a.getFile())) {
+                out.add(a);
+            }
+        }
+
+        for (VFSFileAttributes<FileObject> a : changed.values()) {
+            if (a != null) {
+                out.add(a);
+            }
+        }
+
+        return model.compact(directory, out);
+    }
+
+    /**
+     * Returns the contents of the model with the changes applied. Must
+     * be called after the changes were applied to the listing which the
+     * base contents show.
+     * @param base the contents of the model, which show the listing.
+     * @param newChildren the listing with the changes applied.
+     * @return the new contents, or null if the order of the base contents
+     *  is not known, so that the new listing must be filtered and sorted
+     *  as a whole.
+     * @see #getDiff
+     * @see #getModified
+     */
+    @CheckForNull
+    public DirectorySnapshot<FileObject> applyTo(@Nonnull DirectorySnapshot<FileObject> base,
+            @Nonnull List<VFSFileAttributes<FileObject>> newChildren) {
+        Comparator<SortKey<FileObject>> comparator = base.getComparator();
+        ListingRows<FileObject> baseRows = base.getRows();
+
+        if ((comparator == null) || !directory.equals(base.getDirectory())
+                || ((baseRows != null) != (newChildren instanceof CompactFileListing))
+                || ((baseRows != null) && (baseRows.getListing() != children))) {
+            return null;
+        }
+
+        List<FileObject> entries = base.getEntries();
+        int size = entries.size();
+        List<VFSFileAttributes<FileObject>> baseAttributes = model.getAttributes(entries, base.getAttributes());
+        boolean useFileHiding = chooser.isFileHidingEnabled();
+        BitSet removed = new BitSet(size);
+        BitSet changedPositions = new BitSet(size);
+        List<Change> candidates = new ArrayList<Change>();
+        List<VFSFileAttributes<FileObject>> candidateAttributes = new ArrayList<VFSFileAttributes<FileObject>>();
+        int newIndex = survivorCount;
+
+        for (Map.Entry<FileObject, VFSFileAttributes<FileObject>> e : changed.entrySet()) {
+            int position = base.indexOf(e.getKey());
+            VFSFileAttributes<FileObject> a = e.getValue();
+
+            if (position >= 0) {
+                changedPositions.set(position);
+            }
+
+            if ((a != null) && (!useFileHiding || !a.isHidden())) {
+                candidates.add(new Change(e.getKey(), a, position, newIndex));
+                candidateAttributes.add(a);
+            } else if (position >= 0) {
+                removed.set(position);
+            }
+
+            if (a != null) {
+                newIndex++;
+            }
+        }
+
+        boolean[] accepted = chooser.accept(candidateAttributes);
+        // Changed entries which stay where they are, by position.
+        Map<Integer, Change> kept = new HashMap<Integer, Change>();
+        List<Change> inserts = new ArrayList<Change>();
+
+        for (int i = 0; i < accepted.length; i++) {
+            Change c = candidates.get(i);
+
+            if (!accepted[i]) {
+                if (c.position >= 0) {
+                    removed.set(c.position);
+                }
+
+                continue;
+            }
+
+            c.traversable = chooser.isTraversable(c.file, c.attributes);
+            c.key = FileObjectComparatorFactory.newSortKey(c.attributes, comparator);
+
+            if (c.position >= 0) {
+                if (fits(base, c, baseAttributes, changedPositions)) {
+                    kept.put(c.position, c);
+
+                    continue;
+                }
+
+                removed.set(c.position);
+            }
+
+            inserts.add(c);
+        }
+
+        for (Change c : inserts) {
+            int[] section = getSection(base, c.traversable);
+            int lo = section[0];
+            int hi = section[1];
+
+            // The position after any equal entries, as merging does.
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+
+                if (comparator.compare(getKey(base, mid, baseAttributes, kept), c.key) <= 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+
+            c.insertAt = lo - removed.get(0, lo).cardinality();
+        }
+
+        final boolean partitioned = base.getDirectoryCount() >= 0;
+        final Comparator<SortKey<FileObject>> keyComparator = comparator;
+        Collections.sort(inserts, new Comparator<Change>() {
+            @Override
+            public int compare(Change a, Change b) {
+                if (a.insertAt != b.insertAt) {
+                    return (a.insertAt < b.insertAt) ? -1 : 1;
+                }
+
+                if (partitioned && (a.traversable != b.traversable)) {
+                    return a.traversable ? -1 : 1;
+                }
+
+                return keyComparator.compare(a.key, b.key);
+            }
+        });
+
+        int newSize = size - removed.cardinality() + inserts.size();
+        List<FileObject> newFiles;
+        Map<FileObject, VFSFileAttributes<FileObject>> newAttributes;
+        List<int[]> addedRuns = new ArrayList<int[]>();
+        modified = new ArrayList<Integer>();
+        int[] rows = null;
+        BitSet traversable = null;
+
+        if (baseRows != null) {
+            rows = new int[newSize];
+            traversable = new BitSet(newChildren.size());
+            newFiles = null;
+            newAttributes = null;
+        } else {
+            newFiles = new ArrayList<FileObject>(newSize);
+            newAttributes = new HashMap<FileObject, VFSFileAttributes<FileObject>>(base.getAttributes());
+        }
+
+        int out = 0;
+        int next = 0;
+        int removedBefore = 0;
+        int[] run = null;
+
+        for (int p = 0; p <= size; p++) {
+            int r = p - removedBefore;
+
+            // Inserted before the entry which is now at r.
+            while ((next < inserts.size()) && ((p == size) || !removed.get(p))
+                    && (inserts.get(next).insertAt <= r)) {
+                Change c = inserts.get(next++);
+
+                if (rows != null) {
+                    traversable.set(c.newIndex, c.traversable);
+                    rows[out] = c.newIndex;
+                } else {
+                    newFiles.add(c.file);
+                    newAttributes.put(c.file, c.attributes);
+                }
+
+                if ((run != null) && (run[1] == out - 1)) {
+                    run[1] = out;
+                } else {
+                    run = new int[]{out, out};
+                    addedRuns.add(run);
+                }
+
+                out++;
+            }
+
+            if (p == size) {
+                break;
+            }
+
+            Change c = kept.get(p);
+
+            if (removed.get(p)) {
+                removedBefore++;
+                // Moved entries are put again when they are inserted.
+                if ((rows == null) && !changed.containsKey(entries.get(p))) {
+                    newAttributes.remove(entries.get(p));
+                }
+
+                continue;
+            }
+
+            if (c != null) {
+                modified.add(out);
+            }
+
+            if (rows != null) {
+                int row = (c != null) ? c.newIndex : remap[baseRows.getRow(p)];
+                traversable.set(row, (c != null) ? c.traversable : baseRows.isTraversable(p));
+                rows[out] = row;
+            } else {
+                FileObject f = entries.get(p);
+                newFiles.add(f);
+
+                if (c != null) {
+                    newAttributes.put(f, c.attributes);
+                }
+            }
+
+            out++;
+        }
+
+        if (rows != null) {
+            ListingRows<FileObject> newRows = new ListingRows<FileObject>(
+                    (CompactFileListing<FileObject>) newChildren, rows, traversable);
+            newFiles = newRows;
+            newAttributes = newRows.getAttributeMap();
+        } else {
+            Set<FileObject> shown = new HashSet<FileObject>(kept.size() + inserts.size());
+
+            for (Change c : kept.values()) {
+                shown.add(c.file);
+            }
+
+            for (Change c : inserts) {
+                shown.add(c.file);
+            }
+
+            for (FileObject f : changed.keySet()) {
+                if (!shown.contains(f)) {
+                    newAttributes.remove(f);
+                }
+            }
+        }
+
+        int directoryCount = -1;
+
+        if (partitioned) {
+            directoryCount = base.getDirectoryCount() - removed.get(0, base.getDirectoryCount()).cardinality();
+
+            for (Change c : inserts) {
+                if (c.traversable) {
+                    directoryCount++;
+                }
+            }
+        }
+
+        List<int[]> removedRuns = new ArrayList<int[]>();
+
+        for (int p = removed.nextSetBit(0); p >= 0; p = removed.nextSetBit(p + 1)) {
+            int end = removed.nextClearBit(p) - 1;
+            removedRuns.add(new int[]{p, end});
+            p = end;
+        }
+
+        diff = ListDiff.fromRuns(removedRuns, addedRuns, size - removed.cardinality());
+
+        return base.with(directory, newFiles, directoryCount, comparator, newAttributes, base.getModCount() + 1);
+    }
+
+    /**
+     * Returns the difference between the base contents and the contents
+     * last returned by {@link #applyTo(DirectorySnapshot, List)}.
+     */
+    @Nonnull
+    public ListDiff<?> getDiff() {
+        return diff;
+    }
+
+    /**
+     * Returns the positions in the new contents of the changed entries
+     * which stayed where they were.
+     */
+    @Nonnull
+    public List<Integer> getModified() {
+        return modified;
+    }
+
+    /**
+     * Returns the range of positions in the base contents of the
+     * partition of an entry.
+     */
+    @Nonnull
+    private static int[] getSection(@Nonnull DirectorySnapshot<?> base, boolean traversable) {
+        int size = base.getEntries().size();
+
+        if (base.getDirectoryCount() < 0) {
+            return new int[]{0, size};
+        }
+
+        return traversable ? new int[]{0, base.getDirectoryCount()}
+                : new int[]{base.getDirectoryCount(), size};
+    }
+
+    /**
+     * Returns true if a changed entry is still in its partition, and
+     * sorts between its neighbours, which are unchanged.
+     */
+    private boolean fits(@Nonnull DirectorySnapshot<FileObject> base, @Nonnull Change c,
+            @Nonnull List<VFSFileAttributes<FileObject>> baseAttributes, @Nonnull BitSet changedPositions) {
+        Comparator<SortKey<FileObject>> comparator = base.getComparator();
+        int[] section = getSection(base, c.traversable);
+        int p = c.position;
+
+        if ((p < section[0]) || (p >= section[1])) {
+            return false;
+        }
+
+        Map<Integer, Change> none = Collections.emptyMap();
+
+        if (p > section[0]) {
+            if (changedPositions.get(p - 1)
+                    || (comparator.compare(getKey(base, p - 1, baseAttributes, none), c.key) > 0)) {
+                return false;
+            }
+        }
+
+        if (p + 1 < section[1]) {
+            if (changedPositions.get(p + 1)
+                    || (comparator.compare(c.key, getKey(base, p + 1, baseAttributes, none)) > 0)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /** Returns the sort key of an entry of the base contents. */
+    @Nonnull
+    private SortKey<FileObject> getKey(@Nonnull DirectorySnapshot<FileObject> base, int position,
+            @Nonnull List<VFSFileAttributes<FileObject>> baseAttributes, @Nonnull Map<Integer, Change> kept) {
+        Change c = kept.get(position);
+
+        if (c != null) {
+            return c.key;
+        }
+
+        VFSFileAttributes<FileObject> a = baseAttributes.get(position);
+
+        if (a == null) {
+            return FileObjectComparatorFactory.newSortKey(fsv, base.getEntries().get(position), null, base.getComparator());
+        }
+
+        return FileObjectComparatorFactory.newSortKey(a, base.getComparator());
+    }
+
+    /**
+     * A created or changed entry which is shown.
+     */
+    private class Change {
+
+        private final FileObject file;
+        private final VFSFileAttributes<FileObject> attributes;
+        // The position in the base contents, or -1.
+        private final int position;
+        // The index in a new compact listing.
+        private final int newIndex;
+        private boolean traversable;
+        private SortKey<FileObject> key;
+        // The position among the entries which are not removed.
+        private int insertAt;
+
+        public Change(FileObject file, VFSFileAttributes<FileObject> attributes, int position, int newIndex) {
+            this.file = file;
+            this.attributes = attributes;
+            this.position = position;
+            this.newIndex = newIndex;
+        }
+    }
+}
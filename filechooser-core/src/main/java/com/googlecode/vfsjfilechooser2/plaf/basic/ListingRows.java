@@ -0,0 +1,333 @@
+package com.googlecode.vfsjfilechooser2.plaf.basic;
+
+import com.googlecode.vfsjfilechooser2.filechooser.CompactFileListing;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSFileAttributes;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import javax.annotation.Nonnull;
+
+/**
+ * The rows of the model, as indices into a {@link CompactFileListing}.
+ *
+ * The file object of a row is resolved by the listing when the row is
+ * read, so a large directory costs an int per row, and a file object only
+ * for the rows which are displayed or selected. Whether each entry of the
+ * listing is traversable is computed once, when the listing is filtered,
+ * and shared by every ordering of the same rows.
+ *
+ * @author shevek
+ */
+class ListingRows<FileObject> extends AbstractList<FileObject> implements RandomAccess {
+
+    private final CompactFileListing<FileObject> listing;
+    private final int[] rows;
+    // Indexed by the index of an entry in the listing.
+    private final BitSet traversable;
+    // The position + 1 of each entry of the listing, or 0; built on first use.
+    private volatile int[] positions;
+    private volatile Map<FileObject, VFSFileAttributes<FileObject>> attributes;
+
+    /**
+     * @param listing the listing.
+     * @param rows the indices into the listing, in display order, which
+     *  are not modified after this call.
+     * @param traversable whether each entry of the listing is traversable,
+     *  which is not modified after this call.
+     */
+    public ListingRows(@Nonnull CompactFileListing<FileObject> listing,
+            @Nonnull int[] rows, @Nonnull BitSet traversable) {
+        this.listing = listing;
+        this.rows = rows;
+        this.traversable = traversable;
+    }
+
+    @Nonnull
+    public CompactFileListing<FileObject> getListing() {
+        return listing;
+    }
+
+    /**
+     * Returns true if the other rows index the same listing, with the
+     * same entries traversable, so that equal rows show the same.
+     * @param other
+     * @return
+     */
+    public boolean isSameListing(@Nonnull ListingRows<?> other) {
+        return (listing == other.listing) && traversable.equals(other.traversable);
+    }
+
+    /**
+     * Returns the index into the listing of a row.
+     * @param position
+     * @return
+     */
+    public int getRow(int position) {
+        return rows[position];
+    }
+
+    @Override
+    public int size() {
+        return rows.length;
+    }
+
+    @Override
+    public FileObject get(int position) {
+        return listing.getFile(rows[position]);
+    }
+
+    public boolean isTraversable(int position) {
+        return traversable.get(rows[position]);
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        @SuppressWarnings("unchecked")
+        int index = listing.indexOfFile((FileObject) o);
+
+        return (index < 0) ? -1 : (getPositions()[index] - 1);
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        // The rows are distinct.
+        return indexOf(o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    @Nonnull
+    private int[] getPositions() {
+        int[] positions = this.positions;
+
+        if (positions == null) {
+            positions = new int[listing.size()];
+
+            for (int i = 0; i < rows.length; i++) {
+                positions[rows[i]] = i + 1;
+            }
+
+            this.positions = positions;
+        }
+
+        return positions;
+    }
+
+    /**
+     * Returns the same entries in another order.
+     * @param order the positions of the entries, in their new order.
+     * @return
+     */
+    @Nonnull
+    public ListingRows<FileObject> reorder(@Nonnull int[] order) {
+        int[] out = new int[order.length];
+
+        for (int i = 0; i < order.length; i++) {
+            out[i] = rows[order[i]];
+        }
+
+        return new ListingRows<FileObject>(listing, out, traversable);
+    }
+
+    /**
+     * Returns the rows at the positions which are kept, in order.
+     * @param keep whether to keep the row at each position.
+     * @return
+     */
+    @Nonnull
+    public ListingRows<FileObject> retain(@Nonnull boolean[] keep) {
+        int[] out = new int[rows.length];
+        int size = 0;
+
+        for (int i = 0; i < rows.length; i++) {
+            if (keep[i]) {
+                out[size++] = rows[i];
+            }
+        }
+
+        return new ListingRows<FileObject>(listing, Arrays.copyOf(out, size), traversable);
+    }
+
+    /**
+     * Returns the rows which are, or are not, traversable, in order.
+     * @param traversable
+     * @return
+     */
+    @Nonnull
+    public ListingRows<FileObject> select(boolean traversable) {
+        int[] out = new int[rows.length];
+        int size = 0;
+
+        for (int row : rows) {
+            if (this.traversable.get(row) == traversable) {
+                out[size++] = row;
+            }
+        }
+
+        return new ListingRows<FileObject>(listing, Arrays.copyOf(out, size), this.traversable);
+    }
+
+    /**
+     * Returns these rows without the given inclusive ranges of positions.
+     * @param runs the ranges, in ascending order.
+     * @return
+     */
+    @Nonnull
+    public ListingRows<FileObject> without(@Nonnull List<int[]> runs) {
+        int[] out = new int[rows.length];
+        int size = 0;
+        int start = 0;
+
+        for (int[] run : runs) {
+            System.arraycopy(rows, start, out, size, run[0] - start);
+            size += run[0] - start;
+            start = run[1] + 1;
+        }
+
+        System.arraycopy(rows, start, out, size, rows.length - start);
+        size += rows.length - start;
+
+        return new ListingRows<FileObject>(listing, Arrays.copyOf(out, size), traversable);
+    }
+
+    /**
+     * Returns the attributes of the rows, in order, without resolving
+     * their file objects.
+     * @return
+     */
+    @Nonnull
+    public List<VFSFileAttributes<FileObject>> getAttributeList() {
+        return new AbstractList<VFSFileAttributes<FileObject>>() {
+            @Override
+            public VFSFileAttributes<FileObject> get(int position) {
+                return listing.get(rows[position]);
+            }
+
+            @Override
+            public int size() {
+                return rows.length;
+            }
+        };
+    }
+
+    /**
+     * Returns the indices into the listing of the rows, in order, to
+     * compare rows of the same listing without resolving them.
+     * @return
+     */
+    @Nonnull
+    public List<Integer> getRowList() {
+        return new AbstractList<Integer>() {
+            @Override
+            public Integer get(int position) {
+                return rows[position];
+            }
+
+            @Override
+            public int size() {
+                return rows.length;
+            }
+        };
+    }
+
+    /**
+     * Returns the names of the rows, in order, to compare rows of
+     * different listings of a directory without resolving them.
+     * @return
+     */
+    @Nonnull
+    public List<String> getNameList() {
+        return new AbstractList<String>() {
+            @Override
+            public String get(int position) {
+                return listing.getName(rows[position]);
+            }
+
+            @Override
+            public int size() {
+                return rows.length;
+            }
+        };
+    }
+
+    /**
+     * Returns the attributes of the rows by file object, as a read-only
+     * view, whose lookups resolve only the file object looked up.
+     * @return
+     */
+    @Nonnull
+    public Map<FileObject, VFSFileAttributes<FileObject>> getAttributeMap() {
+        Map<FileObject, VFSFileAttributes<FileObject>> attributes = this.attributes;
+
+        if (attributes == null) {
+            attributes = new AttributeMap();
+            this.attributes = attributes;
+        }
+
+        return attributes;
+    }
+
+    private class AttributeMap extends AbstractMap<FileObject, VFSFileAttributes<FileObject>> {
+
+        @Override
+        public VFSFileAttributes<FileObject> get(Object key) {
+            int position = indexOf(key);
+
+            return (position < 0) ? null : listing.get(rows[position]);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return indexOf(key) >= 0;
+        }
+
+        @Override
+        public int size() {
+            return rows.length;
+        }
+
+        @Override
+        public Set<Map.Entry<FileObject, VFSFileAttributes<FileObject>>> entrySet() {
+            return new AbstractSet<Map.Entry<FileObject, VFSFileAttributes<FileObject>>>() {
+                @Override
+                public Iterator<Map.Entry<FileObject, VFSFileAttributes<FileObject>>> iterator() {
+                    final Iterator<VFSFileAttributes<FileObject>> it = getAttributeList().iterator();
+
+                    return new Iterator<Map.Entry<FileObject, VFSFileAttributes<FileObject>>>() {
+                        @Override
+                        public boolean hasNext() {
+                            return it.hasNext();
+                        }
+
+                        @Override
+                        public Map.Entry<FileObject, VFSFileAttributes<FileObject>> next() {
+                            VFSFileAttributes<FileObject> a = it.next();
+
+                            return new SimpleImmutableEntry<FileObject, VFSFileAttributes<FileObject>>(a.getFile(), a);
+                        }
+
+                        @Override
+                        public void remove() {
+                            throw new UnsupportedOperationException();
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return rows.length;
+                }
+            };
+        }
+    }
+}
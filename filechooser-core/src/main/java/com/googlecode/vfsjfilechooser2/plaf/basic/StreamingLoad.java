@@ -0,0 +1,417 @@
+package com.googlecode.vfsjfilechooser2.plaf.basic;
+
+import com.googlecode.vfsjfilechooser2.VFSJFileChooser;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSAttributeFileFilter;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSFileAttributes;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSFileFilter;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSFileSystemView;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSListingHandler;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSTaskExecutor;
+import com.googlecode.vfsjfilechooser2.utils.FileObjectComparatorFactory;
+import com.googlecode.vfsjfilechooser2.utils.FileObjectComparatorFactory.SortKey;
+import com.googlecode.vfsjfilechooser2.utils.ParallelLoop;
+import com.googlecode.vfsjfilechooser2.utils.VFSUtils;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.swing.SwingUtilities;
+
+/**
+ * Lists a directory which a {@link BasicVFSDirectoryModel} does not show
+ * yet, and publishes its entries in sorted chunks as they are read, so
+ * that the first rows of a large directory are shown before it has been
+ * completely listed.
+ *
+ * The model is cleared first. Each chunk is then filtered and sorted, and
+ * merged into the model on the EDT, so the rows shown are always in order.
+ * A chunk is published when it is full, or when its oldest entry has
+ * waited for the chunk time, even if the listing has stalled. A timer
+ * shared by all models notices stalled chunks, but only schedules them:
+ * they are published by a task of the file system of the directory, on
+ * the task executor of the chooser.
+ *
+ * @author shevek
+ */
+final class StreamingLoad<FileObject> {
+
+    private static ScheduledExecutorService flushScheduler = null;
+    private final BasicVFSDirectoryModel<FileObject> model;
+    private final VFSJFileChooser<FileObject> chooser;
+    private final FileObject directory;
+    private final int fid;
+    private final ParallelLoop.Cancellation cancellation;
+    private final int chunkSize;
+    private final long chunkMillis;
+    // Guards itself, chunkStart, flushPending and done, as it is also
+    // published by the tasks which the timer schedules.
+    private final List<VFSFileAttributes<FileObject>> chunk;
+    private long chunkStart = System.nanoTime();
+    private boolean flushPending = false;
+    private boolean done = false;
+    // Every entry listed, in the order read.
+    private final List<VFSFileAttributes<FileObject>> all = new ArrayList<VFSFileAttributes<FileObject>>();
+    private final Map<FileObject, VFSFileAttributes<FileObject>> attributes
+            = new ConcurrentHashMap<FileObject, VFSFileAttributes<FileObject>>();
+    // The filter which rejected entries by name while listing, or null.
+    private VFSFileFilter<? super FileObject> nameFilter = null;
+    private boolean filtered = false;
+    private volatile boolean cancelled = false;
+    // The sort keys of the entries merged so far, kept on the EDT between
+    // chunks, so that each chunk is merged without making keys for the
+    // entries already shown.
+    private List<SortKey<FileObject>> directoryKeys = new ArrayList<SortKey<FileObject>>();
+    private List<SortKey<FileObject>> fileKeys = new ArrayList<SortKey<FileObject>>();
+    // The modCount of the contents the keys are of.
+    private int modCount = -1;
+
+    /**
+     * @param directory the directory to list.
+     * @param fid the load which lists the directory.
+     * @param cancellation whether that load was cancelled.
+     */
+    public StreamingLoad(@Nonnull BasicVFSDirectoryModel<FileObject> model,
+            @Nonnull VFSJFileChooser<FileObject> chooser, @Nonnull FileObject directory,
+            int fid, @Nonnull ParallelLoop.Cancellation cancellation) {
+        this.model = model;
+        this.chooser = chooser;
+        this.directory = directory;
+        this.fid = fid;
+        this.cancellation = cancellation;
+        this.chunkSize = model.getStreamingChunkSize();
+        this.chunkMillis = Math.max(model.getStreamingChunkMillis(), 1);
+        this.chunk = new ArrayList<VFSFileAttributes<FileObject>>(chunkSize);
+    }
+
+    /**
+     * Returns the scheduler which notices the chunks of streamed
+     * listings which have stalled.
+     */
+    @Nonnull
+    private static synchronized ScheduledExecutorService getFlushScheduler() {
+        if (flushScheduler == null) {
+            flushScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "vfsjfilechooser-stream");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+
+        return flushScheduler;
+    }
+
+    /**
+     * Lists the directory, publishing it in chunks. Must be called by
+     * the load, in the background.
+     * @return the unfiltered listing, or null if the load was cancelled.
+     */
+    @CheckForNull
+    public List<VFSFileAttributes<FileObject>> run() {
+        final VFSFileSystemView<FileObject> fsv = chooser.getFileSystemView();
+        final long chunkNanos = chunkMillis * 1000000L;
+        final String group = VFSUtils.getFileSystemKey(fsv.getUrl(directory));
+        final VFSFileFilter<? super FileObject> filter = chooser.getFileFilter();
+        // Unless a filter may reject entries by name, the view reads
+        // the attributes as it lists.
+        nameFilter = ((filter != null) && (filter != chooser.getAcceptAllFileFilter())
+                && (chooser.getFileFilterRequirement() == VFSAttributeFileFilter.Requirement.NAME))
+                ? filter : null;
+
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                clear();
+            }
+        });
+
+        final VFSListingHandler<VFSFileAttributes<FileObject>> handler
+                = new VFSListingHandler<VFSFileAttributes<FileObject>>() {
+            @Override
+            public boolean handle(VFSFileAttributes<FileObject> a) {
+                if (cancellation.isCancelled()) {
+                    return false;
+                }
+
+                all.add(a);
+
+                synchronized (chunk) {
+                    chunk.add(a);
+
+                    if ((chunk.size() >= chunkSize)
+                            || ((System.nanoTime() - chunkStart) >= chunkNanos)) {
+                        publishChunk();
+                    }
+                }
+
+                return true;
+            }
+        };
+        final Runnable flush = new Runnable() {
+            @Override
+            public void run() {
+                synchronized (chunk) {
+                    flushPending = false;
+
+                    if (!done && !cancellation.isCancelled()
+                            && ((System.nanoTime() - chunkStart) >= chunkNanos)) {
+                        publishChunk();
+                    }
+                }
+            }
+        };
+        Future<?> timer = getFlushScheduler().scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (chunk) {
+                    if (done || flushPending || chunk.isEmpty()
+                            || ((System.nanoTime() - chunkStart) < chunkNanos)) {
+                        return;
+                    }
+
+                    flushPending = true;
+                }
+
+                chooser.getTaskExecutor().submit(group, VFSTaskExecutor.TaskType.FILE_ACCESS, flush);
+            }
+        }, chunkMillis, chunkMillis, TimeUnit.MILLISECONDS);
+
+        try {
+            if (nameFilter != null) {
+                final VFSFileFilter<? super FileObject> byName = nameFilter;
+                fsv.listChildren(directory, false, new VFSListingHandler<FileObject>() {
+                    @Override
+                    public boolean handle(FileObject child) {
+                        // Reject by name before paying for the attributes.
+                        if (!byName.accept(child)) {
+                            filtered = true;
+
+                            return !cancellation.isCancelled();
+                        }
+
+                        return handler.handle(fsv.getAttributes(child));
+                    }
+                });
+            } else {
+                fsv.listChildAttributes(directory, false, handler);
+            }
+        } finally {
+            timer.cancel(false);
+        }
+
+        synchronized (chunk) {
+            done = true;
+
+            if (cancellation.isCancelled()) {
+                cancelled = true;
+
+                return null;
+            }
+
+            publishChunk();
+        }
+
+        return all;
+    }
+
+    /**
+     * Returns the filter which rejected entries by name while listing,
+     * so that the listing is incomplete.
+     * @return the filter, or null if every entry was listed.
+     */
+    @CheckForNull
+    public VFSFileFilter<? super FileObject> getNameFilter() {
+        return filtered ? nameFilter : null;
+    }
+
+    /**
+     * Filters and sorts the chunk, and queues it to be merged into the
+     * model, with the sort keys to merge it by. Empties the chunk. The
+     * caller must hold the lock of the chunk.
+     */
+    private void publishChunk() {
+        chunkStart = System.nanoTime();
+
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        final List<FileObject> newDirectories = new ArrayList<FileObject>();
+        final List<FileObject> newFiles = new ArrayList<FileObject>();
+
+        for (VFSFileAttributes<FileObject> a : model.accept(chunk, chooser.isFileHidingEnabled())) {
+            FileObject f = a.getFile();
+            attributes.put(f, a);
+
+            if (chooser.isTraversable(f, a)) {
+                newDirectories.add(f);
+            } else {
+                newFiles.add(f);
+            }
+        }
+
+        chunk.clear();
+
+        if (newDirectories.isEmpty() && newFiles.isEmpty()) {
+            return;
+        }
+
+        model.sort(newDirectories, attributes);
+        model.sort(newFiles, attributes);
+
+        VFSFileSystemView<FileObject> fsv = chooser.getFileSystemView();
+        Comparator<SortKey<FileObject>> comparator = model.getKeyComparator();
+        final SortKey<FileObject>[] newDirectoryKeys
+                = FileObjectComparatorFactory.newSortKeys(fsv, newDirectories, attributes, comparator);
+        final SortKey<FileObject>[] newFileKeys
+                = FileObjectComparatorFactory.newSortKeys(fsv, newFiles, attributes, comparator);
+
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                merge(newDirectories, newDirectoryKeys, newFiles, newFileKeys);
+            }
+        });
+    }
+
+    private boolean isCurrent() {
+        return !cancelled && model.isCurrentLoad(fid);
+    }
+
+    /**
+     * Clears the model, to merge the chunks of the directory into.
+     * Called on the EDT.
+     */
+    private void clear() {
+        if (!isCurrent()) {
+            return;
+        }
+
+        DirectorySnapshot<FileObject> current = model.getSnapshot();
+        int oldSize = current.getEntries().size();
+        DirectorySnapshot<FileObject> cleared = current.with(directory, Collections.<FileObject>emptyList(), 0,
+                model.getKeyComparator(), attributes, current.getModCount() + 1);
+        model.setSnapshot(cleared);
+        modCount = cleared.getModCount();
+
+        if (oldSize > 0) {
+            model.fireEntriesRemoved(0, oldSize - 1);
+        }
+    }
+
+    /**
+     * Merges a chunk into the model, keeping directories ahead of
+     * files. Called on the EDT.
+     * @param addDirectoryKeys the keys of addDirectories, in order.
+     * @param addFileKeys the keys of addFiles, in order.
+     */
+    private void merge(List<FileObject> addDirectories, SortKey<FileObject>[] addDirectoryKeys,
+            List<FileObject> addFiles, SortKey<FileObject>[] addFileKeys) {
+        if (!isCurrent()) {
+            return;
+        }
+
+        DirectorySnapshot<FileObject> current = model.getSnapshot();
+        Comparator<SortKey<FileObject>> comparator = model.getKeyComparator();
+        List<FileObject> directories = current.getDirectories();
+        List<FileObject> files = current.getFiles();
+
+        if (modCount != current.getModCount()) {
+            // Changed since the last merge, e.g. sorted; key it again.
+            VFSFileSystemView<FileObject> fsv = chooser.getFileSystemView();
+            directoryKeys = new ArrayList<SortKey<FileObject>>(Arrays.asList(
+                    FileObjectComparatorFactory.newSortKeys(fsv, directories, current.getAttributes(), comparator)));
+            fileKeys = new ArrayList<SortKey<FileObject>>(Arrays.asList(
+                    FileObjectComparatorFactory.newSortKeys(fsv, files, current.getAttributes(), comparator)));
+        }
+
+        List<int[]> runs = new ArrayList<int[]>();
+        List<FileObject> entries = new ArrayList<FileObject>(
+                current.getEntries().size() + addDirectories.size() + addFiles.size());
+        directoryKeys = merge(entries, directories, directoryKeys,
+                addDirectories, addDirectoryKeys, comparator, runs);
+        int dirCount = entries.size();
+        fileKeys = merge(entries, files, fileKeys, addFiles, addFileKeys, comparator, runs);
+        DirectorySnapshot<FileObject> merged = current.withEntries(entries, dirCount, comparator);
+        model.setSnapshot(merged);
+        modCount = merged.getModCount();
+
+        // Runs are in ascending order of their final index, so each
+        // event is consistent with the events fired before it.
+        for (int[] run : runs) {
+            model.fireEntriesAdded(run[0], run[1]);
+        }
+    }
+
+    /**
+     * Appends the sorted section, with the sorted list merged into
+     * it, to entries, recording the index ranges of the inserted
+     * entries. Each inserted entry is placed by binary search, and
+     * the entries between them are copied in bulk.
+     * @return the keys of the merged section.
+     */
+    private static <FileObject> List<SortKey<FileObject>> merge(List<FileObject> entries, List<FileObject> section,
+            List<SortKey<FileObject>> sectionKeys, List<FileObject> add, SortKey<FileObject>[] addKeys,
+            Comparator<SortKey<FileObject>> comparator, List<int[]> runs) {
+        if (add.isEmpty()) {
+            entries.addAll(section);
+
+            return sectionKeys;
+        }
+
+        List<SortKey<FileObject>> mergedKeys = new ArrayList<SortKey<FileObject>>(section.size() + add.size());
+        int i = 0;
+        int[] run = null;
+
+        for (int j = 0; j < add.size(); j++) {
+            // After any equal entries, so a merge is stable.
+            int lo = i;
+            int hi = section.size();
+
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+
+                if (comparator.compare(sectionKeys.get(mid), addKeys[j]) <= 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+
+            if (lo > i) {
+                entries.addAll(section.subList(i, lo));
+                mergedKeys.addAll(sectionKeys.subList(i, lo));
+                i = lo;
+                run = null;
+            }
+
+            int index = entries.size();
+            entries.add(add.get(j));
+            mergedKeys.add(addKeys[j]);
+
+            if (run == null) {
+                run = new int[]{index, index};
+                runs.add(run);
+            } else {
+                run[1] = index;
+            }
+        }
+
+        entries.addAll(section.subList(i, section.size()));
+        mergedKeys.addAll(sectionKeys.subList(i, sectionKeys.size()));
+
+        return mergedKeys;
+    }
+}
@@ -245,6 +245,15 @@ public class MetalVFSFileChooserUI<FileObject> extends BasicVFSFileChooserUI<Fil
         directoryComboBox.setAlignmentX(JComponent.LEFT_ALIGNMENT);
         directoryComboBox.setAlignmentY(JComponent.TOP_ALIGNMENT);
         directoryComboBox.setMaximumRowCount(8);
+        // Directory icons are resolved in the background.
+        getModel().addPropertyChangeListener(new PropertyChangeListener() {
+            @Override
+            public void propertyChange(PropertyChangeEvent e) {
+                if ("icons".equals(e.getPropertyName())) {
+                    directoryComboBox.repaint();
+                }
+            }
+        });
 
         topPanel.add(directoryComboBox, BorderLayout.CENTER);
 
@@ -18,8 +18,13 @@
  */
 package com.googlecode.vfsjfilechooser2.utils;
 
+import com.googlecode.vfsjfilechooser2.filechooser.VFSFileAttributes;
 import com.googlecode.vfsjfilechooser2.filechooser.VFSFileSystemView;
 import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
 
 /**
  *
@@ -71,6 +76,333 @@ public final class FileObjectComparatorFactory {
         return new DirectoriesFirstComparatorWrapper<FileObject>(fileSystemView, comparator);
     }
 
+    /**
+     * The attributes by which a file is sorted, read once before sorting
+     * so that comparing two files neither allocates nor touches the
+     * file system.
+     */
+    public static final class SortKey<FileObject> {
+
+        private final FileObject file;
+        // The attributes which resolve the file, if file is null.
+        private final VFSFileAttributes<FileObject> attributes;
+        private final int index;
+        private final String name;
+        private final boolean directory;
+        private final long size;
+        private final long lastModifiedTime;
+
+        private SortKey(FileObject file, VFSFileAttributes<FileObject> attributes, int index,
+                String name, boolean directory, long size, long lastModifiedTime) {
+            this.file = file;
+            this.attributes = attributes;
+            this.index = index;
+            this.name = name;
+            this.directory = directory;
+            this.size = size;
+            this.lastModifiedTime = lastModifiedTime;
+        }
+
+        @Nonnull
+        public FileObject getFile() {
+            return (file != null) ? file : attributes.getFile();
+        }
+
+        /** The lower-cased base-name. */
+        @Nonnull
+        public String getName() {
+            return name;
+        }
+
+        /** Whether the file is traversable. */
+        public boolean isDirectory() {
+            return directory;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getLastModifiedTime() {
+            return lastModifiedTime;
+        }
+    }
+
+    /**
+     * Reads the sort key of a file. If the attributes are not known, only
+     * the fields which the comparator compares are read from the file
+     * system view; the others are left as 0. The name and the type are
+     * always read.
+     * @param fileSystemView the view used if attributes is null
+     * @param file the file
+     * @param attributes the attributes of the file, if already known
+     * @param comparator the comparator the key will be sorted with
+     * @return a new sort key
+     */
+    @Nonnull
+    public static <FileObject> SortKey<FileObject> newSortKey(
+            @Nonnull VFSFileSystemView<FileObject> fileSystemView,
+            @Nonnull FileObject file,
+            @CheckForNull VFSFileAttributes<FileObject> attributes,
+            @Nonnull Comparator<SortKey<FileObject>> comparator) {
+        // Comparators of our own compare one field; others may read any.
+        int field = getField(comparator);
+
+        if (attributes != null) {
+            return newSortKey(file, attributes, -1, field);
+        }
+
+        String name = "";
+        boolean directory = false;
+        long size = 0;
+        long lastModifiedTime = 0;
+
+        try {
+            name = fileSystemView.getName(file).toLowerCase();
+            directory = fileSystemView.isTraversable(file);
+
+            if ((field == KeyComparator.SIZE) || (field == KeyComparator.ALL)) {
+                size = fileSystemView.getSize(file);
+            }
+
+            if ((field == KeyComparator.DATE) || (field == KeyComparator.ALL)) {
+                lastModifiedTime = fileSystemView.getLastModifiedTime(file);
+            }
+        } catch (Exception err) {
+        }
+
+        return new SortKey<FileObject>(file, null, -1, name, directory, size, lastModifiedTime);
+    }
+
+    /**
+     * Reads the sort key of a file from its attributes, without reading
+     * the file itself unless the key is asked for it.
+     * @param attributes the attributes of the file
+     * @return a new sort key
+     */
+    @Nonnull
+    public static <FileObject> SortKey<FileObject> newSortKey(@Nonnull VFSFileAttributes<FileObject> attributes) {
+        return newSortKey(null, attributes, -1, KeyComparator.ALL);
+    }
+
+    /**
+     * Reads the sort key of a file from its attributes. If the attributes
+     * are lazy, only the fields which the comparator compares are read;
+     * the others are left as 0.
+     * @param attributes the attributes of the file
+     * @param comparator the comparator the key will be sorted with
+     * @return a new sort key
+     */
+    @Nonnull
+    public static <FileObject> SortKey<FileObject> newSortKey(@Nonnull VFSFileAttributes<FileObject> attributes,
+            @Nonnull Comparator<SortKey<FileObject>> comparator) {
+        return newSortKey(null, attributes, -1, getField(comparator));
+    }
+
+    private static int getField(@Nonnull Comparator<?> comparator) {
+        return (comparator instanceof KeyComparator)
+                ? ((KeyComparator<?>) comparator).field : KeyComparator.ALL;
+    }
+
+    @Nonnull
+    private static <FileObject> SortKey<FileObject> newSortKey(@CheckForNull FileObject file,
+            @Nonnull VFSFileAttributes<FileObject> attributes, int index, int field) {
+        boolean lazy = attributes.isLazy() && (field != KeyComparator.ALL);
+        long size = (lazy && (field != KeyComparator.SIZE)) ? 0 : attributes.getSize();
+        long lastModifiedTime = (lazy && (field != KeyComparator.DATE)) ? 0 : attributes.getLastModifiedTime();
+
+        return new SortKey<FileObject>(file, (file != null) ? null : attributes, index,
+                attributes.getName().toLowerCase(), attributes.isDirectory(),
+                size, lastModifiedTime);
+    }
+
+    /**
+     * Return a new filename comparator on sort keys. It orders files
+     * the same way as {@link #newFileNameComparator}.
+     * @param isSortAsc ascendant sorting
+     * @return a new comparator
+     */
+    public static <FileObject> Comparator<SortKey<FileObject>> newFileNameKeyComparator(boolean isSortAsc) {
+        return new KeyComparator<FileObject>(KeyComparator.NAME, isSortAsc);
+    }
+
+    /**
+     * Return a new size comparator on sort keys. It orders files
+     * the same way as {@link #newSizeComparator}.
+     * @param isSortAsc ascendant sorting
+     * @return a new comparator
+     */
+    public static <FileObject> Comparator<SortKey<FileObject>> newSizeKeyComparator(boolean isSortAsc) {
+        return new KeyComparator<FileObject>(KeyComparator.SIZE, isSortAsc);
+    }
+
+    /**
+     * Return a new date comparator on sort keys. It orders files
+     * the same way as {@link #newDateComparator}.
+     * @param isSortAsc ascendant sorting
+     * @return a new comparator
+     */
+    public static <FileObject> Comparator<SortKey<FileObject>> newDateKeyComparator(boolean isSortAsc) {
+        return new KeyComparator<FileObject>(KeyComparator.DATE, isSortAsc);
+    }
+
+    /**
+     * Sorts a list of files by reading the key of each file once and
+     * sorting the keys, in parallel if the list is large.
+     * @param fileSystemView the view used for files without attributes
+     * @param files the list to sort in place
+     * @param comparator a comparator on sort keys
+     * @param attributes known attributes of the files, or null
+     */
+    public static <FileObject> void sort(
+            @Nonnull VFSFileSystemView<FileObject> fileSystemView,
+            @Nonnull List<FileObject> files,
+            @Nonnull Comparator<SortKey<FileObject>> comparator,
+            @CheckForNull Map<FileObject, VFSFileAttributes<FileObject>> attributes) {
+        sort(fileSystemView, files, comparator, attributes, ParallelSort.DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Sorts a list of files by reading the key of each file once and
+     * sorting the keys, in parallel if the list has more than
+     * <code>threshold</code> elements.
+     * @param fileSystemView the view used for files without attributes
+     * @param files the list to sort in place
+     * @param comparator a comparator on sort keys
+     * @param attributes known attributes of the files, or null
+     * @param threshold the number of files up to which the list is
+     *  sorted sequentially
+     * @see ParallelSort#sort(Object[], Comparator, int)
+     */
+    public static <FileObject> void sort(
+            @Nonnull VFSFileSystemView<FileObject> fileSystemView,
+            @Nonnull List<FileObject> files,
+            @Nonnull Comparator<SortKey<FileObject>> comparator,
+            @CheckForNull Map<FileObject, VFSFileAttributes<FileObject>> attributes,
+            int threshold) {
+        SortKey<FileObject>[] keys = newSortKeys(fileSystemView, files, attributes, comparator);
+
+        ParallelSort.sort(keys, comparator, threshold);
+
+        for (int i = 0; i < keys.length; i++) {
+            files.set(i, keys[i].getFile());
+        }
+    }
+
+    /**
+     * Sorts a list of attributes without reading their files, unless
+     * the comparator reads them, in parallel if the list has more than
+     * <code>threshold</code> elements.
+     * @param attributes the attributes to sort, which are not modified
+     * @param comparator a comparator on sort keys
+     * @param threshold the number of attributes up to which the list is
+     *  sorted sequentially
+     * @return the indices of the attributes, in sorted order
+     */
+    @Nonnull
+    public static <FileObject> int[] sortIndices(
+            @Nonnull List<? extends VFSFileAttributes<FileObject>> attributes,
+            @Nonnull Comparator<SortKey<FileObject>> comparator,
+            int threshold) {
+        @SuppressWarnings("unchecked")
+        SortKey<FileObject>[] keys = (SortKey<FileObject>[]) new SortKey<?>[attributes.size()];
+
+        int field = getField(comparator);
+
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = newSortKey(null, attributes.get(i), i, field);
+        }
+
+        ParallelSort.sort(keys, comparator, threshold);
+
+        int[] indices = new int[keys.length];
+
+        for (int i = 0; i < keys.length; i++) {
+            indices[i] = keys[i].index;
+        }
+
+        return indices;
+    }
+
+    /**
+     * Reads the sort keys of a list of files.
+     * @param fileSystemView the view used for files without attributes
+     * @param files the files
+     * @param attributes known attributes of the files, or null
+     * @param comparator the comparator the keys will be sorted with
+     * @return the keys, in the order of the files
+     * @see #newSortKey(VFSFileSystemView, Object, VFSFileAttributes, Comparator)
+     */
+    @Nonnull
+    public static <FileObject> SortKey<FileObject>[] newSortKeys(
+            @Nonnull VFSFileSystemView<FileObject> fileSystemView,
+            @Nonnull List<FileObject> files,
+            @CheckForNull Map<FileObject, VFSFileAttributes<FileObject>> attributes,
+            @Nonnull Comparator<SortKey<FileObject>> comparator) {
+        @SuppressWarnings("unchecked")
+        SortKey<FileObject>[] keys = (SortKey<FileObject>[]) new SortKey<?>[files.size()];
+        int i = 0;
+
+        for (FileObject f : files) {
+            VFSFileAttributes<FileObject> a = (attributes == null) ? null : attributes.get(f);
+            keys[i++] = newSortKey(fileSystemView, f, a, comparator);
+        }
+
+        return keys;
+    }
+
+    /**
+     * Compares sort keys: directories before files, then by one field.
+     */
+    private static class KeyComparator<FileObject> implements Comparator<SortKey<FileObject>> {
+
+        private static final int ALL = -1;
+        private static final int NAME = 0;
+        private static final int SIZE = 1;
+        private static final int DATE = 2;
+        private final int field;
+        private final boolean isSortAsc;
+
+        public KeyComparator(int field, boolean isSortAsc) {
+            this.field = field;
+            this.isSortAsc = isSortAsc;
+        }
+
+        @Override
+        public int compare(SortKey<FileObject> a, SortKey<FileObject> b) {
+            // directories go first
+            if (a.directory != b.directory) {
+                return a.directory ? -1 : 1;
+            }
+
+            int result;
+
+            switch (field) {
+                case SIZE:
+                    result = (a.size < b.size) ? -1 : ((a.size == b.size) ? 0 : 1);
+
+                    break;
+
+                case DATE:
+                    result = (a.lastModifiedTime < b.lastModifiedTime) ? -1
+                            : ((a.lastModifiedTime == b.lastModifiedTime) ? 0 : 1);
+
+                    break;
+
+                default:
+                    result = a.name.compareTo(b.name);
+
+                    break;
+            }
+
+            if (!isSortAsc) {
+                result = -result;
+            }
+
+            return result;
+        }
+    }
+
     private static class FileNameComparator<FileObject> implements Comparator<FileObject> {
 
         private final VFSFileSystemView<FileObject> fileSystemView;
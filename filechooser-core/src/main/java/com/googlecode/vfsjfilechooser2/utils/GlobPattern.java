@@ -0,0 +1,213 @@
+package com.googlecode.vfsjfilechooser2.utils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+/**
+ * One or more file name globs, e.g. "*.csv;*.parquet;*.json", compiled
+ * once into lookups which match a name without reparsing the globs.
+ *
+ * Globs are separated by ';'. A glob may contain the wildcards '*' and
+ * '?', and matches as
+ * {@link org.apache.commons.io.FilenameUtils#wildcardMatch(String, String)}
+ * does: case sensitively, with every other character, including ',' and
+ * '[', taken literally. Character classes, '[...]' negated by a leading
+ * '!' or '^', are only recognized if asked for when compiling.
+ *
+ * Globs of the form "*.ext" and globs without wildcards, which are by
+ * far the most common, are matched with a hash lookup of the extension
+ * or name. All other globs are combined into a single regular
+ * expression.
+ *
+ * @author shevek
+ */
+public final class GlobPattern {
+
+    private final String source;
+    private final boolean matchAll;
+    private final Set<String> extensions = new HashSet<String>();
+    private final List<String> suffixes = new ArrayList<String>();
+    private final Set<String> names = new HashSet<String>();
+    private final Pattern pattern;
+
+    /**
+     * Compiles one or more globs, taking '[' and ']' literally.
+     * @param patterns the globs, separated by ';'.
+     * @return the compiled globs.
+     */
+    @Nonnull
+    public static GlobPattern compile(@Nonnull String patterns) {
+        return new GlobPattern(patterns, false);
+    }
+
+    /**
+     * Compiles one or more globs.
+     * @param patterns the globs, separated by ';'.
+     * @param characterClasses whether '[...]' is a character class, as in
+     *  a Unix shell, rather than literal characters.
+     * @return the compiled globs.
+     * @throws PatternSyntaxException if a character class is not closed.
+     */
+    @Nonnull
+    public static GlobPattern compile(@Nonnull String patterns, boolean characterClasses) {
+        return new GlobPattern(patterns, characterClasses);
+    }
+
+    private GlobPattern(@Nonnull String source, boolean characterClasses) {
+        this.source = source;
+
+        boolean all = false;
+        StringBuilder buf = new StringBuilder();
+
+        for (String glob : source.split(";")) {
+            glob = glob.trim();
+
+            if (glob.isEmpty()) {
+                continue;
+            }
+
+            if (glob.equals("*")) {
+                all = true;
+            } else if (!isWild(glob, 0, characterClasses)) {
+                names.add(glob);
+            } else if (glob.startsWith("*.") && !isWild(glob, 2, characterClasses)) {
+                String extension = glob.substring(2);
+
+                if (extension.indexOf('.') >= 0) {
+                    suffixes.add(glob.substring(1));
+                } else {
+                    extensions.add(extension);
+                }
+            } else {
+                if (buf.length() > 0) {
+                    buf.append('|');
+                }
+
+                buf.append("(?:");
+                toRegex(buf, glob, characterClasses);
+                buf.append(')');
+            }
+        }
+
+        this.matchAll = all;
+        this.pattern = (buf.length() == 0) ? null : Pattern.compile(buf.toString(), Pattern.DOTALL);
+    }
+
+    private static boolean isWild(@Nonnull String glob, int start, boolean characterClasses) {
+        for (int i = start; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+
+            if ((c == '*') || (c == '?') || (characterClasses && (c == '['))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static void toRegex(@Nonnull StringBuilder buf, @Nonnull String glob, boolean characterClasses) {
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+
+            if ((c == '[') && !characterClasses) {
+                buf.append("\\[");
+                continue;
+            }
+
+            switch (c) {
+                case '*':
+                    buf.append(".*");
+                    break;
+                case '?':
+                    buf.append('.');
+                    break;
+                case '[':
+                    // A ']' immediately after the '[' or '[!' is a member.
+                    int start = i + 1;
+
+                    if ((start < glob.length()) && ((glob.charAt(start) == '!') || (glob.charAt(start) == '^'))) {
+                        start++;
+                    }
+
+                    int end = glob.indexOf(']', start + 1);
+
+                    if ((start >= glob.length()) || (end < 0)) {
+                        throw new PatternSyntaxException("Unclosed character class", glob, i);
+                    }
+
+                    buf.append('[');
+
+                    if (start > i + 1) {
+                        buf.append('^');
+                    }
+
+                    for (int j = start; j < end; j++) {
+                        char m = glob.charAt(j);
+
+                        if ((m == '\\') || (m == '[') || (m == ']') || (m == '&') || (m == '^')) {
+                            buf.append('\\');
+                        }
+
+                        buf.append(m);
+                    }
+
+                    buf.append(']');
+                    i = end;
+                    break;
+                default:
+                    if (!Character.isLetterOrDigit(c)) {
+                        buf.append('\\');
+                    }
+
+                    buf.append(c);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Returns true if a name matches any of the globs.
+     * @param name the name of a file, without any directory.
+     * @return
+     */
+    public boolean matches(@CheckForNull String name) {
+        if (name == null) {
+            return false;
+        }
+
+        if (matchAll) {
+            return true;
+        }
+
+        if (!extensions.isEmpty()) {
+            int dot = name.lastIndexOf('.');
+
+            if ((dot >= 0) && extensions.contains(name.substring(dot + 1))) {
+                return true;
+            }
+        }
+
+        for (String suffix : suffixes) {
+            if (name.endsWith(suffix)) {
+                return true;
+            }
+        }
+
+        if (names.contains(name)) {
+            return true;
+        }
+
+        return (pattern != null) && pattern.matcher(name).matches();
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+}
@@ -0,0 +1,101 @@
+package com.googlecode.vfsjfilechooser2.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.swing.Icon;
+
+/**
+ * A bounded cache of icons, keyed by the class of file which they
+ * represent, e.g. "directory" or the extension of a file, rather than
+ * by file. The least recently used icon is evicted when the cache is
+ * full.
+ *
+ * Lookups are counted as hits or misses, so that the effectiveness of
+ * the keys may be measured.
+ *
+ * @author shevek
+ */
+public class IconCache {
+
+    /** The default maximum number of icons. */
+    public static final int DEFAULT_MAX_SIZE = 256;
+    private final int maxSize;
+    private final Map<String, Icon> icons;
+    private long hitCount = 0;
+    private long missCount = 0;
+
+    public IconCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param maxSize the maximum number of icons.
+     */
+    @SuppressWarnings("serial")
+    public IconCache(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Illegal maximum size: " + maxSize);
+        }
+
+        this.maxSize = maxSize;
+        this.icons = new LinkedHashMap<String, Icon>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Icon> eldest) {
+                return size() > IconCache.this.maxSize;
+            }
+        };
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns the icon for a key, counting a hit or a miss.
+     * @param key
+     * @return the icon, or null if it is not cached.
+     */
+    @CheckForNull
+    public synchronized Icon get(@Nonnull String key) {
+        Icon icon = icons.get(key);
+
+        if (icon == null) {
+            missCount++;
+        } else {
+            hitCount++;
+        }
+
+        return icon;
+    }
+
+    public synchronized void put(@Nonnull String key, @Nonnull Icon icon) {
+        icons.put(key, icon);
+    }
+
+    /**
+     * Removes all icons. The counters are not reset.
+     */
+    public synchronized void clear() {
+        icons.clear();
+    }
+
+    public synchronized int size() {
+        return icons.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "IconCache(size=" + icons.size() + "/" + maxSize
+                + ", hits=" + hitCount + ", misses=" + missCount + ")";
+    }
+}
@@ -0,0 +1,194 @@
+package com.googlecode.vfsjfilechooser2.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.Nonnull;
+
+/**
+ * The difference between two lists of distinct elements, expressed as
+ * runs of removed and added indices, computed in O(n) using hashing.
+ *
+ * Removing the removed runs from the old list and then inserting the
+ * added runs yields the new list, provided that the elements common to
+ * both lists are in the same relative order. If they are not, for
+ * example because the old list was sorted differently, the difference
+ * is not {@link #isOrdered() ordered} and the list must be replaced as
+ * a whole.
+ *
+ * @author shevek
+ */
+public final class ListDiff<T> {
+
+    private final List<int[]> removedRuns;
+    private final List<int[]> addedRuns;
+    private final int commonCount;
+    private final boolean ordered;
+
+    private ListDiff(List<int[]> removedRuns, List<int[]> addedRuns,
+            int commonCount, boolean ordered) {
+        this.removedRuns = removedRuns;
+        this.addedRuns = addedRuns;
+        this.commonCount = commonCount;
+        this.ordered = ordered;
+    }
+
+    /**
+     * Computes the difference between two lists.
+     * @param oldList the list currently shown
+     * @param newList the list which should be shown
+     * @return the difference
+     */
+    @Nonnull
+    public static <T> ListDiff<T> compute(@Nonnull List<? extends T> oldList,
+            @Nonnull List<? extends T> newList) {
+        Set<T> oldSet = new HashSet<T>(oldList);
+        Set<T> newSet = new HashSet<T>(newList);
+
+        List<int[]> removedRuns = new ArrayList<int[]>();
+        List<T> oldCommon = new ArrayList<T>(Math.min(oldList.size(), newList.size()));
+        int[] run = null;
+
+        for (int i = 0; i < oldList.size(); i++) {
+            T element = oldList.get(i);
+
+            if (newSet.contains(element)) {
+                oldCommon.add(element);
+                run = null;
+            } else if (run == null) {
+                run = new int[]{i, i};
+                removedRuns.add(run);
+            } else {
+                run[1] = i;
+            }
+        }
+
+        List<int[]> addedRuns = new ArrayList<int[]>();
+        boolean ordered = true;
+        int common = 0;
+        run = null;
+
+        for (int i = 0; i < newList.size(); i++) {
+            T element = newList.get(i);
+
+            if (oldSet.contains(element)) {
+                if (ordered && ((common >= oldCommon.size())
+                        || !element.equals(oldCommon.get(common)))) {
+                    ordered = false;
+                }
+
+                common++;
+                run = null;
+            } else if (run == null) {
+                run = new int[]{i, i};
+                addedRuns.add(run);
+            } else {
+                run[1] = i;
+            }
+        }
+
+        return new ListDiff<T>(Collections.unmodifiableList(removedRuns),
+                Collections.unmodifiableList(addedRuns), common, ordered);
+    }
+
+    /**
+     * Returns the difference between two lists which have no element
+     * in common, without comparing them.
+     * @param oldSize the size of the list currently shown
+     * @param newSize the size of the list which should be shown
+     * @return the difference
+     */
+    @Nonnull
+    public static <T> ListDiff<T> replacing(int oldSize, int newSize) {
+        List<int[]> removedRuns = (oldSize == 0) ? Collections.<int[]>emptyList()
+                : Collections.singletonList(new int[]{0, oldSize - 1});
+        List<int[]> addedRuns = (newSize == 0) ? Collections.<int[]>emptyList()
+                : Collections.singletonList(new int[]{0, newSize - 1});
+
+        return new ListDiff<T>(removedRuns, addedRuns, 0, true);
+    }
+
+    /**
+     * Returns a difference which is already known as runs, e.g. of
+     * insertions into a sorted list, without comparing the lists.
+     * @param removedRuns the inclusive index ranges, in ascending order,
+     *  of the elements removed from the old list
+     * @param addedRuns the inclusive index ranges, in ascending order,
+     *  of the elements added to the new list
+     * @param commonCount the number of elements common to both lists
+     * @return the difference
+     */
+    @Nonnull
+    public static <T> ListDiff<T> fromRuns(@Nonnull List<int[]> removedRuns,
+            @Nonnull List<int[]> addedRuns, int commonCount) {
+        return new ListDiff<T>(Collections.unmodifiableList(removedRuns),
+                Collections.unmodifiableList(addedRuns), commonCount, true);
+    }
+
+    /**
+     * Returns true if the two lists are equal.
+     * @return
+     */
+    public boolean isEmpty() {
+        return ordered && removedRuns.isEmpty() && addedRuns.isEmpty();
+    }
+
+    /**
+     * Returns true if the elements common to both lists are in the
+     * same relative order, so the runs describe the whole difference.
+     * @return
+     */
+    public boolean isOrdered() {
+        return ordered;
+    }
+
+    /**
+     * Returns the number of elements common to both lists.
+     * @return
+     */
+    public int getCommonCount() {
+        return commonCount;
+    }
+
+    /**
+     * Returns the inclusive index ranges, in ascending order, of the
+     * elements of the old list which are not in the new list.
+     * @return
+     */
+    @Nonnull
+    public List<int[]> getRemovedRuns() {
+        return removedRuns;
+    }
+
+    /**
+     * Returns the inclusive index ranges, in ascending order, of the
+     * elements of the new list which are not in the old list.
+     * @return
+     */
+    @Nonnull
+    public List<int[]> getAddedRuns() {
+        return addedRuns;
+    }
+
+    /**
+     * Returns a copy of the old list without the removed runs.
+     * @param oldList
+     * @return
+     */
+    @Nonnull
+    public <E> List<E> removeFrom(@Nonnull List<? extends E> oldList) {
+        List<E> out = new ArrayList<E>(commonCount);
+        int start = 0;
+
+        for (int[] removed : removedRuns) {
+            out.addAll(oldList.subList(start, removed[0]));
+            start = removed[1] + 1;
+        }
+
+        out.addAll(oldList.subList(start, oldList.size()));
+
+        return out;
+    }
+}
@@ -0,0 +1,150 @@
+package com.googlecode.vfsjfilechooser2.utils;
+
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+/**
+ * A loop over a range of indices which runs chunks of the range on the
+ * fork-join pool of {@link ParallelSort#getPool()}.
+ *
+ * Chunks start at multiples of the chunk size, so a body may write its
+ * results for chunk <code>lo / chunkSize</code> to a slot of its own, and
+ * the caller may then combine them in order. The cancellation is checked
+ * before each chunk, so a loop stops within one chunk of being
+ * cancelled.
+ *
+ * @author shevek
+ */
+public final class ParallelLoop {
+
+    /** The smallest chunk which is worth running as a task of its own. */
+    public static final int MIN_CHUNK_SIZE = 1024;
+
+    /** The body of a loop, run for a chunk of the range at a time. */
+    public static interface Body {
+
+        /**
+         * Runs the body for the indices from lo, inclusive, to hi, exclusive.
+         * @param lo
+         * @param hi
+         */
+        void run(int lo, int hi);
+    }
+
+    /** Tells a loop to stop early. */
+    public static interface Cancellation {
+
+        boolean isCancelled();
+    }
+
+    private ParallelLoop() {
+        throw new AssertionError("Trying to instanciate ParallelLoop");
+    }
+
+    /**
+     * Returns a chunk size which gives each thread of the pool a few
+     * chunks of the given range, so that the load is balanced.
+     * @param size
+     * @return
+     */
+    public static int getChunkSize(int size) {
+        int parallelism = ParallelSort.getPool().getParallelism();
+
+        return Math.max(MIN_CHUNK_SIZE, size / (parallelism * 4));
+    }
+
+    /**
+     * Returns the number of chunks a range is split into.
+     * @param size
+     * @param chunkSize
+     * @return
+     */
+    public static int getChunkCount(int size, int chunkSize) {
+        return (size + chunkSize - 1) / chunkSize;
+    }
+
+    /**
+     * Runs a body over the indices from 0 to size, in chunks of up to
+     * chunkSize, in parallel if there is more than one chunk.
+     * @param size
+     * @param chunkSize
+     * @param body
+     * @param cancellation checked before each chunk, or null.
+     * @return false if the loop was cancelled.
+     */
+    public static boolean run(int size, int chunkSize, @Nonnull Body body,
+            @CheckForNull Cancellation cancellation) {
+        chunkSize = Math.max(chunkSize, 1);
+
+        LoopTask task = new LoopTask(0, size, chunkSize, body, cancellation, new AtomicBoolean());
+
+        if ((size <= chunkSize) || (Runtime.getRuntime().availableProcessors() < 2)) {
+            for (int lo = 0; lo < size; lo += chunkSize) {
+                if (task.isStopped()) {
+                    return false;
+                }
+
+                body.run(lo, Math.min(lo + chunkSize, size));
+            }
+        } else {
+            ParallelSort.getPool().invoke(task);
+        }
+
+        return !task.isStopped();
+    }
+
+    @SuppressWarnings("serial")
+    private static class LoopTask extends RecursiveAction {
+
+        private final int lo;
+        private final int hi;
+        private final int chunkSize;
+        private final Body body;
+        private final Cancellation cancellation;
+        private final AtomicBoolean cancelled;
+
+        public LoopTask(int lo, int hi, int chunkSize, Body body,
+                Cancellation cancellation, AtomicBoolean cancelled) {
+            this.lo = lo;
+            this.hi = hi;
+            this.chunkSize = chunkSize;
+            this.body = body;
+            this.cancellation = cancellation;
+            this.cancelled = cancelled;
+        }
+
+        private boolean isStopped() {
+            if (cancelled.get()) {
+                return true;
+            }
+
+            if ((cancellation != null) && cancellation.isCancelled()) {
+                cancelled.set(true);
+
+                return true;
+            }
+
+            return false;
+        }
+
+        @Override
+        protected void compute() {
+            if (isStopped()) {
+                return;
+            }
+
+            if ((hi - lo) <= chunkSize) {
+                body.run(lo, hi);
+
+                return;
+            }
+
+            // Split on a chunk boundary, so chunks start at multiples of chunkSize.
+            int mid = lo + (getChunkCount(hi - lo, chunkSize) >> 1) * chunkSize;
+            invokeAll(new LoopTask(lo, mid, chunkSize, body, cancellation, cancelled),
+                    new LoopTask(mid, hi, chunkSize, body, cancellation, cancelled));
+        }
+    }
+}
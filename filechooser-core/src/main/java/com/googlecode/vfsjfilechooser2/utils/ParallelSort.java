@@ -0,0 +1,128 @@
+package com.googlecode.vfsjfilechooser2.utils;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import javax.annotation.Nonnull;
+
+/**
+ * A stable merge sort which sorts large arrays on a fork-join pool.
+ *
+ * Ranges of up to <code>threshold</code> elements are sorted with
+ * {@link Arrays#sort(Object[], int, int, Comparator)}, and adjacent
+ * ranges are merged preferring the left, so the result is identical
+ * to a sequential sort.
+ *
+ * @author shevek
+ */
+public final class ParallelSort {
+
+    /** The default number of elements below which an array is sorted sequentially. */
+    public static final int DEFAULT_THRESHOLD = 8192;
+
+    private static class PoolHolder {
+
+        private static final ForkJoinPool POOL = new ForkJoinPool();
+    }
+
+    private ParallelSort() {
+        throw new AssertionError("Trying to instanciate ParallelSort");
+    }
+
+    /**
+     * Returns the pool on which sorts and other parallel operations
+     * of the file chooser run.
+     * @return
+     */
+    @Nonnull
+    public static ForkJoinPool getPool() {
+        return PoolHolder.POOL;
+    }
+
+    /**
+     * Sorts an array, in parallel if it has more than
+     * {@link #DEFAULT_THRESHOLD} elements.
+     * @param a
+     * @param comparator
+     */
+    public static <T> void sort(@Nonnull T[] a, @Nonnull Comparator<? super T> comparator) {
+        sort(a, comparator, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Sorts an array, in parallel if it has more than
+     * <code>threshold</code> elements.
+     * @param a
+     * @param comparator
+     * @param threshold
+     */
+    public static <T> void sort(@Nonnull T[] a, @Nonnull Comparator<? super T> comparator, int threshold) {
+        threshold = Math.max(threshold, 2);
+
+        if ((a.length <= threshold) || (Runtime.getRuntime().availableProcessors() < 2)) {
+            Arrays.sort(a, comparator);
+
+            return;
+        }
+
+        T[] tmp = Arrays.copyOf(a, a.length);
+        getPool().invoke(new SortTask<T>(a, tmp, 0, a.length, comparator, threshold));
+    }
+
+    @SuppressWarnings("serial")
+    private static class SortTask<T> extends RecursiveAction {
+
+        private final T[] a;
+        private final T[] tmp;
+        private final int lo;
+        private final int hi;
+        private final Comparator<? super T> comparator;
+        private final int threshold;
+
+        public SortTask(T[] a, T[] tmp, int lo, int hi,
+                Comparator<? super T> comparator, int threshold) {
+            this.a = a;
+            this.tmp = tmp;
+            this.lo = lo;
+            this.hi = hi;
+            this.comparator = comparator;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if ((hi - lo) <= threshold) {
+                Arrays.sort(a, lo, hi, comparator);
+
+                return;
+            }
+
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new SortTask<T>(a, tmp, lo, mid, comparator, threshold),
+                    new SortTask<T>(a, tmp, mid, hi, comparator, threshold));
+
+            // Already in order, as is common when re-sorting a listing.
+            if (comparator.compare(a[mid - 1], a[mid]) <= 0) {
+                return;
+            }
+
+            System.arraycopy(a, lo, tmp, lo, hi - lo);
+
+            int i = lo;
+            int j = mid;
+            int k = lo;
+
+            while ((i < mid) && (j < hi)) {
+                if (comparator.compare(tmp[j], tmp[i]) < 0) {
+                    a[k++] = tmp[j++];
+                } else {
+                    a[k++] = tmp[i++];
+                }
+            }
+
+            System.arraycopy(tmp, i, a, k, mid - i);
+            System.arraycopy(tmp, j, a, k + (mid - i), hi - j);
+        }
+    }
+}
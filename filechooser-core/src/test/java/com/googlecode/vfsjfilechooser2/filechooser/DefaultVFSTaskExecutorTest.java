@@ -0,0 +1,91 @@
+package com.googlecode.vfsjfilechooser2.filechooser;
+
+import com.googlecode.vfsjfilechooser2.filechooser.VFSTaskExecutor.TaskType;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import junit.framework.TestCase;
+
+/**
+ * Unit test for the bounded task executor.
+ * @author shevek
+ */
+public class DefaultVFSTaskExecutorTest extends TestCase {
+
+    public DefaultVFSTaskExecutorTest(String testName) {
+        super(testName);
+    }
+
+    /** Waits for a latch, ignoring interrupts, as a slow server might. */
+    private static Runnable await(final CountDownLatch latch) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                boolean done = false;
+                while (!done) {
+                    try {
+                        done = latch.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                    }
+                }
+            }
+        };
+    }
+
+    private static Runnable countDown(final CountDownLatch latch) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        };
+    }
+
+    public void testGroupLimit() throws Exception {
+        DefaultVFSTaskExecutor executor = new DefaultVFSTaskExecutor(8, 1, false);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            executor.submit("sftp://host", TaskType.LISTING, await(release));
+
+            CountDownLatch same = new CountDownLatch(1);
+            executor.submit("sftp://host", TaskType.LISTING, countDown(same));
+            CountDownLatch other = new CountDownLatch(1);
+            executor.submit("sftp://other", TaskType.LISTING, countDown(other));
+
+            assertTrue(other.await(5, TimeUnit.SECONDS));
+            // The second task for the same file system waits for the first.
+            assertFalse(same.await(100, TimeUnit.MILLISECONDS));
+
+            release.countDown();
+            assertTrue(same.await(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    public void testListingsDoNotBlockOtherTasks() throws Exception {
+        DefaultVFSTaskExecutor executor = new DefaultVFSTaskExecutor(8, 1, 1, false);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            executor.submit("sftp://host", TaskType.LISTING, await(release));
+
+            CountDownLatch listed = new CountDownLatch(1);
+            executor.submit("sftp://host", TaskType.LISTING, countDown(listed));
+            CountDownLatch read = new CountDownLatch(1);
+            executor.submit("sftp://host", TaskType.FILE_ACCESS, countDown(read));
+            CountDownLatch sorted = new CountDownLatch(1);
+            executor.submit("sftp://host", TaskType.COMPUTATION, countDown(sorted));
+
+            assertTrue(read.await(5, TimeUnit.SECONDS));
+            assertTrue(sorted.await(5, TimeUnit.SECONDS));
+            // The second listing waits for the first.
+            assertFalse(listed.await(100, TimeUnit.MILLISECONDS));
+
+            release.countDown();
+            assertTrue(listed.await(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.googlecode.vfsjfilechooser2.plaf.basic;
+
+import com.googlecode.vfsjfilechooser2.plaf.basic.DirectoryListingCache.Entry;
+import com.googlecode.vfsjfilechooser2.plaf.basic.DirectoryListingCache.Policy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import junit.framework.TestCase;
+
+/**
+ * Unit test for the cache of directory listings used by the directory model.
+ * @author shevek
+ */
+public class DirectoryListingCacheTest extends TestCase {
+
+    public DirectoryListingCacheTest(String testName) {
+        super(testName);
+    }
+
+    private static List<String> listing(int size) {
+        return Collections.nCopies(size, "x");
+    }
+
+    public void testPolicy() {
+        DirectoryListingCache<String> cache = new DirectoryListingCache<String>(10, 1000);
+        Policy sftp = new Policy(1000, 2000);
+        cache.setPolicy("sftp", sftp);
+        cache.setPolicy("ftp", Policy.DISABLED);
+
+        assertSame(sftp, cache.getPolicy("sftp://host/dir"));
+        assertSame(Policy.DISABLED, cache.getPolicy("ftp://host/dir"));
+        assertEquals(5 * 60 * 1000L, cache.getPolicy("file:///dir").getMaxAgeMillis());
+        assertEquals(0, cache.getPolicy("no-scheme").getFreshMillis());
+
+        // A disabled scheme caches nothing.
+        cache.put("ftp://host/dir", listing(3));
+        assertNull(cache.get("ftp://host/dir"));
+
+        cache.put("sftp://host/dir", Arrays.asList("a", "b"));
+        Entry<String> entry = cache.get("sftp://host/dir");
+        assertEquals(Arrays.asList("a", "b"), entry.getChildren());
+        assertTrue(entry.isFresh());
+
+        cache.setPolicy("sftp", null);
+        assertNotSame(sftp, cache.getPolicy("sftp://host/dir"));
+    }
+
+    public void testExpiry() throws Exception {
+        DirectoryListingCache<String> cache = new DirectoryListingCache<String>(10, 1000);
+        cache.setPolicy("stale", new Policy(50, 60 * 1000L));
+        cache.setPolicy("gone", new Policy(0, 50));
+        cache.put("stale://dir", listing(1));
+        cache.put("gone://dir", listing(1));
+        assertTrue(cache.get("stale://dir").isFresh());
+        assertFalse(cache.get("gone://dir").isFresh());
+
+        Thread.sleep(100);
+        // Shown while the directory is listed again.
+        Entry<String> stale = cache.get("stale://dir");
+        assertNotNull(stale);
+        assertFalse(stale.isFresh());
+        // Evicted once older than the maximum age.
+        assertNull(cache.get("gone://dir"));
+    }
+
+    public void testEviction() {
+        // Each listing weighs its size plus one.
+        DirectoryListingCache<String> cache = new DirectoryListingCache<String>(3, 30);
+        cache.put("file:///a", listing(9));
+        cache.put("file:///b", listing(9));
+        cache.put("file:///c", listing(9));
+        assertNotNull(cache.get("file:///a"));
+
+        // Over the weight; b is the least recently used.
+        cache.put("file:///d", listing(2));
+        assertNull(cache.get("file:///b"));
+        assertNotNull(cache.get("file:///a"));
+        assertNotNull(cache.get("file:///c"));
+        assertNotNull(cache.get("file:///d"));
+
+        // Over the number of directories; a is now the least recently used.
+        cache.put("file:///e", listing(0));
+        assertNull(cache.get("file:///a"));
+        assertNotNull(cache.get("file:///e"));
+
+        // Replacing a listing does not count it twice.
+        cache.put("file:///e", listing(1));
+        assertNotNull(cache.get("file:///c"));
+        assertNotNull(cache.get("file:///d"));
+        assertEquals(1, cache.get("file:///e").getChildren().size());
+    }
+
+    public void testTooHeavy() {
+        DirectoryListingCache<String> cache = new DirectoryListingCache<String>(3, 10);
+        cache.put("file:///small", listing(2));
+
+        // Never cached, and evicts nothing to make room.
+        cache.put("file:///large", listing(10));
+        assertNull(cache.get("file:///large"));
+        assertNotNull(cache.get("file:///small"));
+
+        // Replacing a listing with one too large removes it.
+        cache.put("file:///small", listing(10));
+        assertNull(cache.get("file:///small"));
+    }
+}
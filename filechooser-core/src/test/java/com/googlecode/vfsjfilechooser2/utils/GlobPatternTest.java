@@ -0,0 +1,87 @@
+package com.googlecode.vfsjfilechooser2.utils;
+
+import java.util.regex.PatternSyntaxException;
+import junit.framework.TestCase;
+import org.apache.commons.io.FilenameUtils;
+
+/**
+ * Unit test for compiled file name globs.
+ * @author shevek
+ */
+public class GlobPatternTest extends TestCase {
+
+    private static final String[] NAMES = {
+        "a.csv", "b.CSV", ".csv", "csv", "a.b.csv", "a.tar.gz", "x.gz",
+        "file-001.json", "file-1.json", "file-00.json", "README", "a b.txt", "a+b.txt",
+        "a,b.txt", "a.txt", "x[1].log", "x1.log", "x[1"
+    };
+
+    public GlobPatternTest(String testName) {
+        super(testName);
+    }
+
+    /** Checks that a glob matches exactly what FilenameUtils matches. */
+    private static void assertCompatible(String glob) {
+        GlobPattern pattern = GlobPattern.compile(glob);
+        for (String name : NAMES)
+            assertEquals(glob + " on " + name, FilenameUtils.wildcardMatch(name, glob), pattern.matches(name));
+    }
+
+    public void testCompatible() {
+        assertCompatible("*");
+        assertCompatible("*.csv");
+        assertCompatible("*.tar.gz");
+        assertCompatible("README");
+        assertCompatible("file-00*.json");
+        assertCompatible("file-?.json");
+        assertCompatible("*b.txt");
+        assertCompatible("a+b.*");
+        assertCompatible("a,b.txt");
+        assertCompatible("a,*.txt");
+        assertCompatible("x[1].log");
+        assertCompatible("x[?].*");
+        assertCompatible("x[1");
+        assertCompatible("*.log]");
+    }
+
+    public void testMultiple() {
+        GlobPattern pattern = GlobPattern.compile("*.csv; *.parquet;*.json;file-?.*");
+        assertTrue(pattern.matches("a.csv"));
+        assertTrue(pattern.matches("a.parquet"));
+        assertTrue(pattern.matches("file-001.json"));
+        assertTrue(pattern.matches("file-1.txt"));
+        assertFalse(pattern.matches("a.txt"));
+        assertFalse(pattern.matches(null));
+        assertEquals("*.csv; *.parquet;*.json;file-?.*", pattern.toString());
+    }
+
+    public void testLiteralCommaAndBracket() {
+        // A comma does not separate globs.
+        GlobPattern comma = GlobPattern.compile("a,b.txt");
+        assertTrue(comma.matches("a,b.txt"));
+        assertFalse(comma.matches("a"));
+        assertFalse(comma.matches("b.txt"));
+
+        // Brackets are literal unless character classes are asked for.
+        GlobPattern bracket = GlobPattern.compile("x[1].log;*.[ch]");
+        assertTrue(bracket.matches("x[1].log"));
+        assertFalse(bracket.matches("x1.log"));
+        assertTrue(bracket.matches("a.[ch]"));
+        assertFalse(bracket.matches("a.c"));
+        assertTrue(GlobPattern.compile("x[1").matches("x[1"));
+    }
+
+    public void testCharacterClass() {
+        GlobPattern pattern = GlobPattern.compile("file-[0-2].json;[!.]*.txt", true);
+        assertTrue(pattern.matches("file-1.json"));
+        assertFalse(pattern.matches("file-3.json"));
+        assertTrue(pattern.matches("a.txt"));
+        assertFalse(pattern.matches(".a.txt"));
+
+        try {
+            GlobPattern.compile("file-[0-2", true);
+            fail("Accepted an unclosed character class.");
+        } catch (PatternSyntaxException e) {
+        }
+    }
+}
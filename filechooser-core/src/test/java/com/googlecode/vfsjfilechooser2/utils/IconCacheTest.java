@@ -0,0 +1,49 @@
+package com.googlecode.vfsjfilechooser2.utils;
+
+import javax.swing.Icon;
+import javax.swing.ImageIcon;
+import junit.framework.TestCase;
+
+/**
+ * Unit test for the bounded icon cache.
+ * @author shevek
+ */
+public class IconCacheTest extends TestCase {
+
+    public IconCacheTest(String testName) {
+        super(testName);
+    }
+
+    public void testEviction() {
+        IconCache cache = new IconCache(2);
+        Icon a = new ImageIcon();
+        Icon b = new ImageIcon();
+        Icon c = new ImageIcon();
+
+        cache.put("file:a", a);
+        cache.put("file:b", b);
+        // Touch a, so that b is the least recently used.
+        assertSame(a, cache.get("file:a"));
+        cache.put("file:c", c);
+
+        assertEquals(2, cache.size());
+        assertSame(a, cache.get("file:a"));
+        assertNull(cache.get("file:b"));
+        assertSame(c, cache.get("file:c"));
+    }
+
+    public void testCounters() {
+        IconCache cache = new IconCache();
+        assertNull(cache.get("directory"));
+        cache.put("directory", new ImageIcon());
+        cache.get("directory");
+        cache.get("directory");
+
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(2, cache.getHitCount());
+    }
+}
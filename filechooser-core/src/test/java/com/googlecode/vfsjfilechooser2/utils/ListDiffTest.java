@@ -0,0 +1,84 @@
+package com.googlecode.vfsjfilechooser2.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import junit.framework.TestCase;
+
+/**
+ * Unit test for the list difference used by the directory model.
+ * @author shevek
+ */
+public class ListDiffTest extends TestCase {
+
+    public ListDiffTest(String testName) {
+        super(testName);
+    }
+
+    /** Replays the difference the way BasicVFSDirectoryModel does. */
+    private static List<String> apply(List<String> oldList, List<String> newList) {
+        ListDiff<String> diff = ListDiff.compute(oldList, newList);
+        assertTrue(diff.isOrdered());
+
+        List<String> out = new ArrayList<String>(oldList);
+        List<int[]> removed = diff.getRemovedRuns();
+
+        for (int i = removed.size() - 1; i >= 0; i--) {
+            out.subList(removed.get(i)[0], removed.get(i)[1] + 1).clear();
+        }
+
+        assertEquals(out, diff.removeFrom(oldList));
+
+        for (int[] run : diff.getAddedRuns()) {
+            out.addAll(run[0], newList.subList(run[0], run[1] + 1));
+        }
+
+        return out;
+    }
+
+    public void testEqual() {
+        List<String> list = Arrays.asList("a", "b", "c");
+        ListDiff<String> diff = ListDiff.compute(list, new ArrayList<String>(list));
+        assertTrue(diff.isEmpty());
+        assertEquals(3, diff.getCommonCount());
+    }
+
+    public void testAddAndRemove() {
+        List<String> oldList = Arrays.asList("a", "b", "c", "d", "e", "f");
+        List<String> newList = Arrays.asList("a", "a1", "a2", "c", "e", "f", "g");
+        ListDiff<String> diff = ListDiff.compute(oldList, newList);
+
+        assertEquals(2, diff.getRemovedRuns().size());
+        assertEquals(2, diff.getAddedRuns().size());
+        assertTrue(Arrays.equals(new int[]{1, 2}, diff.getAddedRuns().get(0)));
+        assertTrue(Arrays.equals(new int[]{6, 6}, diff.getAddedRuns().get(1)));
+        assertEquals(newList, apply(oldList, newList));
+    }
+
+    public void testFromEmpty() {
+        List<String> newList = Arrays.asList("a", "b");
+        ListDiff<String> diff = ListDiff.compute(new ArrayList<String>(), newList);
+        assertEquals(0, diff.getCommonCount());
+        assertEquals(newList, apply(new ArrayList<String>(), newList));
+        assertEquals(new ArrayList<String>(), apply(newList, new ArrayList<String>()));
+    }
+
+    public void testReplacing() {
+        List<String> oldList = Arrays.asList("a", "b");
+        List<String> newList = Arrays.asList("c", "d", "e");
+        ListDiff<String> diff = ListDiff.replacing(oldList.size(), newList.size());
+        assertEquals(0, diff.getCommonCount());
+        assertFalse(diff.isEmpty());
+        assertTrue(Arrays.equals(new int[]{0, 1}, diff.getRemovedRuns().get(0)));
+        assertTrue(Arrays.equals(new int[]{0, 2}, diff.getAddedRuns().get(0)));
+        assertTrue(ListDiff.replacing(0, 0).isEmpty());
+    }
+
+    public void testReordered() {
+        List<String> oldList = Arrays.asList("a", "b", "c");
+        List<String> newList = Arrays.asList("c", "b", "a");
+        ListDiff<String> diff = ListDiff.compute(oldList, newList);
+        assertFalse(diff.isOrdered());
+        assertFalse(diff.isEmpty());
+    }
+}
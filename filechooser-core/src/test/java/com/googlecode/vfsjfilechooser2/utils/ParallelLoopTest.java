@@ -0,0 +1,60 @@
+package com.googlecode.vfsjfilechooser2.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.TestCase;
+
+/**
+ * Unit test for the parallel loop used for large listings.
+ * @author shevek
+ */
+public class ParallelLoopTest extends TestCase {
+
+    public ParallelLoopTest(String testName) {
+        super(testName);
+    }
+
+    public void testChunks() {
+        final int size = 100000;
+        final int chunkSize = 1000;
+        final int[] squares = new int[size];
+        final List<Integer> starts = Collections.synchronizedList(new ArrayList<Integer>());
+
+        assertTrue(ParallelLoop.run(size, chunkSize, new ParallelLoop.Body() {
+            @Override
+            public void run(int lo, int hi) {
+                assertEquals(0, lo % chunkSize);
+                assertTrue(hi - lo <= chunkSize);
+                starts.add(lo);
+                for (int i = lo; i < hi; i++)
+                    squares[i] = i * i;
+            }
+        }, null));
+
+        assertEquals(ParallelLoop.getChunkCount(size, chunkSize), starts.size());
+        for (int i = 0; i < size; i++)
+            assertEquals(i * i, squares[i]);
+    }
+
+    public void testCancellation() {
+        final AtomicInteger chunks = new AtomicInteger();
+
+        boolean complete = ParallelLoop.run(1000000, 100, new ParallelLoop.Body() {
+            @Override
+            public void run(int lo, int hi) {
+                chunks.incrementAndGet();
+            }
+        }, new ParallelLoop.Cancellation() {
+            @Override
+            public boolean isCancelled() {
+                return chunks.get() >= 10;
+            }
+        });
+
+        assertFalse(complete);
+        // Each thread may start one more chunk before it sees the cancellation.
+        assertTrue(chunks.get() < 10 + Runtime.getRuntime().availableProcessors() * 2);
+    }
+}
@@ -0,0 +1,45 @@
+package com.googlecode.vfsjfilechooser2.utils;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import junit.framework.TestCase;
+
+/**
+ * Unit test for the parallel sort used for large listings.
+ * @author shevek
+ */
+public class ParallelSortTest extends TestCase {
+
+    public ParallelSortTest(String testName) {
+        super(testName);
+    }
+
+    /** Compares only the high bits, so that equal keys test stability. */
+    private static final Comparator<Integer> COARSE = new Comparator<Integer>() {
+        @Override
+        public int compare(Integer a, Integer b) {
+            return (a >> 8) - (b >> 8);
+        }
+    };
+
+    public void testSameAsSequential() {
+        Random random = new Random(42);
+        Integer[] a = new Integer[100000];
+
+        for (int i = 0; i < a.length; i++) {
+            a[i] = random.nextInt(1 << 16);
+        }
+
+        Integer[] expect = a.clone();
+        Arrays.sort(expect, COARSE);
+        ParallelSort.sort(a, COARSE, 1000);
+        assertTrue(Arrays.equals(expect, a));
+    }
+
+    public void testSmall() {
+        Integer[] a = {3, 1, 2};
+        ParallelSort.sort(a, COARSE);
+        assertTrue(Arrays.equals(new Integer[]{3, 1, 2}, a));
+    }
+}
@@ -1,12 +1,466 @@
 package org.anarres.filechooser.impl.nio;
 
+import com.googlecode.vfsjfilechooser2.VFSException;
 import com.googlecode.vfsjfilechooser2.filechooser.AbstractVFSFileSystemView;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSFileAttributes;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSFileChangeListener;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSListingHandler;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSNameFilter;
+import com.googlecode.vfsjfilechooser2.filechooser.WatchServiceDirectoryWatcher;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.DosFileAttributes;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
 
 /**
+ * A file system view over {@link java.nio.file}, for any installed
+ * FileSystemProvider, e.g. the default file system, zipfs or an
+ * in-memory provider.
+ *
+ * Directories are listed with {@link Files#newDirectoryStream(Path)},
+ * and all the attributes of an entry are read with a single call to
+ * {@link Files#readAttributes(Path, Class, LinkOption...)}, using the
+ * POSIX or DOS attribute views where the file system supports them.
+ * Directories are watched with the WatchService of their file system.
  *
  * @author shevek
  */
-public abstract class NioVfsFileSystemView extends AbstractVFSFileSystemView<Path> {
+public class NioVfsFileSystemView extends AbstractVFSFileSystemView<Path> {
+
+    private static final Path[] EMPTY = new Path[0];
+    private final FileSystem fileSystem;
+    private final boolean dos;
+    private final boolean posix;
+    private final String userName = System.getProperty("user.name");
+
+    /**
+     * Constructs a view of the given file system. Paths without a URI
+     * scheme are resolved against it.
+     * @param fileSystem
+     */
+    public NioVfsFileSystemView(@Nonnull FileSystem fileSystem) {
+        this.fileSystem = fileSystem;
+        Set<String> views = fileSystem.supportedFileAttributeViews();
+        // Linux supports a "dos" view too, but its hidden flag is not
+        // what users of that platform expect.
+        this.posix = views.contains("posix");
+        this.dos = !posix && views.contains("dos");
+    }
+
+    /**
+     * Constructs a view of the default file system.
+     */
+    public NioVfsFileSystemView() {
+        this(FileSystems.getDefault());
+    }
+
+    @Nonnull
+    public FileSystem getFileSystem() {
+        return fileSystem;
+    }
+
+    @Override
+    public Class<Path> getFileObjectType() {
+        return Path.class;
+    }
+
+    @Override
+    public Path[] newFileObjectArray(Object... files) {
+        if (files.length == 0)
+            return EMPTY;
+        Path[] out = new Path[files.length];
+        for (int i = 0; i < files.length; i++)
+            out[i] = (Path) files[i];
+        return out;
+    }
+
+    /**
+     * Returns a Path constructed from the given path string, which may
+     * be a URI, e.g. "file:///tmp" or "jar:file:///tmp/a.zip!/".
+     * @param path
+     * @return the path, or null if it cannot be resolved.
+     */
+    @Override
+    public Path createFileObject(String path) {
+        try {
+            if (path.indexOf(':') > 1) {
+                URI uri = URI.create(path);
+                if (uri.getScheme() != null)
+                    return Paths.get(uri);
+            }
+        } catch (RuntimeException e) {
+            // Not a URI, or no provider for it; try it as a path.
+        }
+        try {
+            return fileSystem.getPath(path).toAbsolutePath().normalize();
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public Path createFileObject(Path dir, String filename) {
+        if (dir == null) {
+            return createFileObject(filename);
+        } else {
+            try {
+                return dir.resolve(filename);
+            } catch (RuntimeException e) {
+                return null;
+            }
+        }
+    }
+
+    @Override
+    public Path createNewFolder(Path containingDir) throws VFSException {
+        if (containingDir == null) {
+            throw new VFSException(
+                    "Trying to create a new folder into a non existing folder");
+        }
+
+        // Using NT's default folder name
+        Path newFolder = createFileObject(containingDir, newFolderString);
+
+        // avoid creating a folder called New Folder so we loop as in the
+        // Windows FileSystemView
+        for (int i = 1; exists(newFolder); i++) {
+            newFolder = createFileObject(containingDir,
+                    MessageFormat.format(newFolderNextString, new Object[]{i}));
+        }
+
+        try {
+            return Files.createDirectory(newFolder);
+        } catch (IOException e) {
+            throw new VFSException(e);
+        }
+    }
+
+    @Override
+    public void rename(Path from, Path to) throws VFSException {
+        try {
+            Files.move(from, to);
+        } catch (IOException e) {
+            throw new VFSException(e);
+        }
+    }
+
+    /**
+     * Gets the list of shown (i.e. not hidden) files.
+     * @param dir
+     * @param useFileHiding
+     * @return
+     */
+    @Override
+    public Path[] getChildren(Path dir, boolean useFileHiding) {
+        final List<Path> out = new ArrayList<Path>();
+        listChildren(dir, useFileHiding, new VFSListingHandler<Path>() {
+            @Override
+            public boolean handle(Path child) {
+                out.add(child);
+                return true;
+            }
+        });
+        return out.toArray(EMPTY);
+    }
+
+    /**
+     * Passes the entries to the handler as the directory stream
+     * returns them.
+     * @param dir
+     * @param useFileHiding
+     * @param handler
+     */
+    @Override
+    public void listChildren(Path dir, boolean useFileHiding, VFSListingHandler<Path> handler) {
+        listChildren(dir, useFileHiding, null, handler);
+    }
+
+    private void listChildren(Path dir, boolean useFileHiding,
+            @CheckForNull DirectoryStream.Filter<Path> filter, VFSListingHandler<Path> handler) {
+        try {
+            DirectoryStream<Path> stream = (filter == null)
+                    ? Files.newDirectoryStream(dir) : Files.newDirectoryStream(dir, filter);
+            try {
+                for (Path child : stream) {
+                    if (useFileHiding && isHiddenFile(child))
+                        continue;
+                    if (!handler.handle(child))
+                        return;
+                }
+            } finally {
+                stream.close();
+            }
+        } catch (IOException e) {
+            // Same as an empty directory, as in the other views.
+        } catch (DirectoryIteratorException e) {
+            // The directory went away while it was being listed.
+        }
+    }
+
+    /**
+     * Gets the list of shown (i.e. not hidden) files, reading the
+     * attributes of each entry with one call.
+     * @param dir
+     * @param useFileHiding
+     * @return
+     */
+    @Override
+    public List<VFSFileAttributes<Path>> getChildAttributes(Path dir, final boolean useFileHiding) {
+        final List<VFSFileAttributes<Path>> out = new ArrayList<VFSFileAttributes<Path>>();
+        listChildren(dir, false, new VFSListingHandler<Path>() {
+            @Override
+            public boolean handle(Path child) {
+                VFSFileAttributes<Path> attributes = getAttributes(child);
+                if (!useFileHiding || !attributes.isHidden())
+                    out.add(attributes);
+                return true;
+            }
+        });
+        return out;
+    }
+
+    /**
+     * Gets the list of shown files which pass a name filter, applying
+     * the filter to the directory stream, so that the attributes of a
+     * rejected entry are never read. Only an entry whose name does not
+     * match is checked for being a directory.
+     * @param dir
+     * @param useFileHiding
+     * @param filter
+     * @return
+     */
+    @Override
+    public List<VFSFileAttributes<Path>> getChildAttributes(Path dir, final boolean useFileHiding, final VFSNameFilter filter) {
+        final List<VFSFileAttributes<Path>> out = new ArrayList<VFSFileAttributes<Path>>();
+        listChildren(dir, false, new DirectoryStream.Filter<Path>() {
+            @Override
+            public boolean accept(Path entry) {
+                return filter.acceptName(getName(entry))
+                        || (filter.isDirectoriesIncluded() && Files.isDirectory(entry));
+            }
+        }, new VFSListingHandler<Path>() {
+            @Override
+            public boolean handle(Path child) {
+                VFSFileAttributes<Path> attributes = getAttributes(child);
+                if (!useFileHiding || !attributes.isHidden())
+                    out.add(attributes);
+                return true;
+            }
+        });
+        return out;
+    }
+
+    /**
+     * Reads all the attributes of a file with a single call, using the
+     * richest attribute view supported by the file system.
+     *
+     * With POSIX attributes, writability is derived from the permission
+     * bits, and does not account for group membership or access control
+     * lists; {@link #isWritable(Path)} asks the file system.
+     *
+     * @param f
+     * @return
+     */
+    @Override
+    public VFSFileAttributes<Path> getAttributes(Path f) {
+        String name = getName(f);
+        BasicFileAttributes attributes = readAttributes(f);
+        // The URL is computed only if it is asked for, as Path.toUri()
+        // reads the attributes again to mark directories.
+        if (attributes == null)
+            return new VFSFileAttributes<Path>(this, f, name,
+                    false, false, 0, 0, isNameHidden(name), false);
+
+        boolean hidden;
+        boolean writable;
+        if (attributes instanceof DosFileAttributes) {
+            DosFileAttributes d = (DosFileAttributes) attributes;
+            hidden = d.isHidden();
+            writable = !d.isReadOnly();
+        } else if (attributes instanceof PosixFileAttributes) {
+            PosixFileAttributes p = (PosixFileAttributes) attributes;
+            Set<PosixFilePermission> permissions = p.permissions();
+            hidden = isNameHidden(name);
+            if (userName != null && userName.equals(p.owner().getName()))
+                writable = permissions.contains(PosixFilePermission.OWNER_WRITE);
+            else
+                writable = permissions.contains(PosixFilePermission.GROUP_WRITE)
+                        || permissions.contains(PosixFilePermission.OTHERS_WRITE);
+        } else {
+            hidden = isNameHidden(name);
+            writable = Files.isWritable(f);
+        }
+
+        boolean file = attributes.isRegularFile();
+        return new VFSFileAttributes<Path>(this, f, name,
+                attributes.isDirectory(), file,
+                file ? attributes.size() : 0,
+                attributes.lastModifiedTime().toMillis(),
+                hidden, writable);
+    }
+
+    /**
+     * Reads the attributes of a file, following links, or of the link
+     * itself if it is broken.
+     */
+    @CheckForNull
+    private BasicFileAttributes readAttributes(@Nonnull Path f) {
+        Class<? extends BasicFileAttributes> type = posix ? PosixFileAttributes.class
+                : dos ? DosFileAttributes.class
+                : BasicFileAttributes.class;
+        try {
+            return Files.readAttributes(f, type);
+        } catch (IOException e) {
+        } catch (RuntimeException e) {
+        }
+        try {
+            return Files.readAttributes(f, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (IOException e) {
+            return null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Watches a directory using the WatchService of its file system.
+     * @param dir
+     * @param listener
+     * @return the watch, or null if the file system has no WatchService,
+     *  e.g. zipfs.
+     */
+    @Override
+    public Closeable watchDirectory(Path dir, VFSFileChangeListener<Path> listener) {
+        return WatchServiceDirectoryWatcher.watch(dir, this, dir, listener);
+    }
+
+    private static boolean isNameHidden(@Nonnull String name) {
+        return name.startsWith(".");
+    }
+
+    @Override
+    public Path getParentDirectory(Path dir) {
+        return dir.toAbsolutePath().getParent();
+    }
+
+    /**
+     * Returns the root directories of the file system of the given path.
+     * @param fo
+     * @return
+     */
+    @Override
+    public Path[] getRoots(Path fo) {
+        List<Path> roots = new ArrayList<Path>();
+        Iterator<Path> it = fo.getFileSystem().getRootDirectories().iterator();
+        while (it.hasNext())
+            roots.add(it.next());
+        return roots.toArray(EMPTY);
+    }
+
+    @Override
+    public String getUrl(Path f) {
+        return f.toUri().toString();
+    }
+
+    @Override
+    public String getName(Path f) {
+        Path name = f.getFileName();
+        if (name == null)
+            return f.toString();
+        return name.toString();
+    }
+
+    @Override
+    public boolean exists(Path file) {
+        return Files.exists(file);
+    }
+
+    @Override
+    public boolean isFile(Path f) {
+        return Files.isRegularFile(f);
+    }
+
+    @Override
+    public boolean isDirectory(Path f) {
+        return Files.isDirectory(f);
+    }
+
+    @Override
+    public boolean isWritable(Path f) {
+        return Files.isWritable(f);
+    }
+
+    @Override
+    public long getSize(Path f) {
+        try {
+            if (!isFile(f))
+                return 0;
+            return Files.size(f);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public long getLastModifiedTime(Path f) {
+        try {
+            return Files.getLastModifiedTime(f).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public boolean isHiddenFile(Path f) {
+        try {
+            return Files.isHidden(f);
+        } catch (IOException e) {
+            return isNameHidden(getName(f));
+        }
+    }
+
+    @Override
+    public Path getHomeDirectory() {
+        if (fileSystem != FileSystems.getDefault())
+            return getDefaultRoot();
+        return super.getHomeDirectory();
+    }
+
+    @Override
+    public Path getDefaultDirectory() {
+        if (fileSystem != FileSystems.getDefault())
+            return getDefaultRoot();
+        return super.getDefaultDirectory();
+    }
+
+    @Nonnull
+    private Path getDefaultRoot() {
+        Iterator<Path> it = fileSystem.getRootDirectories().iterator();
+        if (it.hasNext())
+            return it.next();
+        return fileSystem.getPath("/");
+    }
 
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + fileSystem + ")";
+    }
 }
@@ -0,0 +1,165 @@
+package org.anarres.filechooser.impl.nio;
+
+import com.googlecode.vfsjfilechooser2.filechooser.VFSFileAttributes;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSFileChangeListener;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSNameFilter;
+import com.googlecode.vfsjfilechooser2.utils.GlobPattern;
+import java.io.Closeable;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import junit.framework.TestCase;
+
+/**
+ * Unit test for the NIO file system view.
+ * @author shevek
+ */
+public class NioVfsFileSystemViewTest extends TestCase {
+
+    private Path root;
+
+    public NioVfsFileSystemViewTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        root = Files.createTempDirectory("nio-view-test");
+        Files.createDirectory(root.resolve("dir"));
+        Files.write(root.resolve("file.txt"), new byte[]{1, 2, 3});
+        Files.write(root.resolve(".hidden"), new byte[0]);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        Files.delete(root.resolve("dir"));
+        Files.delete(root.resolve("file.txt"));
+        Files.delete(root.resolve(".hidden"));
+        Files.delete(root);
+    }
+
+    private static Map<String, VFSFileAttributes<Path>> byName(List<VFSFileAttributes<Path>> list) {
+        Map<String, VFSFileAttributes<Path>> out = new HashMap<String, VFSFileAttributes<Path>>();
+        for (VFSFileAttributes<Path> a : list)
+            out.put(a.getName(), a);
+        return out;
+    }
+
+    public void testChildAttributes() {
+        NioVfsFileSystemView view = new NioVfsFileSystemView();
+
+        Map<String, VFSFileAttributes<Path>> all = byName(view.getChildAttributes(root, false));
+        assertEquals(3, all.size());
+        assertTrue(all.get("dir").isDirectory());
+        assertTrue(all.get("file.txt").isFile());
+        assertEquals(3, all.get("file.txt").getSize());
+        assertTrue(all.get(".hidden").isHidden());
+        // Computed on demand, the same as the view computes it.
+        assertEquals(view.getUrl(root.resolve("dir")), all.get("dir").getUrl());
+        assertEquals(view.getUrl(root.resolve("file.txt")), all.get("file.txt").getUrl());
+
+        assertEquals(2, view.getChildAttributes(root, true).size());
+        assertEquals(2, view.getChildren(root, true).length);
+    }
+
+    public void testBrokenLink() throws Exception {
+        NioVfsFileSystemView view = new NioVfsFileSystemView();
+        Path link = Files.createSymbolicLink(root.resolve("broken"), root.resolve("missing"));
+        try {
+            VFSFileAttributes<Path> a = byName(view.getChildAttributes(root, false)).get("broken");
+            assertFalse(a.isDirectory());
+            // Not a file either, as isFile() agrees.
+            assertFalse(a.isFile());
+            assertEquals(view.isFile(link), a.isFile());
+        } finally {
+            Files.delete(link);
+        }
+    }
+
+    public void testFilteredChildAttributes() {
+        NioVfsFileSystemView view = new NioVfsFileSystemView();
+        GlobPattern pattern = GlobPattern.compile("*.txt");
+
+        Map<String, VFSFileAttributes<Path>> withDirectories = byName(view.getChildAttributes(root, false, new VFSNameFilter(pattern, true)));
+        assertEquals(withDirectories.keySet(), new HashSet<String>(Arrays.asList("dir", "file.txt")));
+        assertEquals(3, withDirectories.get("file.txt").getSize());
+
+        Map<String, VFSFileAttributes<Path>> files = byName(view.getChildAttributes(root, false, new VFSNameFilter(pattern, false)));
+        assertEquals(Collections.singleton("file.txt"), files.keySet());
+    }
+
+    public void testUrl() {
+        NioVfsFileSystemView view = new NioVfsFileSystemView();
+        Path file = root.resolve("file.txt");
+        assertEquals(file, view.createFileObject(view.getUrl(file)));
+        assertEquals(root, view.getParentDirectory(file));
+        assertEquals(file, view.createFileObject(root, "file.txt"));
+    }
+
+    public void testZipFileSystem() throws Exception {
+        Path zip = root.resolve("test.zip");
+        URI uri = URI.create("jar:" + zip.toUri());
+        FileSystem fs = FileSystems.newFileSystem(uri, Collections.singletonMap("create", "true"));
+        try {
+            OutputStream out = Files.newOutputStream(fs.getPath("/entry.txt"));
+            out.write(new byte[]{1, 2});
+            out.close();
+
+            NioVfsFileSystemView view = new NioVfsFileSystemView(fs);
+            Path top = view.getDefaultDirectory();
+            List<VFSFileAttributes<Path>> list = view.getChildAttributes(top, true);
+            assertEquals(1, list.size());
+            assertEquals("entry.txt", list.get(0).getName());
+            assertEquals(2, list.get(0).getSize());
+        } finally {
+            fs.close();
+            Files.delete(zip);
+        }
+    }
+
+    public void testWatchDirectory() throws Exception {
+        NioVfsFileSystemView view = new NioVfsFileSystemView();
+        final BlockingQueue<String> changes = new LinkedBlockingQueue<String>();
+        Closeable watch = view.watchDirectory(root, new VFSFileChangeListener<Path>() {
+            @Override
+            public void fileCreated(Path file) {
+                changes.add("created " + file.getFileName());
+            }
+
+            @Override
+            public void fileDeleted(Path file) {
+                changes.add("deleted " + file.getFileName());
+            }
+
+            @Override
+            public void fileChanged(Path file) {
+            }
+
+            @Override
+            public void changesLost(Path directory) {
+            }
+        });
+        assertNotNull(watch);
+        try {
+            Path file = root.resolve("watched.txt");
+            Files.write(file, new byte[0]);
+            assertEquals("created watched.txt", changes.poll(30, TimeUnit.SECONDS));
+            Files.delete(file);
+            assertEquals("deleted watched.txt", changes.poll(30, TimeUnit.SECONDS));
+        } finally {
+            watch.close();
+        }
+    }
+}
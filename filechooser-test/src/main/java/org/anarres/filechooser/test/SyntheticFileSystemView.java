@@ -0,0 +1,764 @@
+package org.anarres.filechooser.test;
+
+import com.googlecode.vfsjfilechooser2.VFSException;
+import com.googlecode.vfsjfilechooser2.filechooser.AbstractVFSFileSystemView;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSFileAttributes;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSFileChangeListener;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSListingHandler;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSNameFilter;
+import java.io.Closeable;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+/**
+ * An in-memory file system view for tests and benchmarks, which behaves
+ * like a slow, unreliable remote file system.
+ *
+ * Files are absolute path strings, e.g. "/dir-0/file-1.txt". Trees may
+ * be built entry by entry, or generated with {@link #generate}.
+ *
+ * Each {@link Operation} which a remote file system would perform as a
+ * round trip may be given a latency, a random jitter and a failure
+ * rate, and is counted, so that tests can assert how many remote
+ * operations a UI action causes. Operations which only manipulate
+ * paths, e.g. {@link #getName} or {@link #getParentDirectory}, are
+ * free and are not counted.
+ *
+ * A failed operation returns what the other views return when the
+ * file system reports an error: an empty listing, false or 0. Creating
+ * or renaming a folder throws a {@link VFSException}. If
+ * {@link #setThrowOnFailure} is set, failed operations throw an
+ * {@link InjectedFailureException} instead.
+ *
+ * Directories may be watched, as a local file system would allow.
+ * Changes made through the view or by the methods which build the tree
+ * are reported to the watchers of the parent directory, on the thread
+ * which made the change.
+ *
+ * @author shevek
+ */
+public class SyntheticFileSystemView extends AbstractVFSFileSystemView<String> {
+
+    /** The operations which may be delayed, failed and counted. */
+    public static enum Operation {
+
+        GET_CHILDREN,
+        LIST_CHILDREN,
+        GET_CHILD_ATTRIBUTES,
+        GET_FILTERED_CHILD_ATTRIBUTES,
+        GET_ATTRIBUTES,
+        EXISTS,
+        IS_FILE,
+        IS_DIRECTORY,
+        IS_HIDDEN_FILE,
+        IS_WRITABLE,
+        GET_SIZE,
+        GET_LAST_MODIFIED_TIME,
+        CREATE_NEW_FOLDER,
+        RENAME
+    }
+
+    /** Thrown by failed operations if {@link #setThrowOnFailure} is set. */
+    public static class InjectedFailureException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+        private final Operation operation;
+
+        public InjectedFailureException(@Nonnull Operation operation, @Nonnull String path) {
+            super("Injected failure in " + operation + " of " + path);
+            this.operation = operation;
+        }
+
+        @Nonnull
+        public Operation getOperation() {
+            return operation;
+        }
+    }
+
+    private static enum Change {
+
+        CREATED, DELETED, CHANGED
+    }
+
+    private static class Profile {
+
+        private volatile long latencyMillis;
+        private volatile long jitterMillis;
+        private volatile double failureRate;
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+    }
+
+    private static class Node {
+
+        @CheckForNull
+        private final List<String> children;
+        private long size;
+        private long lastModifiedTime;
+        private boolean writable = true;
+
+        public Node(boolean directory, long size, long lastModifiedTime) {
+            this.children = directory ? new ArrayList<String>() : null;
+            this.size = size;
+            this.lastModifiedTime = lastModifiedTime;
+        }
+
+        public boolean isDirectory() {
+            return children != null;
+        }
+    }
+    public static final String SCHEME = "synthetic://";
+    public static final String ROOT = "/";
+    private static final String[] EMPTY = new String[0];
+    private static final String[] EXTENSIONS = {"txt", "csv", "json", "parquet", "dat"};
+    /** 2014-01-01T00:00:00Z, so that generated times are stable. */
+    private static final long BASE_TIME = 1388534400000L;
+    private final Map<String, Node> nodes = new HashMap<String, Node>();
+    private final Map<Operation, Profile> profiles = new EnumMap<Operation, Profile>(Operation.class);
+    private final Map<String, List<VFSFileChangeListener<String>>> watchers = new HashMap<String, List<VFSFileChangeListener<String>>>();
+    private final Random random = new Random(0);
+    private volatile boolean throwOnFailure = false;
+    private volatile boolean listingAttributes = true;
+
+    public SyntheticFileSystemView() {
+        for (Operation operation : Operation.values())
+            profiles.put(operation, new Profile());
+        nodes.put(ROOT, new Node(true, 0, BASE_TIME));
+    }
+
+    /**
+     * Sets the latency of an operation. Each call sleeps for the latency
+     * plus a uniformly distributed random time of up to the jitter.
+     * @param operation
+     * @param latencyMillis
+     * @param jitterMillis
+     */
+    public void setLatency(@Nonnull Operation operation, long latencyMillis, long jitterMillis) {
+        Profile profile = profiles.get(operation);
+        profile.latencyMillis = latencyMillis;
+        profile.jitterMillis = jitterMillis;
+    }
+
+    /** Sets the latency of all operations. */
+    public void setLatency(long latencyMillis, long jitterMillis) {
+        for (Operation operation : Operation.values())
+            setLatency(operation, latencyMillis, jitterMillis);
+    }
+
+    /**
+     * Sets the probability that a call to the given operation fails.
+     * @param operation
+     * @param failureRate between 0 (never) and 1 (always).
+     */
+    public void setFailureRate(@Nonnull Operation operation, double failureRate) {
+        profiles.get(operation).failureRate = failureRate;
+    }
+
+    /** Sets the failure rate of all operations. */
+    public void setFailureRate(double failureRate) {
+        for (Operation operation : Operation.values())
+            setFailureRate(operation, failureRate);
+    }
+
+    /**
+     * Sets whether failed operations throw an
+     * {@link InjectedFailureException}, rather than returning the
+     * result of a failed call.
+     */
+    public void setThrowOnFailure(boolean throwOnFailure) {
+        this.throwOnFailure = throwOnFailure;
+    }
+
+    /**
+     * Sets whether the view lists a directory and the attributes of its
+     * entries as a single operation. If not, it leaves them to the
+     * defaults of {@link AbstractVFSFileSystemView}, as a view which
+     * does not override them would.
+     */
+    public void setListingAttributes(boolean listingAttributes) {
+        this.listingAttributes = listingAttributes;
+    }
+
+    /** Seeds the random source for jitter and failures. */
+    public void setSeed(long seed) {
+        random.setSeed(seed);
+    }
+
+    /** Returns the number of calls to the given operation since the last reset. */
+    public long getCallCount(@Nonnull Operation operation) {
+        return profiles.get(operation).calls.get();
+    }
+
+    /** Returns the number of calls to all operations since the last reset. */
+    public long getCallCount() {
+        long count = 0;
+        for (Profile profile : profiles.values())
+            count += profile.calls.get();
+        return count;
+    }
+
+    /** Returns the number of calls to the given operation which failed since the last reset. */
+    public long getFailureCount(@Nonnull Operation operation) {
+        return profiles.get(operation).failures.get();
+    }
+
+    /** Returns a snapshot of the call counts of all operations. */
+    @Nonnull
+    public Map<Operation, Long> getCallCounts() {
+        Map<Operation, Long> out = new EnumMap<Operation, Long>(Operation.class);
+        for (Map.Entry<Operation, Profile> e : profiles.entrySet())
+            out.put(e.getKey(), e.getValue().calls.get());
+        return out;
+    }
+
+    /** Resets the call and failure counts of all operations. */
+    public void resetCounts() {
+        for (Profile profile : profiles.values()) {
+            profile.calls.set(0);
+            profile.failures.set(0);
+        }
+    }
+
+    /**
+     * Counts a call, sleeps for the latency of the operation, and decides
+     * whether the call fails.
+     *
+     * @return false if the call should fail.
+     */
+    private boolean call(@Nonnull Operation operation, @Nonnull String path) {
+        Profile profile = profiles.get(operation);
+        profile.calls.incrementAndGet();
+
+        long delay = profile.latencyMillis;
+        long jitter = profile.jitterMillis;
+        if (jitter > 0)
+            delay += (long) (random.nextDouble() * jitter);
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        double failureRate = profile.failureRate;
+        if (failureRate > 0 && random.nextDouble() < failureRate) {
+            profile.failures.incrementAndGet();
+            if (throwOnFailure)
+                throw new InjectedFailureException(operation, path);
+            return false;
+        }
+        return true;
+    }
+
+    @Nonnull
+    private Node getDirectoryNode(@Nonnull String dir) {
+        Node node = nodes.get(dir);
+        if (node == null || !node.isDirectory())
+            throw new IllegalArgumentException("No such directory: " + dir);
+        return node;
+    }
+
+    @Nonnull
+    private String add(@Nonnull String parent, @Nonnull String name, @Nonnull Node node) {
+        Node directory = getDirectoryNode(parent);
+        String path = createFileObject(parent, name);
+        if (nodes.containsKey(path))
+            throw new IllegalArgumentException("File exists: " + path);
+        directory.children.add(path);
+        nodes.put(path, node);
+        return path;
+    }
+
+    /**
+     * Adds a directory. This is not an operation, and is never delayed.
+     * @return the path of the new directory.
+     */
+    @Nonnull
+    public String addDirectory(@Nonnull String parent, @Nonnull String name) {
+        String path;
+        synchronized (this) {
+            path = add(parent, name, new Node(true, 0, BASE_TIME));
+        }
+        fire(Change.CREATED, path);
+        return path;
+    }
+
+    /**
+     * Adds a file. This is not an operation, and is never delayed.
+     * @return the path of the new file.
+     */
+    @Nonnull
+    public String addFile(@Nonnull String parent, @Nonnull String name, long size, long lastModifiedTime) {
+        String path;
+        synchronized (this) {
+            path = add(parent, name, new Node(false, size, lastModifiedTime));
+        }
+        fire(Change.CREATED, path);
+        return path;
+    }
+
+    /**
+     * Generates a tree below the given directory. Each generated
+     * directory contains the given number of files and, above the given
+     * depth, the given number of subdirectories.
+     *
+     * Directories are named "dir-N" and files "file-N.ext", with a
+     * variety of extensions. Sizes and times depend only on the path.
+     *
+     * @param parent the directory to populate.
+     * @param depth the number of levels of directories to generate below the parent.
+     * @param directories the number of subdirectories of each directory.
+     * @param files the number of files in each directory.
+     * @return the number of entries generated.
+     */
+    public int generate(@Nonnull String parent, int depth, int directories, int files) {
+        List<String> created = new ArrayList<String>();
+        synchronized (this) {
+            generate(parent, depth, directories, files, created);
+        }
+        for (String path : created)
+            fire(Change.CREATED, path);
+        return created.size();
+    }
+
+    private void generate(@Nonnull String parent, int depth, int directories, int files, @Nonnull List<String> created) {
+        for (int i = 0; i < files; i++) {
+            String name = "file-" + i + "." + EXTENSIONS[i % EXTENSIONS.length];
+            long hash = createFileObject(parent, name).hashCode() & 0x7fffffffL;
+            created.add(add(parent, name, new Node(false, hash % 1048576, BASE_TIME + hash * 1000L)));
+        }
+        if (depth > 0) {
+            for (int i = 0; i < directories; i++) {
+                String dir = add(parent, "dir-" + i, new Node(true, 0, BASE_TIME));
+                created.add(dir);
+                generate(dir, depth - 1, directories, files, created);
+            }
+        }
+    }
+
+    /**
+     * Deletes a file or a directory and everything below it. This is not
+     * an operation, and is never delayed.
+     * @return true if the path existed.
+     */
+    public boolean delete(@Nonnull String path) {
+        synchronized (this) {
+            if (ROOT.equals(path) || !nodes.containsKey(path))
+                return false;
+            Node parent = nodes.get(getParentDirectory(path));
+            parent.children.remove(path);
+            removeTree(path);
+        }
+        fire(Change.DELETED, path);
+        return true;
+    }
+
+    private void removeTree(@Nonnull String path) {
+        Node node = nodes.remove(path);
+        if (node != null && node.isDirectory())
+            for (String child : node.children)
+                removeTree(child);
+    }
+
+    /** Changes the size and modification time of a file. */
+    public void setAttributes(@Nonnull String path, long size, long lastModifiedTime) {
+        synchronized (this) {
+            Node node = nodes.get(path);
+            if (node == null)
+                throw new IllegalArgumentException("No such file: " + path);
+            node.size = size;
+            node.lastModifiedTime = lastModifiedTime;
+        }
+        fire(Change.CHANGED, path);
+    }
+
+    /** Changes whether a file or directory is writable. */
+    public void setWritable(@Nonnull String path, boolean writable) {
+        synchronized (this) {
+            Node node = nodes.get(path);
+            if (node == null)
+                throw new IllegalArgumentException("No such file: " + path);
+            node.writable = writable;
+        }
+        fire(Change.CHANGED, path);
+    }
+
+    /**
+     * Watches a directory. Watching is not an operation, and is never
+     * delayed, counted or failed.
+     */
+    @Override
+    public Closeable watchDirectory(final String dir, final VFSFileChangeListener<String> listener) {
+        synchronized (watchers) {
+            List<VFSFileChangeListener<String>> list = watchers.get(dir);
+            if (list == null) {
+                list = new CopyOnWriteArrayList<VFSFileChangeListener<String>>();
+                watchers.put(dir, list);
+            }
+            list.add(listener);
+        }
+        return new Closeable() {
+            @Override
+            public void close() {
+                synchronized (watchers) {
+                    List<VFSFileChangeListener<String>> list = watchers.get(dir);
+                    if (list != null && list.remove(listener) && list.isEmpty())
+                        watchers.remove(dir);
+                }
+            }
+        };
+    }
+
+    /** Returns the number of listeners watching the given directory. */
+    public int getWatcherCount(@Nonnull String dir) {
+        synchronized (watchers) {
+            List<VFSFileChangeListener<String>> list = watchers.get(dir);
+            return (list == null) ? 0 : list.size();
+        }
+    }
+
+    /**
+     * Reports a change to the watchers of the parent directory, and
+     * the loss of a deleted directory to its own watchers.
+     */
+    private void fire(@Nonnull Change change, @Nonnull String path) {
+        List<VFSFileChangeListener<String>> list;
+        if (change == Change.DELETED) {
+            synchronized (watchers) {
+                list = watchers.get(path);
+            }
+            if (list != null)
+                for (VFSFileChangeListener<String> listener : list)
+                    listener.changesLost(path);
+        }
+        synchronized (watchers) {
+            list = watchers.get(getParentDirectory(path));
+        }
+        if (list == null)
+            return;
+        for (VFSFileChangeListener<String> listener : list) {
+            switch (change) {
+                case CREATED:
+                    listener.fileCreated(path);
+                    break;
+                case DELETED:
+                    listener.fileDeleted(path);
+                    break;
+                default:
+                    listener.fileChanged(path);
+                    break;
+            }
+        }
+    }
+
+    @Override
+    public Class<String> getFileObjectType() {
+        return String.class;
+    }
+
+    @Override
+    public String[] newFileObjectArray(Object... files) {
+        if (files.length == 0)
+            return EMPTY;
+        String[] out = new String[files.length];
+        for (int i = 0; i < files.length; i++)
+            out[i] = (String) files[i];
+        return out;
+    }
+
+    @Override
+    public String createFileObject(String dir, String filename) {
+        if (dir == null)
+            return createFileObject(filename);
+        if (filename.equals(".."))
+            return getParentDirectory(dir);
+        if (filename.startsWith(ROOT))
+            return createFileObject(filename);
+        return dir.equals(ROOT) ? ROOT + filename : dir + "/" + filename;
+    }
+
+    /**
+     * Returns the path for the given string, which may be an absolute
+     * path or a URL with the "synthetic://" scheme.
+     */
+    @Override
+    public String createFileObject(String path) {
+        if (path.startsWith(SCHEME))
+            path = path.substring(SCHEME.length());
+        if (!path.startsWith(ROOT))
+            path = ROOT + path;
+        if (path.length() > 1 && path.endsWith("/"))
+            path = path.substring(0, path.length() - 1);
+        return path;
+    }
+
+    @Override
+    public String createNewFolder(String containingDir) throws VFSException {
+        if (containingDir == null)
+            throw new VFSException(
+                    "Trying to create a new folder into a non existing folder");
+        if (!call(Operation.CREATE_NEW_FOLDER, containingDir))
+            throw new VFSException("Failed to create a folder in " + containingDir);
+        String path;
+        synchronized (this) {
+            Node directory = nodes.get(containingDir);
+            if (directory == null || !directory.isDirectory())
+                throw new VFSException("No such directory: " + containingDir);
+            String name = newFolderString;
+            for (int i = 1; nodes.containsKey(createFileObject(containingDir, name)); i++)
+                name = MessageFormat.format(newFolderNextString, new Object[]{i});
+            path = add(containingDir, name, new Node(true, 0, System.currentTimeMillis()));
+        }
+        fire(Change.CREATED, path);
+        return path;
+    }
+
+    @Override
+    public void rename(String from, String to) throws VFSException {
+        if (!call(Operation.RENAME, from))
+            throw new VFSException("Failed to rename " + from + " to " + to);
+        synchronized (this) {
+            if (!nodes.containsKey(from))
+                throw new VFSException("No such file: " + from);
+            if (nodes.containsKey(to))
+                throw new VFSException("File exists: " + to);
+            Node parent = nodes.get(getParentDirectory(to));
+            if (parent == null || !parent.isDirectory())
+                throw new VFSException("No such directory: " + getParentDirectory(to));
+            nodes.get(getParentDirectory(from)).children.remove(from);
+            parent.children.add(to);
+            move(from, to);
+        }
+        fire(Change.DELETED, from);
+        fire(Change.CREATED, to);
+    }
+
+    private void move(@Nonnull String from, @Nonnull String to) {
+        Node node = nodes.remove(from);
+        nodes.put(to, node);
+        if (node.isDirectory()) {
+            for (int i = 0; i < node.children.size(); i++) {
+                String child = node.children.get(i);
+                String moved = createFileObject(to, getName(child));
+                node.children.set(i, moved);
+                move(child, moved);
+            }
+        }
+    }
+
+    @Nonnull
+    private synchronized List<String> copyChildren(@Nonnull String dir, boolean useFileHiding) {
+        Node node = nodes.get(dir);
+        if (node == null || !node.isDirectory())
+            return Collections.emptyList();
+        List<String> out = new ArrayList<String>(node.children);
+        if (useFileHiding)
+            for (Iterator<String> it = out.iterator(); it.hasNext();)
+                if (isNameHidden(it.next()))
+                    it.remove();
+        return out;
+    }
+
+    @Override
+    public String[] getChildren(String dir, boolean useFileHiding) {
+        if (!call(Operation.GET_CHILDREN, dir))
+            return EMPTY;
+        return copyChildren(dir, useFileHiding).toArray(EMPTY);
+    }
+
+    /**
+     * Lists the directory as a single operation, then passes the
+     * entries to the handler.
+     */
+    @Override
+    public void listChildren(String dir, boolean useFileHiding, VFSListingHandler<String> handler) {
+        if (!call(Operation.LIST_CHILDREN, dir))
+            return;
+        for (String child : copyChildren(dir, useFileHiding))
+            if (!handler.handle(child))
+                return;
+    }
+
+    /**
+     * Lists the directory and the attributes of its entries as a single
+     * operation, as a remote protocol with a combined listing would.
+     */
+    @Override
+    public List<VFSFileAttributes<String>> getChildAttributes(String dir, boolean useFileHiding) {
+        if (!listingAttributes)
+            return super.getChildAttributes(dir, useFileHiding);
+        if (!call(Operation.GET_CHILD_ATTRIBUTES, dir))
+            return Collections.emptyList();
+        synchronized (this) {
+            List<String> children = copyChildren(dir, useFileHiding);
+            List<VFSFileAttributes<String>> out = new ArrayList<VFSFileAttributes<String>>(children.size());
+            for (String child : children)
+                out.add(newAttributes(child, nodes.get(child)));
+            return out;
+        }
+    }
+
+    /**
+     * Lists the directory and the attributes of the entries which pass
+     * the filter as a single operation, as a server which filters the
+     * listing would.
+     */
+    @Override
+    public List<VFSFileAttributes<String>> getChildAttributes(String dir, boolean useFileHiding, VFSNameFilter filter) {
+        if (!listingAttributes)
+            return super.getChildAttributes(dir, useFileHiding, filter);
+        if (!call(Operation.GET_FILTERED_CHILD_ATTRIBUTES, dir))
+            return Collections.emptyList();
+        synchronized (this) {
+            List<VFSFileAttributes<String>> out = new ArrayList<VFSFileAttributes<String>>();
+            for (String child : copyChildren(dir, useFileHiding)) {
+                Node node = nodes.get(child);
+                if (filter.acceptName(getName(child))
+                        || (filter.isDirectoriesIncluded() && node.isDirectory()))
+                    out.add(newAttributes(child, node));
+            }
+            return out;
+        }
+    }
+
+    @Override
+    public VFSFileAttributes<String> getAttributes(String f) {
+        if (!call(Operation.GET_ATTRIBUTES, f))
+            return newAttributes(f, null);
+        synchronized (this) {
+            return newAttributes(f, nodes.get(f));
+        }
+    }
+
+    @Nonnull
+    private VFSFileAttributes<String> newAttributes(@Nonnull String f, @CheckForNull Node node) {
+        String name = getName(f);
+        if (node == null)
+            return new VFSFileAttributes<String>(f, name, getUrl(f),
+                    false, false, 0, 0, isNameHidden(f), false);
+        return new VFSFileAttributes<String>(f, name, getUrl(f),
+                node.isDirectory(), !node.isDirectory(), node.size,
+                node.lastModifiedTime, isNameHidden(f), node.writable);
+    }
+
+    @CheckForNull
+    private synchronized Node getNode(@Nonnull String f) {
+        return nodes.get(f);
+    }
+
+    @Override
+    public String getParentDirectory(String dir) {
+        if (dir.equals(ROOT))
+            return null;
+        int pos = dir.lastIndexOf('/');
+        return (pos == 0) ? ROOT : dir.substring(0, pos);
+    }
+
+    @Override
+    public String[] getRoots(String fo) {
+        return new String[]{ROOT};
+    }
+
+    @Override
+    public String getUrl(String f) {
+        return SCHEME + f;
+    }
+
+    @Override
+    public String getName(String f) {
+        if (f.equals(ROOT))
+            return f;
+        return f.substring(f.lastIndexOf('/') + 1);
+    }
+
+    private boolean isNameHidden(@Nonnull String f) {
+        return getName(f).startsWith(".");
+    }
+
+    @Override
+    public boolean exists(String file) {
+        if (!call(Operation.EXISTS, file))
+            return false;
+        return getNode(file) != null;
+    }
+
+    @Override
+    public boolean isFile(String f) {
+        if (!call(Operation.IS_FILE, f))
+            return false;
+        Node node = getNode(f);
+        return node != null && !node.isDirectory();
+    }
+
+    @Override
+    public boolean isDirectory(String f) {
+        if (!call(Operation.IS_DIRECTORY, f))
+            return false;
+        Node node = getNode(f);
+        return node != null && node.isDirectory();
+    }
+
+    @Override
+    public boolean isHiddenFile(String f) {
+        if (!call(Operation.IS_HIDDEN_FILE, f))
+            return false;
+        return isNameHidden(f);
+    }
+
+    @Override
+    public boolean isWritable(String f) {
+        if (!call(Operation.IS_WRITABLE, f))
+            return false;
+        synchronized (this) {
+            Node node = nodes.get(f);
+            return node != null && node.writable;
+        }
+    }
+
+    @Override
+    public long getSize(String f) {
+        if (!call(Operation.GET_SIZE, f))
+            return 0;
+        synchronized (this) {
+            Node node = nodes.get(f);
+            return (node == null || node.isDirectory()) ? 0 : node.size;
+        }
+    }
+
+    @Override
+    public long getLastModifiedTime(String f) {
+        if (!call(Operation.GET_LAST_MODIFIED_TIME, f))
+            return 0;
+        synchronized (this) {
+            Node node = nodes.get(f);
+            return (node == null) ? 0 : node.lastModifiedTime;
+        }
+    }
+
+    @Override
+    public String getHomeDirectory() {
+        return ROOT;
+    }
+
+    @Override
+    public String getDefaultDirectory() {
+        return ROOT;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + getCallCounts() + ")";
+    }
+}
@@ -0,0 +1,135 @@
+package org.fest.swing.edt;
+
+import com.googlecode.vfsjfilechooser2.filechooser.EdtMonitoringFileSystemView;
+import com.googlecode.vfsjfilechooser2.filechooser.EdtMonitoringFileSystemView.Call;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSFileSystemView;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nonnull;
+
+/**
+ * Understands checking that a file chooser does not access its file
+ * system from the event dispatch thread, in the manner of
+ * <code>{@link FailOnThreadViolationRepaintManager}</code>.
+ * <p>
+ * Wrap the file system view passed to the file chooser, drive the
+ * chooser with a FEST robot, then verify:
+ *
+ * <pre>
+ * FailOnEdtFileSystemAccess edtAccess = new FailOnEdtFileSystemAccess();
+ * VFSJFileChooser chooser = new VFSJFileChooser(edtAccess.wrap(view));
+ * ...
+ * edtAccess.verify();
+ * </pre>
+ *
+ * </p>
+ * <p>
+ * Every access is recorded with the stack of the event dispatch thread.
+ * If <code>failFast</code> is set, each access also throws an
+ * <code>{@link EdtFileSystemAccessError}</code> on the event dispatch
+ * thread, where FEST reports it as an uncaught exception.
+ * </p>
+ *
+ * @author shevek
+ */
+public class FailOnEdtFileSystemAccess implements EdtMonitoringFileSystemView.Listener {
+
+    /** The system property which enables this mode in the GUI tests. */
+    public static final String PROPERTY = "test.failOnEdtAccess";
+
+    /**
+     * Returns whether the GUI tests should fail on file system access
+     * from the event dispatch thread, i.e. whether the system property
+     * <code>test.failOnEdtAccess</code> is set to true.
+     */
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(PROPERTY);
+    }
+
+    /** Thrown when the file system was accessed from the event dispatch thread. */
+    public static class EdtFileSystemAccessError extends AssertionError {
+
+        private static final long serialVersionUID = 1L;
+        private static final int MAX_REPORTED_CALLS = 20;
+
+        public EdtFileSystemAccessError(@Nonnull List<Call> calls) {
+            super(toMessage(calls));
+            initCause(calls.get(0).toThrowable());
+        }
+
+        @Nonnull
+        private static String toMessage(@Nonnull List<Call> calls) {
+            StringBuilder buf = new StringBuilder();
+            buf.append(calls.size()).append(" file system call(s) on the event dispatch thread:");
+            for (int i = 0; i < Math.min(calls.size(), MAX_REPORTED_CALLS); i++) {
+                Call call = calls.get(i);
+                buf.append("\n    ").append(call);
+                StackTraceElement[] stack = call.getStackTrace();
+                if (stack.length > 0)
+                    buf.append("\n        at ").append(stack[0]);
+            }
+            if (calls.size() > MAX_REPORTED_CALLS)
+                buf.append("\n    ...");
+            return buf.toString();
+        }
+    }
+    private final boolean failFast;
+    private final List<Call> calls = new ArrayList<Call>();
+
+    /**
+     * @param failFast whether to throw on the event dispatch thread at each access.
+     */
+    public FailOnEdtFileSystemAccess(boolean failFast) {
+        this.failFast = failFast;
+    }
+
+    public FailOnEdtFileSystemAccess() {
+        this(false);
+    }
+
+    /**
+     * Returns a view which reports accesses to the given view from the
+     * event dispatch thread to this checker.
+     */
+    @Nonnull
+    public <FileObject> EdtMonitoringFileSystemView<FileObject> wrap(@Nonnull VFSFileSystemView<FileObject> view) {
+        EdtMonitoringFileSystemView<FileObject> monitor = new EdtMonitoringFileSystemView<FileObject>(view);
+        monitor.addListener(this);
+        return monitor;
+    }
+
+    @Override
+    public void callOnEdt(Call call) {
+        synchronized (calls) {
+            calls.add(call);
+        }
+        if (failFast)
+            throw new EdtFileSystemAccessError(Collections.singletonList(call));
+    }
+
+    /** Returns the accesses recorded since the last reset. */
+    @Nonnull
+    public List<Call> getCalls() {
+        synchronized (calls) {
+            return new ArrayList<Call>(calls);
+        }
+    }
+
+    public void reset() {
+        synchronized (calls) {
+            calls.clear();
+        }
+    }
+
+    /**
+     * Verifies that the file system was not accessed from the event
+     * dispatch thread since the last reset.
+     * @throws EdtFileSystemAccessError if it was.
+     */
+    public void verify() {
+        List<Call> copy = getCalls();
+        if (!copy.isEmpty())
+            throw new EdtFileSystemAccessError(copy);
+    }
+}
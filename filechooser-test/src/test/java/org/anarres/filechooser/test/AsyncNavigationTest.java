@@ -0,0 +1,153 @@
+package org.anarres.filechooser.test;
+
+import com.googlecode.vfsjfilechooser2.VFSJFileChooser;
+import com.googlecode.vfsjfilechooser2.constants.VFSJFileChooserConstants;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.FutureTask;
+import javax.swing.SwingUtilities;
+import junit.framework.TestCase;
+import org.anarres.filechooser.test.SyntheticFileSystemView.Operation;
+
+/**
+ * Unit test for the asynchronous navigation mode of the file chooser.
+ * @author shevek
+ */
+public class AsyncNavigationTest extends TestCase {
+
+    private SyntheticFileSystemView view;
+    private VFSJFileChooser<String> chooser;
+    private final List<Object> directories = new CopyOnWriteArrayList<Object>();
+    private volatile boolean offEdt = false;
+    private volatile boolean parentOnEdt = false;
+    private boolean changingToParent = false;
+
+    public AsyncNavigationTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        view = new SyntheticFileSystemView() {
+            @Override
+            public String getParentDirectory(String dir) {
+                if (changingToParent && SwingUtilities.isEventDispatchThread())
+                    parentOnEdt = true;
+                return super.getParentDirectory(dir);
+            }
+        };
+        view.generate("/", 1, 3, 0);
+        chooser = onEdt(new Callable<VFSJFileChooser<String>>() {
+            @Override
+            public VFSJFileChooser<String> call() {
+                VFSJFileChooser<String> chooser = new VFSJFileChooser<String>(view);
+                chooser.setAsyncNavigation(true);
+                chooser.addPropertyChangeListener(VFSJFileChooserConstants.DIRECTORY_CHANGED_PROPERTY, new PropertyChangeListener() {
+                    @Override
+                    public void propertyChange(PropertyChangeEvent e) {
+                        if (!SwingUtilities.isEventDispatchThread())
+                            offEdt = true;
+                        directories.add(e.getNewValue());
+                    }
+                });
+                return chooser;
+            }
+        });
+    }
+
+    private static <T> T onEdt(Callable<T> callable) throws Exception {
+        FutureTask<T> task = new FutureTask<T>(callable);
+        SwingUtilities.invokeAndWait(task);
+        return task.get();
+    }
+
+    private void navigate(final String... dirs) throws Exception {
+        onEdt(new Callable<Void>() {
+            @Override
+            public Void call() {
+                for (String dir : dirs)
+                    chooser.setCurrentDirectory(dir);
+                // Nothing changes until the navigation completes.
+                assertEquals("/", chooser.getCurrentDirectory());
+                assertTrue(chooser.isNavigationPending());
+                return null;
+            }
+        });
+    }
+
+    private void await() throws Exception {
+        for (int i = 0; i < 500; i++) {
+            boolean pending = onEdt(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return chooser.isNavigationPending();
+                }
+            });
+            if (!pending)
+                return;
+            Thread.sleep(10);
+        }
+        fail("Navigation did not complete.");
+    }
+
+    public void testNavigate() throws Exception {
+        view.setLatency(Operation.EXISTS, 100, 0);
+        navigate("/dir-0");
+        await();
+        assertEquals("/dir-0", chooser.getCurrentDirectory());
+        assertEquals(1, directories.size());
+        assertFalse(offEdt);
+    }
+
+    public void testSupersede() throws Exception {
+        view.setLatency(Operation.EXISTS, 100, 0);
+        navigate("/dir-0", "/dir-1", "/dir-2");
+        await();
+        assertEquals("/dir-2", chooser.getCurrentDirectory());
+        assertEquals(1, directories.size());
+    }
+
+    public void testTimeout() throws Exception {
+        chooser.setNavigationTimeout(100);
+        view.setLatency(Operation.EXISTS, 1000, 0);
+        navigate("/dir-0");
+        await();
+        assertEquals("/", chooser.getCurrentDirectory());
+        Thread.sleep(1000);
+        assertEquals("/", chooser.getCurrentDirectory());
+        assertEquals(0, directories.size());
+    }
+
+    public void testMissing() throws Exception {
+        navigate("/dir-9");
+        await();
+        assertEquals("/", chooser.getCurrentDirectory());
+        assertEquals(0, directories.size());
+    }
+
+    public void testParent() throws Exception {
+        navigate("/dir-0");
+        await();
+        onEdt(new Callable<Void>() {
+            @Override
+            public Void call() {
+                changingToParent = true;
+                try {
+                    chooser.changeToParentDirectory();
+                } finally {
+                    changingToParent = false;
+                }
+                assertEquals("/dir-0", chooser.getCurrentDirectory());
+                assertTrue(chooser.isNavigationPending());
+                return null;
+            }
+        });
+        await();
+        assertEquals("/", chooser.getCurrentDirectory());
+        assertEquals(2, directories.size());
+        assertFalse(parentOnEdt);
+    }
+}
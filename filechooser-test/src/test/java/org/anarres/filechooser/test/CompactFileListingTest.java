@@ -0,0 +1,123 @@
+package org.anarres.filechooser.test;
+
+import com.googlecode.vfsjfilechooser2.filechooser.CompactFileListing;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import junit.framework.TestCase;
+
+/**
+ * Unit test for the compact listing of a directory.
+ * @author shevek
+ */
+public class CompactFileListingTest extends TestCase {
+
+    public CompactFileListingTest(String testName) {
+        super(testName);
+    }
+
+    public void testCompact() {
+        SyntheticFileSystemView view = new SyntheticFileSystemView();
+        view.generate("/", 1, 10, 1000);
+        view.setWritable("/file-1.csv", false);
+        List<VFSFileAttributes<String>> list = view.getChildAttributes("/", false);
+
+        List<VFSFileAttributes<String>> compact = CompactFileListing.compact(view, "/", list);
+        assertTrue(compact instanceof CompactFileListing);
+        assertSame(compact, CompactFileListing.compact(view, "/", compact));
+        assertEquals(list.size(), compact.size());
+
+        for (int i = 0; i < list.size(); i++) {
+            VFSFileAttributes<String> a = list.get(i);
+            VFSFileAttributes<String> b = compact.get(i);
+            assertEquals(a.getFile(), b.getFile());
+            assertEquals(a.getName(), b.getName());
+            assertEquals(a.getUrl(), b.getUrl());
+            assertEquals(a.isDirectory(), b.isDirectory());
+            assertEquals(a.isFile(), b.isFile());
+            assertEquals(a.getSize(), b.getSize());
+            assertEquals(a.getLastModifiedTime(), b.getLastModifiedTime());
+            assertEquals(a.isHidden(), b.isHidden());
+            assertEquals(a.isWritable(), b.isWritable());
+        }
+
+        CompactFileListing<String> listing = (CompactFileListing<String>) compact;
+        assertEquals("file-1.csv", listing.getName(1));
+        assertFalse(listing.isWritable(1));
+        assertTrue(listing.isDirectory(list.size() - 1));
+        // Around 40 bytes per entry, mostly the names.
+        assertTrue(listing.getRetainedSize() < 64L * list.size());
+    }
+
+    public void testLookup() {
+        SyntheticFileSystemView view = new SyntheticFileSystemView();
+        view.generate("/", 1, 10, 1000);
+        List<VFSFileAttributes<String>> list = view.getChildAttributes("/", false);
+        CompactFileListing<String> listing = (CompactFileListing<String>) CompactFileListing.compact(view, "/", list);
+
+        for (int i = 0; i < listing.size(); i++) {
+            assertEquals(i, listing.indexOfName(listing.getName(i)));
+            assertEquals(i, listing.indexOfFile(list.get(i).getFile()));
+        }
+
+        assertEquals(-1, listing.indexOfName("missing"));
+        assertEquals(-1, listing.indexOfName(null));
+        assertEquals(-1, listing.indexOfFile("/elsewhere/file-1.csv"));
+
+        // Copying entries between listings does not resolve them.
+        CompactFileListing.Builder<String> builder = new CompactFileListing.Builder<String>(view, "/", 2);
+        CompactFileListing<String> copy = builder.add(listing, 7).add(listing, 3).build();
+        assertEquals(listing.getName(7), copy.getName(0));
+        assertEquals(listing.get(3).getFile(), copy.get(1).getFile());
+        assertEquals(listing.getSize(3), copy.getSize(1));
+        assertEquals(1, copy.indexOfName(listing.getName(3)));
+    }
+
+    public void testLazy() {
+        final int[] resolved = {0};
+        SyntheticFileSystemView view = new SyntheticFileSystemView() {
+            @Override
+            public String createFileObject(String dir, String filename) {
+                resolved[0]++;
+                return super.createFileObject(dir, filename);
+            }
+        };
+        view.generate("/", 0, 0, 100);
+        CompactFileListing<String> listing = (CompactFileListing<String>) CompactFileListing.compact(
+                view, "/", view.getChildAttributes("/", false));
+
+        // Reading the attributes of an entry does not resolve its file.
+        resolved[0] = 0;
+        VFSFileAttributes<String> a = listing.get(5);
+        assertEquals(listing.getName(5), a.getName());
+        assertEquals(listing.getSize(5), a.getSize());
+        assertEquals(0, resolved[0]);
+
+        assertEquals("/" + a.getName(), a.getFile());
+        assertEquals(1, resolved[0]);
+        // Recently resolved files are remembered.
+        assertEquals(a.getFile(), listing.get(5).getFile());
+        assertEquals(5, listing.indexOfFile(a.getFile()));
+        assertEquals(1, resolved[0]);
+    }
+
+    public void testUnresolvable() {
+        SyntheticFileSystemView view = new SyntheticFileSystemView();
+        view.generate("/", 0, 0, 2);
+        List<VFSFileAttributes<String>> list = new ArrayList<VFSFileAttributes<String>>(view.getChildAttributes("/", false));
+        // Listed under another directory, so the names do not resolve.
+        assertSame(list, CompactFileListing.compact(view, "/elsewhere", list));
+
+        // Every entry must resolve, not only the first.
+        List<VFSFileAttributes<String>> mixed = new ArrayList<VFSFileAttributes<String>>(list);
+        VFSFileAttributes<String> second = mixed.get(1);
+        mixed.set(1, new VFSFileAttributes<String>("/elsewhere/" + second.getName(), second.getName(),
+                second.getUrl(), second.isDirectory(), second.isFile(), second.getSize(),
+                second.getLastModifiedTime(), second.isHidden(), second.isWritable()));
+        assertSame(mixed, CompactFileListing.compact(view, "/", mixed));
+
+        List<VFSFileAttributes<String>> empty = Arrays.asList();
+        assertSame(empty, CompactFileListing.compact(view, "/", empty));
+    }
+}
@@ -0,0 +1,154 @@
+package org.anarres.filechooser.test;
+
+import com.googlecode.vfsjfilechooser2.VFSJFileChooser;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSFileAttributes;
+import com.googlecode.vfsjfilechooser2.filepane.VFSFilePane;
+import com.googlecode.vfsjfilechooser2.plaf.basic.BasicVFSDirectoryModel;
+import com.googlecode.vfsjfilechooser2.plaf.metal.MetalVFSFileChooserUI;
+import java.awt.Component;
+import java.awt.Container;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.swing.JTable;
+import javax.swing.SwingUtilities;
+import javax.swing.table.TableModel;
+import junit.framework.TestCase;
+import org.anarres.filechooser.test.SyntheticFileSystemView.InjectedFailureException;
+import org.anarres.filechooser.test.SyntheticFileSystemView.Operation;
+
+/**
+ * Unit test for reading the attributes shown by the details view in
+ * the background.
+ * @author shevek
+ */
+public class DetailsAttributesTest extends TestCase {
+
+    private static final int COLUMN_SIZE = 1;
+    private final AtomicInteger failures = new AtomicInteger();
+    private SyntheticFileSystemView view;
+    private TableModel table;
+
+    public DetailsAttributesTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        view = new SyntheticFileSystemView() {
+            @Override
+            public VFSFileAttributes<String> getAttributes(String f) {
+                if (f.equals("/bad.txt")) {
+                    failures.incrementAndGet();
+                    throw new InjectedFailureException(Operation.GET_ATTRIBUTES, f);
+                }
+                return super.getAttributes(f);
+            }
+        };
+        view.addFile("/", "a.txt", 10, 0);
+        view.addFile("/", "bad.txt", 20, 0);
+        view.addFile("/", "c.txt", 30, 0);
+        table = onEdt(new Callable<TableModel>() {
+            @Override
+            public TableModel call() {
+                VFSJFileChooser<String> chooser = new VFSJFileChooser<String>(view) {
+                    @Override
+                    protected MetalVFSFileChooserUI<String> createDefaultUI() {
+                        return new MetalVFSFileChooserUI<String>(this) {
+                            private BasicVFSDirectoryModel<String> model;
+
+                            // A model which keeps no attributes, so the
+                            // details view reads them itself.
+                            @Override
+                            protected void createModel() {
+                                model = new BasicVFSDirectoryModel<String>(getFileChooser()) {
+                                    @Override
+                                    public VFSFileAttributes<String> getAttributes(String f) {
+                                        return null;
+                                    }
+                                };
+                            }
+
+                            @Override
+                            public BasicVFSDirectoryModel<String> getModel() {
+                                return model;
+                            }
+                        };
+                    }
+                };
+                VFSFilePane<?> pane = find(chooser, VFSFilePane.class);
+                pane.setViewType(VFSFilePane.VIEWTYPE_DETAILS);
+                return find(pane, JTable.class).getModel();
+            }
+        });
+        for (int i = 0; i < 500 && onEdt(rowCount()) != 3; i++)
+            Thread.sleep(10);
+        assertEquals(3, (int) onEdt(rowCount()));
+    }
+
+    private static <T> T onEdt(Callable<T> callable) throws Exception {
+        FutureTask<T> task = new FutureTask<T>(callable);
+        SwingUtilities.invokeAndWait(task);
+        return task.get();
+    }
+
+    private static <T extends Component> T find(Container parent, Class<T> type) {
+        for (Component c : parent.getComponents()) {
+            if (type.isInstance(c))
+                return type.cast(c);
+            if (c instanceof Container) {
+                T out = find((Container) c, type);
+                if (out != null)
+                    return out;
+            }
+        }
+        return null;
+    }
+
+    private Callable<Integer> rowCount() {
+        return new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return table.getRowCount();
+            }
+        };
+    }
+
+    /** Returns the size shown for a file, or null if it is not shown. */
+    private Long getSize(final String f) throws Exception {
+        return onEdt(new Callable<Long>() {
+            @Override
+            public Long call() {
+                for (int row = 0; row < table.getRowCount(); row++) {
+                    if (f.equals(table.getValueAt(row, 0))) {
+                        Object value = table.getValueAt(row, COLUMN_SIZE);
+                        return (value instanceof Long) ? (Long) value : null;
+                    }
+                }
+                fail("No row for " + f);
+                return null;
+            }
+        });
+    }
+
+    public void testFetch() throws Exception {
+        view.resetCounts();
+        // A placeholder until the batch has been read.
+        assertNull(getSize("/a.txt"));
+        for (int i = 0; i < 500 && getSize("/c.txt") == null; i++)
+            Thread.sleep(10);
+        assertEquals(10L, (long) getSize("/a.txt"));
+        assertEquals(30L, (long) getSize("/c.txt"));
+        // One batch, for all the rows.
+        assertEquals(2, view.getCallCount(Operation.GET_ATTRIBUTES));
+        assertEquals(1, failures.get());
+
+        // A failed read is not retried.
+        for (int i = 0; i < 5; i++) {
+            assertNull(getSize("/bad.txt"));
+            Thread.sleep(10);
+        }
+        assertEquals(1, failures.get());
+        assertEquals(2, view.getCallCount(Operation.GET_ATTRIBUTES));
+    }
+}
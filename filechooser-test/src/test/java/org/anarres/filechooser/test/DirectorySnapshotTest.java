@@ -0,0 +1,98 @@
+package org.anarres.filechooser.test;
+
+import com.googlecode.vfsjfilechooser2.VFSJFileChooser;
+import com.googlecode.vfsjfilechooser2.plaf.basic.BasicVFSDirectoryModel;
+import com.googlecode.vfsjfilechooser2.plaf.basic.BasicVFSFileChooserUI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import javax.swing.SwingUtilities;
+import junit.framework.TestCase;
+
+/**
+ * Unit test for the immutable snapshots published by the directory model.
+ * @author shevek
+ */
+public class DirectorySnapshotTest extends TestCase {
+
+    private SyntheticFileSystemView view;
+    private BasicVFSDirectoryModel<String> model;
+
+    public DirectorySnapshotTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        view = new SyntheticFileSystemView();
+        view.addFile("/", "b.txt", 1, 0);
+        view.addDirectory("/", "d");
+        view.addFile("/", "a.txt", 1, 0);
+        view.addDirectory("/", "c");
+        model = onEdt(new Callable<BasicVFSDirectoryModel<String>>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public BasicVFSDirectoryModel<String> call() {
+                VFSJFileChooser<String> chooser = new VFSJFileChooser<String>(view);
+                return ((BasicVFSFileChooserUI<String>) chooser.getUI()).getModel();
+            }
+        });
+        await(4);
+    }
+
+    private static <T> T onEdt(Callable<T> callable) throws Exception {
+        FutureTask<T> task = new FutureTask<T>(callable);
+        SwingUtilities.invokeAndWait(task);
+        return task.get();
+    }
+
+    private void await(final int size) throws Exception {
+        for (int i = 0; i < 500; i++) {
+            int current = onEdt(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    return model.getSize();
+                }
+            });
+            if (current == size)
+                return;
+            Thread.sleep(10);
+        }
+        fail("Model did not reach " + size + " entries.");
+    }
+
+    public void testPartitions() throws Exception {
+        List<String> entries = onEdt(new Callable<List<String>>() {
+            @Override
+            public List<String> call() {
+                List<String> entries = new ArrayList<String>();
+                for (int i = 0; i < model.getSize(); i++)
+                    entries.add(model.getElementAt(i));
+                return entries;
+            }
+        });
+        assertEquals(Arrays.asList("/c", "/d", "/a.txt", "/b.txt"), entries);
+        // Read off the EDT, without a lock.
+        assertEquals(Arrays.asList("/c", "/d"), model.getDirectories());
+        assertEquals(Arrays.asList("/a.txt", "/b.txt"), model.getFiles());
+        assertEquals(2, model.indexOf("/a.txt"));
+        assertEquals(-1, model.indexOf("/e.txt"));
+        try {
+            model.getFiles().add("/e.txt");
+            fail("Files are mutable.");
+        } catch (UnsupportedOperationException e) {
+        }
+    }
+
+    public void testStable() throws Exception {
+        List<String> files = model.getFiles();
+        view.addFile("/", "e.txt", 1, 0);
+        await(5);
+        // A published snapshot never changes.
+        assertEquals(Arrays.asList("/a.txt", "/b.txt"), files);
+        assertEquals(Arrays.asList("/a.txt", "/b.txt", "/e.txt"), model.getFiles());
+        assertEquals(4, model.indexOf("/e.txt"));
+    }
+}
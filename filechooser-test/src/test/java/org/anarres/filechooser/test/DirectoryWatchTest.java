@@ -0,0 +1,250 @@
+package org.anarres.filechooser.test;
+
+import com.googlecode.vfsjfilechooser2.VFSJFileChooser;
+import com.googlecode.vfsjfilechooser2.filechooser.PollingDirectoryWatcher;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSFileChangeListener;
+import com.googlecode.vfsjfilechooser2.plaf.basic.BasicVFSDirectoryModel;
+import com.googlecode.vfsjfilechooser2.plaf.basic.BasicVFSFileChooserUI;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+import junit.framework.TestCase;
+import org.anarres.filechooser.test.SyntheticFileSystemView.Operation;
+
+/**
+ * Unit test for watching the current directory of the model.
+ * @author shevek
+ */
+public class DirectoryWatchTest extends TestCase {
+
+    private SyntheticFileSystemView view;
+    private BasicVFSDirectoryModel<String> model;
+    private final BlockingQueue<Integer> events = new LinkedBlockingQueue<Integer>();
+    private final BlockingQueue<Boolean> busy = new LinkedBlockingQueue<Boolean>();
+
+    public DirectoryWatchTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        view = new SyntheticFileSystemView();
+        view.generate("/", 0, 0, 10);
+        model = onEdt(new Callable<BasicVFSDirectoryModel<String>>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public BasicVFSDirectoryModel<String> call() {
+                VFSJFileChooser<String> chooser = new VFSJFileChooser<String>(view);
+                BasicVFSDirectoryModel<String> model = ((BasicVFSFileChooserUI<String>) chooser.getUI()).getModel();
+                model.addPropertyChangeListener(new PropertyChangeListener() {
+                    @Override
+                    public void propertyChange(PropertyChangeEvent e) {
+                        if ("busy".equals(e.getPropertyName()))
+                            busy.add((Boolean) e.getNewValue());
+                    }
+                });
+                return model;
+            }
+        });
+        awaitLoaded();
+        assertEquals(10, size());
+        assertEquals(1, view.getWatcherCount("/"));
+        onEdt(new Callable<Void>() {
+            @Override
+            public Void call() {
+                model.addListDataListener(new ListDataListener() {
+                    @Override
+                    public void intervalAdded(ListDataEvent e) {
+                        events.add(e.getType());
+                    }
+
+                    @Override
+                    public void intervalRemoved(ListDataEvent e) {
+                        events.add(e.getType());
+                    }
+
+                    @Override
+                    public void contentsChanged(ListDataEvent e) {
+                        events.add(e.getType());
+                    }
+                });
+                return null;
+            }
+        });
+        view.resetCounts();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        onEdt(new Callable<Void>() {
+            @Override
+            public Void call() {
+                model.dispose();
+                return null;
+            }
+        });
+        assertEquals(0, view.getWatcherCount("/"));
+    }
+
+    private static <T> T onEdt(Callable<T> callable) throws Exception {
+        FutureTask<T> task = new FutureTask<T>(callable);
+        SwingUtilities.invokeAndWait(task);
+        return task.get();
+    }
+
+    private int size() throws Exception {
+        return onEdt(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return model.getSize();
+            }
+        });
+    }
+
+    /**
+     * Waits until the model is no longer busy. The load is not done,
+     * and the directory not watched, until then.
+     */
+    private void awaitLoaded() throws Exception {
+        for (;;) {
+            Boolean value = busy.poll(10, TimeUnit.SECONDS);
+            assertNotNull("The model did not finish loading.", value);
+            if (!value)
+                return;
+        }
+    }
+
+    /** Waits for the next event, which the model fires on the EDT. */
+    private int nextEvent() throws Exception {
+        Integer event = events.poll(10, TimeUnit.SECONDS);
+        assertNotNull("No event was fired.", event);
+        return event;
+    }
+
+    public void testCreateAndDelete() throws Exception {
+        String file = view.addFile("/", "a-new.txt", 10, 0);
+        assertEquals(ListDataEvent.INTERVAL_ADDED, nextEvent());
+        assertEquals(11, size());
+        assertEquals(0, model.indexOf(file));
+
+        view.delete(file);
+        assertEquals(ListDataEvent.INTERVAL_REMOVED, nextEvent());
+        assertEquals(10, size());
+        assertEquals(-1, model.indexOf(file));
+        assertTrue(events.isEmpty());
+
+        // Only the new entry was read; the directory was never listed again.
+        assertEquals(1, view.getCallCount(Operation.GET_ATTRIBUTES));
+        assertEquals(0, view.getCallCount(Operation.GET_CHILD_ATTRIBUTES));
+        assertEquals(0, view.getCallCount(Operation.GET_CHILDREN));
+    }
+
+    public void testInsertInOrder() throws Exception {
+        String file = view.addFile("/", "file-4a.txt", 10, 0);
+        assertEquals(ListDataEvent.INTERVAL_ADDED, nextEvent());
+        assertEquals(11, size());
+        assertEquals(5, model.indexOf(file));
+
+        view.delete("/file-0.txt");
+        assertEquals(ListDataEvent.INTERVAL_REMOVED, nextEvent());
+        assertEquals(10, size());
+        assertEquals(4, model.indexOf(file));
+        assertEquals(-1, model.indexOf("/file-0.txt"));
+
+        // Inserted and removed in place, without listing the directory again.
+        assertEquals(1, view.getCallCount(Operation.GET_ATTRIBUTES));
+        assertEquals(0, view.getCallCount(Operation.GET_CHILD_ATTRIBUTES));
+        assertTrue(events.isEmpty());
+        // Nor filtered and sorted again by a load.
+        assertTrue(busy.toString(), busy.isEmpty());
+    }
+
+    public void testChange() throws Exception {
+        final String file = view.getChildren("/", false)[0];
+        view.setAttributes(file, 12345, 0);
+        assertEquals(ListDataEvent.CONTENTS_CHANGED, nextEvent());
+        assertEquals(12345, model.getAttributes(file).getSize());
+    }
+
+    public void testCompact() throws Exception {
+        onEdt(new Callable<Void>() {
+            @Override
+            public Void call() {
+                model.setCompactListingThreshold(1);
+                model.validateFileCache();
+                return null;
+            }
+        });
+        awaitLoaded();
+        assertEquals(10, size());
+        view.resetCounts();
+        events.clear();
+
+        String file = view.addFile("/", "file-4a.txt", 10, 0);
+        assertEquals(ListDataEvent.INTERVAL_ADDED, nextEvent());
+        assertEquals(11, size());
+        assertEquals(5, model.indexOf(file));
+
+        view.delete("/file-0.txt");
+        assertEquals(ListDataEvent.INTERVAL_REMOVED, nextEvent());
+        assertEquals(10, size());
+        assertEquals(4, model.indexOf(file));
+        assertEquals(-1, model.indexOf("/file-0.txt"));
+
+        // Inserted and removed in place, without listing the directory again.
+        assertEquals(1, view.getCallCount(Operation.GET_ATTRIBUTES));
+        assertEquals(0, view.getCallCount(Operation.GET_CHILD_ATTRIBUTES));
+        assertEquals(0, view.getCallCount(Operation.GET_CHILDREN));
+        for (int event : events)
+            assertTrue(event != ListDataEvent.CONTENTS_CHANGED);
+    }
+
+    public void testPolling() throws Exception {
+        final List<String> created = new CopyOnWriteArrayList<String>();
+        final List<String> deleted = new CopyOnWriteArrayList<String>();
+        PollingDirectoryWatcher<String> watcher = new PollingDirectoryWatcher<String>(view, "/",
+                view.getChildAttributes("/", false), new VFSFileChangeListener<String>() {
+            @Override
+            public void fileCreated(String file) {
+                created.add(file);
+            }
+
+            @Override
+            public void fileDeleted(String file) {
+                deleted.add(file);
+            }
+
+            @Override
+            public void fileChanged(String file) {
+            }
+
+            @Override
+            public void changesLost(String directory) {
+            }
+        }, 10, 40).start();
+        try {
+            Thread.sleep(200);
+            // Nothing changed, so the interval backed off.
+            assertEquals(40, watcher.getIntervalMillis());
+            assertTrue(created.isEmpty());
+
+            String file = view.addFile("/", "polled.txt", 1, 0);
+            view.delete("/file-0.txt");
+            for (int i = 0; i < 500 && (created.isEmpty() || deleted.isEmpty()); i++)
+                Thread.sleep(10);
+            assertEquals(file, created.get(0));
+            assertEquals("/file-0.txt", deleted.get(0));
+        } finally {
+            watcher.close();
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package org.anarres.filechooser.test;
+
+import com.googlecode.vfsjfilechooser2.VFSJFileChooser;
+import com.googlecode.vfsjfilechooser2.filechooser.AbstractVFSFileFilter;
+import com.googlecode.vfsjfilechooser2.filechooser.GlobFileFilter;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSFileAttributes;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSNameFilter;
+import com.googlecode.vfsjfilechooser2.plaf.basic.BasicVFSDirectoryModel;
+import com.googlecode.vfsjfilechooser2.plaf.basic.BasicVFSFileChooserUI;
+import com.googlecode.vfsjfilechooser2.utils.GlobPattern;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.swing.SwingUtilities;
+import junit.framework.TestCase;
+import org.anarres.filechooser.test.SyntheticFileSystemView.Operation;
+
+/**
+ * Unit test for filters which declare which attributes they read.
+ * @author shevek
+ */
+public class FileFilterRequirementTest extends TestCase {
+
+    /** Accepts CSV files and directories by name alone. */
+    private static class NameFilter extends AbstractVFSFileFilter<String> {
+
+        @Override
+        public boolean accept(String f) {
+            String name = f.substring(f.lastIndexOf('/') + 1);
+            return name.endsWith(".csv") || name.startsWith("dir-");
+        }
+
+        @Override
+        public String getDescription() {
+            return "CSV";
+        }
+
+        @Override
+        public Requirement getRequirement() {
+            return Requirement.NAME;
+        }
+    }
+
+    /** Accepts CSV files and directories, and lets the view filter by name. */
+    private static class PushdownFilter extends NameFilter {
+
+        @Override
+        public VFSNameFilter getNameFilter() {
+            return new VFSNameFilter(GlobPattern.compile("*.csv"), true);
+        }
+    }
+
+    /** Accepts CSV files and directories, checking a listing at a time. */
+    private static class BatchFilter extends NameFilter {
+
+        private final AtomicInteger batches = new AtomicInteger();
+        private final AtomicInteger files = new AtomicInteger();
+
+        @Override
+        public boolean accept(String f) {
+            files.incrementAndGet();
+            return super.accept(f);
+        }
+
+        @Override
+        public boolean[] accept(List<? extends VFSFileAttributes<? extends String>> attributes) {
+            batches.incrementAndGet();
+            boolean[] out = new boolean[attributes.size()];
+            for (int i = 0; i < out.length; i++)
+                out[i] = super.accept(attributes.get(i).getFile());
+            return out;
+        }
+
+        @Override
+        public Requirement getRequirement() {
+            return Requirement.ATTRIBUTES;
+        }
+    }
+    private SyntheticFileSystemView view;
+    private VFSJFileChooser<String> chooser;
+    private BasicVFSDirectoryModel<String> model;
+
+    public FileFilterRequirementTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        view = new SyntheticFileSystemView();
+        view.generate("/", 1, 1, 50);
+        chooser = onEdt(new Callable<VFSJFileChooser<String>>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public VFSJFileChooser<String> call() {
+                VFSJFileChooser<String> chooser = new VFSJFileChooser<String>(view);
+                model = ((BasicVFSFileChooserUI<String>) chooser.getUI()).getModel();
+                return chooser;
+            }
+        });
+        await(51);
+    }
+
+    private static <T> T onEdt(Callable<T> callable) throws Exception {
+        FutureTask<T> task = new FutureTask<T>(callable);
+        SwingUtilities.invokeAndWait(task);
+        return task.get();
+    }
+
+    private void await(int size) throws Exception {
+        for (int i = 0; i < 500; i++) {
+            int current = onEdt(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    return model.getSize();
+                }
+            });
+            if (current == size)
+                return;
+            Thread.sleep(10);
+        }
+        fail("Model did not reach " + size + " entries.");
+    }
+
+    public void testNameFilter() throws Exception {
+        onEdt(new Callable<Void>() {
+            @Override
+            public Void call() {
+                model.setStreamingEnabled(true);
+                chooser.setFileFilter(new NameFilter());
+                return null;
+            }
+        });
+        await(11);
+
+        view.resetCounts();
+        onEdt(new Callable<Void>() {
+            @Override
+            public Void call() {
+                chooser.setCurrentDirectory("/dir-0");
+                return null;
+            }
+        });
+        await(10);
+        // Only the accepted files were read.
+        assertEquals(10, view.getCallCount(Operation.GET_ATTRIBUTES));
+
+        // The listing is incomplete, so another filter lists again.
+        onEdt(new Callable<Void>() {
+            @Override
+            public Void call() {
+                chooser.setFileFilter(chooser.getAcceptAllFileFilter());
+                return null;
+            }
+        });
+        await(50);
+        assertEquals(1, view.getCallCount(Operation.GET_CHILD_ATTRIBUTES));
+    }
+
+    public void testTypeFilter() throws Exception {
+        view.resetCounts();
+        onEdt(new Callable<Void>() {
+            @Override
+            public Void call() {
+                chooser.setFileFilter(new GlobFileFilter<String>(view, "*.csv;*.json"));
+                return null;
+            }
+        });
+        await(21);
+        // Filtered from the listing, without asking the view.
+        assertEquals(0, view.getCallCount(Operation.IS_DIRECTORY));
+        assertEquals(0, view.getCallCount(Operation.GET_CHILD_ATTRIBUTES));
+    }
+
+    public void testPushdown() throws Exception {
+        onEdt(new Callable<Void>() {
+            @Override
+            public Void call() {
+                chooser.setFileFilter(new GlobFileFilter<String>(view, "*.csv"));
+                return null;
+            }
+        });
+        await(11);
+
+        view.resetCounts();
+        onEdt(new Callable<Void>() {
+            @Override
+            public Void call() {
+                chooser.setCurrentDirectory("/dir-0");
+                return null;
+            }
+        });
+        await(10);
+        // The view filtered the listing; nothing else was read.
+        assertEquals(1, view.getCallCount(Operation.GET_FILTERED_CHILD_ATTRIBUTES));
+        assertEquals(0, view.getCallCount(Operation.GET_CHILD_ATTRIBUTES));
+        assertEquals(0, view.getCallCount(Operation.GET_ATTRIBUTES));
+
+        // The listing is incomplete, so another filter lists again.
+        onEdt(new Callable<Void>() {
+            @Override
+            public Void call() {
+                chooser.setFileFilter(chooser.getAcceptAllFileFilter());
+                return null;
+            }
+        });
+        await(50);
+        assertEquals(1, view.getCallCount(Operation.GET_CHILD_ATTRIBUTES));
+    }
+
+    public void testCustomPushdown() throws Exception {
+        onEdt(new Callable<Void>() {
+            @Override
+            public Void call() {
+                chooser.setFileFilter(new PushdownFilter());
+                return null;
+            }
+        });
+        await(11);
+
+        view.resetCounts();
+        onEdt(new Callable<Void>() {
+            @Override
+            public Void call() {
+                chooser.setCurrentDirectory("/dir-0");
+                return null;
+            }
+        });
+        await(10);
+        // Any filter which offers a name filter is pushed down.
+        assertEquals(1, view.getCallCount(Operation.GET_FILTERED_CHILD_ATTRIBUTES));
+        assertEquals(0, view.getCallCount(Operation.GET_CHILD_ATTRIBUTES));
+    }
+
+    public void testBatchedAccept() throws Exception {
+        final BatchFilter filter = new BatchFilter();
+        onEdt(new Callable<Void>() {
+            @Override
+            public Void call() {
+                chooser.setFileFilter(filter);
+                return null;
+            }
+        });
+        await(11);
+
+        filter.batches.set(0);
+        onEdt(new Callable<Void>() {
+            @Override
+            public Void call() {
+                chooser.setCurrentDirectory("/dir-0");
+                return null;
+            }
+        });
+        await(10);
+        // The whole listing was checked at once, never file by file.
+        assertEquals(1, filter.batches.get());
+        assertEquals(0, filter.files.get());
+    }
+}
@@ -0,0 +1,109 @@
+package org.anarres.filechooser.test;
+
+import com.googlecode.vfsjfilechooser2.VFSJFileChooser;
+import com.googlecode.vfsjfilechooser2.plaf.basic.BasicVFSDirectoryModel;
+import com.googlecode.vfsjfilechooser2.plaf.basic.BasicVFSFileChooserUI;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.FutureTask;
+import javax.swing.Icon;
+import javax.swing.SwingUtilities;
+import junit.framework.TestCase;
+import org.anarres.filechooser.test.SyntheticFileSystemView.Operation;
+
+/**
+ * Unit test for the resolution of icons in the background.
+ * @author shevek
+ */
+public class IconResolutionTest extends TestCase {
+
+    private SyntheticFileSystemView view;
+    private VFSJFileChooser<String> chooser;
+    private BasicVFSDirectoryModel<String> model;
+    private final List<Object> resolved = new CopyOnWriteArrayList<Object>();
+
+    public IconResolutionTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        view = new SyntheticFileSystemView();
+        view.generate("/", 1, 2, 4);
+        chooser = onEdt(new Callable<VFSJFileChooser<String>>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public VFSJFileChooser<String> call() {
+                VFSJFileChooser<String> chooser = new VFSJFileChooser<String>(view);
+                model = ((BasicVFSFileChooserUI<String>) chooser.getUI()).getModel();
+                model.addPropertyChangeListener(new PropertyChangeListener() {
+                    @Override
+                    public void propertyChange(PropertyChangeEvent e) {
+                        if ("icons".equals(e.getPropertyName()))
+                            resolved.addAll((List<?>) e.getNewValue());
+                    }
+                });
+                return chooser;
+            }
+        });
+        for (int i = 0; i < 500 && getSize() != 6; i++)
+            Thread.sleep(10);
+        assertEquals(6, getSize());
+        view.resetCounts();
+    }
+
+    private static <T> T onEdt(Callable<T> callable) throws Exception {
+        FutureTask<T> task = new FutureTask<T>(callable);
+        SwingUtilities.invokeAndWait(task);
+        return task.get();
+    }
+
+    private int getSize() throws Exception {
+        return onEdt(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return model.getSize();
+            }
+        });
+    }
+
+    private Icon getIcon(final String file) throws Exception {
+        return onEdt(new Callable<Icon>() {
+            @Override
+            public Icon call() {
+                return chooser.getIcon(file);
+            }
+        });
+    }
+
+    public void testPlaceholder() throws Exception {
+        // Not in the model, so its type is unknown.
+        String file = "/dir-0/file-1.csv";
+        Icon fileIcon = getIcon("/file-1.csv");
+        assertSame(fileIcon, getIcon(file));
+        for (int i = 0; i < 500 && !resolved.contains(file); i++)
+            Thread.sleep(10);
+        assertTrue(resolved.contains(file));
+        assertEquals(1, view.getCallCount(Operation.IS_DIRECTORY));
+
+        // Resolved once, then remembered.
+        assertSame(fileIcon, getIcon(file));
+        assertEquals(1, view.getCallCount(Operation.IS_DIRECTORY));
+    }
+
+    public void testModelEntries() throws Exception {
+        Icon fileIcon = getIcon("/file-1.csv");
+        // A placeholder until it is known not to be a drive.
+        Icon directoryIcon = getIcon("/dir-0");
+        assertNotSame(fileIcon, directoryIcon);
+        for (int i = 0; i < 500 && !resolved.contains("/dir-0"); i++)
+            Thread.sleep(10);
+        assertSame(directoryIcon, getIcon("/dir-0"));
+        // The file was classified from its attributes.
+        assertFalse(resolved.toString(), resolved.contains("/file-1.csv"));
+        assertEquals(0, view.getCallCount());
+    }
+}
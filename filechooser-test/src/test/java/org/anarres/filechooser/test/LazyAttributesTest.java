@@ -0,0 +1,105 @@
+package org.anarres.filechooser.test;
+
+import com.googlecode.vfsjfilechooser2.VFSJFileChooser;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSFileAttributes;
+import com.googlecode.vfsjfilechooser2.plaf.basic.BasicVFSDirectoryModel;
+import com.googlecode.vfsjfilechooser2.plaf.basic.BasicVFSFileChooserUI;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import javax.swing.SwingUtilities;
+import junit.framework.TestCase;
+import org.anarres.filechooser.test.SyntheticFileSystemView.Operation;
+
+/**
+ * Unit test for the lazy attributes listed by views which do not list
+ * attributes themselves.
+ * @author shevek
+ */
+public class LazyAttributesTest extends TestCase {
+
+    private SyntheticFileSystemView view;
+
+    public LazyAttributesTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        view = new SyntheticFileSystemView();
+        view.setListingAttributes(false);
+        view.generate("/", 1, 2, 0);
+        view.generate("/dir-0", 0, 0, 500);
+    }
+
+    private static <T> T onEdt(Callable<T> callable) throws Exception {
+        FutureTask<T> task = new FutureTask<T>(callable);
+        SwingUtilities.invokeAndWait(task);
+        return task.get();
+    }
+
+    public void testReadOnFirstUse() {
+        view.resetCounts();
+        List<VFSFileAttributes<String>> list = view.getChildAttributes("/dir-0", false);
+        assertEquals(500, list.size());
+        assertEquals(1, view.getCallCount(Operation.GET_CHILDREN));
+        assertEquals(1, view.getCallCount());
+
+        VFSFileAttributes<String> a = list.get(0);
+        assertTrue(a.isLazy());
+        assertEquals(view.getName(a.getFile()), a.getName());
+        assertEquals(1, view.getCallCount());
+
+        assertFalse(a.isDirectory());
+        assertFalse(a.isDirectory());
+        assertEquals(1, view.getCallCount(Operation.IS_DIRECTORY));
+        assertEquals(view.getSize(a.getFile()), a.getSize());
+        assertEquals(view.getLastModifiedTime(a.getFile()), a.getLastModifiedTime());
+        a.isHidden();
+        a.isWritable();
+        assertFalse(a.isLazy());
+    }
+
+    public void testLoadReadsOnlyWhatIsShown() throws Exception {
+        final VFSJFileChooser<String> chooser = onEdt(new Callable<VFSJFileChooser<String>>() {
+            @Override
+            public VFSJFileChooser<String> call() {
+                return new VFSJFileChooser<String>(view);
+            }
+        });
+        @SuppressWarnings("unchecked")
+        final BasicVFSDirectoryModel<String> model = ((BasicVFSFileChooserUI<String>) chooser.getUI()).getModel();
+        Callable<Integer> size = new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return model.getSize();
+            }
+        };
+        for (int i = 0; i < 500 && onEdt(size) != 2; i++)
+            Thread.sleep(10);
+
+        view.resetCounts();
+        onEdt(new Callable<Void>() {
+            @Override
+            public Void call() {
+                chooser.setCurrentDirectory("/dir-0");
+                return null;
+            }
+        });
+        for (int i = 0; i < 500 && onEdt(size) != 500; i++)
+            Thread.sleep(10);
+        assertEquals(500, (int) onEdt(size));
+
+        // Sorted by name, so neither sizes nor times are read.
+        assertEquals(0, view.getCallCount(Operation.GET_SIZE));
+        assertEquals(0, view.getCallCount(Operation.GET_LAST_MODIFIED_TIME));
+        // Only the current directory, for the new folder action.
+        assertTrue(view.getCallCount(Operation.IS_WRITABLE) <= 1);
+        assertEquals(0, view.getCallCount(Operation.GET_ATTRIBUTES));
+        // Each entry is read once for its type and once for hiding; the
+        // directory itself is read a few times more.
+        assertTrue(view.getCallCounts().toString(), view.getCallCount(Operation.IS_DIRECTORY) <= 500 + 2);
+        assertTrue(view.getCallCounts().toString(), view.getCallCount(Operation.IS_HIDDEN_FILE) <= 500 + 2);
+        assertTrue(view.getCallCounts().toString(), view.getCallCount() <= 2 * 500 + 10);
+    }
+}
@@ -0,0 +1,161 @@
+package org.anarres.filechooser.test;
+
+import com.googlecode.vfsjfilechooser2.VFSJFileChooser;
+import com.googlecode.vfsjfilechooser2.filepane.VFSFilePane;
+import com.googlecode.vfsjfilechooser2.plaf.basic.BasicVFSDirectoryModel;
+import com.googlecode.vfsjfilechooser2.plaf.basic.BasicVFSFileChooserUI;
+import java.awt.Component;
+import java.awt.Container;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.swing.JList;
+import javax.swing.ListCellRenderer;
+import javax.swing.SwingUtilities;
+import junit.framework.TestCase;
+
+/**
+ * Unit test for the fixed cell size of the list view.
+ * @author shevek
+ */
+public class ListCellSizeTest extends TestCase {
+
+    private final AtomicInteger rendered = new AtomicInteger();
+    private SyntheticFileSystemView view;
+    private VFSJFileChooser<String> chooser;
+    private BasicVFSDirectoryModel<String> model;
+    private VFSFilePane<?> pane;
+    private JList<Object> list;
+
+    public ListCellSizeTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        view = new SyntheticFileSystemView();
+        view.addDirectory("/", "small");
+        view.addDirectory("/", "large");
+        view.generate("/small", 0, 0, 10);
+        view.generate("/large", 0, 0, 2000);
+        onEdt(new Callable<Void>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Void call() {
+                chooser = new VFSJFileChooser<String>(view);
+                model = ((BasicVFSFileChooserUI<String>) chooser.getUI()).getModel();
+                pane = find(chooser, VFSFilePane.class);
+                list = find(pane, JList.class);
+                // Counts the cells measured through the renderer.
+                final ListCellRenderer<Object> renderer = list.getCellRenderer();
+                list.setCellRenderer(new ListCellRenderer<Object>() {
+                    @Override
+                    public Component getListCellRendererComponent(JList<?> l, Object value,
+                            int index, boolean isSelected, boolean cellHasFocus) {
+                        rendered.incrementAndGet();
+                        return renderer.getListCellRendererComponent(l, value, index, isSelected, cellHasFocus);
+                    }
+                });
+                return null;
+            }
+        });
+        await(2);
+    }
+
+    private static <T> T onEdt(Callable<T> callable) throws Exception {
+        FutureTask<T> task = new FutureTask<T>(callable);
+        SwingUtilities.invokeAndWait(task);
+        return task.get();
+    }
+
+    private static <T extends Component> T find(Container parent, Class<T> type) {
+        for (Component c : parent.getComponents()) {
+            if (type.isInstance(c))
+                return type.cast(c);
+            if (c instanceof Container) {
+                T out = find((Container) c, type);
+                if (out != null)
+                    return out;
+            }
+        }
+        return null;
+    }
+
+    private void await(final int size) throws Exception {
+        for (int i = 0; i < 500; i++) {
+            int current = onEdt(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    return model.getSize();
+                }
+            });
+            if (current == size)
+                return;
+            Thread.sleep(10);
+        }
+        fail("Model did not reach " + size + " entries.");
+    }
+
+    private void cd(final String directory, int size) throws Exception {
+        onEdt(new Callable<Void>() {
+            @Override
+            public Void call() {
+                chooser.setCurrentDirectory(directory);
+                return null;
+            }
+        });
+        await(size);
+    }
+
+    /** Returns the fixed width and height of the cells, after a layout. */
+    private int[] getCellSize() throws Exception {
+        return onEdt(new Callable<int[]>() {
+            @Override
+            public int[] call() {
+                list.getPreferredSize();
+                return new int[]{list.getFixedCellWidth(), list.getFixedCellHeight()};
+            }
+        });
+    }
+
+    public void testThreshold() throws Exception {
+        rendered.set(0);
+        cd("/large", 2000);
+        int[] large = getCellSize();
+        assertTrue(Arrays.toString(large), large[0] > 0 && large[1] > 0);
+        // Measured from a sample, rather than every cell.
+        assertTrue("Rendered " + rendered + " cells.", rendered.get() < 500);
+
+        cd("/small", 10);
+        assertEquals(-1, getCellSize()[0]);
+        onEdt(new Callable<Void>() {
+            @Override
+            public Void call() {
+                pane.setFixedCellSizeThreshold(0);
+                return null;
+            }
+        });
+        assertTrue(getCellSize()[0] > 0);
+    }
+
+    public void testGrow() throws Exception {
+        onEdt(new Callable<Void>() {
+            @Override
+            public Void call() {
+                pane.setFixedCellSizeThreshold(0);
+                return null;
+            }
+        });
+        cd("/small", 10);
+        int width = getCellSize()[0];
+        assertTrue(width > 0);
+
+        // Added by the watcher, and measured alone.
+        char[] name = new char[200];
+        Arrays.fill(name, 'x');
+        view.addFile("/small", new String(name), 1, 0);
+        await(11);
+        assertTrue(getCellSize()[0] > width);
+    }
+}
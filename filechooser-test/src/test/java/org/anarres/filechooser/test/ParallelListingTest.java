@@ -0,0 +1,117 @@
+package org.anarres.filechooser.test;
+
+import com.googlecode.vfsjfilechooser2.VFSJFileChooser;
+import com.googlecode.vfsjfilechooser2.plaf.basic.BasicVFSDirectoryModel;
+import com.googlecode.vfsjfilechooser2.plaf.basic.BasicVFSFileChooserUI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import javax.swing.SwingUtilities;
+import junit.framework.TestCase;
+
+/**
+ * Unit test for loading large listings in parallel.
+ * @author shevek
+ */
+public class ParallelListingTest extends TestCase {
+
+    private SyntheticFileSystemView view;
+    private VFSJFileChooser<String> chooser;
+    private BasicVFSDirectoryModel<String> model;
+
+    public ParallelListingTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        view = new SyntheticFileSystemView();
+        view.generate("/", 1, 2, 0);
+        view.generate("/dir-0", 1, 300, 0);
+        view.generate("/dir-0", 0, 0, 6000);
+        chooser = onEdt(new Callable<VFSJFileChooser<String>>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public VFSJFileChooser<String> call() {
+                VFSJFileChooser<String> chooser = new VFSJFileChooser<String>(view);
+                model = ((BasicVFSFileChooserUI<String>) chooser.getUI()).getModel();
+                return chooser;
+            }
+        });
+        await(2);
+    }
+
+    private static <T> T onEdt(Callable<T> callable) throws Exception {
+        FutureTask<T> task = new FutureTask<T>(callable);
+        SwingUtilities.invokeAndWait(task);
+        return task.get();
+    }
+
+    private void await(int size) throws Exception {
+        for (int i = 0; i < 1000; i++) {
+            int current = onEdt(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    return model.getSize();
+                }
+            });
+            if (current == size)
+                return;
+            Thread.sleep(10);
+        }
+        fail("Model did not reach " + size + " entries.");
+    }
+
+    private List<String> load(final String dir, final int parallelThreshold, int size) throws Exception {
+        onEdt(new Callable<Void>() {
+            @Override
+            public Void call() {
+                model.setParallelThreshold(parallelThreshold);
+                chooser.setCurrentDirectory(dir);
+                return null;
+            }
+        });
+        await(size);
+        return onEdt(new Callable<List<String>>() {
+            @Override
+            public List<String> call() {
+                List<String> out = new ArrayList<String>();
+                for (int i = 0; i < model.getSize(); i++)
+                    out.add(model.getElementAt(i));
+                return out;
+            }
+        });
+    }
+
+    public void testSameAsSequential() throws Exception {
+        List<String> sequential = load("/dir-0", Integer.MAX_VALUE, 6300);
+        assertTrue(sequential.get(299).startsWith("/dir-0/dir-"));
+        assertTrue(sequential.get(300).startsWith("/dir-0/file-"));
+
+        load("/", 0, 2);
+        // Refiltered from the cached listing, this time in parallel.
+        List<String> parallel = load("/dir-0", 0, 6300);
+        assertEquals(sequential, parallel);
+    }
+
+    public void testLookup() throws Exception {
+        final List<String> files = load("/dir-0", Integer.MAX_VALUE, 6300);
+        onEdt(new Callable<Void>() {
+            @Override
+            public Void call() {
+                // A large listing is held as rows, which are looked up by name.
+                for (int i = 0; i < files.size(); i += 97) {
+                    String f = files.get(i);
+                    assertEquals(i, model.indexOf(f));
+                    assertEquals(view.getName(f), model.getAttributes(f).getName());
+                }
+                assertEquals(-1, model.indexOf("/dir-0/missing"));
+                assertNull(model.getAttributes("/dir-0/missing"));
+                assertEquals(300, model.getDirectories().size());
+                assertEquals(6000, model.getFiles().size());
+                return null;
+            }
+        });
+    }
+}
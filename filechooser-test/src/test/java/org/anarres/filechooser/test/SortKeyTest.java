@@ -0,0 +1,41 @@
+package org.anarres.filechooser.test;
+
+import com.googlecode.vfsjfilechooser2.utils.FileObjectComparatorFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import junit.framework.TestCase;
+import org.anarres.filechooser.test.SyntheticFileSystemView.Operation;
+
+/**
+ * Unit test for sorting files on keys read from the file system view.
+ * @author shevek
+ */
+public class SortKeyTest extends TestCase {
+
+    public SortKeyTest(String testName) {
+        super(testName);
+    }
+
+    public void testReadsOnlySortedField() {
+        SyntheticFileSystemView view = new SyntheticFileSystemView();
+        view.generate("/", 1, 2, 10);
+        List<String> files = new ArrayList<String>(Arrays.asList(view.getChildren("/", false)));
+
+        view.resetCounts();
+        FileObjectComparatorFactory.sort(view, files, FileObjectComparatorFactory.<String>newFileNameKeyComparator(true), null);
+        assertEquals("/dir-0", files.get(0));
+        assertEquals(0, view.getCallCount(Operation.GET_SIZE));
+        assertEquals(0, view.getCallCount(Operation.GET_LAST_MODIFIED_TIME));
+
+        view.resetCounts();
+        FileObjectComparatorFactory.sort(view, files, FileObjectComparatorFactory.<String>newSizeKeyComparator(true), null);
+        assertEquals(12, view.getCallCount(Operation.GET_SIZE));
+        assertEquals(0, view.getCallCount(Operation.GET_LAST_MODIFIED_TIME));
+
+        view.resetCounts();
+        FileObjectComparatorFactory.sort(view, files, FileObjectComparatorFactory.<String>newDateKeyComparator(true), null);
+        assertEquals(0, view.getCallCount(Operation.GET_SIZE));
+        assertEquals(12, view.getCallCount(Operation.GET_LAST_MODIFIED_TIME));
+    }
+}
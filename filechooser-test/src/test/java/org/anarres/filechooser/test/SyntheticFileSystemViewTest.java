@@ -0,0 +1,124 @@
+package org.anarres.filechooser.test;
+
+import com.googlecode.vfsjfilechooser2.VFSException;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSFileAttributes;
+import java.util.List;
+import junit.framework.TestCase;
+import org.anarres.filechooser.test.SyntheticFileSystemView.Operation;
+
+/**
+ * Unit test for the synthetic file system view.
+ * @author shevek
+ */
+public class SyntheticFileSystemViewTest extends TestCase {
+
+    public SyntheticFileSystemViewTest(String testName) {
+        super(testName);
+    }
+
+    public void testGenerate() {
+        SyntheticFileSystemView view = new SyntheticFileSystemView();
+        // 3 files at each level; 2 subdirectories at the top two levels.
+        int count = view.generate("/", 2, 2, 3);
+        assertEquals(3 + 2 * (1 + 3 + 2 * (1 + 3)), count);
+
+        String[] children = view.getChildren("/", false);
+        assertEquals(5, children.length);
+        assertTrue(view.isDirectory("/dir-1"));
+        assertTrue(view.isFile("/dir-1/dir-0/file-2.json"));
+        assertFalse(view.exists("/dir-1/dir-0/dir-0"));
+        assertEquals("/dir-1", view.getParentDirectory("/dir-1/dir-0"));
+        assertEquals("/dir-1/dir-0", view.createFileObject("synthetic:///dir-1/dir-0/"));
+    }
+
+    public void testCallCounts() {
+        SyntheticFileSystemView view = new SyntheticFileSystemView();
+        view.generate("/", 1, 2, 10);
+
+        List<VFSFileAttributes<String>> attributes = view.getChildAttributes("/", false);
+        assertEquals(12, attributes.size());
+        assertEquals(1, view.getCallCount(Operation.GET_CHILD_ATTRIBUTES));
+        assertEquals(1, view.getCallCount());
+
+        view.resetCounts();
+        for (String child : view.getChildren("/", false))
+            view.getSize(child);
+        assertEquals(1, view.getCallCount(Operation.GET_CHILDREN));
+        assertEquals(12, view.getCallCount(Operation.GET_SIZE));
+
+        // Path manipulation is free.
+        view.resetCounts();
+        view.getName("/dir-0");
+        view.getParentDirectory("/dir-0");
+        view.createFileObject("/dir-0", "file-0.txt");
+        assertEquals(0, view.getCallCount());
+    }
+
+    public void testLatency() {
+        SyntheticFileSystemView view = new SyntheticFileSystemView();
+        view.setLatency(Operation.EXISTS, 20, 10);
+
+        long start = System.nanoTime();
+        view.exists("/");
+        long elapsed = (System.nanoTime() - start) / 1000000;
+        assertTrue("Elapsed " + elapsed, elapsed >= 20);
+
+        start = System.nanoTime();
+        view.isDirectory("/");
+        elapsed = (System.nanoTime() - start) / 1000000;
+        assertTrue("Elapsed " + elapsed, elapsed < 20);
+    }
+
+    public void testFailures() throws Exception {
+        SyntheticFileSystemView view = new SyntheticFileSystemView();
+        view.generate("/", 0, 0, 10);
+        view.setFailureRate(Operation.GET_CHILDREN, 1);
+        assertEquals(0, view.getChildren("/", false).length);
+        assertEquals(10, view.getChildAttributes("/", false).size());
+        assertEquals(1, view.getFailureCount(Operation.GET_CHILDREN));
+
+        view.setFailureRate(Operation.CREATE_NEW_FOLDER, 1);
+        try {
+            view.createNewFolder("/");
+            fail("Expected an injected failure.");
+        } catch (VFSException e) {
+        }
+
+        view.setThrowOnFailure(true);
+        try {
+            view.getChildren("/", false);
+            fail("Expected an injected failure.");
+        } catch (SyntheticFileSystemView.InjectedFailureException e) {
+            assertEquals(Operation.GET_CHILDREN, e.getOperation());
+        }
+
+        view.setThrowOnFailure(false);
+        view.setFailureRate(0.5);
+        view.setSeed(42);
+        view.resetCounts();
+        for (int i = 0; i < 1000; i++)
+            view.exists("/");
+        long failures = view.getFailureCount(Operation.EXISTS);
+        assertTrue("Failures " + failures, failures > 400 && failures < 600);
+    }
+
+    public void testMutation() throws Exception {
+        SyntheticFileSystemView view = new SyntheticFileSystemView();
+        String dir = view.addDirectory("/", "a");
+        view.addFile(dir, "b.txt", 42, 1000);
+        view.addFile(dir, ".hidden", 0, 1000);
+        assertEquals(1, view.getChildren(dir, true).length);
+        assertEquals(2, view.getChildren(dir, false).length);
+
+        view.rename(dir, "/c");
+        assertFalse(view.exists("/a/b.txt"));
+        assertEquals(42, view.getSize("/c/b.txt"));
+
+        String folder = view.createNewFolder("/c");
+        assertTrue(view.isDirectory(folder));
+
+        assertTrue(view.delete("/c"));
+        assertFalse(view.exists("/c/b.txt"));
+        assertEquals(0, view.getChildren("/", false).length);
+    }
+}
@@ -0,0 +1,62 @@
+package org.fest.swing.edt;
+
+import com.googlecode.vfsjfilechooser2.filechooser.EdtMonitoringFileSystemView;
+import com.googlecode.vfsjfilechooser2.filechooser.EdtMonitoringFileSystemView.Call;
+import java.util.List;
+import javax.swing.SwingUtilities;
+import junit.framework.TestCase;
+import org.anarres.filechooser.test.SyntheticFileSystemView;
+import org.anarres.filechooser.test.SyntheticFileSystemView.Operation;
+
+/**
+ * Unit test for the detection of file system access on the EDT.
+ * @author shevek
+ */
+public class FailOnEdtFileSystemAccessTest extends TestCase {
+
+    public FailOnEdtFileSystemAccessTest(String testName) {
+        super(testName);
+    }
+
+    public void testOffEdt() {
+        FailOnEdtFileSystemAccess edtAccess = new FailOnEdtFileSystemAccess();
+        EdtMonitoringFileSystemView<String> view = edtAccess.wrap(new SyntheticFileSystemView());
+        view.exists("/");
+        view.getChildren("/", false);
+        assertEquals(0, view.getCallCount());
+        edtAccess.verify();
+    }
+
+    public void testOnEdt() throws Exception {
+        FailOnEdtFileSystemAccess edtAccess = new FailOnEdtFileSystemAccess();
+        SyntheticFileSystemView synthetic = new SyntheticFileSystemView();
+        synthetic.setLatency(Operation.GET_CHILDREN, 100, 0);
+        final EdtMonitoringFileSystemView<String> view = edtAccess.wrap(synthetic);
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                view.getName("/");
+                view.exists("/");
+                view.getChildren("/", false);
+            }
+        });
+
+        assertEquals(2, view.getCallCount());
+        List<Call> stalls = view.getStalls();
+        assertEquals(1, stalls.size());
+        assertEquals("getChildren", stalls.get(0).getMethod());
+        assertEquals("synthetic:///", stalls.get(0).getArgument());
+        // The stack starts at the caller of the view.
+        assertEquals(getClass().getName() + "$1", stalls.get(0).getStackTrace()[0].getClassName());
+
+        try {
+            edtAccess.verify();
+            fail("Expected an error.");
+        } catch (FailOnEdtFileSystemAccess.EdtFileSystemAccessError e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("2 file system call(s)"));
+        }
+
+        edtAccess.reset();
+        edtAccess.verify();
+    }
+}
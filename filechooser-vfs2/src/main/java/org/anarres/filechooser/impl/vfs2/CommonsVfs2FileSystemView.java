@@ -2,17 +2,31 @@ package org.anarres.filechooser.impl.vfs2;
 
 import com.googlecode.vfsjfilechooser2.VFSException;
 import com.googlecode.vfsjfilechooser2.filechooser.AbstractVFSFileSystemView;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSListingHandler;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSFileAttributes;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSFileChangeListener;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSNameFilter;
+import com.googlecode.vfsjfilechooser2.filechooser.WatchServiceDirectoryWatcher;
+import java.io.Closeable;
 import java.io.File;
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import javax.annotation.Nonnull;
 import javax.swing.filechooser.FileSystemView;
 import org.apache.commons.vfs2.CacheStrategy;
+import org.apache.commons.vfs2.FileContent;
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
 import org.apache.commons.vfs2.FileSystemManager;
 import org.apache.commons.vfs2.FileSystemOptions;
+import org.apache.commons.vfs2.FileType;
 import org.apache.commons.vfs2.impl.DecoratedFileObject;
 import org.apache.commons.vfs2.impl.StandardFileSystemManager;
 import org.apache.commons.vfs2.provider.local.LocalFile;
@@ -39,6 +53,7 @@ public class CommonsVfs2FileSystemView extends AbstractVFSFileSystemView<FileObj
         return opts;
     }
 
+    private static final Logger LOG = Logger.getLogger(CommonsVfs2FileSystemView.class.getName());
     private static final FileObject[] EMPTY = new FileObject[0];
     private final FileSystemManager fileSystemManager;
     private final FileSystemOptions fileSystemOptions;
@@ -129,6 +144,57 @@ public class CommonsVfs2FileSystemView extends AbstractVFSFileSystemView<FileObj
         }
     }
 
+    /**
+     * Passes the entries to the handler, checking each for being hidden
+     * only as it is passed. VFS lists a directory in one call, so the
+     * handler may stop early, but the first entry is not seen sooner.
+     * @param dir
+     * @param useFileHiding
+     * @param handler
+     */
+    @Override
+    public void listChildren(FileObject dir, boolean useFileHiding, VFSListingHandler<FileObject> handler) {
+        FileObject[] children;
+        try {
+            children = dir.getChildren();
+        } catch (FileSystemException e) {
+            LOG.log(Level.WARNING, "Failed to list " + dir, e);
+            return;
+        }
+        for (FileObject child : children) {
+            if (useFileHiding && isHiddenFile(child))
+                continue;
+            if (!handler.handle(child))
+                return;
+        }
+    }
+
+    /**
+     * Passes the attributes of the entries to the handler as they are
+     * read from the FileObjects returned by the listing, so that the
+     * first entries are shown before the attributes of the rest are read.
+     * @param dir
+     * @param useFileHiding
+     * @param handler
+     */
+    @Override
+    public void listChildAttributes(FileObject dir, boolean useFileHiding,
+            VFSListingHandler<VFSFileAttributes<FileObject>> handler) {
+        FileObject[] children;
+        try {
+            children = dir.getChildren();
+        } catch (FileSystemException e) {
+            LOG.log(Level.WARNING, "Failed to list " + dir, e);
+            return;
+        }
+        for (FileObject child : children) {
+            if (useFileHiding && isHiddenFile(child))
+                continue;
+            if (!handler.handle(getAttributes(child)))
+                return;
+        }
+    }
+
     /**
      * Gets the list of shown (i.e. not hidden) files.
      * @param dir
@@ -139,19 +205,186 @@ public class CommonsVfs2FileSystemView extends AbstractVFSFileSystemView<FileObj
     public FileObject[] getChildren(FileObject dir, boolean useFileHiding) {
         try {
             FileObject[] children = dir.getChildren();
-            if (!useFileHiding) {
+            if (useFileHiding) {
                 List<FileObject> files = new ArrayList<FileObject>(children.length);
-                for (FileObject child : files)
+                for (FileObject child : children)
                     if (!isHiddenFile(child))
                         files.add(child);
                 children = files.toArray(EMPTY);
             }
             return children;
         } catch (FileSystemException e) {
+            LOG.log(Level.WARNING, "Failed to list " + dir, e);
             return EMPTY;
         }
     }
 
+    /**
+     * Gets the list of shown (i.e. not hidden) files, together with
+     * their attributes. The attributes of each child are read from the
+     * FileObject returned by the listing, which most providers populate
+     * as they list the directory.
+     * @param dir
+     * @param useFileHiding
+     * @return
+     */
+    @Override
+    public List<VFSFileAttributes<FileObject>> getChildAttributes(FileObject dir, boolean useFileHiding) {
+        FileObject[] children;
+        try {
+            children = dir.getChildren();
+        } catch (FileSystemException e) {
+            LOG.log(Level.WARNING, "Failed to list " + dir, e);
+            return Collections.emptyList();
+        }
+        List<VFSFileAttributes<FileObject>> out = new ArrayList<VFSFileAttributes<FileObject>>(children.length);
+        for (FileObject child : children) {
+            if (useFileHiding && isHiddenFile(child))
+                continue;
+            out.add(getAttributes(child));
+        }
+        return out;
+    }
+
+    /**
+     * Gets the list of shown files which pass a name filter. The name of
+     * each child is checked first, so that the type of an entry is read
+     * only if its name does not match, and no other attribute of a
+     * rejected entry is read. A FileFilterSelector is not used, as
+     * findFiles reads the type of every child before filtering it.
+     * @param dir
+     * @param useFileHiding
+     * @param filter
+     * @return
+     */
+    @Override
+    public List<VFSFileAttributes<FileObject>> getChildAttributes(FileObject dir, boolean useFileHiding, VFSNameFilter filter) {
+        FileObject[] children;
+        try {
+            children = dir.getChildren();
+        } catch (FileSystemException e) {
+            LOG.log(Level.WARNING, "Failed to list " + dir, e);
+            return Collections.emptyList();
+        }
+        List<VFSFileAttributes<FileObject>> out = new ArrayList<VFSFileAttributes<FileObject>>();
+        for (FileObject child : children) {
+            if (useFileHiding && isHiddenFile(child))
+                continue;
+            if (filter.acceptName(getName(child))
+                    || (filter.isDirectoriesIncluded() && isDirectory(child)))
+                out.add(getAttributes(child));
+        }
+        return out;
+    }
+
+    /**
+     * Reads all the attributes of a file, fetching its type and content
+     * only once.
+     * @param f
+     * @return
+     */
+    @Override
+    public VFSFileAttributes<FileObject> getAttributes(FileObject f) {
+        boolean directory = false;
+        boolean file = false;
+        long size = 0;
+        long lastModifiedTime = 0;
+        boolean writable = false;
+        try {
+            FileType type = f.getType();
+            directory = type.hasChildren();
+            file = type.hasContent();
+        } catch (FileSystemException e) {
+        }
+        if (file) {
+            try {
+                FileContent content = f.getContent();
+                size = content.getSize();
+                lastModifiedTime = content.getLastModifiedTime();
+            } catch (FileSystemException e) {
+            }
+        }
+        try {
+            writable = f.isWriteable();
+        } catch (FileSystemException e) {
+        }
+        return new VFSFileAttributes<FileObject>(f, getName(f), getUrl(f),
+                directory, file, size, lastModifiedTime, isHiddenFile(f), writable);
+    }
+
+    /**
+     * Watches a local directory using the WatchService of the default
+     * file system. Other file systems return null, and are polled by
+     * the caller; DefaultFileMonitor is not used because it reads the
+     * attributes of every child at each check.
+     * @param dir
+     * @param listener
+     * @return
+     */
+    @Override
+    public Closeable watchDirectory(final FileObject dir, final VFSFileChangeListener<FileObject> listener) {
+        Path path;
+        try {
+            if (!"file".equals(dir.getName().getScheme()))
+                return null;
+            path = Paths.get(URI.create(dir.getName().getURI()));
+        } catch (RuntimeException e) {
+            return null;
+        }
+        return WatchServiceDirectoryWatcher.watch(path, this, dir, new VFSFileChangeListener<FileObject>() {
+            // The manager caches file objects, so forget what they knew.
+            private void refresh(FileObject f) {
+                try {
+                    dir.refresh();
+                    f.refresh();
+                } catch (FileSystemException e) {
+                }
+            }
+
+            @Override
+            public void fileCreated(FileObject f) {
+                refresh(f);
+                listener.fileCreated(f);
+            }
+
+            @Override
+            public void fileDeleted(FileObject f) {
+                refresh(f);
+                listener.fileDeleted(f);
+            }
+
+            @Override
+            public void fileChanged(FileObject f) {
+                refresh(f);
+                listener.fileChanged(f);
+            }
+
+            @Override
+            public void changesLost(FileObject directory) {
+                refresh(directory);
+                listener.changesLost(directory);
+            }
+        });
+    }
+
+    /**
+     * Refreshes a directory and the entries it has listed. The manager
+     * caches file objects, and a directory keeps its children, and each
+     * child its attributes, until it is refreshed.
+     * @param dir
+     */
+    @Override
+    public void refresh(FileObject dir) {
+        try {
+            // Only an attached directory has cached its children.
+            if (dir.isAttached())
+                for (FileObject child : dir.getChildren())
+                    child.refresh();
+            dir.refresh();
+        } catch (FileSystemException e) {
+        }
+    }
+
     /**
      * Returns the parent directory of <code>dir</code>.
      * @param dir the <code>File</code> being queried
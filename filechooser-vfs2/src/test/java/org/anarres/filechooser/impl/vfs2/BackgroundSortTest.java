@@ -0,0 +1,156 @@
+package org.anarres.filechooser.impl.vfs2;
+
+import com.googlecode.vfsjfilechooser2.VFSJFileChooser;
+import com.googlecode.vfsjfilechooser2.plaf.basic.BasicVFSDirectoryModel;
+import com.googlecode.vfsjfilechooser2.plaf.basic.BasicVFSFileChooserUI;
+import com.googlecode.vfsjfilechooser2.utils.FileObjectComparatorFactory;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.swing.SwingUtilities;
+import junit.framework.TestCase;
+import org.apache.commons.vfs2.FileObject;
+
+/**
+ * Unit test for sorting the directory model in the background.
+ * @author shevek
+ */
+public class BackgroundSortTest extends TestCase {
+
+    private final List<Boolean> busy = new ArrayList<Boolean>();
+    private BasicVFSDirectoryModel<FileObject> model;
+
+    public BackgroundSortTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        final CommonsVfs2FileSystemView view = new CommonsVfs2FileSystemView();
+        final FileObject dir = view.createFileObject("ram:///sort");
+        dir.createFolder();
+        // Named in the opposite order to their sizes.
+        String[] names = {"c.txt", "b.txt", "a.txt"};
+        for (int i = 0; i < names.length; i++) {
+            OutputStream out = dir.resolveFile(names[i]).getContent().getOutputStream();
+            try {
+                out.write(new byte[i + 1]);
+            } finally {
+                out.close();
+            }
+        }
+        model = onEdt(new Callable<BasicVFSDirectoryModel<FileObject>>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public BasicVFSDirectoryModel<FileObject> call() {
+                VFSJFileChooser<FileObject> chooser = new VFSJFileChooser<FileObject>(dir, view);
+                BasicVFSDirectoryModel<FileObject> model = ((BasicVFSFileChooserUI<FileObject>) chooser.getUI()).getModel();
+                model.setWatchingEnabled(false);
+                return model;
+            }
+        });
+        for (int i = 0; i < 500 && getNames().size() != 3; i++)
+            Thread.sleep(10);
+        assertEquals(Arrays.asList("a.txt", "b.txt", "c.txt"), getNames());
+        onEdt(new Callable<Void>() {
+            @Override
+            public Void call() {
+                model.addPropertyChangeListener(new PropertyChangeListener() {
+                    @Override
+                    public void propertyChange(PropertyChangeEvent e) {
+                        if ("busy".equals(e.getPropertyName()))
+                            busy.add((Boolean) e.getNewValue());
+                    }
+                });
+                return null;
+            }
+        });
+    }
+
+    private static <T> T onEdt(Callable<T> callable) throws Exception {
+        FutureTask<T> task = new FutureTask<T>(callable);
+        SwingUtilities.invokeAndWait(task);
+        return task.get();
+    }
+
+    private List<String> getNames() throws Exception {
+        return onEdt(new Callable<List<String>>() {
+            @Override
+            public List<String> call() {
+                List<String> names = new ArrayList<String>();
+                for (int i = 0; i < model.getSize(); i++)
+                    names.add(model.getElementAt(i).getName().getBaseName());
+                return names;
+            }
+        });
+    }
+
+    public void testSort() throws Exception {
+        final CountDownLatch sorted = new CountDownLatch(1);
+        onEdt(new Callable<Void>() {
+            @Override
+            public Void call() {
+                model.sortInBackground(FileObjectComparatorFactory.<FileObject>newSizeKeyComparator(true), new Runnable() {
+                    @Override
+                    public void run() {
+                        sorted.countDown();
+                    }
+                });
+                return null;
+            }
+        });
+        assertTrue(sorted.await(10, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("c.txt", "b.txt", "a.txt"), getNames());
+        // Busy events are delivered on the EDT, which has run them by now.
+        List<Boolean> events = onEdt(new Callable<List<Boolean>>() {
+            @Override
+            public List<Boolean> call() {
+                return new ArrayList<Boolean>(busy);
+            }
+        });
+        // The initial load may end after the listener is added.
+        assertTrue(events.toString(), events.contains(true));
+        assertEquals(Arrays.asList(true, false), events.subList(events.indexOf(true), events.size()));
+    }
+
+    public void testCancel() throws Exception {
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        final CountDownLatch sorted = new CountDownLatch(1);
+        onEdt(new Callable<Void>() {
+            @Override
+            public Void call() {
+                model.sortInBackground(FileObjectComparatorFactory.<FileObject>newSizeKeyComparator(false), new Runnable() {
+                    @Override
+                    public void run() {
+                        cancelled.set(true);
+                    }
+                });
+                model.sortInBackground(FileObjectComparatorFactory.<FileObject>newSizeKeyComparator(true), new Runnable() {
+                    @Override
+                    public void run() {
+                        sorted.countDown();
+                    }
+                });
+                return null;
+            }
+        });
+        assertTrue(sorted.await(10, TimeUnit.SECONDS));
+        // Let any stale completion run first.
+        onEdt(new Callable<Void>() {
+            @Override
+            public Void call() {
+                return null;
+            }
+        });
+        assertFalse(cancelled.get());
+        assertEquals(Arrays.asList("c.txt", "b.txt", "a.txt"), getNames());
+    }
+}
@@ -0,0 +1,143 @@
+package org.anarres.filechooser.impl.vfs2;
+
+import com.googlecode.vfsjfilechooser2.filechooser.PollingDirectoryWatcher;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSFileAttributes;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSFileChangeListener;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSListingHandler;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSNameFilter;
+import com.googlecode.vfsjfilechooser2.utils.GlobPattern;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import junit.framework.TestCase;
+import org.apache.commons.vfs2.FileObject;
+
+/**
+ * Unit test for the Commons VFS 2 file system view.
+ * @author shevek
+ */
+public class CommonsVfs2FileSystemViewTest extends TestCase {
+
+    private Path root;
+    private CommonsVfs2FileSystemView view;
+
+    public CommonsVfs2FileSystemViewTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        root = Files.createTempDirectory("vfs2-view-test");
+        Files.write(root.resolve("file.txt"), new byte[]{1, 2, 3});
+        view = new CommonsVfs2FileSystemView();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        Files.deleteIfExists(root.resolve("file.txt"));
+        Files.deleteIfExists(root.resolve("created.txt"));
+        Files.deleteIfExists(root.resolve("other.csv"));
+        Files.deleteIfExists(root.resolve("sub"));
+        Files.deleteIfExists(root.resolve(".hidden"));
+        Files.delete(root);
+    }
+
+    public void testGetChildren() throws Exception {
+        Files.write(root.resolve(".hidden"), new byte[0]);
+        FileObject dir = view.createFileObject(root.toUri().toString());
+
+        FileObject[] shown = view.getChildren(dir, true);
+        assertEquals(1, shown.length);
+        assertEquals("file.txt", view.getName(shown[0]));
+        assertEquals(2, view.getChildren(dir, false).length);
+    }
+
+    public void testRefresh() throws Exception {
+        FileObject dir = view.createFileObject(root.toUri().toString());
+        assertEquals(1, view.getChildAttributes(dir, false).size());
+
+        // The manager caches the listing until the directory is refreshed.
+        Files.write(root.resolve("created.txt"), new byte[0]);
+        assertEquals(1, view.getChildAttributes(dir, false).size());
+        view.refresh(dir);
+        assertEquals(2, view.getChildAttributes(dir, false).size());
+    }
+
+    public void testListChildAttributes() throws Exception {
+        FileObject dir = view.createFileObject(root.toUri().toString());
+        final List<VFSFileAttributes<FileObject>> out = new ArrayList<VFSFileAttributes<FileObject>>();
+        view.listChildAttributes(dir, false, new VFSListingHandler<VFSFileAttributes<FileObject>>() {
+            @Override
+            public boolean handle(VFSFileAttributes<FileObject> a) {
+                out.add(a);
+                return true;
+            }
+        });
+        assertEquals(1, out.size());
+        assertEquals("file.txt", out.get(0).getName());
+        assertEquals(3, out.get(0).getSize());
+    }
+
+    public void testNameFilter() throws Exception {
+        Files.write(root.resolve("other.csv"), new byte[0]);
+        Files.createDirectory(root.resolve("sub"));
+        FileObject dir = view.createFileObject(root.toUri().toString());
+
+        List<String> names = new ArrayList<String>();
+        for (VFSFileAttributes<FileObject> a : view.getChildAttributes(dir, false,
+                new VFSNameFilter(GlobPattern.compile("*.txt"), false)))
+            names.add(a.getName());
+        assertEquals(Arrays.asList("file.txt"), names);
+
+        names.clear();
+        for (VFSFileAttributes<FileObject> a : view.getChildAttributes(dir, false,
+                new VFSNameFilter(GlobPattern.compile("*.txt"), true)))
+            names.add(a.getName());
+        Collections.sort(names);
+        assertEquals(Arrays.asList("file.txt", "sub"), names);
+    }
+
+    public void testPolling() throws Exception {
+        FileObject dir = view.createFileObject(root.toUri().toString());
+        final BlockingQueue<String> events = new LinkedBlockingQueue<String>();
+        PollingDirectoryWatcher<FileObject> watcher = new PollingDirectoryWatcher<FileObject>(view, dir,
+                view.getChildAttributes(dir, false), new VFSFileChangeListener<FileObject>() {
+            @Override
+            public void fileCreated(FileObject file) {
+                events.add("created " + view.getName(file));
+            }
+
+            @Override
+            public void fileDeleted(FileObject file) {
+                events.add("deleted " + view.getName(file));
+            }
+
+            @Override
+            public void fileChanged(FileObject file) {
+                events.add("changed " + view.getName(file));
+            }
+
+            @Override
+            public void changesLost(FileObject directory) {
+            }
+        }, 10, 10).start();
+        try {
+            Files.write(root.resolve("created.txt"), new byte[0]);
+            assertEquals("created created.txt", events.poll(5, TimeUnit.SECONDS));
+
+            Files.write(root.resolve("file.txt"), new byte[]{1, 2, 3, 4, 5});
+            assertEquals("changed file.txt", events.poll(5, TimeUnit.SECONDS));
+
+            Files.delete(root.resolve("created.txt"));
+            assertEquals("deleted created.txt", events.poll(5, TimeUnit.SECONDS));
+        } finally {
+            watcher.close();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package org.anarres.filechooser.impl.vfs2;
+
+import com.googlecode.vfsjfilechooser2.VFSJFileChooser;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSFileAttributes;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSFileFilter;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSListingHandler;
+import com.googlecode.vfsjfilechooser2.plaf.basic.BasicVFSDirectoryModel;
+import com.googlecode.vfsjfilechooser2.plaf.basic.BasicVFSFileChooserUI;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.swing.SwingUtilities;
+import junit.framework.TestCase;
+import org.apache.commons.vfs2.FileObject;
+
+/**
+ * Unit test for re-filtering the current directory without listing it again.
+ * @author shevek
+ */
+public class RefilterTest extends TestCase {
+
+    private final AtomicInteger listings = new AtomicInteger();
+    private FileObject dir;
+    private VFSJFileChooser<FileObject> chooser;
+    private BasicVFSDirectoryModel<FileObject> model;
+
+    public RefilterTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        // Counts the listings of the directory under test.
+        final CommonsVfs2FileSystemView view = new CommonsVfs2FileSystemView() {
+            @Override
+            public FileObject[] getChildren(FileObject d, boolean useFileHiding) {
+                count(d);
+                return super.getChildren(d, useFileHiding);
+            }
+
+            @Override
+            public void listChildren(FileObject d, boolean useFileHiding, VFSListingHandler<FileObject> handler) {
+                count(d);
+                super.listChildren(d, useFileHiding, handler);
+            }
+
+            @Override
+            public void listChildAttributes(FileObject d, boolean useFileHiding,
+                    VFSListingHandler<VFSFileAttributes<FileObject>> handler) {
+                count(d);
+                super.listChildAttributes(d, useFileHiding, handler);
+            }
+
+            @Override
+            public List<VFSFileAttributes<FileObject>> getChildAttributes(FileObject d, boolean useFileHiding) {
+                count(d);
+                return super.getChildAttributes(d, useFileHiding);
+            }
+        };
+        dir = view.createFileObject("ram:///refilter");
+        dir.createFolder();
+        for (String name : new String[]{"a.txt", "b.csv", ".hidden"})
+            dir.resolveFile(name).createFile();
+        chooser = onEdt(new Callable<VFSJFileChooser<FileObject>>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public VFSJFileChooser<FileObject> call() {
+                VFSJFileChooser<FileObject> chooser = new VFSJFileChooser<FileObject>(dir, view);
+                model = ((BasicVFSFileChooserUI<FileObject>) chooser.getUI()).getModel();
+                model.setWatchingEnabled(false);
+                chooser.setFileHidingEnabled(true);
+                return chooser;
+            }
+        });
+        await(2);
+    }
+
+    private void count(FileObject d) {
+        if (d.equals(dir))
+            listings.incrementAndGet();
+    }
+
+    private static <T> T onEdt(Callable<T> callable) throws Exception {
+        FutureTask<T> task = new FutureTask<T>(callable);
+        SwingUtilities.invokeAndWait(task);
+        return task.get();
+    }
+
+    private void await(final int size) throws Exception {
+        for (int i = 0; i < 500; i++) {
+            int current = onEdt(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    return model.getSize();
+                }
+            });
+            if (current == size)
+                return;
+            Thread.sleep(10);
+        }
+        fail("Model did not reach " + size + " entries.");
+    }
+
+    public void testRefilter() throws Exception {
+        listings.set(0);
+        onEdt(new Callable<Void>() {
+            @Override
+            public Void call() {
+                chooser.setFileFilter(new VFSFileFilter<FileObject>() {
+                    @Override
+                    public boolean accept(FileObject f) {
+                        return !f.getName().getBaseName().endsWith(".csv");
+                    }
+
+                    @Override
+                    public String getDescription() {
+                        return "Not CSV";
+                    }
+                });
+                return null;
+            }
+        });
+        await(1);
+        assertEquals("a.txt", model.getElementAt(0).getName().getBaseName());
+
+        onEdt(new Callable<Void>() {
+            @Override
+            public Void call() {
+                chooser.setFileHidingEnabled(false);
+                return null;
+            }
+        });
+        await(2);
+
+        assertEquals(0, listings.get());
+    }
+}
@@ -0,0 +1,194 @@
+package org.anarres.filechooser.impl.vfs2;
+
+import com.googlecode.vfsjfilechooser2.VFSJFileChooser;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSFileAttributes;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSListingHandler;
+import com.googlecode.vfsjfilechooser2.plaf.basic.BasicVFSDirectoryModel;
+import com.googlecode.vfsjfilechooser2.plaf.basic.BasicVFSFileChooserUI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+import junit.framework.TestCase;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.Selectors;
+
+/**
+ * Unit test for showing a directory in chunks as it is listed.
+ * @author shevek
+ */
+public class StreamingListingTest extends TestCase {
+
+    private static final int SIZE = 300;
+    private final CountDownLatch resume = new CountDownLatch(1);
+    private final List<String> errors = new ArrayList<String>();
+    private int chunks;
+    private FileObject slow;
+    private FileObject dir;
+    private VFSJFileChooser<FileObject> chooser;
+    private BasicVFSDirectoryModel<FileObject> model;
+
+    public StreamingListingTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        // Stalls the listing of the slow directory after its first entry.
+        final CommonsVfs2FileSystemView view = new CommonsVfs2FileSystemView() {
+            @Override
+            public void listChildAttributes(FileObject d, boolean useFileHiding,
+                    final VFSListingHandler<VFSFileAttributes<FileObject>> handler) {
+                if (!d.equals(slow)) {
+                    super.listChildAttributes(d, useFileHiding, handler);
+                    return;
+                }
+                super.listChildAttributes(d, useFileHiding, new VFSListingHandler<VFSFileAttributes<FileObject>>() {
+                    private boolean first = true;
+
+                    @Override
+                    public boolean handle(VFSFileAttributes<FileObject> a) {
+                        boolean more = handler.handle(a);
+                        if (first) {
+                            first = false;
+                            try {
+                                resume.await(10, TimeUnit.SECONDS);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        }
+                        return more;
+                    }
+                });
+            }
+        };
+        final FileObject start = view.createFileObject("ram:///streaming/start");
+        start.createFolder();
+        slow = view.createFileObject("ram:///streaming/slow");
+        slow.createFolder();
+        slow.resolveFile("first.txt").createFile();
+        slow.resolveFile("second.txt").createFile();
+        dir = view.createFileObject("ram:///streaming/dir");
+        dir.createFolder();
+        List<String> names = new ArrayList<String>();
+        for (int i = 0; i < SIZE; i++)
+            names.add(String.format("file-%03d", i));
+        Collections.shuffle(names, new Random(0));
+        for (String name : names)
+            dir.resolveFile(name).createFile();
+        chooser = onEdt(new Callable<VFSJFileChooser<FileObject>>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public VFSJFileChooser<FileObject> call() {
+                VFSJFileChooser<FileObject> chooser = new VFSJFileChooser<FileObject>(start, view);
+                model = ((BasicVFSFileChooserUI<FileObject>) chooser.getUI()).getModel();
+                model.setWatchingEnabled(false);
+                model.setStreamingEnabled(true);
+                model.setStreamingChunkSize(64);
+                model.setStreamingChunkMillis(50);
+                return chooser;
+            }
+        });
+        await(0);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        resume.countDown();
+        dir.getParent().delete(Selectors.SELECT_ALL);
+    }
+
+    private static <T> T onEdt(Callable<T> callable) throws Exception {
+        FutureTask<T> task = new FutureTask<T>(callable);
+        SwingUtilities.invokeAndWait(task);
+        return task.get();
+    }
+
+    private void await(final int size) throws Exception {
+        for (int i = 0; i < 500; i++) {
+            int current = onEdt(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    return model.getSize();
+                }
+            });
+            if (current == size)
+                return;
+            Thread.sleep(10);
+        }
+        fail("Model did not reach " + size + " entries.");
+    }
+
+    /** Called on the EDT. */
+    private void checkSorted() {
+        for (int i = 1; i < model.getSize(); i++) {
+            String prev = model.getElementAt(i - 1).getName().getBaseName();
+            String next = model.getElementAt(i).getName().getBaseName();
+            if (prev.compareTo(next) >= 0)
+                errors.add(prev + " before " + next + " at " + i);
+        }
+    }
+
+    private void cd(final FileObject directory) throws Exception {
+        onEdt(new Callable<Void>() {
+            @Override
+            public Void call() {
+                chooser.setCurrentDirectory(directory);
+                return null;
+            }
+        });
+    }
+
+    public void testStalled() throws Exception {
+        cd(slow);
+        // Published by the timer while the listing is stalled.
+        await(1);
+        assertEquals("first.txt", model.getElementAt(0).getName().getBaseName());
+        resume.countDown();
+        await(2);
+    }
+
+    public void testMerge() throws Exception {
+        onEdt(new Callable<Void>() {
+            @Override
+            public Void call() {
+                model.addListDataListener(new ListDataListener() {
+                    @Override
+                    public void intervalAdded(ListDataEvent e) {
+                        chunks++;
+                        checkSorted();
+                    }
+
+                    @Override
+                    public void intervalRemoved(ListDataEvent e) {
+                    }
+
+                    @Override
+                    public void contentsChanged(ListDataEvent e) {
+                    }
+                });
+                return null;
+            }
+        });
+        cd(dir);
+        await(SIZE);
+
+        onEdt(new Callable<Void>() {
+            @Override
+            public Void call() {
+                checkSorted();
+                return null;
+            }
+        });
+        assertEquals(Collections.<String>emptyList(), errors);
+        // Published in chunks of at most 64 entries.
+        assertTrue("Published in " + chunks + " chunks.", chunks >= SIZE / 64);
+    }
+}
@@ -6,6 +6,7 @@
 package org.anarres.filechooser.impl.vfs2;
 
 import com.googlecode.vfsjfilechooser2.VFSJFileChooser;
+import com.googlecode.vfsjfilechooser2.filechooser.VFSFileSystemView;
 import java.awt.EventQueue;
 import java.util.Arrays;
 import javax.annotation.Nonnull;
@@ -17,6 +18,7 @@ import org.apache.commons.vfs2.impl.StandardFileSystemManager;
 import org.fest.swing.annotation.GUITest;
 import org.fest.swing.core.BasicRobot;
 import org.fest.swing.core.Robot;
+import org.fest.swing.edt.FailOnEdtFileSystemAccess;
 import org.fest.swing.edt.FailOnThreadViolationRepaintManager;
 import org.fest.swing.finder.VFSJFileChooserFinder;
 import org.fest.swing.fixture.VFSJFileChooserFixture;
@@ -67,12 +69,20 @@ public class VFSJFileChooserTest {
         foo.resolveFile("foo1").createFile();
         root.resolveFile("bar").createFile();
 
+        final FailOnEdtFileSystemAccess edtAccess = new FailOnEdtFileSystemAccess();
+
         EventQueue.invokeLater(new Runnable() {
 
             @Override
             public void run() {
                 try {
-                    CommonsVfs2JFileChooser chooser = new CommonsVfs2JFileChooser();
+                    VFSJFileChooser<FileObject> chooser;
+                    if (FailOnEdtFileSystemAccess.isEnabled()) {
+                        VFSFileSystemView<FileObject> view = edtAccess.wrap(new CommonsVfs2FileSystemView());
+                        chooser = new VFSJFileChooser<FileObject>(view);
+                    } else {
+                        chooser = new CommonsVfs2JFileChooser();
+                    }
                     chooser.setMultiSelectionEnabled(true);
                     chooser.setCurrentDirectory(root);
                     VFSJFileChooser.RETURN_TYPE ret = chooser.showOpenDialog(null);
@@ -97,6 +107,7 @@ public class VFSJFileChooserTest {
         chooser.setCurrentDirectory(foo);
         // Thread.sleep(2000);
         chooser.approve();
+        edtAccess.verify();
     }
 
 }